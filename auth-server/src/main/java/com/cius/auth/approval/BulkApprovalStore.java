@@ -0,0 +1,21 @@
+package com.cius.auth.approval;
+
+import org.springframework.security.oauth2.provider.approval.ApprovalStore;
+
+/**
+ * 在 ApprovalStore 的基础上支持按用户、按客户端批量撤销授权：
+ * 用户注销账号、修改密码，或者客户端下线、密钥泄露时，一次撤销它名下的全部授权，
+ * 之后再走 /oauth/authorize 需要重新确认（自动授权的客户端会重新写入）。
+ */
+public interface BulkApprovalStore extends ApprovalStore {
+
+    /**
+     * @return 撤销的授权条数
+     */
+    int revokeByUser(String userId);
+
+    /**
+     * @return 撤销的授权条数
+     */
+    int revokeByClient(String clientId);
+}
@@ -0,0 +1,261 @@
+package com.cius.auth.approval;
+
+import com.cius.auth.cache.ExpiringCache;
+import org.springframework.security.oauth2.provider.approval.Approval;
+import org.springframework.security.oauth2.provider.approval.Approval.ApprovalStatus;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 在持久化的 ApprovalStore 前面加一层本地缓存，用户再次登录走 /oauth/authorize 时只查一次内存：
+ *  1.按（用户，客户端）缓存，值是同意和拒绝的 scope 位图（见 ScopeIndex）加上最早的过期时间，
+ *    已经过期的授权不放进缓存（ApprovalStoreUserApprovalHandler 同样会忽略它们），
+ *    最早的授权过期之后这一条缓存随之失效，重新从存储加载；
+ *  2.自动授权的客户端每次 /oauth/authorize 都会写一遍授权（有效期顺延一个月），
+ *    缓存中已经是同样的状态、且有效期只差不到 refreshSeconds 时不再写库；
+ *  3.通过本类增加、撤销授权时同步失效缓存，按用户、按客户端批量撤销时遍历失效整个缓存中对应的条目；
+ *    其它节点上的缓存最多在 ttl 之后过期。
+ * 返回的授权的 expiresAt 是这一组授权中最早的过期时间，比实际的早，不会让过期的授权被当成有效。
+ */
+public class CachingApprovalStore implements BulkApprovalStore {
+
+    private final BulkApprovalStore delegate;
+
+    private final ExpiringCache<ApprovalKey, CachedApprovals> cache;
+
+    private final ScopeIndex scopes = new ScopeIndex();
+
+    private long refreshMillis = TimeUnit.DAYS.toMillis(1);
+
+    private final LongAdder writes = new LongAdder();
+
+    private final LongAdder skippedWrites = new LongAdder();
+
+    public CachingApprovalStore(BulkApprovalStore delegate, int maxSize, long ttlSeconds) {
+        this.delegate = delegate;
+        this.cache = new ExpiringCache<>(maxSize, ttlSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 设为 0 时每次都写库
+     */
+    public void setRefreshSeconds(long refreshSeconds) {
+        this.refreshMillis = TimeUnit.SECONDS.toMillis(refreshSeconds);
+    }
+
+    @Override
+    public boolean addApprovals(Collection<Approval> approvals) {
+        if (isUnchanged(approvals)) {
+            skippedWrites.increment();
+            return true;
+        }
+        try {
+            return delegate.addApprovals(approvals);
+        } finally {
+            writes.increment();
+            invalidate(approvals);
+        }
+    }
+
+    @Override
+    public boolean revokeApprovals(Collection<Approval> approvals) {
+        try {
+            return delegate.revokeApprovals(approvals);
+        } finally {
+            invalidate(approvals);
+        }
+    }
+
+    @Override
+    public Collection<Approval> getApprovals(String userId, String clientId) {
+        CachedApprovals approvals = lookup(userId, clientId);
+        if (approvals == null) {
+            return delegate.getApprovals(userId, clientId);
+        }
+        return approvals.toApprovals(scopes);
+    }
+
+    @Override
+    public int revokeByUser(String userId) {
+        try {
+            return delegate.revokeByUser(userId);
+        } finally {
+            cache.invalidateIf(approvals -> approvals.userId.equals(userId));
+        }
+    }
+
+    @Override
+    public int revokeByClient(String clientId) {
+        try {
+            return delegate.revokeByClient(clientId);
+        } finally {
+            cache.invalidateIf(approvals -> approvals.clientId.equals(clientId));
+        }
+    }
+
+    public ExpiringCache<?, ?> getCache() {
+        return cache;
+    }
+
+    public long getWriteCount() {
+        return writes.sum();
+    }
+
+    public long getSkippedWriteCount() {
+        return skippedWrites.sum();
+    }
+
+    /**
+     * @return scope 超过 ScopeIndex 容量时返回 null，由调用方直接查询存储
+     */
+    private CachedApprovals lookup(String userId, String clientId) {
+        ApprovalKey key = new ApprovalKey(userId, clientId);
+        CachedApprovals approvals = cache.get(key, this::load);
+        if (approvals != null && approvals.validUntil <= System.currentTimeMillis()) {
+            cache.invalidate(key);
+            approvals = cache.get(key, this::load);
+        }
+        return approvals;
+    }
+
+    private CachedApprovals load(ApprovalKey key) {
+        long now = System.currentTimeMillis();
+        long approved = 0;
+        long denied = 0;
+        long validUntil = Long.MAX_VALUE;
+        long lastUpdatedAt = 0;
+        for (Approval approval : delegate.getApprovals(key.userId, key.clientId)) {
+            Date expiresAt = approval.getExpiresAt();
+            if (expiresAt == null || expiresAt.getTime() <= now) {
+                continue;
+            }
+            int index = scopes.indexOf(approval.getScope());
+            if (index < 0) {
+                return null;
+            }
+            if (approval.getStatus() == ApprovalStatus.APPROVED) {
+                approved |= 1L << index;
+            } else {
+                denied |= 1L << index;
+            }
+            validUntil = Math.min(validUntil, expiresAt.getTime());
+            if (approval.getLastUpdatedAt() != null) {
+                lastUpdatedAt = Math.max(lastUpdatedAt, approval.getLastUpdatedAt().getTime());
+            }
+        }
+        return new CachedApprovals(key.userId, key.clientId, approved, denied, validUntil, lastUpdatedAt);
+    }
+
+    /**
+     * 每一条都和缓存中的状态一致，而且新的过期时间不早于缓存中的、最多晚 refreshMillis，才可以不写库
+     */
+    private boolean isUnchanged(Collection<Approval> approvals) {
+        if (refreshMillis <= 0 || approvals.isEmpty()) {
+            return false;
+        }
+        CachedApprovals cached = null;
+        for (Approval approval : approvals) {
+            if (approval.getExpiresAt() == null) {
+                return false;
+            }
+            if (cached == null || !cached.userId.equals(approval.getUserId()) || !cached.clientId.equals(approval.getClientId())) {
+                cached = lookup(approval.getUserId(), approval.getClientId());
+                if (cached == null) {
+                    return false;
+                }
+            }
+            int index = scopes.indexOf(approval.getScope());
+            if (index < 0) {
+                return false;
+            }
+            long bits = approval.getStatus() == ApprovalStatus.APPROVED ? cached.approved : cached.denied;
+            long gap = approval.getExpiresAt().getTime() - cached.validUntil;
+            if ((bits & 1L << index) == 0 || gap < 0 || gap >= refreshMillis) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void invalidate(Collection<Approval> approvals) {
+        for (Approval approval : approvals) {
+            cache.invalidate(new ApprovalKey(approval.getUserId(), approval.getClientId()));
+        }
+    }
+
+    private static final class ApprovalKey {
+
+        final String userId;
+
+        final String clientId;
+
+        private final int hash;
+
+        ApprovalKey(String userId, String clientId) {
+            this.userId = userId;
+            this.clientId = clientId;
+            this.hash = 31 * userId.hashCode() + clientId.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof ApprovalKey)) {
+                return false;
+            }
+            ApprovalKey other = (ApprovalKey) o;
+            return userId.equals(other.userId) && clientId.equals(other.clientId);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * 一个用户对一个客户端的全部有效授权，validUntil 是其中最早的过期时间（没有授权时为 Long.MAX_VALUE）
+     */
+    private static final class CachedApprovals {
+
+        final String userId;
+
+        final String clientId;
+
+        final long approved;
+
+        final long denied;
+
+        final long validUntil;
+
+        final long lastUpdatedAt;
+
+        CachedApprovals(String userId, String clientId, long approved, long denied, long validUntil, long lastUpdatedAt) {
+            this.userId = userId;
+            this.clientId = clientId;
+            this.approved = approved;
+            this.denied = denied;
+            this.validUntil = validUntil;
+            this.lastUpdatedAt = lastUpdatedAt;
+        }
+
+        List<Approval> toApprovals(ScopeIndex scopes) {
+            long all = approved | denied;
+            List<Approval> approvals = new ArrayList<>(Long.bitCount(all));
+            for (long bits = all; bits != 0; bits &= bits - 1) {
+                int index = Long.numberOfTrailingZeros(bits);
+                ApprovalStatus status = (approved & 1L << index) != 0 ? ApprovalStatus.APPROVED : ApprovalStatus.DENIED;
+                approvals.add(new Approval(userId, clientId, scopes.scope(index), new Date(validUntil), status,
+                        new Date(lastUpdatedAt)));
+            }
+            return approvals;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.cius.auth.approval;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.oauth2.provider.approval.JdbcApprovalStore;
+
+import javax.sql.DataSource;
+
+/**
+ * 授权记录存在 Spring Security OAuth2 默认的 oauth_approvals 表中，单条的增删查沿用 JdbcApprovalStore，
+ * 这里只补上按用户、按客户端批量删除。表结构（MySQL）：
+ * <pre>
+ * create table oauth_approvals (
+ *     userId         varchar(256),
+ *     clientId       varchar(256),
+ *     scope          varchar(256),
+ *     status         varchar(10),
+ *     expiresAt      datetime,
+ *     lastModifiedAt datetime,
+ *     key ix_approvals_user (userId, clientId),
+ *     key ix_approvals_client (clientId)
+ * );
+ * </pre>
+ */
+public class JdbcBulkApprovalStore extends JdbcApprovalStore implements BulkApprovalStore {
+
+    private static final String DELETE_BY_USER = "delete from oauth_approvals where userId=?";
+
+    private static final String DELETE_BY_CLIENT = "delete from oauth_approvals where clientId=?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public JdbcBulkApprovalStore(DataSource dataSource) {
+        super(dataSource);
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @Override
+    public int revokeByUser(String userId) {
+        return jdbcTemplate.update(DELETE_BY_USER, userId);
+    }
+
+    @Override
+    public int revokeByClient(String clientId) {
+        return jdbcTemplate.update(DELETE_BY_CLIENT, clientId);
+    }
+}
@@ -0,0 +1,44 @@
+package com.cius.auth.approval;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 给 scope 分配 0-63 的下标，一个用户对一个客户端的授权就可以用两个 long（同意、拒绝）表示。
+ * 下标按第一次出现的顺序分配，进程内不会变化；不同的 scope 超过 64 个之后返回 -1，调用方不再缓存。
+ */
+class ScopeIndex {
+
+    static final int CAPACITY = Long.SIZE;
+
+    private final ConcurrentHashMap<String, Integer> indexes = new ConcurrentHashMap<>();
+
+    /**
+     * 先写数组再放进 indexes，拿到下标的线程一定能看到对应的 scope
+     */
+    private final String[] scopes = new String[CAPACITY];
+
+    private int size;
+
+    int indexOf(String scope) {
+        Integer index = indexes.get(scope);
+        if (index != null) {
+            return index;
+        }
+        synchronized (this) {
+            index = indexes.get(scope);
+            if (index != null) {
+                return index;
+            }
+            if (size == CAPACITY) {
+                return -1;
+            }
+            scopes[size] = scope;
+            indexes.put(scope, size);
+            return size++;
+        }
+    }
+
+    String scope(int index) {
+        return scopes[index];
+    }
+}
@@ -0,0 +1,118 @@
+package com.cius.auth.audit;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 一条审计记录，创建之后不可变。
+ * 落盘格式是一行 Tab 分隔的 UTF-8 文本：时间(毫秒) action outcome client_id username grant_type jti，
+ * 空值写成 "-"，字段中的 Tab 和换行替换成空格。
+ */
+public final class AuditEvent {
+
+    public static final String ISSUE = "issue";
+
+    public static final String REFRESH = "refresh";
+
+    public static final String REVOKE = "revoke";
+
+    public static final String SUCCESS = "success";
+
+    private static final String NULL = "-";
+
+    private static final int FIELDS = 7;
+
+    private final long timestamp;
+
+    private final String action;
+
+    private final String outcome;
+
+    private final String clientId;
+
+    private final String username;
+
+    private final String grantType;
+
+    private final String jti;
+
+    public AuditEvent(long timestamp, String action, String outcome, String clientId, String username,
+                      String grantType, String jti) {
+        this.timestamp = timestamp;
+        this.action = action;
+        this.outcome = outcome;
+        this.clientId = clientId;
+        this.username = username;
+        this.grantType = grantType;
+        this.jti = jti;
+    }
+
+    public byte[] encode() {
+        StringBuilder sb = new StringBuilder(96);
+        sb.append(timestamp);
+        append(sb, action);
+        append(sb, outcome);
+        append(sb, clientId);
+        append(sb, username);
+        append(sb, grantType);
+        append(sb, jti);
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    public static AuditEvent decode(byte[] bytes, int offset, int length) {
+        String[] fields = new String(bytes, offset, length, StandardCharsets.UTF_8).split("\t", -1);
+        if (fields.length != FIELDS) {
+            throw new IllegalArgumentException("Malformed audit record: " + fields.length + " field(s)");
+        }
+        return new AuditEvent(Long.parseLong(fields[0]), value(fields[1]), value(fields[2]), value(fields[3]),
+                value(fields[4]), value(fields[5]), value(fields[6]));
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public String getAction() {
+        return action;
+    }
+
+    public String getOutcome() {
+        return outcome;
+    }
+
+    public String getClientId() {
+        return clientId;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public String getGrantType() {
+        return grantType;
+    }
+
+    public String getJti() {
+        return jti;
+    }
+
+    @Override
+    public String toString() {
+        return new String(encode(), StandardCharsets.UTF_8);
+    }
+
+    private static void append(StringBuilder sb, String value) {
+        sb.append('\t');
+        if (value == null) {
+            sb.append(NULL);
+            return;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            sb.append(c == '\t' || c == '\n' || c == '\r' ? ' ' : c);
+        }
+    }
+
+    private static String value(String field) {
+        return NULL.equals(field) ? null : field;
+    }
+}
@@ -0,0 +1,224 @@
+package com.cius.auth.audit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 异步、批量的审计日志：
+ *  1.record 只把记录放进 AuditRingBuffer，不做任何 I/O，也不加锁；
+ *  2.一个后台线程（audit-writer）每次最多取 batchSize 条，依次交给每个 AuditSink 写入，
+ *    队列为空时刷盘并休眠 idleMillis；某个 AuditSink 写失败只影响它自己，这一批不重试。
+ *    写入和丢失的条数按 AuditSink 分别统计（getWrittenCount、getLostCount），只有写成功才算写入；
+ *  3.队列满时按 OverflowPolicy 处理：DROP 直接丢弃新记录，WAIT 最多等待 maxWaitMicros 微秒，仍然满就丢弃。
+ *    丢弃的条数见 getDroppedCount，不会阻塞 /oauth/token 超过 maxWaitMicros。
+ *
+ * 写线程是单线程，比较慢的 AuditSink（例如数据库）会拖慢所有 AuditSink，积压超过容量之后开始丢弃。
+ */
+public class AuditLog implements InitializingBean, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuditLog.class);
+
+    private static final long FAILURE_LOG_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    public enum OverflowPolicy {
+        DROP, WAIT
+    }
+
+    private final AuditRingBuffer<AuditEvent> buffer;
+
+    private final List<AuditSink> sinks;
+
+    private final int batchSize;
+
+    private OverflowPolicy overflowPolicy = OverflowPolicy.DROP;
+
+    private long maxWaitNanos = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private long idleNanos = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final LongAdder dropped = new LongAdder();
+
+    private final LongAdder[] written;
+
+    private final LongAdder[] lost;
+
+    private final LongAdder failures = new LongAdder();
+
+    private final Thread writer = new Thread(this::run, "audit-writer");
+
+    private volatile boolean running = true;
+
+    private long lastFailureLog;
+
+    public AuditLog(List<AuditSink> sinks, int capacity, int batchSize) {
+        this.buffer = new AuditRingBuffer<>(capacity);
+        this.sinks = new ArrayList<>(sinks);
+        this.written = counters(this.sinks.size());
+        this.lost = counters(this.sinks.size());
+        this.batchSize = batchSize;
+        this.writer.setDaemon(true);
+    }
+
+    public void setOverflowPolicy(OverflowPolicy overflowPolicy, long maxWaitMicros) {
+        this.overflowPolicy = overflowPolicy;
+        this.maxWaitNanos = TimeUnit.MICROSECONDS.toNanos(maxWaitMicros);
+    }
+
+    public void setIdleMillis(long idleMillis) {
+        this.idleNanos = TimeUnit.MILLISECONDS.toNanos(idleMillis);
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        writer.start();
+    }
+
+    /**
+     * 停止写线程，把队列中剩余的记录写完之后关闭所有 AuditSink
+     */
+    @Override
+    public void destroy() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(writer);
+        writer.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    /**
+     * 在调用方线程上执行，不做 I/O
+     * @return 队列满被丢弃时返回 false
+     */
+    public boolean record(AuditEvent event) {
+        if (buffer.offer(event)) {
+            return true;
+        }
+        if (overflowPolicy == OverflowPolicy.WAIT) {
+            long deadline = System.nanoTime() + maxWaitNanos;
+            while (System.nanoTime() - deadline < 0) {
+                LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(10));
+                if (buffer.offer(event)) {
+                    return true;
+                }
+            }
+        }
+        dropped.increment();
+        return false;
+    }
+
+    public int getQueueSize() {
+        return buffer.size();
+    }
+
+    public int getCapacity() {
+        return buffer.capacity();
+    }
+
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    public List<AuditSink> getSinks() {
+        return Collections.unmodifiableList(sinks);
+    }
+
+    /**
+     * 成功写入这个 AuditSink 的条数
+     */
+    public long getWrittenCount(AuditSink sink) {
+        return written[sinks.indexOf(sink)].sum();
+    }
+
+    /**
+     * 这个 AuditSink 写失败而丢失的条数
+     */
+    public long getLostCount(AuditSink sink) {
+        return lost[sinks.indexOf(sink)].sum();
+    }
+
+    public long getFailureCount() {
+        return failures.sum();
+    }
+
+    private void run() {
+        List<AuditEvent> batch = new ArrayList<>(batchSize);
+        boolean unflushed = false;
+        while (running) {
+            buffer.drain(batch::add, batchSize);
+            if (!batch.isEmpty()) {
+                write(batch);
+                batch.clear();
+                unflushed = true;
+                continue;
+            }
+            if (unflushed) {
+                flush();
+                unflushed = false;
+            }
+            LockSupport.parkNanos(this, idleNanos);
+        }
+        while (buffer.drain(batch::add, batchSize) > 0) {
+            write(batch);
+            batch.clear();
+        }
+        for (AuditSink sink : sinks) {
+            try {
+                sink.close();
+            } catch (IOException | RuntimeException e) {
+                logger.warn("Failed to close audit sink {}", sink.getClass().getSimpleName(), e);
+            }
+        }
+    }
+
+    private void write(List<AuditEvent> batch) {
+        for (int i = 0; i < sinks.size(); i++) {
+            AuditSink sink = sinks.get(i);
+            try {
+                sink.write(batch);
+                written[i].add(batch.size());
+            } catch (IOException | RuntimeException e) {
+                lost[i].add(batch.size());
+                failed(sink, batch.size(), e);
+            }
+        }
+    }
+
+    private void flush() {
+        for (AuditSink sink : sinks) {
+            try {
+                sink.flush();
+            } catch (IOException | RuntimeException e) {
+                failed(sink, 0, e);
+            }
+        }
+    }
+
+    private static LongAdder[] counters(int size) {
+        LongAdder[] counters = new LongAdder[size];
+        for (int i = 0; i < size; i++) {
+            counters[i] = new LongAdder();
+        }
+        return counters;
+    }
+
+    /**
+     * 目标不可用时每次写都会失败，日志每分钟最多打一次
+     */
+    private void failed(AuditSink sink, int events, Exception e) {
+        failures.increment();
+        long now = System.nanoTime();
+        if (lastFailureLog == 0 || now - lastFailureLog >= FAILURE_LOG_INTERVAL_NANOS) {
+            lastFailureLog = now;
+            logger.warn("Audit sink {} failed, {} event(s) lost ({} failure(s) so far)",
+                    sink.getClass().getSimpleName(), events, failures.sum(), e);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.cius.auth.audit;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.zip.CRC32;
+
+/**
+ * 按顺序读取 SegmentedFileAuditSink 写下的分段文件，可以用来排查问题，
+ * 也可以在数据库恢复之后把记录重新交给 JdbcAuditSink 补写。
+ *
+ * 命令行用法（参数都是可选的过滤条件）：
+ * <pre>
+ * java -cp target/classes com.cius.auth.audit.AuditLogReader /var/log/auth-server/audit client_id=javaboy user=sang jti=... action=issue outcome=invalid_grant since=1700000000000
+ * </pre>
+ * 每条记录输出一行 Tab 分隔的文本，格式见 AuditEvent。
+ */
+public final class AuditLogReader {
+
+    private AuditLogReader() {
+    }
+
+    /**
+     * 依次读取目录下的所有分段，正在写的分段也可以读，读到已写入的位置为止
+     * @return 读取的记录数
+     */
+    public static long scan(Path directory, Predicate<AuditEvent> filter, Consumer<AuditEvent> consumer) throws IOException {
+        long count = 0;
+        for (Path segment : SegmentedFileAuditSink.segments(directory)) {
+            count += scanSegment(segment, filter, consumer);
+        }
+        return count;
+    }
+
+    static long scanSegment(Path segment, Predicate<AuditEvent> filter, Consumer<AuditEvent> consumer) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        CRC32 crc = new CRC32();
+        byte[] payload = new byte[256];
+        long count = 0;
+        while (buffer.remaining() >= SegmentedFileAuditSink.HEADER_BYTES) {
+            int length = buffer.getInt();
+            int checksum = buffer.getInt();
+            if (length <= 0 || length > buffer.remaining()) {
+                break;
+            }
+            if (payload.length < length) {
+                payload = new byte[Math.max(length, payload.length * 2)];
+            }
+            buffer.get(payload, 0, length);
+            crc.reset();
+            crc.update(payload, 0, length);
+            if ((int) crc.getValue() != checksum) {
+                // 写了一半的记录，后面不会再有有效数据
+                break;
+            }
+            AuditEvent event = AuditEvent.decode(payload, 0, length);
+            if (filter.test(event)) {
+                consumer.accept(event);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("Usage: AuditLogReader <directory> [client_id=..] [user=..] [jti=..] [action=..] [outcome=..] [since=epochMillis]");
+            System.exit(1);
+        }
+        Predicate<AuditEvent> filter = event -> true;
+        for (int i = 1; i < args.length; i++) {
+            int eq = args[i].indexOf('=');
+            if (eq < 0) {
+                throw new IllegalArgumentException("Expected name=value but was " + args[i]);
+            }
+            filter = filter.and(condition(args[i].substring(0, eq), args[i].substring(eq + 1)));
+        }
+        long count = scan(Paths.get(args[0]), filter, System.out::println);
+        System.err.println(count + " record(s)");
+    }
+
+    private static Predicate<AuditEvent> condition(String name, String value) {
+        switch (name) {
+            case "client_id":
+                return event -> value.equals(event.getClientId());
+            case "user":
+                return event -> value.equals(event.getUsername());
+            case "jti":
+                return event -> value.equals(event.getJti());
+            case "action":
+                return event -> value.equals(event.getAction());
+            case "outcome":
+                return event -> value.equals(event.getOutcome());
+            case "since":
+                long since = Long.parseLong(value);
+                return event -> event.getTimestamp() >= since;
+            default:
+                throw new IllegalArgumentException("Unknown filter " + name);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.cius.auth.audit;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * 有界、无锁的多生产者单消费者环形队列：
+ *  1.生产者（/oauth/token 的请求线程）用一次 CAS 占一个序号，再把元素写进对应的槽位，不加锁也不等待；
+ *  2.队列满时 offer 直接返回 false，由调用方按溢出策略处理；
+ *  3.只能有一个线程调用 drain：按序号依次取出槽位中的元素并清空槽位，
+ *    遇到已经占了序号但还没写入的槽位就停下，下一次再取。
+ *
+ * @param <E> 元素类型
+ */
+public final class AuditRingBuffer<E> {
+
+    private final AtomicReferenceArray<E> slots;
+
+    private final int capacity;
+
+    private final int mask;
+
+    /**
+     * 下一个要占用的序号
+     */
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * 下一个要取出的序号，只有消费者写
+     */
+    private volatile long head;
+
+    /**
+     * @param capacity 容量，向上取整到 2 的幂
+     */
+    public AuditRingBuffer(int capacity) {
+        if (capacity <= 0 || capacity > (1 << 30)) {
+            throw new IllegalArgumentException("capacity must be between 1 and 2^30");
+        }
+        this.capacity = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.mask = this.capacity - 1;
+        this.slots = new AtomicReferenceArray<>(this.capacity);
+    }
+
+    /**
+     * @return 队列已满时返回 false，元素没有入队
+     */
+    public boolean offer(E element) {
+        if (element == null) {
+            throw new NullPointerException();
+        }
+        while (true) {
+            long sequence = tail.get();
+            if (sequence - head >= capacity) {
+                return false;
+            }
+            if (tail.compareAndSet(sequence, sequence + 1)) {
+                slots.lazySet((int) sequence & mask, element);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 最多取出 max 个元素交给 consumer，只能由消费者线程调用
+     * @return 取出的元素个数
+     */
+    public int drain(Consumer<? super E> consumer, int max) {
+        long sequence = head;
+        int drained = 0;
+        try {
+            while (drained < max) {
+                int index = (int) sequence & mask;
+                E element = slots.get(index);
+                if (element == null) {
+                    break;
+                }
+                slots.lazySet(index, null);
+                sequence++;
+                drained++;
+                consumer.accept(element);
+            }
+        } finally {
+            // 先清空槽位再推进 head，生产者看到新的 head 时槽位一定已经可以复用
+            head = sequence;
+        }
+        return drained;
+    }
+
+    public int size() {
+        return (int) Math.max(0, tail.get() - head);
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+}
@@ -0,0 +1,26 @@
+package com.cius.auth.audit;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * 审计记录的落地位置，只会被 AuditLog 的后台写线程调用，实现不需要考虑线程安全
+ */
+public interface AuditSink extends Closeable {
+
+    /**
+     * 写入一批记录，抛出异常时这一批记录在这个位置上丢失，不会重试
+     */
+    void write(List<AuditEvent> events) throws IOException;
+
+    /**
+     * 写线程空闲时调用，把缓冲的数据刷出去
+     */
+    default void flush() throws IOException {
+    }
+
+    @Override
+    default void close() throws IOException {
+    }
+}
@@ -0,0 +1,154 @@
+package com.cius.auth.audit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * 把审计记录追加写到本地目录下的分段文件（audit-序号.log）中：
+ *  1.每个分段创建时就扩展到 segmentBytes 并整体映射到内存（MappedByteBuffer），写入只是内存拷贝，
+ *    进程崩溃时已写入的数据仍在页缓存中，由操作系统写回磁盘；
+ *  2.写线程空闲时和切换分段时调用 force 刷盘；
+ *  3.当前分段放不下下一条记录时切换到新分段，超过 maxSegments 个分段时删除最旧的；
+ *  4.每次启动都从一个新分段开始，不会修改已有的分段。
+ *
+ * 每条记录是 [长度 int][CRC32 int][内容]，分段中未写入的部分全是 0，
+ * 读取时遇到长度为 0 或校验不通过（例如断电时写了一半）就认为这个分段结束，见 AuditLogReader。
+ */
+public class SegmentedFileAuditSink implements AuditSink {
+
+    private static final Logger logger = LoggerFactory.getLogger(SegmentedFileAuditSink.class);
+
+    static final String PREFIX = "audit-";
+
+    static final String SUFFIX = ".log";
+
+    static final int HEADER_BYTES = 8;
+
+    private final Path directory;
+
+    private final int segmentBytes;
+
+    private final int maxSegments;
+
+    private final CRC32 crc = new CRC32();
+
+    private long sequence;
+
+    private Path segment;
+
+    private MappedByteBuffer buffer;
+
+    private boolean dirty;
+
+    public SegmentedFileAuditSink(Path directory, int segmentBytes, int maxSegments) throws IOException {
+        if (segmentBytes <= HEADER_BYTES) {
+            throw new IllegalArgumentException("segmentBytes too small");
+        }
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.maxSegments = Math.max(1, maxSegments);
+        Files.createDirectories(directory);
+        List<Path> existing = segments(directory);
+        sequence = existing.isEmpty() ? 0 : sequenceOf(existing.get(existing.size() - 1));
+        roll();
+    }
+
+    @Override
+    public void write(List<AuditEvent> events) throws IOException {
+        for (AuditEvent event : events) {
+            byte[] payload = event.encode();
+            if (HEADER_BYTES + payload.length > segmentBytes) {
+                logger.warn("Audit record of {} bytes does not fit in a segment, dropped", payload.length);
+                continue;
+            }
+            if (buffer.remaining() < HEADER_BYTES + payload.length) {
+                roll();
+            }
+            crc.reset();
+            crc.update(payload, 0, payload.length);
+            buffer.putInt(payload.length);
+            buffer.putInt((int) crc.getValue());
+            buffer.put(payload);
+            dirty = true;
+        }
+    }
+
+    @Override
+    public void flush() {
+        if (dirty) {
+            buffer.force();
+            dirty = false;
+        }
+    }
+
+    @Override
+    public void close() {
+        flush();
+    }
+
+    public Path getSegment() {
+        return segment;
+    }
+
+    /**
+     * 目录下所有分段，按序号从旧到新排列
+     */
+    public static List<Path> segments(Path directory) throws IOException {
+        List<Path> segments = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return segments;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+            for (Path path : stream) {
+                segments.add(path);
+            }
+        }
+        // 序号补零到固定宽度，按文件名排序就是按序号排序
+        Collections.sort(segments);
+        return segments;
+    }
+
+    private void roll() throws IOException {
+        if (buffer != null) {
+            flush();
+        }
+        sequence++;
+        segment = directory.resolve(String.format("%s%020d%s", PREFIX, sequence, SUFFIX));
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // 映射在通道关闭之后仍然有效
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        }
+        dirty = false;
+        deleteOldSegments();
+        logger.debug("Audit log rolled to {}", segment);
+    }
+
+    private void deleteOldSegments() throws IOException {
+        List<Path> segments = segments(directory);
+        for (int i = 0; i < segments.size() - maxSegments; i++) {
+            Files.deleteIfExists(segments.get(i));
+        }
+    }
+
+    private static long sequenceOf(Path segment) {
+        String name = segment.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.cius.auth.audit;
+
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.common.exceptions.OAuth2Exception;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.TokenRequest;
+import org.springframework.security.oauth2.provider.token.AccessTokenConverter;
+import org.springframework.security.oauth2.provider.token.TokenEnhancer;
+
+/**
+ * 令牌签发流程中的审计钩子，只生成 AuditEvent 交给 AuditLog，不做 I/O：
+ *  1.签发、刷新成功由 TimedTokenServices 在 DefaultTokenServices 返回之后调用 issued、refreshed 记录，
+ *    这时令牌已经签名并保存，签名之后保存令牌失败不会留下一条成功的记录；
+ *  2.刷新时 TimedTokenServices 手上没有用户信息，所以 TokenAuditor 仍然放在 TokenEnhancerChain 的最后，
+ *    但只把这次的 OAuth2Authentication 记在当前线程上留给 refreshed 使用，不记录，令牌原样返回；
+ *  3.TimedTokenServices 和认证用户时出错，调用 rejected 记录失败原因（OAuth2 错误码）；
+ *  4.吊销令牌时调用 revoked。
+ */
+public class TokenAuditor implements TokenEnhancer {
+
+    private final AuditLog auditLog;
+
+    private final ThreadLocal<OAuth2Authentication> enhanced = new ThreadLocal<>();
+
+    public TokenAuditor(AuditLog auditLog) {
+        this.auditLog = auditLog;
+    }
+
+    @Override
+    public OAuth2AccessToken enhance(OAuth2AccessToken accessToken, OAuth2Authentication authentication) {
+        enhanced.set(authentication);
+        return accessToken;
+    }
+
+    /**
+     * createAccessToken 成功返回之后调用
+     */
+    public void issued(OAuth2AccessToken accessToken, OAuth2Authentication authentication) {
+        enhanced.remove();
+        auditLog.record(new AuditEvent(System.currentTimeMillis(), AuditEvent.ISSUE, AuditEvent.SUCCESS,
+                authentication.getOAuth2Request().getClientId(), authentication.isClientOnly() ? null : authentication.getName(),
+                authentication.getOAuth2Request().getGrantType(), jti(accessToken)));
+    }
+
+    /**
+     * refreshAccessToken 成功返回之后调用，用户取自这次刷新经过 enhance 时的 OAuth2Authentication
+     */
+    public void refreshed(OAuth2AccessToken accessToken, TokenRequest tokenRequest) {
+        OAuth2Authentication authentication = enhanced.get();
+        enhanced.remove();
+        String username = authentication == null || authentication.isClientOnly() ? null : authentication.getName();
+        auditLog.record(new AuditEvent(System.currentTimeMillis(), AuditEvent.REFRESH, AuditEvent.SUCCESS,
+                tokenRequest.getClientId(), username, tokenRequest.getGrantType(), jti(accessToken)));
+    }
+
+    public void rejected(String action, String clientId, String username, String grantType, Exception e) {
+        enhanced.remove();
+        auditLog.record(new AuditEvent(System.currentTimeMillis(), action, outcome(e), clientId, username, grantType, null));
+    }
+
+    public void revoked(String clientId, String username, String jti) {
+        auditLog.record(new AuditEvent(System.currentTimeMillis(), AuditEvent.REVOKE, AuditEvent.SUCCESS,
+                clientId, username, null, jti));
+    }
+
+    private static String jti(OAuth2AccessToken accessToken) {
+        Object jti = accessToken.getAdditionalInformation().get(AccessTokenConverter.JTI);
+        return jti == null ? null : jti.toString();
+    }
+
+    private static String outcome(Exception e) {
+        if (e instanceof OAuth2Exception) {
+            return ((OAuth2Exception) e).getOAuth2ErrorCode();
+        }
+        if (e instanceof AuthenticationException) {
+            // 和 ResourceOwnerPasswordTokenGranter 一样，用户认证失败对外是 invalid_grant
+            return "invalid_grant";
+        }
+        return "server_error";
+    }
+}
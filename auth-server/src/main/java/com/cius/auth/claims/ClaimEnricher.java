@@ -0,0 +1,135 @@
+package com.cius.auth.claims;
+
+import com.cius.auth.cache.ExpiringCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.oauth2.common.DefaultOAuth2AccessToken;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.provider.ClientDetails;
+import org.springframework.security.oauth2.provider.ClientDetailsService;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.token.TokenEnhancer;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按客户端、按用户追加 claim 的 TokenEnhancer，代替原来给所有客户端写死两个 claim 的 CustomAdditionalInformation：
+ *  1.客户端的 claim 模板来自 oauth_client_details.additional_information 中的 claims 字段，
+ *    例如 {"claims":{"tenant":"acme","org":"{{user.org}}","cid":"{{client_id}}"}}，没有配置时使用默认模板；
+ *  2.模板按客户端编译一次（见 ClaimTemplate），ClientDetailsService 返回新的 ClientDetails 对象
+ *    （缓存过期重新加载、客户端被修改）时才重新编译；
+ *  3.模板用到 {{user.*}} 时才查询 UserClaimSource，结果按用户名缓存 ttl 时间；
+ *  4.不修改传入令牌的附加信息，返回一个新的令牌，附加信息一次生成。
+ *
+ * 放在 TokenEnhancerChain 中 JWT 签名之前，追加的 claim 会写进 JWT。
+ */
+public class ClaimEnricher implements TokenEnhancer {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClaimEnricher.class);
+
+    public static final String CLAIMS = "claims";
+
+    private final ClientDetailsService clientDetailsService;
+
+    private final ClaimTemplate defaultTemplate;
+
+    private final ConcurrentHashMap<String, CompiledClient> templates = new ConcurrentHashMap<>();
+
+    private final int maxClients;
+
+    private UserClaimSource userClaimSource;
+
+    private ExpiringCache<String, Map<String, Object>> userClaims;
+
+    public ClaimEnricher(ClientDetailsService clientDetailsService, ClaimTemplate defaultTemplate, int maxClients) {
+        this.clientDetailsService = clientDetailsService;
+        this.defaultTemplate = defaultTemplate;
+        this.maxClients = maxClients;
+    }
+
+    /**
+     * 设置用户属性来源，结果缓存 ttl 时间，最多 maxSize 个用户
+     */
+    public void setUserClaimSource(UserClaimSource userClaimSource, int maxSize, long ttl, TimeUnit unit) {
+        this.userClaimSource = userClaimSource;
+        this.userClaims = new ExpiringCache<>(maxSize, ttl, unit);
+    }
+
+    @Override
+    public OAuth2AccessToken enhance(OAuth2AccessToken accessToken, OAuth2Authentication authentication) {
+        String clientId = authentication.getOAuth2Request().getClientId();
+        ClaimTemplate template = templateFor(clientId);
+        if (template.isEmpty()) {
+            return accessToken;
+        }
+        String username = authentication.isClientOnly() ? null : authentication.getName();
+        Map<String, Object> user = template.needsUserClaims() ? userClaims(username) : null;
+        DefaultOAuth2AccessToken result = new DefaultOAuth2AccessToken(accessToken);
+        result.setAdditionalInformation(template.apply(accessToken.getAdditionalInformation(), username, clientId, user));
+        return result;
+    }
+
+    /**
+     * 清除已编译的模板和用户属性缓存，修改客户端或用户属性后可以调用
+     */
+    public void evictAll() {
+        templates.clear();
+        if (userClaims != null) {
+            userClaims.invalidateAll();
+        }
+    }
+
+    public ExpiringCache<String, Map<String, Object>> getUserClaimCache() {
+        return userClaims;
+    }
+
+    ClaimTemplate templateFor(String clientId) {
+        ClientDetails client = clientDetailsService.loadClientByClientId(clientId);
+        CompiledClient compiled = templates.get(clientId);
+        if (compiled != null && compiled.client == client) {
+            return compiled.template;
+        }
+        ClaimTemplate template = compile(client);
+        if (templates.size() >= maxClients) {
+            templates.clear();
+        }
+        templates.put(clientId, new CompiledClient(client, template));
+        return template;
+    }
+
+    @SuppressWarnings("unchecked")
+    private ClaimTemplate compile(ClientDetails client) {
+        Object claims = client.getAdditionalInformation() == null ? null : client.getAdditionalInformation().get(CLAIMS);
+        try {
+            if (claims instanceof Map) {
+                return ClaimTemplate.compile((Map<String, ?>) claims);
+            }
+            if (claims instanceof String) {
+                return ClaimTemplate.parse((String) claims);
+            }
+        } catch (IllegalArgumentException e) {
+            // 配置错误不影响签发，退回默认模板
+            logger.warn("Invalid claim template for client '{}', using default: {}", client.getClientId(), e.getMessage());
+        }
+        return defaultTemplate;
+    }
+
+    private Map<String, Object> userClaims(String username) {
+        if (username == null || userClaimSource == null) {
+            return null;
+        }
+        return userClaims.get(username, userClaimSource::load);
+    }
+
+    private static final class CompiledClient {
+        final ClientDetails client;
+        final ClaimTemplate template;
+
+        CompiledClient(ClientDetails client, ClaimTemplate template) {
+            this.client = client;
+            this.template = template;
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.cius.auth.claims;
+
+import com.cius.auth.jwt.CompactClaims;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 一个客户端的 claim 模板，只在客户端配置变化时编译一次，签发令牌时不再解析配置：
+ *  1.常量 claim 在编译时合并成一个不可变的 Map（嵌套的 Map、List 也是不可变的），所有令牌共用；
+ *  2.动态 claim 的值必须整个是占位符：{{username}}、{{client_id}}、{{user.属性名}}，
+ *    编译成 (名称, 类型, 属性名) 数组，签发时顺序取值，取不到值的 claim 不写入；
+ *  3.与令牌标准字段重名的 claim（包括紧凑令牌格式的 d、u、c、a、s、r）在编译时直接拒绝，
+ *    避免覆盖 user_name、exp、jti 等，也避免等到签发令牌时才在 CompactAccessTokenConverter 中失败。
+ *
+ * 占位符用 {{ }} 而不是 ${ }，避免和 Spring 的属性占位符冲突。
+ */
+public final class ClaimTemplate {
+
+    public static final ClaimTemplate EMPTY = new ClaimTemplate(Collections.emptyMap(),
+            new String[0], new int[0], new String[0]);
+
+    static final Set<String> RESERVED = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            "user_name", "client_id", "scope", "authorities", "aud", "exp", "jti", "ati", "grant_type", "active",
+            // 紧凑令牌格式的短名称，见 CompactClaims
+            CompactClaims.DICTIONARY, CompactClaims.USER_NAME, CompactClaims.CLIENT, CompactClaims.AUTHORITY_LIST,
+            CompactClaims.SCOPES, CompactClaims.AUDIENCE)));
+
+    private static final String PREFIX = "{{";
+
+    private static final String SUFFIX = "}}";
+
+    private static final String USER_PREFIX = "user.";
+
+    private static final int USERNAME = 0;
+
+    private static final int CLIENT_ID = 1;
+
+    private static final int USER_ATTRIBUTE = 2;
+
+    private final Map<String, Object> constants;
+
+    private final String[] dynamicNames;
+
+    private final int[] dynamicTypes;
+
+    private final String[] userAttributes;
+
+    private final boolean needsUserClaims;
+
+    private ClaimTemplate(Map<String, Object> constants, String[] dynamicNames, int[] dynamicTypes, String[] userAttributes) {
+        this.constants = constants;
+        this.dynamicNames = dynamicNames;
+        this.dynamicTypes = dynamicTypes;
+        this.userAttributes = userAttributes;
+        boolean user = false;
+        for (int type : dynamicTypes) {
+            user |= type == USER_ATTRIBUTE;
+        }
+        this.needsUserClaims = user;
+    }
+
+    /**
+     * 编译 claim 定义，name -> 常量值或占位符
+     */
+    public static ClaimTemplate compile(Map<String, ?> definitions) {
+        if (definitions == null || definitions.isEmpty()) {
+            return EMPTY;
+        }
+        Map<String, Object> constants = new LinkedHashMap<>();
+        List<String> names = new ArrayList<>();
+        List<Integer> types = new ArrayList<>();
+        List<String> attributes = new ArrayList<>();
+        for (Map.Entry<String, ?> entry : definitions.entrySet()) {
+            String name = entry.getKey();
+            Object value = entry.getValue();
+            if (RESERVED.contains(name)) {
+                throw new IllegalArgumentException("Claim '" + name + "' would override a standard token claim");
+            }
+            String placeholder = placeholder(value);
+            if (placeholder == null) {
+                constants.put(name, immutable(value));
+            } else if ("username".equals(placeholder)) {
+                names.add(name);
+                types.add(USERNAME);
+                attributes.add(null);
+            } else if ("client_id".equals(placeholder)) {
+                names.add(name);
+                types.add(CLIENT_ID);
+                attributes.add(null);
+            } else if (placeholder.startsWith(USER_PREFIX) && placeholder.length() > USER_PREFIX.length()) {
+                names.add(name);
+                types.add(USER_ATTRIBUTE);
+                attributes.add(placeholder.substring(USER_PREFIX.length()));
+            } else {
+                throw new IllegalArgumentException("Unknown claim placeholder for '" + name + "': " + value);
+            }
+        }
+        int[] typeArray = new int[types.size()];
+        for (int i = 0; i < typeArray.length; i++) {
+            typeArray[i] = types.get(i);
+        }
+        return new ClaimTemplate(Collections.unmodifiableMap(constants), names.toArray(new String[0]), typeArray,
+                attributes.toArray(new String[0]));
+    }
+
+    /**
+     * 解析 name=value,name=value 格式的定义，用于 auth.claims.default-template 以及字符串形式的客户端配置
+     */
+    public static ClaimTemplate parse(String definitions) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        for (String pair : StringUtils.commaDelimitedListToStringArray(definitions)) {
+            int index = pair.indexOf('=');
+            if (index <= 0) {
+                continue;
+            }
+            map.put(pair.substring(0, index).trim(), pair.substring(index + 1).trim());
+        }
+        return compile(map);
+    }
+
+    /**
+     * 生成一个令牌的附加信息：base（令牌已有的附加信息）+ 常量 claim + 动态 claim，
+     * Map 按最终大小一次分配好，返回后不可修改
+     * @param userClaims 用户属性，模板不需要时可以为 null
+     */
+    public Map<String, Object> apply(Map<String, Object> base, String username, String clientId, Map<String, Object> userClaims) {
+        int size = base.size() + constants.size() + dynamicNames.length;
+        Map<String, Object> result = new LinkedHashMap<>(size * 4 / 3 + 1);
+        result.putAll(base);
+        result.putAll(constants);
+        for (int i = 0; i < dynamicNames.length; i++) {
+            Object value;
+            switch (dynamicTypes[i]) {
+                case USERNAME:
+                    value = username;
+                    break;
+                case CLIENT_ID:
+                    value = clientId;
+                    break;
+                default:
+                    value = userClaims == null ? null : userClaims.get(userAttributes[i]);
+            }
+            if (value != null) {
+                result.put(dynamicNames[i], value);
+            }
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    public boolean needsUserClaims() {
+        return needsUserClaims;
+    }
+
+    public boolean isEmpty() {
+        return constants.isEmpty() && dynamicNames.length == 0;
+    }
+
+    public int size() {
+        return constants.size() + dynamicNames.length;
+    }
+
+    private static String placeholder(Object value) {
+        if (!(value instanceof String)) {
+            return null;
+        }
+        String text = ((String) value).trim();
+        if (text.length() > PREFIX.length() + SUFFIX.length() && text.startsWith(PREFIX) && text.endsWith(SUFFIX)) {
+            return text.substring(PREFIX.length(), text.length() - SUFFIX.length()).trim();
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object immutable(Object value) {
+        if (value instanceof Map) {
+            Map<String, Object> copy = new LinkedHashMap<>();
+            for (Map.Entry<String, Object> entry : ((Map<String, Object>) value).entrySet()) {
+                copy.put(entry.getKey(), immutable(entry.getValue()));
+            }
+            return Collections.unmodifiableMap(copy);
+        }
+        if (value instanceof List) {
+            List<Object> copy = new ArrayList<>();
+            for (Object item : (List<Object>) value) {
+                copy.add(immutable(item));
+            }
+            return Collections.unmodifiableList(copy);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,31 @@
+package com.cius.auth.claims;
+
+import org.springframework.jdbc.core.ColumnMapRowMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 用一条 SQL 查询用户属性，例如 select tenant, org from user_profile where username = ?，
+ * 结果的列名就是属性名（不区分大小写），查不到时返回空 Map。
+ */
+public class JdbcUserClaimSource implements UserClaimSource {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final String query;
+
+    public JdbcUserClaimSource(DataSource dataSource, String query) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.query = query;
+    }
+
+    @Override
+    public Map<String, Object> load(String username) {
+        List<Map<String, Object>> rows = jdbcTemplate.query(query, new ColumnMapRowMapper(), username);
+        return rows.isEmpty() ? Collections.emptyMap() : Collections.unmodifiableMap(rows.get(0));
+    }
+}
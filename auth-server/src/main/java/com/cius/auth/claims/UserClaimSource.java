@@ -0,0 +1,16 @@
+package com.cius.auth.claims;
+
+import java.util.Map;
+
+/**
+ * 用户属性来源，例如租户、组织、权益，供 claim 模板中的 {{user.属性名}} 使用。
+ * 结果由 ClaimEnricher 按用户名缓存，实现类不需要自己缓存。
+ */
+public interface UserClaimSource {
+
+    /**
+     * @param username 用户名
+     * @return 用户属性，没有时返回空 Map，不要返回 null
+     */
+    Map<String, Object> load(String username);
+}
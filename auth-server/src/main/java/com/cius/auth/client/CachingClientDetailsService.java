@@ -0,0 +1,133 @@
+package com.cius.auth.client;
+
+import com.cius.auth.cache.ExpiringCache;
+import com.cius.auth.metrics.TokenMetrics;
+import com.cius.auth.metrics.TokenPhases;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.dao.DataAccessException;
+import org.springframework.security.oauth2.provider.ClientAlreadyExistsException;
+import org.springframework.security.oauth2.provider.ClientDetails;
+import org.springframework.security.oauth2.provider.ClientDetailsService;
+import org.springframework.security.oauth2.provider.ClientRegistrationException;
+import org.springframework.security.oauth2.provider.ClientRegistrationService;
+import org.springframework.security.oauth2.provider.NoSuchClientException;
+import org.springframework.security.oauth2.provider.client.JdbcClientDetailsService;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 在 JdbcClientDetailsService 前面加一层本地缓存：
+ * 每次 /oauth/token、每次 DefaultTokenServices 刷新令牌都会调用 loadClientByClientId，
+ * 原来每次都要去 oauth_client_details 表查一次，现在只有缓存未命中或过期时才会查库。
+ *
+ * 1.缓存有上限（maxSize）和有效期（ttl），过期后自动重新加载；
+ * 2.同一个 client_id 并发未命中时只会查一次库；
+ * 3.启动时可以把所有客户端预加载进缓存；
+ * 4.通过本类增删改客户端时会同步失效缓存，也可以调用 evict/evictAll 手动失效。
+ */
+public class CachingClientDetailsService implements ClientDetailsService, ClientRegistrationService, InitializingBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(CachingClientDetailsService.class);
+
+    private final JdbcClientDetailsService delegate;
+
+    private final ExpiringCache<String, ClientDetails> cache;
+
+    private boolean preload = true;
+
+    private TokenMetrics metrics;
+
+    public CachingClientDetailsService(JdbcClientDetailsService delegate, int maxSize, long ttlSeconds) {
+        this.delegate = delegate;
+        this.cache = new ExpiringCache<>(maxSize, ttlSeconds, TimeUnit.SECONDS);
+    }
+
+    public void setPreload(boolean preload) {
+        this.preload = preload;
+    }
+
+    /**
+     * 设置之后记录每次查询客户端的耗时（phase=client_lookup）
+     */
+    public void setMetrics(TokenMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        if (!preload) {
+            return;
+        }
+        try {
+            int count = preloadAll();
+            logger.info("Preloaded {} client(s) into client details cache", count);
+        } catch (DataAccessException e) {
+            // 数据库暂时不可用时不影响启动，后续按需加载
+            logger.warn("Failed to preload client details, falling back to lazy loading", e);
+        }
+    }
+
+    @Override
+    public ClientDetails loadClientByClientId(String clientId) throws ClientRegistrationException {
+        if (metrics != null) {
+            return metrics.record(TokenPhases.CLIENT_LOOKUP, () -> cache.get(clientId, delegate::loadClientByClientId));
+        }
+        return cache.get(clientId, delegate::loadClientByClientId);
+    }
+
+    /**
+     * 一次查询把所有客户端加载进缓存
+     * @return 加载的客户端数量
+     */
+    public int preloadAll() {
+        List<ClientDetails> clients = delegate.listClientDetails();
+        for (ClientDetails client : clients) {
+            cache.put(client.getClientId(), client);
+        }
+        return clients.size();
+    }
+
+    public void evict(String clientId) {
+        cache.invalidate(clientId);
+    }
+
+    public void evictAll() {
+        cache.invalidateAll();
+    }
+
+    public ExpiringCache<String, ClientDetails> getCache() {
+        return cache;
+    }
+
+    @Override
+    public void addClientDetails(ClientDetails clientDetails) throws ClientAlreadyExistsException {
+        delegate.addClientDetails(clientDetails);
+        evict(clientDetails.getClientId());
+    }
+
+    @Override
+    public void updateClientDetails(ClientDetails clientDetails) throws NoSuchClientException {
+        delegate.updateClientDetails(clientDetails);
+        evict(clientDetails.getClientId());
+    }
+
+    @Override
+    public void updateClientSecret(String clientId, String secret) throws NoSuchClientException {
+        delegate.updateClientSecret(clientId, secret);
+        evict(clientId);
+    }
+
+    @Override
+    public void removeClientDetails(String clientId) throws NoSuchClientException {
+        delegate.removeClientDetails(clientId);
+        evict(clientId);
+    }
+
+    @Override
+    public List<ClientDetails> listClientDetails() {
+        return delegate.listClientDetails();
+    }
+}
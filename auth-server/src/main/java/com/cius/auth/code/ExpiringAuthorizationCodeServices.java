@@ -0,0 +1,87 @@
+package com.cius.auth.code;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.code.RandomValueAuthorizationCodeServices;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 本地内存方式的授权码存储，用来替换 InMemoryAuthorizationCodeServices：
+ * InMemoryAuthorizationCodeServices 是一个没有过期时间的 Map，从未兑换过的授权码会一直留在内存里。
+ * 这里每个授权码都带有过期时间，兑换时过期的授权码视为无效，后台线程定时清理过期条目。
+ *
+ * ConcurrentHashMap#remove 保证同一个授权码只能被兑换一次。只适合单节点，多节点请使用 Redis 方式。
+ */
+public class ExpiringAuthorizationCodeServices extends RandomValueAuthorizationCodeServices implements DisposableBean {
+
+    private final ConcurrentHashMap<String, Entry> codes = new ConcurrentHashMap<>();
+
+    private final long ttlNanos;
+
+    private final ScheduledExecutorService cleaner = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "authorization-code-cleaner");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public ExpiringAuthorizationCodeServices(long ttl, TimeUnit unit) {
+        this.ttlNanos = unit.toNanos(ttl);
+        long period = Math.max(1, unit.toSeconds(ttl));
+        cleaner.scheduleWithFixedDelay(this::purgeExpired, period, period, TimeUnit.SECONDS);
+    }
+
+    @Override
+    protected void store(String code, OAuth2Authentication authentication) {
+        codes.put(code, new Entry(authentication, System.nanoTime() + ttlNanos));
+    }
+
+    @Override
+    protected OAuth2Authentication remove(String code) {
+        Entry entry = codes.remove(code);
+        if (entry == null || entry.expiresAt - System.nanoTime() <= 0) {
+            return null;
+        }
+        return entry.authentication;
+    }
+
+    /**
+     * 清理过期的授权码
+     * @return 清理的数量
+     */
+    public int purgeExpired() {
+        long now = System.nanoTime();
+        int purged = 0;
+        Iterator<Entry> it = codes.values().iterator();
+        while (it.hasNext()) {
+            if (it.next().expiresAt - now <= 0) {
+                it.remove();
+                purged++;
+            }
+        }
+        return purged;
+    }
+
+    public int size() {
+        return codes.size();
+    }
+
+    @Override
+    public void destroy() {
+        cleaner.shutdownNow();
+    }
+
+    private static final class Entry {
+        final OAuth2Authentication authentication;
+        final long expiresAt;
+
+        Entry(OAuth2Authentication authentication, long expiresAt) {
+            this.authentication = authentication;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
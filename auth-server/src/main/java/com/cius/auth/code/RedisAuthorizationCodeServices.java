@@ -0,0 +1,68 @@
+package com.cius.auth.code;
+
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.code.RandomValueAuthorizationCodeServices;
+import org.springframework.security.oauth2.provider.token.store.redis.JdkSerializationStrategy;
+import org.springframework.security.oauth2.provider.token.store.redis.RedisTokenStoreSerializationStrategy;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Redis 方式的授权码存储，多个授权服务器节点共享：
+ *  1.保存授权码时用 SET key value EX ttl，一次往返，过期由 Redis 负责；
+ *  2.兑换授权码时用一段 Lua 脚本原子地 GET + DEL，一次往返，
+ *    并发兑换同一个授权码时只有一个请求能拿到认证信息（不依赖 Redis 6.2 的 GETDEL）。
+ */
+public class RedisAuthorizationCodeServices extends RandomValueAuthorizationCodeServices {
+
+    private static final byte[] CONSUME_SCRIPT = ("local v = redis.call('GET', KEYS[1]) "
+            + "if v then redis.call('DEL', KEYS[1]) end "
+            + "return v").getBytes(StandardCharsets.UTF_8);
+
+    private static final String PREFIX = "oauth:code:";
+
+    private final RedisConnectionFactory connectionFactory;
+
+    private final long ttlSeconds;
+
+    private RedisTokenStoreSerializationStrategy serializationStrategy = new JdkSerializationStrategy();
+
+    public RedisAuthorizationCodeServices(RedisConnectionFactory connectionFactory, long ttl, TimeUnit unit) {
+        this.connectionFactory = connectionFactory;
+        this.ttlSeconds = Math.max(1, unit.toSeconds(ttl));
+    }
+
+    public void setSerializationStrategy(RedisTokenStoreSerializationStrategy serializationStrategy) {
+        this.serializationStrategy = serializationStrategy;
+    }
+
+    @Override
+    protected void store(String code, OAuth2Authentication authentication) {
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            connection.set(key(code), serializationStrategy.serialize(authentication),
+                    Expiration.seconds(ttlSeconds), RedisStringCommands.SetOption.UPSERT);
+        }
+    }
+
+    @Override
+    protected OAuth2Authentication remove(String code) {
+        byte[] bytes;
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            bytes = connection.eval(CONSUME_SCRIPT, ReturnType.VALUE, 1, key(code));
+        }
+        if (bytes == null) {
+            return null;
+        }
+        return serializationStrategy.deserialize(bytes, OAuth2Authentication.class);
+    }
+
+    private static byte[] key(String code) {
+        return (PREFIX + code).getBytes(StandardCharsets.UTF_8);
+    }
+}
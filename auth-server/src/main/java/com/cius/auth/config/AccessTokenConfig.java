@@ -1,6 +1,16 @@
 package com.cius.auth.config;
 
+import com.cius.auth.jwt.CompactAccessTokenConverter;
+import com.cius.auth.jwt.KeyRotatingJwtAccessTokenConverter;
+import com.cius.auth.jwt.SigningKeyManager;
+import com.cius.auth.jwt.TokenDictionary;
+import com.cius.auth.jwt.TokenDictionaryHistory;
+import com.cius.auth.revoke.RedisRevocationStore;
+import com.cius.auth.revoke.RevocationList;
+import com.cius.auth.token.PipelinedRedisTokenStore;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
@@ -9,27 +19,88 @@ import org.springframework.security.oauth2.provider.token.store.InMemoryTokenSto
 import org.springframework.security.oauth2.provider.token.store.JwtAccessTokenConverter;
 import org.springframework.security.oauth2.provider.token.store.JwtTokenStore;
 import org.springframework.security.oauth2.provider.token.store.redis.RedisTokenStore;
+import org.springframework.util.StringUtils;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 @Configuration
 public class AccessTokenConfig {
 
-    private String SIGNING_KEY = "javaboy";
+    @Value("${auth.jwt.key-store:}")
+    String keyStore;
+
+    @Value("${auth.jwt.key-store-password:}")
+    String keyStorePassword;
+
+    @Value("${auth.jwt.active-kid:}")
+    String activeKid;
+
+    @Value("${auth.jwt.retained-keys:3}")
+    int retainedKeys;
+
+    @Value("${auth.jwt.ephemeral-key:false}")
+    boolean ephemeralKey;
+
+    @Value("${auth.revocation.expected-insertions:100000}")
+    int revocationExpectedInsertions;
+
+    @Value("${auth.revocation.fpp:0.01}")
+    double revocationFpp;
+
+    @Value("${auth.revocation.purge-seconds:60}")
+    long revocationPurgeSeconds;
+
+    @Value("${auth.revocation.store:memory}")
+    String revocationStoreType;
+
+    @Value("${auth.token.profile:standard}")
+    String tokenProfile;
 
-//    @Autowired
-//    RedisConnectionFactory redisConnectionFactory;
+    @Value("${auth.token.dictionary.authorities:ROLE_admin,ROLE_user}")
+    String dictionaryAuthorities;
+
+    @Value("${auth.token.dictionary.scopes:all}")
+    String dictionaryScopes;
+
+    @Value("${auth.token.dictionary.history-file:}")
+    String dictionaryHistoryFile;
+
+    @Value("${auth.token.dictionary.retention-seconds:2592000}")
+    long dictionaryRetentionSeconds;
+
+    @Value("${auth.token.compact.optional-claims:*}")
+    String optionalClaims;
+
+    @Value("${auth.token.compact.client-claims:}")
+    String clientClaims;
+
+    @Value("${auth.token-store.type:jwt}")
+    String tokenStoreType;
+
+    @Autowired
+    ObjectProvider<RedisConnectionFactory> redisConnectionFactory;
 
     /**
      * TokenStore 的实例，这个是指生成的 Token 要往哪里存储
      * @return
      */
     @Bean
-    TokenStore tokenStore() {
+    TokenStore tokenStore() throws Exception {
 
         //1.内存方式
         //return new InMemoryTokenStore();
 
         //2.redis方式
         //return new RedisTokenStore(redisConnectionFactory);
+        //  PipelinedRedisTokenStore 每个操作只有一次往返，并且使用紧凑的二进制编码，支持按用户、客户端批量吊销
+        if ("redis".equalsIgnoreCase(tokenStoreType)) {
+            return new PipelinedRedisTokenStore(redisConnectionFactory.getObject());
+        }
 
         /**
          * 3.Jwt(Json Web Token)方式
@@ -51,6 +122,28 @@ public class AccessTokenConfig {
         return new JwtTokenStore(jwtAccessTokenConverter());
     }
 
+    /**
+     * 签名密钥：原来是写死的 HMAC 密钥 javaboy，轮换时所有节点必须同时重启。
+     * 现在改为带 kid 的 RS256 密钥，公钥通过 /.well-known/jwks.json 发布，资源服务器按 kid 本地校验。
+     * 必须配置 auth.jwt.key-store（多节点共用，重启后令牌仍然有效）；
+     * 只有开发环境（dev profile）设置了 auth.jwt.ephemeral-key=true 时才允许启动时临时生成一把。
+     * 运行期间的轮换见 SigningKeyController。
+     * @return
+     */
+    @Bean
+    SigningKeyManager signingKeyManager() throws Exception {
+        SigningKeyManager manager = new SigningKeyManager(retainedKeys);
+        if (StringUtils.hasText(keyStore)) {
+            manager.load(keyStore, keyStorePassword, activeKid);
+        } else if (ephemeralKey) {
+            manager.rotate();
+        } else {
+            throw new IllegalStateException("auth.jwt.key-store is required; set auth.jwt.ephemeral-key=true "
+                    + "(spring.profiles.active=dev) to generate a throwaway key for local development");
+        }
+        return manager;
+    }
+
     /**
      * 提供了一个 JwtAccessTokenConverter，
      * 这个 JwtAccessTokenConverter 可以实现将用户信息和 JWT
@@ -58,9 +151,72 @@ public class AccessTokenConfig {
      * @return
      */
     @Bean
-    JwtAccessTokenConverter jwtAccessTokenConverter() {
-        JwtAccessTokenConverter converter = new JwtAccessTokenConverter();
-        converter.setSigningKey(SIGNING_KEY);
+    JwtAccessTokenConverter jwtAccessTokenConverter() throws Exception {
+        KeyRotatingJwtAccessTokenConverter converter = new KeyRotatingJwtAccessTokenConverter(signingKeyManager());
+        converter.setRevocationList(revocationList());
+        converter.setAccessTokenConverter(compactAccessTokenConverter());
         return converter;
     }
+
+    /**
+     * 令牌格式，由 auth.token.profile 决定：
+     *  standard：Spring Security OAuth2 默认的 claim；
+     *  compact：短 claim 名、权限和 scope 写成字典下标（字典见 /.well-known/token-dictionary.json），
+     *           access_token 中的可选 claim 由 auth.token.compact.optional-claims 和按客户端的
+     *           auth.token.compact.client-claims（格式 clientId=claim|claim,clientId=claim）决定，* 表示全部。
+     * 两种格式都能解析。
+     * 换下来的字典记录在 auth.token.dictionary.history-file 中，保留 auth.token.dictionary.retention-seconds
+     * （默认 30 天，即 DefaultTokenServices 默认的 refresh_token 有效期，客户端配置了更长的有效期时要跟着调大），
+     * 这期间旧字典签发的令牌仍然可以校验和刷新。
+     * @return
+     */
+    @Bean
+    CompactAccessTokenConverter compactAccessTokenConverter() throws Exception {
+        TokenDictionary dictionary = new TokenDictionary(
+                Arrays.asList(StringUtils.commaDelimitedListToStringArray(dictionaryAuthorities)),
+                Arrays.asList(StringUtils.commaDelimitedListToStringArray(dictionaryScopes)));
+        CompactAccessTokenConverter converter = new CompactAccessTokenConverter(dictionary, "compact".equalsIgnoreCase(tokenProfile));
+        converter.setDefaultClaims(claimSet(optionalClaims));
+        Map<String, Set<String>> perClient = new HashMap<>();
+        for (String entry : StringUtils.commaDelimitedListToStringArray(clientClaims)) {
+            String[] pair = entry.trim().split("=", 2);
+            perClient.put(pair[0].trim(), claimSet(pair.length > 1 ? pair[1] : ""));
+        }
+        converter.setClientClaims(perClient);
+        TokenDictionaryHistory history = new TokenDictionaryHistory(dictionaryRetentionSeconds);
+        history.setFile(dictionaryHistoryFile);
+        history.activate(dictionary, System.currentTimeMillis());
+        converter.setDictionaryHistory(history);
+        return converter;
+    }
+
+    private static Set<String> claimSet(String claims) {
+        if ("*".equals(claims.trim())) {
+            return null;
+        }
+        Set<String> set = new HashSet<>();
+        for (String claim : StringUtils.delimitedListToStringArray(claims, "|")) {
+            if (StringUtils.hasText(claim)) {
+                set.add(claim.trim());
+            }
+        }
+        return set;
+    }
+
+    /**
+     * 已吊销 JWT 的 jti 列表，以 Bloom 过滤器 + 增量的形式发布给资源服务器（见 RevocationController）。
+     * auth.revocation.store：
+     *  memory：只保存在内存中，重启后已吊销的令牌重新有效，只适合开发环境；
+     *  redis：同时写入 Redis，重启后恢复。
+     * @return
+     */
+    @Bean
+    RevocationList revocationList() {
+        RevocationList revocationList = new RevocationList(revocationExpectedInsertions, revocationFpp,
+                revocationPurgeSeconds, TimeUnit.SECONDS);
+        if ("redis".equalsIgnoreCase(revocationStoreType)) {
+            revocationList.setStore(new RedisRevocationStore(redisConnectionFactory.getObject()));
+        }
+        return revocationList;
+    }
 }
@@ -0,0 +1,61 @@
+package com.cius.auth.config;
+
+import com.cius.auth.approval.CachingApprovalStore;
+import com.cius.auth.approval.JdbcBulkApprovalStore;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+/**
+ * 授权码模式下用户的授权记录，默认不开启，auth.approvals.store=jdbc 时开启（oauth_approvals 表要先建好，DDL 见 JdbcBulkApprovalStore）：
+ * 授权存在 oauth_approvals 表中（见 JdbcBulkApprovalStore），前面加一层按（用户，客户端）的本地缓存（见 CachingApprovalStore），
+ * AuthorizationServer 把它交给 ApprovalStoreUserApprovalHandler，用户再次登录时不用重新确认，也不用查库。
+ * 没有开启时沿用框架默认的 TokenApprovalStore，根据 TokenStore 中已有的令牌判断是否授权过。
+ */
+@Configuration
+@ConditionalOnProperty(name = "auth.approvals.store", havingValue = "jdbc")
+public class ApprovalConfig {
+
+    @Autowired
+    DataSource dataSource;
+
+    @Value("${auth.approvals.cache.max-size:10000}")
+    int cacheMaxSize;
+
+    @Value("${auth.approvals.cache.ttl-seconds:300}")
+    long cacheTtlSeconds;
+
+    @Value("${auth.approvals.refresh-seconds:86400}")
+    long refreshSeconds;
+
+    @Bean
+    CachingApprovalStore approvalStore() {
+        CachingApprovalStore approvalStore = new CachingApprovalStore(new JdbcBulkApprovalStore(dataSource),
+                cacheMaxSize, cacheTtlSeconds);
+        approvalStore.setRefreshSeconds(refreshSeconds);
+        return approvalStore;
+    }
+
+    @Bean
+    MeterBinder approvalMetrics() {
+        CachingApprovalStore approvalStore = approvalStore();
+        return registry -> {
+            FunctionCounter.builder("oauth.approval.cache.requests", approvalStore.getCache(), cache -> cache.hitCount())
+                    .tag("result", "hit").register(registry);
+            FunctionCounter.builder("oauth.approval.cache.requests", approvalStore.getCache(), cache -> cache.missCount())
+                    .tag("result", "miss").register(registry);
+            Gauge.builder("oauth.approval.cache.size", approvalStore.getCache(), cache -> cache.size()).register(registry);
+            FunctionCounter.builder("oauth.approval.writes", approvalStore, CachingApprovalStore::getWriteCount)
+                    .tag("result", "written").register(registry);
+            FunctionCounter.builder("oauth.approval.writes", approvalStore, CachingApprovalStore::getSkippedWriteCount)
+                    .tag("result", "skipped").register(registry);
+        };
+    }
+}
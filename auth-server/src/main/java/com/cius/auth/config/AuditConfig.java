@@ -0,0 +1,105 @@
+package com.cius.auth.config;
+
+import com.cius.auth.audit.AuditLog;
+import com.cius.auth.audit.AuditSink;
+import com.cius.auth.audit.JdbcAuditSink;
+import com.cius.auth.audit.SegmentedFileAuditSink;
+import com.cius.auth.audit.TokenAuditor;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 令牌签发、刷新、拒绝和吊销的审计日志，默认关闭，auth.audit.enabled=true 时开启：
+ * 请求线程只把记录放进内存队列，后台线程批量写到 auth.audit.dir 下的分段文件，
+ * auth.audit.jdbc=true 时同时批量插入 oauth_audit_log 表。
+ * 每个分段文件按 auth.audit.segment-mb 预先映射，auth.audit.dir 必须配置成绝对路径，
+ * 不跟着启动时的工作目录走。分段文件可以用 AuditLogReader 查询。
+ */
+@Configuration
+@ConditionalOnProperty(name = "auth.audit.enabled", havingValue = "true")
+public class AuditConfig {
+
+    @Autowired
+    DataSource dataSource;
+
+    @Value("${auth.audit.dir:}")
+    String directory;
+
+    @Value("${auth.audit.segment-mb:64}")
+    int segmentMegabytes;
+
+    @Value("${auth.audit.max-segments:16}")
+    int maxSegments;
+
+    @Value("${auth.audit.jdbc:false}")
+    boolean jdbc;
+
+    @Value("${auth.audit.capacity:65536}")
+    int capacity;
+
+    @Value("${auth.audit.batch-size:512}")
+    int batchSize;
+
+    @Value("${auth.audit.overflow:drop}")
+    String overflow;
+
+    @Value("${auth.audit.max-wait-micros:100}")
+    long maxWaitMicros;
+
+    /**
+     * 队列满时的处理方式：drop 直接丢弃，wait 最多等待 auth.audit.max-wait-micros 微秒后丢弃
+     * @return
+     * @throws IOException
+     */
+    @Bean
+    AuditLog auditLog() throws IOException {
+        Path path = Paths.get(directory.trim());
+        if (directory.trim().isEmpty() || !path.isAbsolute()) {
+            throw new IllegalStateException("auth.audit.dir must be an absolute path when auth.audit.enabled=true, got '" + directory + "'");
+        }
+        List<AuditSink> sinks = new ArrayList<>();
+        sinks.add(new SegmentedFileAuditSink(path, segmentMegabytes * 1024 * 1024, maxSegments));
+        if (jdbc) {
+            sinks.add(new JdbcAuditSink(dataSource));
+        }
+        AuditLog auditLog = new AuditLog(sinks, capacity, batchSize);
+        auditLog.setOverflowPolicy(AuditLog.OverflowPolicy.valueOf(overflow.toUpperCase()), maxWaitMicros);
+        return auditLog;
+    }
+
+    @Bean
+    TokenAuditor tokenAuditor() throws IOException {
+        return new TokenAuditor(auditLog());
+    }
+
+    @Bean
+    MeterBinder auditMetrics() throws IOException {
+        AuditLog auditLog = auditLog();
+        return registry -> {
+            Gauge.builder("oauth.audit.queue", auditLog, AuditLog::getQueueSize).register(registry);
+            for (AuditSink sink : auditLog.getSinks()) {
+                String name = sink.getClass().getSimpleName();
+                FunctionCounter.builder("oauth.audit.events", auditLog, log -> log.getWrittenCount(sink))
+                        .tag("result", "written").tag("sink", name).register(registry);
+                FunctionCounter.builder("oauth.audit.events", auditLog, log -> log.getLostCount(sink))
+                        .tag("result", "lost").tag("sink", name).register(registry);
+            }
+            FunctionCounter.builder("oauth.audit.events", auditLog, AuditLog::getDroppedCount)
+                    .tag("result", "dropped").register(registry);
+            FunctionCounter.builder("oauth.audit.failures", auditLog, AuditLog::getFailureCount).register(registry);
+        };
+    }
+}
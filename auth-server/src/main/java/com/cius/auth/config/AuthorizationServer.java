@@ -1,28 +1,58 @@
 package com.cius.auth.config;
 
-
+import com.cius.auth.approval.BulkApprovalStore;
+import com.cius.auth.audit.AuditEvent;
+import com.cius.auth.audit.TokenAuditor;
+import com.cius.auth.claims.ClaimEnricher;
+import com.cius.auth.claims.ClaimTemplate;
+import com.cius.auth.claims.JdbcUserClaimSource;
+import com.cius.auth.client.CachingClientDetailsService;
+import com.cius.auth.code.ExpiringAuthorizationCodeServices;
+import com.cius.auth.code.RedisAuthorizationCodeServices;
+import com.cius.auth.crypto.BoundedPasswordEncoder;
+import com.cius.auth.crypto.CachingPasswordEncoder;
+import com.cius.auth.introspect.BatchTokenIntrospector;
+import com.cius.auth.jwt.KeyRotatingJwtAccessTokenConverter;
+import com.cius.auth.metrics.TimedPasswordEncoder;
+import com.cius.auth.metrics.TimedTokenServices;
+import com.cius.auth.metrics.TokenMetrics;
+import com.cius.auth.metrics.TokenPhases;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.ProviderManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetailsByNameServiceWrapper;
+import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.oauth2.config.annotation.configurers.ClientDetailsServiceConfigurer;
 import org.springframework.security.oauth2.config.annotation.web.configuration.AuthorizationServerConfigurerAdapter;
 import org.springframework.security.oauth2.config.annotation.web.configuration.EnableAuthorizationServer;
 import org.springframework.security.oauth2.config.annotation.web.configurers.AuthorizationServerEndpointsConfigurer;
 import org.springframework.security.oauth2.config.annotation.web.configurers.AuthorizationServerSecurityConfigurer;
-import org.springframework.security.oauth2.provider.ClientDetailsService;
 import org.springframework.security.oauth2.provider.client.JdbcClientDetailsService;
 import org.springframework.security.oauth2.provider.code.AuthorizationCodeServices;
-import org.springframework.security.oauth2.provider.code.InMemoryAuthorizationCodeServices;
-import org.springframework.security.oauth2.provider.token.AuthorizationServerTokenServices;
 import org.springframework.security.oauth2.provider.token.DefaultTokenServices;
+import org.springframework.security.oauth2.provider.token.TokenEnhancer;
 import org.springframework.security.oauth2.provider.token.TokenEnhancerChain;
 import org.springframework.security.oauth2.provider.token.TokenStore;
 import org.springframework.security.oauth2.provider.token.store.JwtAccessTokenConverter;
+import org.springframework.security.oauth2.provider.token.store.JwtTokenStore;
+import org.springframework.security.web.authentication.preauth.PreAuthenticatedAuthenticationProvider;
+import org.springframework.util.StringUtils;
 
 import javax.sql.DataSource;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 授权服务器：
@@ -59,6 +89,9 @@ public class AuthorizationServer extends AuthorizationServerConfigurerAdapter {
     @Autowired
     AuthenticationManager authenticationManager;
 
+    @Autowired
+    UserDetailsService userDetailsService;
+
     @Autowired
     DataSource dataSource;
 
@@ -66,26 +99,108 @@ public class AuthorizationServer extends AuthorizationServerConfigurerAdapter {
     JwtAccessTokenConverter jwtAccessTokenConverter;
 
     @Autowired
-    CustomAdditionalInformation customAdditionalInformation;
+    BoundedPasswordEncoder passwordEncoder;
+
+    @Autowired
+    ObjectProvider<RedisConnectionFactory> redisConnectionFactory;
+
+    @Autowired
+    TokenMetrics tokenMetrics;
+
+    @Autowired
+    ObjectProvider<TokenAuditor> tokenAuditor;
+
+    @Autowired
+    ObjectProvider<BulkApprovalStore> approvalStore;
+
+    @Value("${auth.code-store.type:memory}")
+    String codeStoreType;
+
+    @Value("${auth.code-store.ttl-seconds:300}")
+    long codeTtlSeconds;
 
+    @Value("${auth.client-secret-cache.max-size:1000}")
+    int clientSecretCacheMaxSize;
+
+    @Value("${auth.client-secret-cache.ttl-seconds:60}")
+    long clientSecretCacheTtlSeconds;
+
+    @Value("${auth.introspect.parallelism:0}")
+    int introspectParallelism;
+
+    @Value("${auth.introspect.min-chunk-size:32}")
+    int introspectMinChunkSize;
+
+    @Value("${auth.client-cache.max-size:1000}")
+    int clientCacheMaxSize;
+
+    @Value("${auth.client-cache.ttl-seconds:300}")
+    long clientCacheTtlSeconds;
+
+    @Value("${auth.client-cache.preload:true}")
+    boolean clientCachePreload;
+
+    @Value("${auth.claims.default-template:author=江南一点雨,authorNames=zxm}")
+    String defaultClaimTemplate;
+
+    @Value("${auth.claims.user-query:}")
+    String userClaimQuery;
+
+    @Value("${auth.claims.user-cache.max-size:10000}")
+    int userClaimCacheMaxSize;
+
+    @Value("${auth.claims.user-cache.ttl-seconds:300}")
+    long userClaimCacheTtlSeconds;
+
+    /**
+     * 各阶段都记录耗时（见 TokenMetrics），TokenEnhancerChain 中的 claimEnricher 记为 token_enhancer，
+     * jwtAccessTokenConverter 记为 jwt_sign，整个 DefaultTokenServices 记为 token_services。
+     * claimEnricher 放在签名之前，追加的 claim 才会写进 JWT。
+     * 刷新令牌时按用户名重新查询用户（走 UserDetailsService 的缓存），用户被删除或禁用之后就不能再刷新。
+     * 开启审计日志时 TokenAuditor 放在最后，只记下刷新时的用户，成功的审计记录由 TimedTokenServices 在令牌签发完成之后写入
+     * @return
+     */
     @Bean
-    AuthorizationServerTokenServices tokenServices() {
+    TimedTokenServices tokenServices() {
         DefaultTokenServices services = new DefaultTokenServices();
         services.setClientDetailsService(clientDetailsService());
         services.setSupportRefreshToken(true);
         services.setTokenStore(tokenStore);
+        PreAuthenticatedAuthenticationProvider refreshProvider = new PreAuthenticatedAuthenticationProvider();
+        refreshProvider.setPreAuthenticatedUserDetailsService(new UserDetailsByNameServiceWrapper<>(userDetailsService));
+        services.setAuthenticationManager(new ProviderManager(Collections.singletonList(refreshProvider)));
         //services.setAccessTokenValiditySeconds(60 * 60 * 2);
         //services.setRefreshTokenValiditySeconds(60 * 60 * 24 * 3);
 
         TokenEnhancerChain tokenEnhancerChain = new TokenEnhancerChain();
-        tokenEnhancerChain.setTokenEnhancers(Arrays.asList(jwtAccessTokenConverter, customAdditionalInformation));
+        ClaimEnricher claimEnricher = claimEnricher();
+        List<TokenEnhancer> tokenEnhancers = new ArrayList<>(Arrays.asList(
+                (accessToken, authentication) -> tokenMetrics.record(TokenPhases.TOKEN_ENHANCER,
+                        () -> claimEnricher.enhance(accessToken, authentication)),
+                (accessToken, authentication) -> tokenMetrics.record(TokenPhases.JWT_SIGN,
+                        () -> jwtAccessTokenConverter.enhance(accessToken, authentication))));
+        TokenAuditor auditor = tokenAuditor.getIfAvailable();
+        if (auditor != null) {
+            tokenEnhancers.add(auditor);
+        }
+        tokenEnhancerChain.setTokenEnhancers(tokenEnhancers);
         services.setTokenEnhancer(tokenEnhancerChain);
-        return services;
+        TimedTokenServices timedTokenServices = new TimedTokenServices(services, tokenMetrics);
+        timedTokenServices.setAuditor(auditor);
+        return timedTokenServices;
     }
 
+    /**
+     * 客户端密钥校验使用带短期缓存的 PasswordEncoder，同一个机密客户端不用每次都算一遍 BCrypt
+     * @param security
+     * @throws Exception
+     */
     public void configure(AuthorizationServerSecurityConfigurer security) throws Exception {
         security.checkTokenAccess("permitAll()")
-                .allowFormAuthenticationForClients();
+                .allowFormAuthenticationForClients()
+                .passwordEncoder(new TimedPasswordEncoder(
+                        new CachingPasswordEncoder(passwordEncoder, clientSecretCacheMaxSize, clientSecretCacheTtlSeconds),
+                        tokenMetrics, TokenPhases.CLIENT_SECRET));
     }
 
     /**
@@ -104,28 +219,103 @@ public class AuthorizationServer extends AuthorizationServerConfigurerAdapter {
 //    }
 
     /**
-     * 数据库方式
+     * 数据库方式，clientDetailsService 在 JdbcClientDetailsService 前面加了一层缓存
      * @param clients
      * @throws Exception
      */
     public void configure(ClientDetailsServiceConfigurer clients) throws Exception {
-        clients.jdbc(dataSource).clients(clientDetailsService());
+        clients.withClientDetails(clientDetailsService());
     }
 
+    /**
+     * 开启 auth.approvals.store 时（见 ApprovalConfig），/oauth/authorize 由 ApprovalStoreUserApprovalHandler
+     * 按带缓存的授权记录判断用户是否已经同意过，否则沿用默认的 TokenApprovalStore
+     * @param endpoints
+     * @throws Exception
+     */
     public void configure(AuthorizationServerEndpointsConfigurer endpoints) throws Exception {
-//        endpoints.authorizationCodeServices(authorizationCodeServices())
-//                .tokenServices(tokenServices());
-        endpoints.authenticationManager(authenticationManager)
+        endpoints.authorizationCodeServices(authorizationCodeServices())
+                .authenticationManager(authentication -> tokenMetrics.record(TokenPhases.AUTHENTICATE,
+                        () -> authenticate(authentication)))
                 .tokenServices(tokenServices());
+        BulkApprovalStore store = approvalStore.getIfAvailable();
+        if (store != null) {
+            endpoints.approvalStore(store);
+        }
     }
 
+    /**
+     * password 模式校验用户，失败时记一条审计记录，这时 SecurityContext 中是已经通过认证的客户端
+     */
+    private Authentication authenticate(Authentication authentication) {
+        try {
+            return authenticationManager.authenticate(authentication);
+        } catch (AuthenticationException e) {
+            TokenAuditor auditor = tokenAuditor.getIfAvailable();
+            if (auditor != null) {
+                Authentication client = SecurityContextHolder.getContext().getAuthentication();
+                auditor.rejected(AuditEvent.ISSUE, client == null ? null : client.getName(), authentication.getName(),
+                        "password", e);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 授权码的存储，授权码在 auth.code-store.ttl-seconds 之后过期：
+     *  memory：本地内存，只适合单节点；
+     *  redis：多节点共享，兑换时一次往返原子地取出并删除。
+     * @return
+     */
     @Bean
     AuthorizationCodeServices authorizationCodeServices() {
-        return new InMemoryAuthorizationCodeServices();
+        if ("redis".equalsIgnoreCase(codeStoreType)) {
+            return new RedisAuthorizationCodeServices(redisConnectionFactory.getObject(), codeTtlSeconds, TimeUnit.SECONDS);
+        }
+        return new ExpiringAuthorizationCodeServices(codeTtlSeconds, TimeUnit.SECONDS);
     }
 
+    /**
+     * 按客户端追加 claim：模板来自 oauth_client_details.additional_information 的 claims 字段，
+     * 没有配置的客户端使用 auth.claims.default-template；
+     * 配置了 auth.claims.user-query 时，模板中的 {{user.属性名}} 从这条 SQL 的结果中取值。
+     * @return
+     */
+    @Bean
+    ClaimEnricher claimEnricher() {
+        ClaimEnricher enricher = new ClaimEnricher(clientDetailsService(),
+                ClaimTemplate.parse(defaultClaimTemplate), clientCacheMaxSize);
+        if (StringUtils.hasText(userClaimQuery)) {
+            enricher.setUserClaimSource(new JdbcUserClaimSource(dataSource, userClaimQuery),
+                    userClaimCacheMaxSize, userClaimCacheTtlSeconds, TimeUnit.SECONDS);
+        }
+        return enricher;
+    }
+
+    /**
+     * 带缓存的 ClientDetailsService，/oauth/token 和 tokenServices 都用它，
+     * 只有缓存未命中或过期时才会查询 oauth_client_details 表。
+     * @return
+     */
+    @Bean
+    CachingClientDetailsService clientDetailsService() {
+        CachingClientDetailsService services = new CachingClientDetailsService(
+                new JdbcClientDetailsService(dataSource), clientCacheMaxSize, clientCacheTtlSeconds);
+        services.setPreload(clientCachePreload);
+        services.setMetrics(tokenMetrics);
+        return services;
+    }
+
+    /**
+     * 批量校验令牌，并行度默认等于 CPU 核数；JWT 方式下直接校验签名，不经过 TokenStore
+     * @return
+     */
     @Bean
-    ClientDetailsService clientDetailsService() {
-        return new JdbcClientDetailsService(dataSource);
+    BatchTokenIntrospector batchTokenIntrospector() {
+        KeyRotatingJwtAccessTokenConverter jwtConverter = tokenStore instanceof JwtTokenStore
+                && jwtAccessTokenConverter instanceof KeyRotatingJwtAccessTokenConverter
+                ? (KeyRotatingJwtAccessTokenConverter) jwtAccessTokenConverter : null;
+        int parallelism = introspectParallelism > 0 ? introspectParallelism : Runtime.getRuntime().availableProcessors();
+        return new BatchTokenIntrospector(tokenServices(), jwtConverter, parallelism, introspectMinChunkSize);
     }
 }
@@ -0,0 +1,57 @@
+package com.cius.auth.config;
+
+import com.cius.auth.client.CachingClientDetailsService;
+import com.cius.auth.crypto.BoundedPasswordEncoder;
+import com.cius.auth.crypto.CachingPasswordEncoder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
+import org.springframework.security.config.annotation.authentication.builders.AuthenticationManagerBuilder;
+import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
+import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.oauth2.provider.client.ClientDetailsUserDetailsService;
+
+/**
+ * 授权服务器自己加的、只给客户端调用的接口（/oauth/introspect/batch、/oauth/revoke），
+ * 和 /oauth/token 一样要求客户端认证：HTTP Basic，用户名是 client_id，密码是 client_secret。
+ * 认证的是客户端而不是用户，所以单独一条过滤器链，排在 SecurityConfig 的表单登录之前，不创建会话。
+ * 客户端密钥的校验和 /oauth/token 一样带短期缓存（auth.client-secret-cache.*），各自一份缓存。
+ */
+@Configuration
+@Order(1)
+public class ClientEndpointSecurityConfig extends WebSecurityConfigurerAdapter {
+
+    static final String[] CLIENT_ENDPOINTS = {"/oauth/introspect/batch", "/oauth/revoke"};
+
+    @Autowired
+    CachingClientDetailsService clientDetailsService;
+
+    @Autowired
+    BoundedPasswordEncoder passwordEncoder;
+
+    @Value("${auth.client-secret-cache.max-size:1000}")
+    int clientSecretCacheMaxSize;
+
+    @Value("${auth.client-secret-cache.ttl-seconds:60}")
+    long clientSecretCacheTtlSeconds;
+
+    @Override
+    protected void configure(AuthenticationManagerBuilder auth) throws Exception {
+        auth.userDetailsService(new ClientDetailsUserDetailsService(clientDetailsService))
+                .passwordEncoder(new CachingPasswordEncoder(passwordEncoder, clientSecretCacheMaxSize, clientSecretCacheTtlSeconds));
+    }
+
+    @Override
+    protected void configure(HttpSecurity http) throws Exception {
+        http.requestMatchers().antMatchers(CLIENT_ENDPOINTS)
+                .and()
+                .authorizeRequests().anyRequest().authenticated()
+                .and()
+                .httpBasic().realmName("oauth2/client")
+                .and()
+                .csrf().disable()
+                .sessionManagement().sessionCreationPolicy(SessionCreationPolicy.STATELESS);
+    }
+}
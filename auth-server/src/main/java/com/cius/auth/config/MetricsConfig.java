@@ -0,0 +1,92 @@
+package com.cius.auth.config;
+
+import com.cius.auth.client.CachingClientDetailsService;
+import com.cius.auth.crypto.BoundedPasswordEncoder;
+import com.cius.auth.metrics.TokenMetrics;
+import com.cius.auth.metrics.TokenMetricsFilter;
+import com.cius.auth.trace.Tracer;
+import com.cius.auth.user.CachingJdbcUserDetailsService;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.security.core.userdetails.UserDetailsService;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 指标通过 /actuator/prometheus 以 Prometheus 格式暴露：
+ *  1.oauth.token.phase：/oauth/token 各阶段的耗时直方图，oauth.token.client：每个客户端的请求数和耗时，见 TokenMetrics；
+ *  2.oauth.client.cache.*：客户端信息缓存的命中、未命中和大小，oauth.user.cache.* 同理（auth.users.store=jdbc 时）；
+ *  3.oauth.password.pool.*：BCrypt 线程池的排队、拒绝和超时，以及每次计算的排队耗时和计算耗时；
+ *  4.trace.spans：调用链追踪写出和丢弃的 Span 数（trace.enabled=true 时），见 TraceConfig；
+ *  5.oauth.approval.*：授权记录缓存的命中、未命中、大小，以及实际写库和省掉的写入次数（auth.approvals.store=jdbc 时），见 ApprovalConfig。
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Value("${auth.metrics.max-client-tags:100}")
+    int maxClientTags;
+
+    @Bean
+    TokenMetrics tokenMetrics(MeterRegistry registry, ObjectProvider<Tracer> tracer) {
+        TokenMetrics tokenMetrics = new TokenMetrics(registry, maxClientTags);
+        tokenMetrics.setTracer(tracer.getIfAvailable());
+        return tokenMetrics;
+    }
+
+    /**
+     * 注册在 OverloadResponseFilter、按来源 IP 的 RateLimitFilter 之后，Spring Security 过滤器链之前，被限流的请求不计入耗时
+     * @return
+     */
+    @Bean
+    FilterRegistrationBean<TokenMetricsFilter> tokenMetricsFilter(TokenMetrics tokenMetrics) {
+        FilterRegistrationBean<TokenMetricsFilter> registration = new FilterRegistrationBean<>(new TokenMetricsFilter(tokenMetrics));
+        registration.addUrlPatterns("/oauth/token");
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 2);
+        return registration;
+    }
+
+    /**
+     * 这些 Bean 在 SecurityConfig、AuthorizationServer 中创建，它们又间接依赖 MeterRegistry（Spring MVC 的指标），
+     * 所以不能写成 MeterBinder（MeterRegistry 创建时就要解析），等所有单例创建完再注册
+     * @return
+     */
+    @Bean
+    SmartInitializingSingleton authServerMetrics(MeterRegistry registry, ObjectProvider<CachingClientDetailsService> clients,
+                                                 ObjectProvider<BoundedPasswordEncoder> passwordEncoders,
+                                                 ObjectProvider<UserDetailsService> userDetailsService) {
+        return () -> {
+            CachingClientDetailsService clientDetailsService = clients.getObject();
+            BoundedPasswordEncoder passwordEncoder = passwordEncoders.getObject();
+            if (userDetailsService.getIfAvailable() instanceof CachingJdbcUserDetailsService) {
+                CachingJdbcUserDetailsService users = (CachingJdbcUserDetailsService) userDetailsService.getObject();
+                FunctionCounter.builder("oauth.user.cache.requests", users.getCache(), cache -> cache.hitCount())
+                        .tag("result", "hit").register(registry);
+                FunctionCounter.builder("oauth.user.cache.requests", users.getCache(), cache -> cache.missCount())
+                        .tag("result", "miss").register(registry);
+                Gauge.builder("oauth.user.cache.size", users.getCache(), cache -> cache.size()).register(registry);
+            }
+            FunctionCounter.builder("oauth.client.cache.requests", clientDetailsService.getCache(), cache -> cache.hitCount())
+                    .tag("result", "hit").register(registry);
+            FunctionCounter.builder("oauth.client.cache.requests", clientDetailsService.getCache(), cache -> cache.missCount())
+                    .tag("result", "miss").register(registry);
+            Gauge.builder("oauth.client.cache.size", clientDetailsService.getCache(), cache -> cache.size()).register(registry);
+            Gauge.builder("oauth.password.pool.queue", passwordEncoder, BoundedPasswordEncoder::getQueueDepth).register(registry);
+            Gauge.builder("oauth.password.pool.active", passwordEncoder, BoundedPasswordEncoder::getActiveCount).register(registry);
+            FunctionCounter.builder("oauth.password.pool.rejections", passwordEncoder, BoundedPasswordEncoder::getRejectionCount).register(registry);
+            FunctionCounter.builder("oauth.password.pool.timeouts", passwordEncoder, BoundedPasswordEncoder::getTimeoutCount).register(registry);
+            FunctionTimer.builder("oauth.password.pool.wait", passwordEncoder, BoundedPasswordEncoder::getExecutionCount,
+                    BoundedPasswordEncoder::getTotalQueueTimeNanos, TimeUnit.NANOSECONDS).register(registry);
+            FunctionTimer.builder("oauth.password.pool.hash", passwordEncoder, BoundedPasswordEncoder::getExecutionCount,
+                    BoundedPasswordEncoder::getTotalHashTimeNanos, TimeUnit.NANOSECONDS).register(registry);
+        };
+    }
+}
@@ -0,0 +1,139 @@
+package com.cius.auth.config;
+
+import com.cius.auth.client.CachingClientDetailsService;
+import com.cius.auth.filter.RateLimitFilter;
+import com.cius.auth.ratelimit.LocalRateLimiter;
+import com.cius.auth.ratelimit.RateLimit;
+import com.cius.auth.ratelimit.RateLimitMetrics;
+import com.cius.auth.ratelimit.RateLimitPolicy;
+import com.cius.auth.ratelimit.RateLimiter;
+import com.cius.auth.ratelimit.RedisRateLimiter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * /oauth/token 和 /oauth/check_token 的限流，auth.rate-limit.enabled=false 时整个关闭：
+ *  1.auth.rate-limit.mode=local 时每个节点单独计数，redis 时所有节点共享同一个桶；
+ *  2.限额的配置方式见 RateLimitPolicy，格式都是 速率:容量，速率的单位是每秒；
+ *  3.计数通过 /actuator/prometheus 暴露，指标名 oauth.ratelimit.requests。
+ */
+@Configuration
+@ConditionalOnProperty(name = "auth.rate-limit.enabled", havingValue = "true", matchIfMissing = true)
+public class RateLimitConfig {
+
+    @Autowired
+    CachingClientDetailsService clientDetailsService;
+
+    @Autowired
+    ObjectProvider<RedisConnectionFactory> redisConnectionFactory;
+
+    @Value("${auth.rate-limit.mode:local}")
+    String mode;
+
+    @Value("${auth.rate-limit.default:100:200}")
+    String defaultLimit;
+
+    @Value("${auth.rate-limit.grant-types:}")
+    String grantLimits;
+
+    @Value("${auth.rate-limit.clients:}")
+    String clientLimits;
+
+    @Value("${auth.rate-limit.max-keys:10000}")
+    int maxKeys;
+
+    @Value("${auth.client-cache.max-size:1000}")
+    int clientCacheMaxSize;
+
+    @Value("${auth.client-cache.ttl-seconds:300}")
+    long clientCacheTtlSeconds;
+
+    @Value("${auth.metrics.max-client-tags:100}")
+    int maxClientTags;
+
+    @Bean
+    LocalRateLimiter localRateLimiter() {
+        return new LocalRateLimiter(maxKeys);
+    }
+
+    /**
+     * redis 模式下 Redis 不可用时退回到本地的桶
+     * @return
+     */
+    @Bean
+    RateLimiter rateLimiter() {
+        if ("redis".equalsIgnoreCase(mode)) {
+            return new RedisRateLimiter(redisConnectionFactory.getObject(), localRateLimiter());
+        }
+        return localRateLimiter();
+    }
+
+    /**
+     * 客户端自己的配置和客户端信息缓存的大小、有效期一致
+     * @return
+     */
+    @Bean
+    RateLimitPolicy rateLimitPolicy() {
+        return new RateLimitPolicy(RateLimit.parse(defaultLimit), RateLimitPolicy.parseLimits(grantLimits),
+                RateLimitPolicy.parseClientLimits(clientLimits), clientDetailsService,
+                Math.max(clientCacheMaxSize, maxKeys), clientCacheTtlSeconds, TimeUnit.SECONDS);
+    }
+
+    @Bean
+    RateLimitMetrics rateLimitMetrics(MeterRegistry registry) {
+        return new RateLimitMetrics(registry, maxClientTags);
+    }
+
+    /**
+     * 按来源 IP 限流，注册在 OverloadResponseFilter 之后，TokenMetricsFilter 和 Spring Security 过滤器链之前，
+     * 被拒绝的请求不会走到客户端认证
+     * @return
+     */
+    @Bean
+    FilterRegistrationBean<RateLimitFilter> rateLimitFilter(RateLimitMetrics rateLimitMetrics) {
+        FilterRegistrationBean<RateLimitFilter> registration = new FilterRegistrationBean<>(
+                new RateLimitFilter(RateLimitFilter.Stage.ADDRESS, rateLimiter(), rateLimitPolicy(), rateLimitMetrics));
+        registration.addUrlPatterns("/oauth/token", "/oauth/check_token");
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 1);
+        return registration;
+    }
+
+    /**
+     * 按认证过的 client_id 限流，注册在 Spring Security 过滤器链之后，客户端认证失败的请求不会扣客户端的桶
+     * @return
+     */
+    @Bean
+    FilterRegistrationBean<RateLimitFilter> clientRateLimitFilter(RateLimitMetrics rateLimitMetrics) {
+        FilterRegistrationBean<RateLimitFilter> registration = new FilterRegistrationBean<>(
+                new RateLimitFilter(RateLimitFilter.Stage.CLIENT, rateLimiter(), rateLimitPolicy(), rateLimitMetrics));
+        registration.addUrlPatterns("/oauth/token", "/oauth/check_token");
+        registration.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER + 1);
+        return registration;
+    }
+
+    @Bean
+    MeterBinder rateLimitBuckets() {
+        return registry -> {
+            Gauge.builder("oauth.ratelimit.buckets", localRateLimiter(), LocalRateLimiter::size).register(registry);
+            RateLimiter limiter = rateLimiter();
+            if (limiter instanceof RedisRateLimiter) {
+                FunctionCounter.builder("oauth.ratelimit.redis.failures", (RedisRateLimiter) limiter,
+                        RedisRateLimiter::getFailureCount).register(registry);
+            }
+        };
+    }
+}
@@ -1,13 +1,28 @@
 package com.cius.auth.config;
 
+import com.cius.auth.crypto.BoundedPasswordEncoder;
+import com.cius.auth.filter.OverloadResponseFilter;
+import com.cius.auth.metrics.TokenMetrics;
+import com.cius.auth.user.CachingJdbcUserDetailsService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.config.annotation.authentication.builders.AuthenticationManagerBuilder;
+import org.springframework.security.config.annotation.method.configuration.EnableGlobalMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
+import org.springframework.security.core.userdetails.User;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.provisioning.InMemoryUserDetailsManager;
+import org.springframework.security.provisioning.UserDetailsManager;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+import java.util.concurrent.TimeUnit;
 
 
 /**
@@ -16,27 +31,105 @@ import org.springframework.security.crypto.password.PasswordEncoder;
  * 这里创建了一个名为 sang 的用户，密码是 123，角色是 admin。同时还配置了一个表单登录。
  * 这段配置的目的，实际上就是配置用户。例如想用微信登录第三方网站，在这个过程中，得先登录微信，
  *    登录微信就要用户名/密码信息，那么在这里配置的，其实就是用户的用户名/密码/角色信息。
+ *
+ * auth.users.store=jdbc 时用户存在数据库中（Spring Security 默认的 users、authorities 表，
+ * 建表语句见 spring-security-core 中的 org/springframework/security/core/userdetails/jdbc/users.ddl，需要自己建表和插入用户），
+ * 查询结果有本地缓存，见 CachingJdbcUserDetailsService；默认的 memory 仍然使用上面两个内存用户，演示时不需要建表。
+ *
+ * 管理接口（密钥轮换等）用 @PreAuthorize 限制角色，浏览器走表单登录，命令行可以用 HTTP Basic。
  */
 @Configuration
+@EnableGlobalMethodSecurity(prePostEnabled = true)
 public class SecurityConfig extends WebSecurityConfigurerAdapter {
+
+    @Autowired
+    DataSource dataSource;
+
+    @Autowired
+    TokenMetrics tokenMetrics;
+
+    @Value("${auth.users.store:memory}")
+    String userStore;
+
+    @Value("${auth.users.cache.max-size:10000}")
+    int userCacheMaxSize;
+
+    @Value("${auth.users.cache.ttl-seconds:300}")
+    long userCacheTtlSeconds;
+
+    @Value("${auth.users.preload:}")
+    String preloadUsers;
+
+    @Value("${auth.users.missing-cache.max-size:10000}")
+    int missingUserCacheMaxSize;
+
+    @Value("${auth.users.missing-cache.ttl-seconds:10}")
+    long missingUserCacheTtlSeconds;
+
+    @Value("${auth.password-pool.threads:4}")
+    int passwordPoolThreads;
+
+    @Value("${auth.password-pool.queue-capacity:64}")
+    int passwordPoolQueueCapacity;
+
+    @Value("${auth.password-pool.timeout-ms:2000}")
+    long passwordPoolTimeoutMs;
+
+    /**
+     * BCrypt 计算放到固定大小的线程池中执行，排队过多或等待超时直接返回 503，
+     * 避免登录高峰时所有 Tomcat 线程都在算 BCrypt。
+     * 超时打断不了正在进行的 BCrypt 计算，队列长度按 threads * timeout-ms / 单次计算耗时 配置：
+     * 默认 4 个线程、strength 10 单次约 60ms，2 秒内能算完 100 多个，队列 64 保证排队的请求在超时前都能开始计算。
+     * @return
+     */
+    @Bean
+    BoundedPasswordEncoder passwordEncoder() {
+        return new BoundedPasswordEncoder(new BCryptPasswordEncoder(),
+                passwordPoolThreads, passwordPoolQueueCapacity, passwordPoolTimeoutMs);
+    }
+
+    /**
+     * 在 Spring Security 过滤器链之前，把密码校验过载转换为 503
+     * @return
+     */
+    @Bean
+    FilterRegistrationBean<OverloadResponseFilter> overloadResponseFilter() {
+        FilterRegistrationBean<OverloadResponseFilter> registration = new FilterRegistrationBean<>(new OverloadResponseFilter(1));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+
+    /**
+     * password 模式登录和 refresh_token 模式刷新（见 AuthorizationServer.tokenServices()）都通过它查询用户，
+     * auth.users.preload 中的用户启动时一次性加载进缓存，不存在的用户名缓存 auth.users.missing-cache.ttl-seconds
+     * @return
+     */
     @Bean
-    PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    UserDetailsManager userDetailsManager() {
+        if ("jdbc".equalsIgnoreCase(userStore)) {
+            CachingJdbcUserDetailsService users = new CachingJdbcUserDetailsService(dataSource, userCacheMaxSize, userCacheTtlSeconds);
+            users.setPreloadUsernames(StringUtils.commaDelimitedListToSet(preloadUsers));
+            users.setMissingUserCache(missingUserCacheMaxSize, missingUserCacheTtlSeconds, TimeUnit.SECONDS);
+            users.setMetrics(tokenMetrics);
+            return users;
+        }
+        return new InMemoryUserDetailsManager(
+                User.withUsername("sang")
+                        .password(new BCryptPasswordEncoder().encode("123"))
+                        .roles("admin")
+                        .build(),
+                User.withUsername("javaboy")
+                        .password(new BCryptPasswordEncoder().encode("123"))
+                        .roles("user")
+                        .build());
     }
 
     protected void configure(AuthenticationManagerBuilder auth) throws Exception {
-        auth.inMemoryAuthentication()
-                .withUser("sang")
-                .password(new BCryptPasswordEncoder().encode("123"))
-                .roles("admin")
-                .and()
-                .withUser("javaboy")
-                .password(new BCryptPasswordEncoder().encode("123"))
-                .roles("user");
+        auth.userDetailsService(userDetailsManager());
     }
 
     protected void configure(HttpSecurity http) throws Exception {
-        http.csrf().disable().formLogin();
+        http.csrf().disable().formLogin().and().httpBasic();
     }
 
     @Override
@@ -0,0 +1,77 @@
+package com.cius.auth.config;
+
+import com.cius.auth.trace.SpanExporter;
+import com.cius.auth.trace.TraceFilter;
+import com.cius.auth.trace.Tracer;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import java.nio.file.Paths;
+
+/**
+ * 调用链追踪，trace.enabled=true 时开启：
+ * 请求按 trace.sample-rate 采样（上游 client-app 已经决定的沿用上游的决定），
+ * 被采样的请求记录整个请求和 /oauth/token 的各个阶段（client_lookup、client_secret、authenticate、user_lookup、
+ * token_services、token_enhancer、jwt_sign，见 TokenMetrics），批量写到 trace.dir 下的 auth-server.jsonl。
+ */
+@Configuration
+@ConditionalOnProperty(name = "trace.enabled", havingValue = "true")
+public class TraceConfig {
+
+    @Value("${trace.service:auth-server}")
+    String service;
+
+    @Value("${trace.sample-rate:0.01}")
+    double sampleRate;
+
+    @Value("${trace.dir:target/trace}")
+    String directory;
+
+    @Value("${trace.capacity:8192}")
+    int capacity;
+
+    @Value("${trace.batch-size:256}")
+    int batchSize;
+
+    @Value("${trace.max-file-mb:64}")
+    long maxFileMegabytes;
+
+    @Bean
+    SpanExporter spanExporter() {
+        return new SpanExporter(Paths.get(directory), service, capacity, batchSize, maxFileMegabytes * 1024 * 1024);
+    }
+
+    @Bean
+    Tracer tracer() {
+        return new Tracer(spanExporter(), sampleRate);
+    }
+
+    /**
+     * 注册在 TokenMetricsFilter 之后、Spring Security 过滤器链之前，
+     * 和 oauth.token.phase 一样，被限流拒绝的请求不记录
+     * @return
+     */
+    @Bean
+    FilterRegistrationBean<TraceFilter> traceFilter() {
+        FilterRegistrationBean<TraceFilter> registration = new FilterRegistrationBean<>(new TraceFilter(tracer()));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 3);
+        return registration;
+    }
+
+    @Bean
+    MeterBinder traceMetrics() {
+        SpanExporter exporter = spanExporter();
+        return registry -> {
+            FunctionCounter.builder("trace.spans", exporter, SpanExporter::getExportedCount)
+                    .tag("result", "exported").register(registry);
+            FunctionCounter.builder("trace.spans", exporter, SpanExporter::getDroppedCount)
+                    .tag("result", "dropped").register(registry);
+        };
+    }
+}
@@ -0,0 +1,69 @@
+package com.cius.auth.config;
+
+import com.cius.auth.claims.ClaimEnricher;
+import com.cius.auth.client.CachingClientDetailsService;
+import com.cius.auth.crypto.BoundedPasswordEncoder;
+import com.cius.auth.warmup.AuthServerWarmup;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.oauth2.provider.token.store.JwtAccessTokenConverter;
+
+import javax.sql.DataSource;
+
+/**
+ * 启动预热，auth.warmup.enabled=false 时关闭。预热结束之前 readiness 探针返回 OUT_OF_SERVICE，
+ * 预热的时间预算是 auth.warmup.budget-ms，超出后剩下的步骤跳过，照常启动。
+ */
+@Configuration
+@ConditionalOnProperty(name = "auth.warmup.enabled", havingValue = "true", matchIfMissing = true)
+public class WarmupConfig {
+
+    @Autowired
+    DataSource dataSource;
+
+    @Autowired
+    CachingClientDetailsService clientDetailsService;
+
+    @Autowired
+    BoundedPasswordEncoder passwordEncoder;
+
+    @Autowired
+    JwtAccessTokenConverter jwtAccessTokenConverter;
+
+    @Autowired
+    ClaimEnricher claimEnricher;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Value("${auth.warmup.budget-ms:15000}")
+    long budgetMillis;
+
+    @Value("${auth.warmup.connections:4}")
+    int connections;
+
+    @Value("${auth.warmup.password-iterations:2}")
+    int passwordIterations;
+
+    @Value("${auth.warmup.iterations:500}")
+    int iterations;
+
+    @Bean
+    AuthServerWarmup authServerWarmup() {
+        AuthServerWarmup warmup = new AuthServerWarmup(dataSource, clientDetailsService, passwordEncoder,
+                jwtAccessTokenConverter, claimEnricher, objectMapper, meterRegistry);
+        warmup.setBudgetMillis(budgetMillis);
+        warmup.setConnections(connections);
+        warmup.setPasswordIterations(passwordIterations);
+        warmup.setIterations(iterations);
+        return warmup;
+    }
+}
@@ -0,0 +1,67 @@
+package com.cius.auth.controller;
+
+import com.cius.auth.approval.BulkApprovalStore;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * 批量撤销授权（auth.approvals.store=jdbc 时可用，否则返回 404）：
+ *  1.DELETE /oauth/approvals?user=：撤销一个用户对所有客户端的授权，管理员或者用户本人可以调用；
+ *  2.DELETE /oauth/approvals?client=：撤销所有用户对一个客户端的授权，只有管理员可以调用。
+ * 需要先登录，返回撤销的授权条数；已经签发的令牌不受影响，需要时再通过 /oauth/revoke 吊销。
+ */
+@RestController
+public class ApprovalController {
+
+    private static final String ADMIN = "ROLE_admin";
+
+    @Autowired
+    ObjectProvider<BulkApprovalStore> approvalStore;
+
+    @DeleteMapping(value = "/oauth/approvals", params = "user")
+    public Map<String, Integer> revokeByUser(@RequestParam("user") String user, Authentication authentication) {
+        if (!isAdmin(authentication) && (authentication == null || !user.equals(authentication.getName()))) {
+            throw new AccessDeniedException("只能撤销自己的授权");
+        }
+        return Collections.singletonMap("revoked", store().revokeByUser(user));
+    }
+
+    @DeleteMapping(value = "/oauth/approvals", params = "client")
+    public Map<String, Integer> revokeByClient(@RequestParam("client") String client, Authentication authentication) {
+        if (!isAdmin(authentication)) {
+            throw new AccessDeniedException("只有管理员可以撤销客户端的授权");
+        }
+        return Collections.singletonMap("revoked", store().revokeByClient(client));
+    }
+
+    private BulkApprovalStore store() {
+        BulkApprovalStore store = approvalStore.getIfAvailable();
+        if (store == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND);
+        }
+        return store;
+    }
+
+    private static boolean isAdmin(Authentication authentication) {
+        if (authentication == null) {
+            return false;
+        }
+        for (GrantedAuthority authority : authentication.getAuthorities()) {
+            if (ADMIN.equals(authority.getAuthority())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,56 @@
+package com.cius.auth.controller;
+
+import com.cius.auth.introspect.BatchTokenIntrospector;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 批量校验令牌：请求体是令牌字符串组成的 JSON 数组，响应是同样顺序的结果数组，
+ * 每个结果和 /oauth/check_token 的返回一致（无效令牌为 {"active":false}）。
+ * 结果按块边校验边写出，不用等全部校验完再序列化整个数组。
+ * 调用方要用 HTTP Basic 做客户端认证（client_id/client_secret），见 ClientEndpointSecurityConfig。
+ */
+@RestController
+public class IntrospectionController {
+
+    @Autowired
+    BatchTokenIntrospector batchTokenIntrospector;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Value("${auth.introspect.max-batch:1000}")
+    int maxBatch;
+
+    @PostMapping(value = "/oauth/introspect/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public void introspect(@RequestBody List<String> tokens, HttpServletResponse response) throws IOException {
+        if (tokens.size() > maxBatch) {
+            response.sendError(HttpStatus.PAYLOAD_TOO_LARGE.value(), "At most " + maxBatch + " tokens per request");
+            return;
+        }
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream())) {
+            generator.writeStartArray();
+            for (CompletableFuture<List<Map<String, Object>>> chunk : batchTokenIntrospector.introspectAll(tokens)) {
+                for (Map<String, Object> result : chunk.join()) {
+                    generator.writeObject(result);
+                }
+                generator.flush();
+            }
+            generator.writeEndArray();
+        }
+    }
+}
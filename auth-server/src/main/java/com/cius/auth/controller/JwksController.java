@@ -0,0 +1,32 @@
+package com.cius.auth.controller;
+
+import com.cius.auth.jwt.SigningKey;
+import com.cius.auth.jwt.SigningKeyManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 发布签名公钥（JWKS），资源服务器定时拉取后按 kid 在本地校验 JWT。
+ * 包含所有仍在保留期内的密钥，轮换时新密钥会先出现在这里。
+ */
+@RestController
+public class JwksController {
+
+    @Autowired
+    SigningKeyManager signingKeyManager;
+
+    @GetMapping("/.well-known/jwks.json")
+    public Map<String, List<Map<String, Object>>> jwks() {
+        List<Map<String, Object>> keys = new ArrayList<>();
+        for (SigningKey key : signingKeyManager.getKeys().values()) {
+            keys.add(key.toJwk());
+        }
+        return Collections.singletonMap("keys", keys);
+    }
+}
@@ -0,0 +1,93 @@
+package com.cius.auth.controller;
+
+import com.cius.auth.audit.TokenAuditor;
+import com.cius.auth.jwt.KeyRotatingJwtAccessTokenConverter;
+import com.cius.auth.metrics.TimedTokenServices;
+import com.cius.auth.revoke.RevocationList;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.oauth2.common.exceptions.InvalidTokenException;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.token.TokenStore;
+import org.springframework.security.oauth2.provider.token.store.JwtAccessTokenConverter;
+import org.springframework.security.oauth2.provider.token.store.JwtTokenStore;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * 令牌吊销：
+ *  1.POST /oauth/revoke：吊销一个令牌（RFC 7009），无效或已吊销的令牌同样返回 200；
+ *    调用方要用 HTTP Basic 做客户端认证（见 ClientEndpointSecurityConfig），只能吊销签发给自己的令牌，否则返回 403；
+ *    JWT 方式把 jti 加入 RevocationList，其它 TokenStore 直接从存储中删除；
+ *  2.GET /oauth/revocations?since=版本号：资源服务器后台同步吊销列表，返回整个 Bloom 过滤器或增量；
+ *  3.GET /oauth/revocations/check?jti=：精确查询，资源服务器在 Bloom 过滤器命中时用它排除误判。
+ * 开启审计日志时，JWT 方式吊销成功会记一条 revoke 记录。
+ */
+@RestController
+public class RevocationController {
+
+    @Autowired
+    RevocationList revocationList;
+
+    @Autowired
+    TokenStore tokenStore;
+
+    @Autowired
+    JwtAccessTokenConverter jwtAccessTokenConverter;
+
+    @Autowired
+    TimedTokenServices tokenServices;
+
+    @Autowired
+    ObjectProvider<TokenAuditor> tokenAuditor;
+
+    @PostMapping("/oauth/revoke")
+    public void revoke(@RequestParam("token") String token, Authentication client) {
+        if (!(tokenStore instanceof JwtTokenStore) || !(jwtAccessTokenConverter instanceof KeyRotatingJwtAccessTokenConverter)) {
+            OAuth2Authentication authentication = tokenStore.readAuthentication(token);
+            if (authentication != null) {
+                checkOwner(client, authentication.getOAuth2Request().getClientId());
+                tokenServices.revokeToken(token);
+            }
+            return;
+        }
+        try {
+            Map<String, Object> claims = ((KeyRotatingJwtAccessTokenConverter) jwtAccessTokenConverter).decodeClaims(token);
+            checkOwner(client, (String) claims.get("client_id"));
+            Object jti = claims.get("jti");
+            Object exp = claims.get("exp");
+            if (jti instanceof String && exp instanceof Number) {
+                revocationList.revoke((String) jti, ((Number) exp).longValue());
+                TokenAuditor auditor = tokenAuditor.getIfAvailable();
+                if (auditor != null) {
+                    auditor.revoked((String) claims.get("client_id"), (String) claims.get("user_name"), (String) jti);
+                }
+            }
+        } catch (InvalidTokenException e) {
+            // 无效或已经吊销的令牌不需要处理
+        }
+    }
+
+    private static void checkOwner(Authentication client, String clientId) {
+        if (client == null || !client.getName().equals(clientId)) {
+            throw new AccessDeniedException("只能吊销签发给自己的令牌");
+        }
+    }
+
+    @GetMapping("/oauth/revocations")
+    public Map<String, Object> revocations(@RequestParam(value = "since", defaultValue = "0") long since) {
+        return revocationList.changesSince(since);
+    }
+
+    @GetMapping("/oauth/revocations/check")
+    public Map<String, Boolean> check(@RequestParam("jti") String jti) {
+        return Collections.singletonMap("revoked", revocationList.isRevoked(jti));
+    }
+}
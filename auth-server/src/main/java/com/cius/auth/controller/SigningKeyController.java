@@ -0,0 +1,40 @@
+package com.cius.auth.controller;
+
+import com.cius.auth.jwt.SigningKeyManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 运行期间轮换签名密钥，只有管理员可以调用，每个节点各调一次：
+ *  1.keystore 方式：POST /oauth/keys/rotate 重新读取 keystore，新密钥出现在 JWKS 中，签发密钥不变；
+ *    等资源服务器拉到新公钥之后再 POST /oauth/keys/rotate?active=新 kid 切换签发密钥；
+ *  2.临时密钥（auth.jwt.ephemeral-key=true）：生成一把新密钥并直接切换，旧密钥继续用于校验。
+ * 返回当前的签发 kid 和 JWKS 中的全部 kid。
+ */
+@RestController
+public class SigningKeyController {
+
+    @Autowired
+    SigningKeyManager signingKeyManager;
+
+    @PreAuthorize("hasRole('admin')")
+    @PostMapping("/oauth/keys/rotate")
+    public Map<String, Object> rotate(@RequestParam(value = "active", required = false) String active) throws Exception {
+        if (signingKeyManager.isKeyStoreBacked()) {
+            signingKeyManager.reload(active);
+        } else {
+            signingKeyManager.rotate();
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("active", signingKeyManager.getActiveKey().getKid());
+        result.put("kids", new ArrayList<>(signingKeyManager.getKeys().keySet()));
+        return result;
+    }
+}
@@ -0,0 +1,37 @@
+package com.cius.auth.controller;
+
+import com.cius.auth.jwt.CompactAccessTokenConverter;
+import com.cius.auth.jwt.TokenDictionary;
+import com.cius.auth.jwt.TokenDictionaryHistory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 发布紧凑令牌使用的字典，资源服务器按令牌中的字典 id 把下标还原成权限和 scope。
+ * previous 中是换下来但还在保留期内的字典，用来解析它们签发的、还没过期的令牌。
+ */
+@RestController
+public class TokenDictionaryController {
+
+    @Autowired
+    CompactAccessTokenConverter compactAccessTokenConverter;
+
+    @GetMapping("/.well-known/token-dictionary.json")
+    public Map<String, Object> dictionary() {
+        Map<String, Object> result = compactAccessTokenConverter.getDictionary().toMap();
+        TokenDictionaryHistory history = compactAccessTokenConverter.getDictionaryHistory();
+        List<Map<String, Object>> previous = new ArrayList<>();
+        if (history != null) {
+            for (TokenDictionary dictionary : history.getPrevious(System.currentTimeMillis())) {
+                previous.add(dictionary.toMap());
+            }
+        }
+        result.put("previous", previous);
+        return result;
+    }
+}
@@ -0,0 +1,152 @@
+package com.cius.auth.crypto;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 把 BCrypt 计算放到一个固定大小的线程池里执行：
+ * 登录高峰时 Tomcat 线程不会全部在算 BCrypt，CPU 留给 check_token 这类便宜的请求；
+ * 等待队列有上限，队列满了或者等待超时直接抛出 PasswordHashingOverloadedException（503），
+ * 而不是让请求一直排队直到客户端超时。
+ *
+ * 同时统计排队耗时、计算耗时以及被拒绝的次数。
+ *
+ * 注意超时只是让调用方不再等待：BCrypt 计算不响应中断，已经开始的计算会在工作线程上算完，结果被丢弃；
+ * 还在队列里的任务会被取消并移出队列，不再占用线程和队列位置。
+ * 所以队列长度应按“threads 个线程在 timeoutMillis 内能算完多少个”来配置（见 SecurityConfig），
+ * 排在队尾的请求也能在超时前开始计算，而不是排到超时后白白占用线程。
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder, DisposableBean {
+
+    private final PasswordEncoder delegate;
+
+    private final ThreadPoolExecutor executor;
+
+    private final long timeoutMillis;
+
+    private final LongAdder executions = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder queueNanos = new LongAdder();
+    private final LongAdder hashNanos = new LongAdder();
+
+    public BoundedPasswordEncoder(PasswordEncoder delegate, int threads, int queueCapacity, long timeoutMillis) {
+        this.delegate = delegate;
+        this.timeoutMillis = timeoutMillis;
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+            Thread thread = new Thread(r, "password-hash-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return execute(() -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return execute(() -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    public long getExecutionCount() {
+        return executions.sum();
+    }
+
+    public long getRejectionCount() {
+        return rejections.sum();
+    }
+
+    public long getTimeoutCount() {
+        return timeouts.sum();
+    }
+
+    public long getTotalQueueTimeNanos() {
+        return queueNanos.sum();
+    }
+
+    public long getTotalHashTimeNanos() {
+        return hashNanos.sum();
+    }
+
+    private <T> T execute(Callable<T> task) {
+        long submitted = System.nanoTime();
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                long started = System.nanoTime();
+                queueNanos.add(started - submitted);
+                try {
+                    return task.call();
+                } finally {
+                    hashNanos.add(System.nanoTime() - started);
+                    executions.increment();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejections.increment();
+            throw new PasswordHashingOverloadedException("Password hashing queue is full", e);
+        }
+        try {
+            return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            cancel(future);
+            timeouts.increment();
+            throw new PasswordHashingOverloadedException("Password hashing timed out", e);
+        } catch (InterruptedException e) {
+            cancel(future);
+            Thread.currentThread().interrupt();
+            throw new PasswordHashingOverloadedException("Interrupted while waiting for password hashing", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * 还没开始的任务移出队列；已经在算的任务无法打断，只能等它算完
+     */
+    private void cancel(Future<?> future) {
+        if (future.cancel(false) && future instanceof Runnable) {
+            executor.remove((Runnable) future);
+        }
+    }
+}
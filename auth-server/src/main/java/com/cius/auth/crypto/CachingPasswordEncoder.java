@@ -0,0 +1,82 @@
+package com.cius.auth.crypto;
+
+import com.cius.auth.cache.ExpiringCache;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 客户端密钥校验结果的短期缓存，只用于客户端认证（AuthorizationServerSecurityConfigurer），不用于用户密码。
+ * 机密客户端每次调用 /oauth/token 都带着同一个 client_secret，不需要每次都付出完整的 BCrypt 代价。
+ *
+ * key 是 HMAC-SHA256(进程内随机密钥, 密文 + 明文)，内存中不保存明文密钥；
+ * 密文变化（修改了 client_secret）后 key 也随之变化，旧的缓存自然失效。只缓存校验通过的结果。
+ */
+public class CachingPasswordEncoder implements PasswordEncoder {
+
+    private final PasswordEncoder delegate;
+
+    private final ExpiringCache<String, Boolean> verified;
+
+    private final ThreadLocal<Mac> mac;
+
+    public CachingPasswordEncoder(PasswordEncoder delegate, int maxSize, long ttlSeconds) {
+        this.delegate = delegate;
+        this.verified = new ExpiringCache<>(maxSize, ttlSeconds, TimeUnit.SECONDS);
+        byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        SecretKeySpec keySpec = new SecretKeySpec(key, "HmacSHA256");
+        this.mac = ThreadLocal.withInitial(() -> {
+            try {
+                Mac mac = Mac.getInstance("HmacSHA256");
+                mac.init(keySpec);
+                return mac;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return delegate.encode(rawPassword);
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        if (rawPassword == null || encodedPassword == null) {
+            return delegate.matches(rawPassword, encodedPassword);
+        }
+        String key = digest(rawPassword, encodedPassword);
+        if (verified.getIfPresent(key) != null) {
+            return true;
+        }
+        boolean matches = delegate.matches(rawPassword, encodedPassword);
+        if (matches) {
+            verified.put(key, Boolean.TRUE);
+        }
+        return matches;
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    public ExpiringCache<String, Boolean> getCache() {
+        return verified;
+    }
+
+    private String digest(CharSequence rawPassword, String encodedPassword) {
+        Mac mac = this.mac.get();
+        mac.update(encodedPassword.getBytes(StandardCharsets.UTF_8));
+        mac.update((byte) 0);
+        return Base64.getEncoder().encodeToString(mac.doFinal(rawPassword.toString().getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -0,0 +1,29 @@
+package com.cius.auth.crypto;
+
+import org.springframework.security.oauth2.common.exceptions.OAuth2Exception;
+
+/**
+ * 密码校验线程池已满或等待超时。
+ * 继承 OAuth2Exception，/oauth/token 的异常处理会直接返回 503 temporarily_unavailable，
+ * 在过滤器链中抛出时由 OverloadResponseFilter 转换为 503。
+ */
+public class PasswordHashingOverloadedException extends OAuth2Exception {
+
+    public PasswordHashingOverloadedException(String msg) {
+        super(msg);
+    }
+
+    public PasswordHashingOverloadedException(String msg, Throwable t) {
+        super(msg, t);
+    }
+
+    @Override
+    public String getOAuth2ErrorCode() {
+        return "temporarily_unavailable";
+    }
+
+    @Override
+    public int getHttpErrorCode() {
+        return 503;
+    }
+}
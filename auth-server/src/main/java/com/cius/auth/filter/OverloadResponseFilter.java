@@ -0,0 +1,51 @@
+package com.cius.auth.filter;
+
+import com.cius.auth.crypto.PasswordHashingOverloadedException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * 客户端认证发生在 Spring Security 过滤器链中，那里抛出的 PasswordHashingOverloadedException
+ * 不会经过 TokenEndpoint 的异常处理，这里统一转换为 503 + Retry-After。
+ * 需要注册在 Spring Security 过滤器链之前。
+ */
+public class OverloadResponseFilter extends OncePerRequestFilter {
+
+    private final int retryAfterSeconds;
+
+    public OverloadResponseFilter(int retryAfterSeconds) {
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        try {
+            filterChain.doFilter(request, response);
+        } catch (ServletException | RuntimeException e) {
+            if (!isOverload(e) || response.isCommitted()) {
+                throw e;
+            }
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader("Retry-After", String.valueOf(retryAfterSeconds));
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.getWriter().write("{\"error\":\"temporarily_unavailable\",\"error_description\":\"Server is busy, retry later\"}");
+        }
+    }
+
+    private static boolean isOverload(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof PasswordHashingOverloadedException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,137 @@
+package com.cius.auth.filter;
+
+import com.cius.auth.metrics.TokenMetricsFilter;
+import com.cius.auth.ratelimit.RateLimit;
+import com.cius.auth.ratelimit.RateLimitDecision;
+import com.cius.auth.ratelimit.RateLimitMetrics;
+import com.cius.auth.ratelimit.RateLimitPolicy;
+import com.cius.auth.ratelimit.RateLimiter;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * 注册在 /oauth/token 和 /oauth/check_token 上的令牌桶限流，同一个类注册两次，分两个阶段：
+ *  1.ADDRESS：在客户端认证（BCrypt）和查库之前，按来源 IP + client_id + 授权类型限流。
+ *    这时 client_id 还没有认证，只用来细分来源 IP 的桶，不能用来扣客户端自己的桶，
+ *    否则知道 client_id 的人用错误的密钥就能把真正的客户端限流掉；
+ *    client_id 对应的客户端不存在时只按来源 IP 限流（否则每换一个伪造的 client_id 就多一个新桶）；
+ *  2.CLIENT：注册在 Spring Security 过滤器链之后，只有客户端认证通过的请求才扣 client_id + 授权类型的桶，
+ *    客户端密钥有缓存（见 CachingClientDetailsService），重复认证很便宜；
+ *    没有客户端认证的请求（例如匿名调用 /oauth/check_token）只受 ADDRESS 阶段的限制。
+ * 令牌桶的参数由 RateLimitPolicy 决定，两个阶段用同一个客户端的配置；取令牌由 RateLimiter 完成（本地或 Redis）。
+ * 未知的授权类型都记为 other，避免伪造的参数产生大量的桶。
+ * 放行的响应带上 RateLimit-Limit、RateLimit-Remaining、RateLimit-Reset（两个阶段都经过时是 CLIENT 阶段的桶），
+ * 拒绝时返回 429 和 Retry-After。
+ */
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    public static final String TOKEN = "token";
+
+    private static final Set<String> GRANT_TYPES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            "authorization_code", "password", "client_credentials", "implicit", "refresh_token")));
+
+    public enum Stage {
+        /**
+         * 客户端认证之前，按来源 IP
+         */
+        ADDRESS,
+        /**
+         * 客户端认证之后，按 client_id
+         */
+        CLIENT
+    }
+
+    private final Stage stage;
+
+    private final RateLimiter rateLimiter;
+
+    private final RateLimitPolicy policy;
+
+    private final RateLimitMetrics metrics;
+
+    public RateLimitFilter(Stage stage, RateLimiter rateLimiter, RateLimitPolicy policy, RateLimitMetrics metrics) {
+        this.stage = stage;
+        this.rateLimiter = rateLimiter;
+        this.policy = policy;
+        this.metrics = metrics;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        boolean checkToken = request.getServletPath().endsWith(RateLimitPolicy.CHECK_TOKEN);
+        String endpoint = checkToken ? RateLimitPolicy.CHECK_TOKEN : TOKEN;
+        String grantType = checkToken ? RateLimitPolicy.CHECK_TOKEN : grantType(request.getParameter("grant_type"));
+        String clientId;
+        String key;
+        if (stage == Stage.CLIENT) {
+            clientId = authenticatedClientId();
+            if (clientId == null) {
+                filterChain.doFilter(request, response);
+                return;
+            }
+            key = clientId + '|' + grantType;
+        } else {
+            clientId = TokenMetricsFilter.clientId(request);
+            if (clientId != null && !policy.isKnownClient(clientId)) {
+                clientId = null;
+            }
+            key = "ip:" + request.getRemoteAddr() + '|' + (clientId == null ? "" : clientId) + '|' + grantType;
+        }
+        RateLimit limit = policy.limitFor(clientId, grantType);
+
+        RateLimitDecision decision = rateLimiter.acquire(key, limit);
+        if (metrics != null) {
+            metrics.record(endpoint, stage.name().toLowerCase(), clientId, decision.isAllowed());
+        }
+        response.setHeader("RateLimit-Limit", String.valueOf(decision.getLimit()));
+        response.setHeader("RateLimit-Remaining", String.valueOf(decision.getRemaining()));
+        response.setHeader("RateLimit-Reset", String.valueOf(decision.getResetSeconds()));
+        if (decision.isAllowed()) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader("Retry-After", String.valueOf(decision.getRetryAfterSeconds()));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getWriter().write("{\"error\":\"too_many_requests\",\"error_description\":\"Rate limit exceeded, retry later\"}");
+    }
+
+    /**
+     * 同一个类注册了两次，按阶段区分，否则 OncePerRequestFilter 会把第二个阶段当成已经执行过
+     */
+    @Override
+    protected String getAlreadyFilteredAttributeName() {
+        return RateLimitFilter.class.getName() + '.' + stage + ALREADY_FILTERED_SUFFIX;
+    }
+
+    /**
+     * Spring Security 认证通过的客户端：/oauth/token 的客户端认证（Basic 或表单）和 /oauth/check_token 的 Basic 认证，
+     * 认证的主体名就是 client_id；匿名访问返回 null
+     */
+    private static String authenticatedClientId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated() || authentication instanceof AnonymousAuthenticationToken) {
+            return null;
+        }
+        return authentication.getName();
+    }
+
+    private static String grantType(String grantType) {
+        return grantType != null && GRANT_TYPES.contains(grantType) ? grantType : "other";
+    }
+}
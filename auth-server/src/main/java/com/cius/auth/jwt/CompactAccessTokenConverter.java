@@ -0,0 +1,105 @@
+package com.cius.auth.jwt;
+
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.token.DefaultAccessTokenConverter;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 紧凑令牌格式（auth.token.profile=compact）：claim 的转换见 common 模块的 CompactClaims，
+ * 可以按客户端选择 access_token 中带哪些可选 claim（scope 和 TokenEnhancer 加的附加信息），
+ * refresh_token 不随请求发送，保留全部 claim。
+ *
+ * 解析时先把紧凑格式还原成标准的 claim 名称再交给 DefaultAccessTokenConverter，没有 d 的令牌按标准格式解析，
+ * 所以两种格式的令牌可以同时使用，切换格式时不影响已经签发的令牌。
+ * 设置了 TokenDictionaryHistory 时，换下来但还在保留期内的字典签发的令牌也能解析。
+ */
+public class CompactAccessTokenConverter extends DefaultAccessTokenConverter {
+
+    private final TokenDictionary dictionary;
+
+    private final boolean compact;
+
+    private Set<String> defaultClaims;
+
+    private Map<String, Set<String>> clientClaims = Collections.emptyMap();
+
+    private TokenDictionaryHistory dictionaryHistory;
+
+    /**
+     * @param dictionary 当前字典
+     * @param compact false 时签发标准格式的令牌，但仍然能解析紧凑格式的令牌
+     */
+    public CompactAccessTokenConverter(TokenDictionary dictionary, boolean compact) {
+        this.dictionary = dictionary;
+        this.compact = compact;
+    }
+
+    /**
+     * 默认带上的可选 claim，null 表示全部
+     */
+    public void setDefaultClaims(Set<String> defaultClaims) {
+        this.defaultClaims = defaultClaims;
+    }
+
+    /**
+     * 按客户端指定带上的可选 claim，覆盖 defaultClaims
+     */
+    public void setClientClaims(Map<String, Set<String>> clientClaims) {
+        this.clientClaims = clientClaims;
+    }
+
+    /**
+     * 之前用过的字典，解析旧字典签发的令牌
+     */
+    public void setDictionaryHistory(TokenDictionaryHistory dictionaryHistory) {
+        this.dictionaryHistory = dictionaryHistory;
+    }
+
+    public TokenDictionaryHistory getDictionaryHistory() {
+        return dictionaryHistory;
+    }
+
+    public TokenDictionary getDictionary() {
+        return dictionary;
+    }
+
+    @Override
+    public Map<String, ?> convertAccessToken(OAuth2AccessToken token, OAuth2Authentication authentication) {
+        Map<String, ?> claims = super.convertAccessToken(token, authentication);
+        if (!compact) {
+            return claims;
+        }
+        boolean refreshToken = claims.containsKey(ATI);
+        Set<String> selected = refreshToken ? null
+                : clientClaims.getOrDefault(authentication.getOAuth2Request().getClientId(), defaultClaims);
+        return CompactClaims.compact(claims, dictionary, selected);
+    }
+
+    @Override
+    public OAuth2AccessToken extractAccessToken(String value, Map<String, ?> map) {
+        return super.extractAccessToken(value, expand(map));
+    }
+
+    @Override
+    public OAuth2Authentication extractAuthentication(Map<String, ?> map) {
+        return super.extractAuthentication(expand(map));
+    }
+
+    /**
+     * 紧凑格式的 claims 还原成标准名称，标准格式原样返回
+     */
+    public Map<String, Object> expand(Map<String, ?> claims) {
+        return CompactClaims.expand(claims, this::findDictionary);
+    }
+
+    private TokenDictionary findDictionary(String id) {
+        if (dictionary.getId().equals(id)) {
+            return dictionary;
+        }
+        return dictionaryHistory == null ? null : dictionaryHistory.find(id, System.currentTimeMillis());
+    }
+}
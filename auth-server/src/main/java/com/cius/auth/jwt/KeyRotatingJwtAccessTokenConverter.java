@@ -0,0 +1,64 @@
+package com.cius.auth.jwt;
+
+import com.cius.auth.revoke.RevocationList;
+import org.springframework.security.jwt.JwtHelper;
+import org.springframework.security.jwt.crypto.sign.SignatureVerifier;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+
+import java.util.Map;
+
+/**
+ * 用 SigningKeyManager 中的 RS256 密钥签发和校验 JWT：
+ * 签发时使用当前激活的密钥，并在 JWT 头部写入 kid；校验时按 kid 找到对应密钥的 verifier（校验过程见 KidJwtAccessTokenConverter）。
+ * 设置了 RevocationList 时，已吊销的 jti 校验不通过（/oauth/check_token、批量校验、刷新令牌都经过这里）。
+ */
+public class KeyRotatingJwtAccessTokenConverter extends KidJwtAccessTokenConverter {
+
+    private final SigningKeyManager keyManager;
+
+    private RevocationList revocationList;
+
+    public KeyRotatingJwtAccessTokenConverter(SigningKeyManager keyManager) {
+        this.keyManager = keyManager;
+    }
+
+    @Override
+    protected String encode(OAuth2AccessToken accessToken, OAuth2Authentication authentication) {
+        String content;
+        try {
+            content = objectMapper.formatMap(getAccessTokenConverter().convertAccessToken(accessToken, authentication));
+        } catch (Exception e) {
+            throw new IllegalStateException("Cannot convert access token to JSON", e);
+        }
+        SigningKey key = keyManager.getActiveKey();
+        return JwtHelper.encode(content, key.getSigner(), key.getHeaders()).getEncoded();
+    }
+
+    public void setRevocationList(RevocationList revocationList) {
+        this.revocationList = revocationList;
+    }
+
+    /**
+     * 校验签名并返回 JWT 中的全部 claims，批量校验时直接使用，不用像 JwtTokenStore 那样解析两遍。
+     * 紧凑格式的令牌会还原成标准的 claim 名称。
+     */
+    public Map<String, Object> decodeClaims(String token) {
+        Map<String, Object> claims = decode(token);
+        if (getAccessTokenConverter() instanceof CompactAccessTokenConverter) {
+            return ((CompactAccessTokenConverter) getAccessTokenConverter()).expand(claims);
+        }
+        return claims;
+    }
+
+    @Override
+    protected SignatureVerifier getVerifier(String kid) {
+        SigningKey key = keyManager.getKey(kid);
+        return key == null ? null : key.getVerifier();
+    }
+
+    @Override
+    protected boolean isRevoked(String jti) {
+        return revocationList != null && revocationList.isRevoked(jti);
+    }
+}
@@ -0,0 +1,97 @@
+package com.cius.auth.jwt;
+
+import org.springframework.security.jwt.crypto.sign.RsaSigner;
+import org.springframework.security.jwt.crypto.sign.RsaVerifier;
+import org.springframework.security.jwt.crypto.sign.SignatureVerifier;
+import org.springframework.security.jwt.crypto.sign.Signer;
+
+import java.math.BigInteger;
+import java.security.KeyPair;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 一把带 kid 的 RS256 签名密钥，signer/verifier 在构造时就创建好，签发和校验时直接复用。
+ */
+public final class SigningKey {
+
+    public static final String ALGORITHM = "RS256";
+
+    private final String kid;
+
+    private final RSAPublicKey publicKey;
+
+    private final Signer signer;
+
+    private final SignatureVerifier verifier;
+
+    private final Map<String, String> headers;
+
+    private final Map<String, Object> jwk;
+
+    public SigningKey(String kid, KeyPair keyPair) {
+        this.kid = kid;
+        this.publicKey = (RSAPublicKey) keyPair.getPublic();
+        this.signer = new RsaSigner((RSAPrivateKey) keyPair.getPrivate());
+        this.verifier = new RsaVerifier(publicKey);
+
+        Map<String, String> headers = new HashMap<>(2);
+        headers.put("kid", kid);
+        this.headers = Collections.unmodifiableMap(headers);
+
+        Map<String, Object> jwk = new LinkedHashMap<>();
+        jwk.put("kty", "RSA");
+        jwk.put("kid", kid);
+        jwk.put("use", "sig");
+        jwk.put("alg", ALGORITHM);
+        jwk.put("n", base64Url(publicKey.getModulus()));
+        jwk.put("e", base64Url(publicKey.getPublicExponent()));
+        this.jwk = Collections.unmodifiableMap(jwk);
+    }
+
+    public String getKid() {
+        return kid;
+    }
+
+    public RSAPublicKey getPublicKey() {
+        return publicKey;
+    }
+
+    public Signer getSigner() {
+        return signer;
+    }
+
+    public SignatureVerifier getVerifier() {
+        return verifier;
+    }
+
+    /**
+     * JWT 头部中额外的字段（kid）
+     */
+    public Map<String, String> getHeaders() {
+        return headers;
+    }
+
+    /**
+     * JWKS 中这把公钥的表示
+     */
+    public Map<String, Object> toJwk() {
+        return jwk;
+    }
+
+    private static String base64Url(BigInteger value) {
+        byte[] bytes = value.toByteArray();
+        // BigInteger 可能带一个符号位的前导 0，JWK 要求无符号大端表示
+        if (bytes.length > 1 && bytes[0] == 0) {
+            byte[] unsigned = new byte[bytes.length - 1];
+            System.arraycopy(bytes, 1, unsigned, 0, unsigned.length);
+            bytes = unsigned;
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+}
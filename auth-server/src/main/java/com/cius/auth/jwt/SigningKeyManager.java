@@ -0,0 +1,141 @@
+package com.cius.auth.jwt;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.Resource;
+import org.springframework.util.StringUtils;
+
+import java.io.InputStream;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.KeyStore;
+import java.security.PrivateKey;
+import java.security.cert.Certificate;
+import java.security.interfaces.RSAPrivateKey;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * 管理签名密钥：
+ *  1.配置了 keystore 时，keystore 里的每个 RSA 私钥条目都是一把密钥，别名就是 kid，
+ *    activeKid 指定当前用来签发的那一把，其余的只用来校验，多个节点共用同一个 keystore。
+ *    运行期间轮换：先把新密钥放进 keystore，调用 reload(null) 发布出去（签发密钥不变），
+ *    各资源服务器拿到之后再调用 reload(新 kid) 切换签发密钥，旧密钥等令牌都过期了再从 keystore 删除；
+ *  2.没有配置 keystore 时由 rotate() 生成 RSA 密钥，重启之后之前签发的令牌全部失效，节点之间也不能互相校验，只适合开发环境。
+ *
+ * 所有密钥放在一个不可变的 Map 里，轮换时整体替换，读路径不加锁。
+ */
+public class SigningKeyManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(SigningKeyManager.class);
+
+    private final int retainedKeys;
+
+    private volatile Map<String, SigningKey> keys = Collections.emptyMap();
+
+    private volatile SigningKey activeKey;
+
+    private String location;
+
+    private String password;
+
+    public SigningKeyManager(int retainedKeys) {
+        this.retainedKeys = Math.max(1, retainedKeys);
+    }
+
+    /**
+     * 从 keystore 加载全部 RSA 密钥
+     */
+    public synchronized void load(String location, String password, String activeKid) throws Exception {
+        Resource resource = new DefaultResourceLoader().getResource(location);
+        KeyStore keyStore = KeyStore.getInstance(location.endsWith(".jks") ? "JKS" : "PKCS12");
+        char[] secret = password == null ? new char[0] : password.toCharArray();
+        try (InputStream in = resource.getInputStream()) {
+            keyStore.load(in, secret);
+        }
+        Map<String, SigningKey> loaded = new LinkedHashMap<>();
+        Enumeration<String> aliases = keyStore.aliases();
+        while (aliases.hasMoreElements()) {
+            String alias = aliases.nextElement();
+            if (!keyStore.isKeyEntry(alias)) {
+                continue;
+            }
+            PrivateKey privateKey = (PrivateKey) keyStore.getKey(alias, secret);
+            Certificate certificate = keyStore.getCertificate(alias);
+            if (privateKey instanceof RSAPrivateKey && certificate != null) {
+                loaded.put(alias, new SigningKey(alias, new KeyPair(certificate.getPublicKey(), privateKey)));
+            }
+        }
+        String kid = StringUtils.hasText(activeKid) ? activeKid : null;
+        if (kid == null && !loaded.isEmpty()) {
+            kid = loaded.keySet().iterator().next();
+        }
+        if (kid == null || !loaded.containsKey(kid)) {
+            throw new IllegalStateException("Active signing key '" + activeKid + "' not found in " + location);
+        }
+        this.keys = Collections.unmodifiableMap(loaded);
+        this.activeKey = loaded.get(kid);
+        this.location = location;
+        this.password = password;
+        logger.info("Loaded {} signing key(s) from {}, active kid={}", loaded.size(), location, kid);
+    }
+
+    /**
+     * 重新读取 load 时的 keystore，新加的密钥马上出现在 JWKS 中。
+     * activeKid 为空时保留当前的签发密钥，不为空时切换过去；找不到对应的密钥时抛出异常，原来的密钥保持不变。
+     * 重启后仍然使用配置中的 activeKid，切换之后记得同步修改配置。
+     */
+    public synchronized void reload(String activeKid) throws Exception {
+        if (location == null) {
+            throw new IllegalStateException("No key store loaded");
+        }
+        load(location, password, StringUtils.hasText(activeKid) ? activeKid : activeKey.getKid());
+    }
+
+    public boolean isKeyStoreBacked() {
+        return location != null;
+    }
+
+    /**
+     * 生成一把新的 RSA 密钥并切换为签发密钥，旧密钥保留用于校验，最多保留 retainedKeys 把；
+     * 新密钥只在本节点内存中，keystore 方式请用 reload
+     */
+    public synchronized SigningKey rotate() throws GeneralSecurityException {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        SigningKey key = new SigningKey(UUID.randomUUID().toString(), generator.generateKeyPair());
+
+        List<SigningKey> retained = new ArrayList<>(keys.values());
+        while (retained.size() >= retainedKeys) {
+            retained.remove(0);
+        }
+        Map<String, SigningKey> rotated = new LinkedHashMap<>();
+        for (SigningKey old : retained) {
+            rotated.put(old.getKid(), old);
+        }
+        rotated.put(key.getKid(), key);
+        this.keys = Collections.unmodifiableMap(rotated);
+        this.activeKey = key;
+        logger.info("Rotated signing key, active kid={}", key.getKid());
+        return key;
+    }
+
+    public SigningKey getActiveKey() {
+        return activeKey;
+    }
+
+    public SigningKey getKey(String kid) {
+        return kid == null ? null : keys.get(kid);
+    }
+
+    public Map<String, SigningKey> getKeys() {
+        return keys;
+    }
+}
@@ -0,0 +1,143 @@
+package com.cius.auth.jwt;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 紧凑令牌字典的历史：字典来自配置，改配置重启之后旧字典签发的令牌（尤其是 refresh_token）还没有过期，
+ * 所以换下来的字典还要保留 retentionSeconds（不能短于 refresh_token 的有效期）才能丢掉。
+ *
+ * 配置了 file 时历史写到这个 JSON 文件里，重启之后才知道之前用过哪些字典，多个节点应该共用同一份；
+ * 没有配置时只在内存中，重启之后只认当前字典。
+ * 每个字典记录被换下来的时间，activate 时过了保留期的字典从文件中删除，find 时也不再接受。
+ */
+public class TokenDictionaryHistory {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenDictionaryHistory.class);
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final long retentionMillis;
+
+    private Path file;
+
+    private volatile TokenDictionary current;
+
+    /**
+     * 换下来的字典和换下来的时间（毫秒），按时间先后排列
+     */
+    private volatile Map<TokenDictionary, Long> retired = Collections.emptyMap();
+
+    public TokenDictionaryHistory(long retentionSeconds) {
+        this.retentionMillis = retentionSeconds * 1000;
+    }
+
+    public void setFile(String file) {
+        this.file = file == null || file.trim().isEmpty() ? null : Paths.get(file.trim());
+    }
+
+    /**
+     * 启用当前字典：读出历史，和上次的当前字典不一样时把上次的字典记为现在换下来，去掉过了保留期的，再写回文件
+     */
+    public synchronized void activate(TokenDictionary dictionary, long now) throws IOException {
+        Map<TokenDictionary, Long> entries = new LinkedHashMap<>();
+        TokenDictionary previous = null;
+        for (Map<String, Object> entry : read()) {
+            TokenDictionary loaded = TokenDictionary.fromMap(entry);
+            Object retiredAt = entry.get("retiredAt");
+            if (retiredAt instanceof Number) {
+                entries.put(loaded, ((Number) retiredAt).longValue());
+            } else {
+                previous = loaded;
+            }
+        }
+        if (previous != null && !previous.getId().equals(dictionary.getId())) {
+            entries.put(previous, now);
+            logger.info("Token dictionary changed from {} to {}", previous.getId(), dictionary.getId());
+        }
+        entries.keySet().removeIf(d -> d.getId().equals(dictionary.getId()));
+        entries.values().removeIf(retiredAt -> retiredAt + retentionMillis <= now);
+        current = dictionary;
+        retired = Collections.unmodifiableMap(entries);
+        write();
+    }
+
+    public TokenDictionary getCurrent() {
+        return current;
+    }
+
+    /**
+     * 按 id 找字典：当前字典或者还在保留期内的旧字典，找不到返回 null
+     */
+    public TokenDictionary find(String id, long now) {
+        TokenDictionary dictionary = current;
+        if (dictionary != null && dictionary.getId().equals(id)) {
+            return dictionary;
+        }
+        for (Map.Entry<TokenDictionary, Long> entry : retired.entrySet()) {
+            if (entry.getKey().getId().equals(id)) {
+                return entry.getValue() + retentionMillis > now ? entry.getKey() : null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 还在保留期内的旧字典，资源服务器用来解析旧令牌
+     */
+    public List<TokenDictionary> getPrevious(long now) {
+        List<TokenDictionary> previous = new ArrayList<>();
+        for (Map.Entry<TokenDictionary, Long> entry : retired.entrySet()) {
+            if (entry.getValue() + retentionMillis > now) {
+                previous.add(entry.getKey());
+            }
+        }
+        return previous;
+    }
+
+    private List<Map<String, Object>> read() throws IOException {
+        if (file == null) {
+            logger.info("No token dictionary history file; tokens issued under earlier dictionaries are rejected after a restart");
+            return Collections.emptyList();
+        }
+        if (!Files.exists(file)) {
+            return Collections.emptyList();
+        }
+        return objectMapper.readValue(file.toFile(), new TypeReference<List<Map<String, Object>>>() {
+        });
+    }
+
+    /**
+     * 先写临时文件再改名，避免写到一半时别的节点读到不完整的内容
+     */
+    private void write() throws IOException {
+        if (file == null) {
+            return;
+        }
+        List<Map<String, Object>> entries = new ArrayList<>();
+        for (Map.Entry<TokenDictionary, Long> entry : retired.entrySet()) {
+            Map<String, Object> map = entry.getKey().toMap();
+            map.put("retiredAt", entry.getValue());
+            entries.add(map);
+        }
+        entries.add(current.toMap());
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path tmp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+        objectMapper.writerWithDefaultPrettyPrinter().writeValue(tmp.toFile(), entries);
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,36 @@
+package com.cius.auth.metrics;
+
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+/**
+ * 记录客户端密钥校验的耗时（phase=client_secret）
+ */
+public class TimedPasswordEncoder implements PasswordEncoder {
+
+    private final PasswordEncoder delegate;
+
+    private final TokenMetrics metrics;
+
+    private final String phase;
+
+    public TimedPasswordEncoder(PasswordEncoder delegate, TokenMetrics metrics, String phase) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+        this.phase = phase;
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return delegate.encode(rawPassword);
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return metrics.record(phase, () -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+}
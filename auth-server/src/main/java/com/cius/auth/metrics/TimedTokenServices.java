@@ -0,0 +1,97 @@
+package com.cius.auth.metrics;
+
+import com.cius.auth.audit.AuditEvent;
+import com.cius.auth.audit.TokenAuditor;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.common.exceptions.InvalidTokenException;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.TokenRequest;
+import org.springframework.security.oauth2.provider.token.AuthorizationServerTokenServices;
+import org.springframework.security.oauth2.provider.token.ConsumerTokenServices;
+import org.springframework.security.oauth2.provider.token.DefaultTokenServices;
+import org.springframework.security.oauth2.provider.token.ResourceServerTokenServices;
+
+/**
+ * 记录 DefaultTokenServices 创建、刷新令牌的耗时（phase=token_services）。
+ * 同时实现 ResourceServerTokenServices 和 ConsumerTokenServices，
+ * 否则 AuthorizationServerEndpointsConfigurer 会给 /oauth/check_token 另外创建一个默认的 TokenServices。
+ * 设置了 TokenAuditor 时，创建、刷新令牌成功或失败都会记一条审计记录，成功的记录在 DefaultTokenServices 返回之后才写。
+ */
+public class TimedTokenServices implements AuthorizationServerTokenServices, ResourceServerTokenServices, ConsumerTokenServices {
+
+    private final DefaultTokenServices delegate;
+
+    private final TokenMetrics metrics;
+
+    private TokenAuditor auditor;
+
+    public TimedTokenServices(DefaultTokenServices delegate, TokenMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    public void setAuditor(TokenAuditor auditor) {
+        this.auditor = auditor;
+    }
+
+    @Override
+    public OAuth2AccessToken createAccessToken(OAuth2Authentication authentication) throws AuthenticationException {
+        OAuth2AccessToken token;
+        try {
+            token = metrics.record(TokenPhases.TOKEN_SERVICES, () -> delegate.createAccessToken(authentication));
+        } catch (RuntimeException e) {
+            if (auditor != null) {
+                auditor.rejected(AuditEvent.ISSUE, authentication.getOAuth2Request().getClientId(),
+                        authentication.isClientOnly() ? null : authentication.getName(),
+                        authentication.getOAuth2Request().getGrantType(), e);
+            }
+            throw e;
+        }
+        if (auditor != null) {
+            auditor.issued(token, authentication);
+        }
+        return token;
+    }
+
+    @Override
+    public OAuth2AccessToken refreshAccessToken(String refreshToken, TokenRequest tokenRequest) throws AuthenticationException {
+        OAuth2AccessToken token;
+        try {
+            token = metrics.record(TokenPhases.TOKEN_SERVICES, () -> delegate.refreshAccessToken(refreshToken, tokenRequest));
+        } catch (RuntimeException e) {
+            if (auditor != null) {
+                auditor.rejected(AuditEvent.REFRESH, tokenRequest.getClientId(), null, tokenRequest.getGrantType(), e);
+            }
+            throw e;
+        }
+        if (auditor != null) {
+            auditor.refreshed(token, tokenRequest);
+        }
+        return token;
+    }
+
+    @Override
+    public OAuth2AccessToken getAccessToken(OAuth2Authentication authentication) {
+        return delegate.getAccessToken(authentication);
+    }
+
+    @Override
+    public OAuth2Authentication loadAuthentication(String accessToken) throws AuthenticationException, InvalidTokenException {
+        return delegate.loadAuthentication(accessToken);
+    }
+
+    @Override
+    public OAuth2AccessToken readAccessToken(String accessToken) {
+        return delegate.readAccessToken(accessToken);
+    }
+
+    @Override
+    public boolean revokeToken(String tokenValue) {
+        return delegate.revokeToken(tokenValue);
+    }
+
+    public DefaultTokenServices getDelegate() {
+        return delegate;
+    }
+}
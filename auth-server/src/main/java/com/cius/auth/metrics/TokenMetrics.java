@@ -0,0 +1,176 @@
+package com.cius.auth.metrics;
+
+import com.cius.auth.trace.Span;
+import com.cius.auth.trace.Tracer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * /oauth/token 的耗时统计：
+ *  1.oauth.token.phase：各阶段的耗时直方图，标签 phase（total、client_lookup、client_secret、authenticate、
+ *    user_lookup、token_services、token_enhancer、jwt_sign）和 grant_type（只取已知的几种授权类型，其余记为 other），
+ *    时间序列数量固定，和客户端数量无关；
+ *  2.oauth.token.client：每个客户端整个请求（total 阶段）的次数、总耗时和最大值，不带直方图，标签 client_id 和 grant_type，
+ *    client_id 最多记录 maxClientTags 个不同的客户端，超出的记为 other。
+ * 直方图每个时间序列有几十个桶，如果再按客户端拆分，100 个客户端就是几十万个时间序列，所以客户端维度只保留总数和总耗时。
+ *
+ * grant_type 和 client_id 由 TokenMetricsFilter 在请求开始时放到当前线程上，各阶段计时时直接取用。
+ * Timer 按标签组合缓存，计时本身只有两次 System.nanoTime 和一次 Timer.record。
+ * 设置了 Tracer 时，被采样的请求的每个阶段同时记为一个 Span，名字就是阶段名。
+ */
+public class TokenMetrics {
+
+    public static final String METRIC_NAME = "oauth.token.phase";
+
+    public static final String CLIENT_METRIC_NAME = "oauth.token.client";
+
+    public static final String OTHER = "other";
+
+    public static final String NONE = "none";
+
+    private static final Set<String> GRANT_TYPES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            "authorization_code", "password", "client_credentials", "implicit", "refresh_token")));
+
+    private static final ThreadLocal<String[]> CONTEXT = new ThreadLocal<>();
+
+    private final MeterRegistry registry;
+
+    private final int maxClientTags;
+
+    private final Set<String> clientTags = ConcurrentHashMap.newKeySet();
+
+    private final ConcurrentMap<TimerKey, Timer> timers = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<TimerKey, Timer> clientTimers = new ConcurrentHashMap<>();
+
+    private Tracer tracer;
+
+    public TokenMetrics(MeterRegistry registry, int maxClientTags) {
+        this.registry = registry;
+        this.maxClientTags = maxClientTags;
+    }
+
+    /**
+     * 在当前线程上记录本次请求的授权类型和客户端，必须和 end 成对调用
+     */
+    public void begin(String grantType, String clientId) {
+        CONTEXT.set(new String[]{grantTypeTag(grantType), clientIdTag(clientId)});
+    }
+
+    public void end() {
+        CONTEXT.remove();
+    }
+
+    public void setTracer(Tracer tracer) {
+        this.tracer = tracer;
+    }
+
+    public <T> T record(String phase, Supplier<T> supplier) {
+        Span span = tracer == null ? null : tracer.start(phase);
+        long start = System.nanoTime();
+        try {
+            return supplier.get();
+        } finally {
+            record(phase, System.nanoTime() - start);
+            if (span != null) {
+                tracer.end(span);
+            }
+        }
+    }
+
+    public void record(String phase, long nanos) {
+        String[] context = CONTEXT.get();
+        String grantType = context == null ? NONE : context[0];
+        timer(phase, grantType).record(nanos, TimeUnit.NANOSECONDS);
+        if (TokenPhases.TOTAL.equals(phase)) {
+            clientTimer(context == null ? NONE : context[1], grantType).record(nanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    public Timer timer(String phase) {
+        String[] context = CONTEXT.get();
+        return timer(phase, context == null ? NONE : context[0]);
+    }
+
+    private Timer timer(String phase, String grantType) {
+        return timers.computeIfAbsent(new TimerKey(phase, grantType), key -> Timer.builder(METRIC_NAME)
+                .description("Time spent in each phase of the token endpoint")
+                .tag("phase", key.name)
+                .tag("grant_type", key.grantType)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1).dividedBy(10))
+                .maximumExpectedValue(Duration.ofSeconds(10))
+                .register(registry));
+    }
+
+    private Timer clientTimer(String clientId, String grantType) {
+        return clientTimers.computeIfAbsent(new TimerKey(clientId, grantType), key -> Timer.builder(CLIENT_METRIC_NAME)
+                .description("Time spent in the token endpoint per client")
+                .tag("client_id", key.name)
+                .tag("grant_type", key.grantType)
+                .register(registry));
+    }
+
+    private static String grantTypeTag(String grantType) {
+        if (grantType == null) {
+            return NONE;
+        }
+        return GRANT_TYPES.contains(grantType) ? grantType : OTHER;
+    }
+
+    private String clientIdTag(String clientId) {
+        if (clientId == null) {
+            return NONE;
+        }
+        if (clientTags.contains(clientId)) {
+            return clientId;
+        }
+        // 并发时可能略微超过 maxClientTags，不影响“有上限”这个目的
+        if (clientTags.size() < maxClientTags && clientTags.add(clientId)) {
+            return clientId;
+        }
+        return clientTags.contains(clientId) ? clientId : OTHER;
+    }
+
+    /**
+     * name 是阶段名（oauth.token.phase）或 client_id（oauth.token.client）
+     */
+    private static final class TimerKey {
+
+        final String name;
+
+        final String grantType;
+
+        final int hash;
+
+        TimerKey(String name, String grantType) {
+            this.name = name;
+            this.grantType = grantType;
+            this.hash = name.hashCode() * 31 + grantType.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof TimerKey)) {
+                return false;
+            }
+            TimerKey other = (TimerKey) o;
+            return name.equals(other.name) && grantType.equals(other.grantType);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.cius.auth.metrics;
+
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * 只注册在 /oauth/token 上：取出 grant_type 和 client_id 放到当前线程，并记录整个请求的耗时（phase=total）。
+ * 需要注册在 Spring Security 过滤器链之前，客户端认证的耗时才能带上标签。
+ */
+public class TokenMetricsFilter extends OncePerRequestFilter {
+
+    private final TokenMetrics metrics;
+
+    public TokenMetricsFilter(TokenMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        long start = System.nanoTime();
+        metrics.begin(request.getParameter("grant_type"), clientId(request));
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            metrics.record(TokenPhases.TOTAL, System.nanoTime() - start);
+            metrics.end();
+        }
+    }
+
+    /**
+     * client_id 可能在表单参数里，也可能在 Basic 认证头里
+     */
+    public static String clientId(HttpServletRequest request) {
+        String clientId = request.getParameter("client_id");
+        if (clientId != null) {
+            return clientId;
+        }
+        String header = request.getHeader("Authorization");
+        if (header == null || !header.regionMatches(true, 0, "Basic ", 0, 6)) {
+            return null;
+        }
+        try {
+            String credentials = new String(Base64.getDecoder().decode(header.substring(6).trim()), StandardCharsets.UTF_8);
+            int colon = credentials.indexOf(':');
+            return colon < 0 ? null : credentials.substring(0, colon);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
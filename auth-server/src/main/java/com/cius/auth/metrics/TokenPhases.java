@@ -0,0 +1,50 @@
+package com.cius.auth.metrics;
+
+/**
+ * /oauth/token 的各个阶段
+ */
+public final class TokenPhases {
+
+    /**
+     * 整个请求
+     */
+    public static final String TOTAL = "total";
+
+    /**
+     * 查询客户端信息（ClientDetailsService）
+     */
+    public static final String CLIENT_LOOKUP = "client_lookup";
+
+    /**
+     * 校验客户端密钥（BCrypt）
+     */
+    public static final String CLIENT_SECRET = "client_secret";
+
+    /**
+     * 校验用户（AuthenticationManager + BCrypt），只有 password 模式有
+     */
+    public static final String AUTHENTICATE = "authenticate";
+
+    /**
+     * 查询用户信息（UserDetailsService），password 和 refresh_token 模式都有
+     */
+    public static final String USER_LOOKUP = "user_lookup";
+
+    /**
+     * 创建或刷新令牌（DefaultTokenServices），包含 token_enhancer 和 jwt_sign
+     */
+    public static final String TOKEN_SERVICES = "token_services";
+
+    /**
+     * 追加自定义信息的 TokenEnhancer
+     */
+    public static final String TOKEN_ENHANCER = "token_enhancer";
+
+    /**
+     * JwtAccessTokenConverter 编码并签名
+     */
+    public static final String JWT_SIGN = "jwt_sign";
+
+    private TokenPhases() {
+    }
+}
@@ -0,0 +1,78 @@
+package com.cius.auth.ratelimit;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 单节点的无锁令牌桶，用 GCRA（通用信元速率算法）实现：
+ *  1.每个桶只有一个 AtomicLong，保存“理论到达时间”（TAT），取令牌就是一次 CAS，没有锁；
+ *  2.桶放在 ConcurrentHashMap 中，不同 key 之间互不竞争，没有全局锁，
+ *    同一个 key 的并发请求只在自己的 AtomicLong 上重试；
+ *  3.桶的数量超过 maxKeys 时清除已经补满的桶（补满的桶和新建的桶等价，不丢失状态），
+ *    仍然超出时按遍历顺序淘汰，只有一个线程做清理。
+ */
+public class LocalRateLimiter implements RateLimiter {
+
+    private final ConcurrentHashMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+
+    private final AtomicBoolean cleaning = new AtomicBoolean();
+
+    private final int maxKeys;
+
+    public LocalRateLimiter(int maxKeys) {
+        this.maxKeys = maxKeys;
+    }
+
+    @Override
+    public RateLimitDecision acquire(String key, RateLimit limit) {
+        AtomicLong tat = buckets.get(key);
+        if (tat == null) {
+            tat = buckets.computeIfAbsent(key, k -> new AtomicLong(System.nanoTime()));
+            if (buckets.size() > maxKeys) {
+                cleanUp();
+            }
+        }
+        long interval = limit.getIntervalNanos();
+        long tolerance = limit.getToleranceNanos();
+        while (true) {
+            long now = System.nanoTime();
+            long current = tat.get();
+            long next = (current - now > 0 ? current : now) + interval;
+            long debt = next - now;
+            if (debt > tolerance) {
+                return RateLimitDecision.of(limit, false, debt);
+            }
+            if (tat.compareAndSet(current, next)) {
+                return RateLimitDecision.of(limit, true, debt);
+            }
+        }
+    }
+
+    public int size() {
+        return buckets.size();
+    }
+
+    private void cleanUp() {
+        if (!cleaning.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            long now = System.nanoTime();
+            Iterator<AtomicLong> it = buckets.values().iterator();
+            while (it.hasNext()) {
+                if (it.next().get() - now <= 0) {
+                    it.remove();
+                }
+            }
+            it = buckets.values().iterator();
+            while (buckets.size() > maxKeys && it.hasNext()) {
+                it.next();
+                it.remove();
+            }
+        } finally {
+            cleaning.set(false);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.cius.auth.ratelimit;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 一个令牌桶的参数：每秒补充 permitsPerSecond 个令牌，桶容量 burst。
+ * 配置格式为 "速率:容量"，例如 50:100；只写速率时容量等于速率。
+ */
+public final class RateLimit {
+
+    private final double permitsPerSecond;
+
+    private final int burst;
+
+    private final long intervalNanos;
+
+    private final long toleranceNanos;
+
+    public RateLimit(double permitsPerSecond, int burst) {
+        if (permitsPerSecond <= 0 || burst <= 0) {
+            throw new IllegalArgumentException("Rate and burst must be positive");
+        }
+        this.permitsPerSecond = permitsPerSecond;
+        this.burst = burst;
+        this.intervalNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond));
+        this.toleranceNanos = intervalNanos * burst;
+    }
+
+    public static RateLimit parse(String value) {
+        String text = value.trim();
+        int colon = text.indexOf(':');
+        try {
+            double rate = Double.parseDouble(colon < 0 ? text : text.substring(0, colon).trim());
+            int burst = colon < 0 ? (int) Math.max(1, Math.ceil(rate)) : Integer.parseInt(text.substring(colon + 1).trim());
+            return new RateLimit(rate, burst);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid rate limit '" + value + "', expected rate[:burst]", e);
+        }
+    }
+
+    public double getPermitsPerSecond() {
+        return permitsPerSecond;
+    }
+
+    public int getBurst() {
+        return burst;
+    }
+
+    /**
+     * 补充一个令牌需要的时间
+     */
+    public long getIntervalNanos() {
+        return intervalNanos;
+    }
+
+    /**
+     * 桶从空到满需要的时间
+     */
+    public long getToleranceNanos() {
+        return toleranceNanos;
+    }
+
+    @Override
+    public String toString() {
+        return permitsPerSecond + ":" + burst;
+    }
+}
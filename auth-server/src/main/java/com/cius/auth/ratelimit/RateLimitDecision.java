@@ -0,0 +1,73 @@
+package com.cius.auth.ratelimit;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 一次限流判断的结果，用来生成 RateLimit-* 和 Retry-After 响应头
+ */
+public final class RateLimitDecision {
+
+    private final boolean allowed;
+
+    private final int limit;
+
+    private final int remaining;
+
+    private final long resetNanos;
+
+    private final long retryAfterNanos;
+
+    private RateLimitDecision(boolean allowed, int limit, int remaining, long resetNanos, long retryAfterNanos) {
+        this.allowed = allowed;
+        this.limit = limit;
+        this.remaining = remaining;
+        this.resetNanos = resetNanos;
+        this.retryAfterNanos = retryAfterNanos;
+    }
+
+    /**
+     * 根据 GCRA 的计算结果生成判断结果
+     * @param limit 桶的参数
+     * @param allowed 是否放行
+     * @param debtNanos 放行后（或假设放行时）理论到达时间超出当前时间的部分，也就是桶从当前状态补满需要的时间
+     */
+    static RateLimitDecision of(RateLimit limit, boolean allowed, long debtNanos) {
+        if (allowed) {
+            int remaining = (int) ((limit.getToleranceNanos() - debtNanos) / limit.getIntervalNanos());
+            return new RateLimitDecision(true, limit.getBurst(), remaining, debtNanos, 0);
+        }
+        return new RateLimitDecision(false, limit.getBurst(), 0, debtNanos - limit.getIntervalNanos(),
+                debtNanos - limit.getToleranceNanos());
+    }
+
+    public boolean isAllowed() {
+        return allowed;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getRemaining() {
+        return remaining;
+    }
+
+    /**
+     * 桶补满还需要的秒数，向上取整
+     */
+    public long getResetSeconds() {
+        return toSeconds(resetNanos);
+    }
+
+    /**
+     * 被拒绝时，下一个令牌可用还需要的秒数，向上取整，至少 1 秒
+     */
+    public long getRetryAfterSeconds() {
+        return Math.max(1, toSeconds(retryAfterNanos));
+    }
+
+    private static long toSeconds(long nanos) {
+        long second = TimeUnit.SECONDS.toNanos(1);
+        return nanos <= 0 ? 0 : (nanos + second - 1) / second;
+    }
+}
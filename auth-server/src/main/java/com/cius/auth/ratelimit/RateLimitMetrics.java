@@ -0,0 +1,60 @@
+package com.cius.auth.ratelimit;
+
+import com.cius.auth.metrics.TokenMetrics;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 限流计数，指标名 oauth.ratelimit.requests，标签：
+ *  endpoint：token、check_token；
+ *  stage：address（客户端认证之前按来源 IP）、client（客户端认证之后按 client_id），见 RateLimitFilter；
+ *  client_id：和 TokenMetrics 一样最多记录 maxClientTags 个，超出的记为 other，没有客户端的记为 none；
+ *  result：allowed、throttled。
+ * Counter 内部是 LongAdder，按标签组合缓存，计数本身没有锁。
+ */
+public class RateLimitMetrics {
+
+    public static final String METRIC_NAME = "oauth.ratelimit.requests";
+
+    private final MeterRegistry registry;
+
+    private final int maxClientTags;
+
+    private final Set<String> clientTags = ConcurrentHashMap.newKeySet();
+
+    private final ConcurrentMap<String, Counter> counters = new ConcurrentHashMap<>();
+
+    public RateLimitMetrics(MeterRegistry registry, int maxClientTags) {
+        this.registry = registry;
+        this.maxClientTags = maxClientTags;
+    }
+
+    public void record(String endpoint, String stage, String clientId, boolean allowed) {
+        String client = clientIdTag(clientId);
+        String result = allowed ? "allowed" : "throttled";
+        counters.computeIfAbsent(endpoint + '|' + stage + '|' + client + '|' + result, key -> Counter.builder(METRIC_NAME)
+                .description("Requests checked by the token endpoint rate limiter")
+                .tag("endpoint", endpoint)
+                .tag("stage", stage)
+                .tag("client_id", client)
+                .tag("result", result)
+                .register(registry)).increment();
+    }
+
+    private String clientIdTag(String clientId) {
+        if (clientId == null) {
+            return TokenMetrics.NONE;
+        }
+        if (clientTags.contains(clientId)) {
+            return clientId;
+        }
+        if (clientTags.size() < maxClientTags && clientTags.add(clientId)) {
+            return clientId;
+        }
+        return clientTags.contains(clientId) ? clientId : TokenMetrics.OTHER;
+    }
+}
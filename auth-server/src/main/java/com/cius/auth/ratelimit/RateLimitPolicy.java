@@ -0,0 +1,147 @@
+package com.cius.auth.ratelimit;
+
+import com.cius.auth.cache.ExpiringCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.oauth2.provider.ClientDetails;
+import org.springframework.security.oauth2.provider.ClientDetailsService;
+import org.springframework.security.oauth2.provider.ClientRegistrationException;
+import org.springframework.util.StringUtils;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 决定一个请求用哪个令牌桶参数，按下面的顺序取第一个配置了的：
+ *  1.客户端自己的配置：oauth_client_details.additional_information 中的 rate_limit 字段，
+ *    例如 {"rate_limit":{"*":"50:100","password":"5:10","check_token":"200:400"}}，
+ *    其次是 auth.rate-limit.clients 中的 client_id/授权类型=速率:容量 和 client_id=速率:容量；
+ *  2.授权类型的配置 auth.rate-limit.grant-types，例如 password=20:40,check_token=500:1000；
+ *  3.默认配置 auth.rate-limit.default。
+ *
+ * /oauth/check_token 的“授权类型”记为 check_token。客户端配置按 client_id 缓存，
+ * 不存在的 client_id 也会缓存（记为不存在，使用默认配置），伪造的 client_id 不会每次都去查库，
+ * RateLimitFilter 在客户端认证之前通过 isKnownClient 判断，不存在的 client_id 不能用来细分来源 IP 的桶。
+ */
+public class RateLimitPolicy {
+
+    private static final Logger logger = LoggerFactory.getLogger(RateLimitPolicy.class);
+
+    public static final String RATE_LIMIT = "rate_limit";
+
+    public static final String ANY = "*";
+
+    public static final String CHECK_TOKEN = "check_token";
+
+    private final RateLimit defaultLimit;
+
+    private final Map<String, RateLimit> grantLimits;
+
+    private final Map<String, Map<String, RateLimit>> clientLimits;
+
+    private final ClientDetailsService clientDetailsService;
+
+    private final ExpiringCache<String, ResolvedClient> resolved;
+
+    public RateLimitPolicy(RateLimit defaultLimit, Map<String, RateLimit> grantLimits, Map<String, Map<String, RateLimit>> clientLimits,
+                           ClientDetailsService clientDetailsService, int maxClients, long ttl, TimeUnit unit) {
+        this.defaultLimit = defaultLimit;
+        this.grantLimits = grantLimits;
+        this.clientLimits = clientLimits;
+        this.clientDetailsService = clientDetailsService;
+        this.resolved = new ExpiringCache<>(maxClients, ttl, unit);
+    }
+
+    /**
+     * @param clientId 客户端，未知时为 null
+     * @param grantType 授权类型，/oauth/check_token 为 check_token
+     */
+    public RateLimit limitFor(String clientId, String grantType) {
+        if (clientId != null) {
+            Map<String, RateLimit> limits = resolved.get(clientId, this::loadClientLimits).limits;
+            RateLimit limit = grantType == null ? null : limits.get(grantType);
+            if (limit == null) {
+                limit = limits.get(ANY);
+            }
+            if (limit != null) {
+                return limit;
+            }
+        }
+        RateLimit limit = grantType == null ? null : grantLimits.get(grantType);
+        return limit == null ? defaultLimit : limit;
+    }
+
+    /**
+     * client_id 是否对应一个存在的客户端，和 limitFor 共用缓存
+     */
+    public boolean isKnownClient(String clientId) {
+        return clientId != null && resolved.get(clientId, this::loadClientLimits).known;
+    }
+
+    public void evictAll() {
+        resolved.invalidateAll();
+    }
+
+    private ResolvedClient loadClientLimits(String clientId) {
+        Map<String, RateLimit> limits = new HashMap<>(clientLimits.getOrDefault(clientId, Collections.emptyMap()));
+        boolean known = true;
+        try {
+            ClientDetails client = clientDetailsService.loadClientByClientId(clientId);
+            Object configured = client.getAdditionalInformation() == null ? null : client.getAdditionalInformation().get(RATE_LIMIT);
+            if (configured instanceof Map) {
+                for (Map.Entry<?, ?> entry : ((Map<?, ?>) configured).entrySet()) {
+                    limits.put(String.valueOf(entry.getKey()), RateLimit.parse(String.valueOf(entry.getValue())));
+                }
+            } else if (configured != null) {
+                limits.put(ANY, RateLimit.parse(String.valueOf(configured)));
+            }
+        } catch (ClientRegistrationException e) {
+            // 不存在的客户端使用默认配置，客户端认证会拒绝它
+            known = false;
+        } catch (IllegalArgumentException e) {
+            logger.warn("Invalid rate limit for client '{}': {}", clientId, e.getMessage());
+        }
+        return new ResolvedClient(known, limits);
+    }
+
+    /**
+     * 解析 name=速率:容量,name=速率:容量 格式的配置
+     */
+    public static Map<String, RateLimit> parseLimits(String value) {
+        Map<String, RateLimit> limits = new HashMap<>();
+        for (String pair : StringUtils.commaDelimitedListToStringArray(value)) {
+            int index = pair.indexOf('=');
+            if (index > 0) {
+                limits.put(pair.substring(0, index).trim(), RateLimit.parse(pair.substring(index + 1)));
+            }
+        }
+        return limits;
+    }
+
+    /**
+     * 解析 auth.rate-limit.clients：client_id=速率:容量 对所有授权类型生效，client_id/授权类型=速率:容量 只对一种授权类型生效
+     */
+    public static Map<String, Map<String, RateLimit>> parseClientLimits(String value) {
+        Map<String, Map<String, RateLimit>> result = new HashMap<>();
+        for (Map.Entry<String, RateLimit> entry : parseLimits(value).entrySet()) {
+            String name = entry.getKey();
+            int slash = name.indexOf('/');
+            String clientId = slash < 0 ? name : name.substring(0, slash);
+            String grantType = slash < 0 ? ANY : name.substring(slash + 1);
+            result.computeIfAbsent(clientId, k -> new HashMap<>()).put(grantType, entry.getValue());
+        }
+        return result;
+    }
+
+    private static final class ResolvedClient {
+        final boolean known;
+        final Map<String, RateLimit> limits;
+
+        ResolvedClient(boolean known, Map<String, RateLimit> limits) {
+            this.known = known;
+            this.limits = limits;
+        }
+    }
+}
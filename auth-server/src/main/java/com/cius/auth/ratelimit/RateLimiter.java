@@ -0,0 +1,15 @@
+package com.cius.auth.ratelimit;
+
+/**
+ * 令牌桶限流，每个 key 一个桶，桶的参数由调用方传入
+ */
+public interface RateLimiter {
+
+    /**
+     * 从 key 对应的桶中取一个令牌
+     * @param key 例如 client_id + 授权类型
+     * @param limit 桶的参数
+     * @return 判断结果，被拒绝时不消耗令牌
+     */
+    RateLimitDecision acquire(String key, RateLimit limit);
+}
@@ -0,0 +1,69 @@
+package com.cius.auth.ratelimit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.ReturnType;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 多节点共享的令牌桶，算法和 LocalRateLimiter 一样是 GCRA：
+ *  1.每个桶在 Redis 中只有一个 key，保存理论到达时间（微秒），一段 Lua 脚本原子地读取、判断、写回，一次往返；
+ *  2.时间取 Redis 服务器的 TIME，各节点时钟不一致也不影响；
+ *  3.key 的过期时间等于桶补满需要的时间，补满之后自动删除；
+ *  4.Redis 不可用时退回到本节点的 LocalRateLimiter（限额变成按节点计算），不会因为限流把所有请求拒掉。
+ */
+public class RedisRateLimiter implements RateLimiter {
+
+    private static final Logger logger = LoggerFactory.getLogger(RedisRateLimiter.class);
+
+    private static final byte[] SCRIPT = ("redis.replicate_commands() "
+            + "local t = redis.call('TIME') "
+            + "local now = tonumber(t[1]) * 1000000 + tonumber(t[2]) "
+            + "local interval = tonumber(ARGV[1]) "
+            + "local tat = tonumber(redis.call('GET', KEYS[1]) or now) "
+            + "if tat < now then tat = now end "
+            + "local debt = tat + interval - now "
+            + "if debt > tonumber(ARGV[2]) then return {0, debt} end "
+            + "redis.call('SET', KEYS[1], string.format('%.0f', tat + interval), 'PX', math.max(1, math.ceil(debt / 1000))) "
+            + "return {1, debt}").getBytes(StandardCharsets.UTF_8);
+
+    private static final String PREFIX = "oauth:ratelimit:";
+
+    private final RedisConnectionFactory connectionFactory;
+
+    private final RateLimiter fallback;
+
+    private final LongAdder failures = new LongAdder();
+
+    public RedisRateLimiter(RedisConnectionFactory connectionFactory, RateLimiter fallback) {
+        this.connectionFactory = connectionFactory;
+        this.fallback = fallback;
+    }
+
+    @Override
+    public RateLimitDecision acquire(String key, RateLimit limit) {
+        List<Object> result;
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            result = connection.eval(SCRIPT, ReturnType.MULTI, 1, (PREFIX + key).getBytes(StandardCharsets.UTF_8),
+                    String.valueOf(TimeUnit.NANOSECONDS.toMicros(limit.getIntervalNanos())).getBytes(StandardCharsets.UTF_8),
+                    String.valueOf(TimeUnit.NANOSECONDS.toMicros(limit.getToleranceNanos())).getBytes(StandardCharsets.UTF_8));
+        } catch (RuntimeException e) {
+            failures.increment();
+            logger.debug("Redis rate limiter unavailable, using local buckets", e);
+            return fallback.acquire(key, limit);
+        }
+        boolean allowed = ((Number) result.get(0)).longValue() == 1;
+        long debt = TimeUnit.MICROSECONDS.toNanos(((Number) result.get(1)).longValue());
+        return RateLimitDecision.of(limit, allowed, debt);
+    }
+
+    public long getFailureCount() {
+        return failures.sum();
+    }
+}
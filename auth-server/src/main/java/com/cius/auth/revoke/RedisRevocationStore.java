@@ -0,0 +1,55 @@
+package com.cius.auth.revoke;
+
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisZSetCommands;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Redis 方式保存已吊销的 jti：一个 ZSET，成员是 jti，分数是令牌的过期时间（秒），
+ * 吊销一次 ZADD，启动时按分数取出未过期的，定时清理时按分数删除已过期的，都是一次往返。
+ */
+public class RedisRevocationStore implements RevocationStore {
+
+    private static final byte[] KEY = "oauth:revoked".getBytes(StandardCharsets.UTF_8);
+
+    private final RedisConnectionFactory connectionFactory;
+
+    public RedisRevocationStore(RedisConnectionFactory connectionFactory) {
+        this.connectionFactory = connectionFactory;
+    }
+
+    @Override
+    public void save(String jti, long expiresAt) {
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            connection.zAdd(KEY, expiresAt, jti.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    @Override
+    public Map<String, Long> loadUnexpired(long now) {
+        Set<RedisZSetCommands.Tuple> tuples;
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            // 分数是整数秒，大于 now 即 now + 1 起
+            tuples = connection.zRangeByScoreWithScores(KEY, now + 1, Double.POSITIVE_INFINITY);
+        }
+        Map<String, Long> revoked = new HashMap<>();
+        if (tuples != null) {
+            for (RedisZSetCommands.Tuple tuple : tuples) {
+                revoked.put(new String(tuple.getValue(), StandardCharsets.UTF_8), tuple.getScore().longValue());
+            }
+        }
+        return revoked;
+    }
+
+    @Override
+    public void removeExpired(long now) {
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            connection.zRemRangeByScore(KEY, Double.NEGATIVE_INFINITY, now);
+        }
+    }
+}
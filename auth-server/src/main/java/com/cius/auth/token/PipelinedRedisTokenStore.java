@@ -0,0 +1,390 @@
+package com.cius.auth.token;
+
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.security.oauth2.common.ExpiringOAuth2RefreshToken;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.common.OAuth2RefreshToken;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.token.AuthenticationKeyGenerator;
+import org.springframework.security.oauth2.provider.token.DefaultAuthenticationKeyGenerator;
+import org.springframework.security.oauth2.provider.token.TokenStore;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Redis 方式的 TokenStore，用来代替 RedisTokenStore：
+ * RedisTokenStore 每存一个令牌要写 access、auth、auth_to_access、uname/client 列表、refresh 映射等多个 key，
+ * 删除时还要先读再删，多次往返；并且使用 JDK 序列化，体积大。
+ *
+ * 这里的数据结构：
+ *  access:{token}          hash  t=令牌 a=认证信息 c=client_id u=用户名 k=认证key r=refresh_token
+ *  refresh:{token}         hash  t=refresh_token a=认证信息 x=对应的 access_token
+ *  auth_to_access:{key}    string 认证key -> access_token
+ *  client_tokens:{id}      zset  client_id 下的 access_token，分数为过期时间（毫秒）
+ *  user_tokens:{name}      zset  用户名下的 access_token，分数同上
+ *
+ * access 等 key 到期由 Redis 自动删除，索引里的成员不会跟着删除：每次往索引写入时顺便按分数删掉已过期的成员，
+ * 查询时只取没过期的成员；一直没有写入的索引在 indexTtlSeconds 后整个过期。
+ * 删除 refresh_token 时同时清掉对应 access 上的 r 字段，不会留下指向已删除 key 的引用。
+ *
+ * 每个写操作通过一次 pipeline 完成，删除、按认证查询、批量吊销通过一段 Lua 脚本完成，都只有一次往返；
+ * 值使用 TokenCodec 的紧凑二进制编码。
+ */
+public class PipelinedRedisTokenStore implements TokenStore {
+
+    private static final String REVOKE_FUNCTION = "local function revoke(p, v) "
+            + "local f = redis.call('HMGET', p .. 'access:' .. v, 'c', 'u', 'k', 'r') "
+            + "local n = redis.call('DEL', p .. 'access:' .. v) "
+            + "if f[1] then redis.call('ZREM', p .. 'client_tokens:' .. f[1], v) end "
+            + "if f[2] then redis.call('ZREM', p .. 'user_tokens:' .. f[2], v) end "
+            + "if f[3] and redis.call('GET', p .. 'auth_to_access:' .. f[3]) == v then redis.call('DEL', p .. 'auth_to_access:' .. f[3]) end "
+            + "if f[4] then redis.call('HDEL', p .. 'refresh:' .. f[4], 'x') end "
+            + "return n end ";
+
+    /** ARGV[1]=前缀 ARGV[2]=access_token */
+    private static final RedisScript REMOVE_ACCESS = new RedisScript(REVOKE_FUNCTION
+            + "return revoke(ARGV[1], ARGV[2])");
+
+    /** ARGV[1]=前缀 ARGV[2]=refresh_token */
+    private static final RedisScript REMOVE_ACCESS_BY_REFRESH = new RedisScript(REVOKE_FUNCTION
+            + "local v = redis.call('HGET', ARGV[1] .. 'refresh:' .. ARGV[2], 'x') "
+            + "if v then return revoke(ARGV[1], v) end return 0");
+
+    /** ARGV[1]=前缀 ARGV[2]=索引 key（不含前缀），吊销索引中的全部令牌 */
+    private static final RedisScript REVOKE_SET = new RedisScript(REVOKE_FUNCTION
+            + "local n = 0 "
+            + "for _, v in ipairs(redis.call('ZRANGE', ARGV[1] .. ARGV[2], 0, -1)) do n = n + revoke(ARGV[1], v) end "
+            + "redis.call('DEL', ARGV[1] .. ARGV[2]) return n");
+
+    /** ARGV[1]=前缀 ARGV[2]=refresh_token，删除 refresh_token，并清掉仍然指向它的 access 上的 r 字段 */
+    private static final RedisScript REMOVE_REFRESH = new RedisScript(
+            "local k = ARGV[1] .. 'refresh:' .. ARGV[2] "
+            + "local v = redis.call('HGET', k, 'x') "
+            + "if v and redis.call('HGET', ARGV[1] .. 'access:' .. v, 'r') == ARGV[2] then "
+            + "redis.call('HDEL', ARGV[1] .. 'access:' .. v, 'r') end "
+            + "return redis.call('DEL', k)");
+
+    /** ARGV[1]=前缀 ARGV[2]=认证key，返回 {令牌, 认证信息} */
+    private static final RedisScript GET_BY_AUTHENTICATION = new RedisScript(
+            "local v = redis.call('GET', ARGV[1] .. 'auth_to_access:' .. ARGV[2]) "
+            + "if not v then return {} end "
+            + "return redis.call('HMGET', ARGV[1] .. 'access:' .. v, 't', 'a')");
+
+    /**
+     * ARGV[1]=前缀 ARGV[2]=当前时间（毫秒） ARGV[3..n]=索引 key（不含前缀，第一个应是成员最少的那个），
+     * 返回所有索引中都存在且没过期的令牌，并顺便清理已过期或已删除的成员
+     */
+    private static final RedisScript FIND_TOKENS = new RedisScript(
+            "local keys = {} "
+            + "for i = 3, #ARGV do keys[#keys + 1] = ARGV[1] .. ARGV[i] end "
+            + "for _, k in ipairs(keys) do redis.call('ZREMRANGEBYSCORE', k, 0, ARGV[2]) end "
+            + "local result = {} "
+            + "for _, v in ipairs(redis.call('ZRANGE', keys[1], 0, -1)) do "
+            + "local found = true "
+            + "for i = 2, #keys do if not redis.call('ZSCORE', keys[i], v) then found = false break end end "
+            + "if found then "
+            + "local t = redis.call('HGET', ARGV[1] .. 'access:' .. v, 't') "
+            + "if t then result[#result + 1] = t else for _, k in ipairs(keys) do redis.call('ZREM', k, v) end end "
+            + "end end return result");
+
+    private static final String ACCESS = "access:";
+    private static final String REFRESH = "refresh:";
+    private static final String AUTH_TO_ACCESS = "auth_to_access:";
+    private static final String CLIENT_TOKENS = "client_tokens:";
+    private static final String USER_TOKENS = "user_tokens:";
+
+    /** 没有过期时间的令牌在索引中的分数 */
+    private static final double NEVER = Double.MAX_VALUE;
+
+    private static final byte[] TOKEN = bytes("t");
+    private static final byte[] AUTHENTICATION = bytes("a");
+    private static final byte[] CLIENT = bytes("c");
+    private static final byte[] USER = bytes("u");
+    private static final byte[] AUTH_KEY = bytes("k");
+    private static final byte[] REFRESH_TOKEN = bytes("r");
+    private static final byte[] ACCESS_TOKEN = bytes("x");
+
+    private final RedisConnectionFactory connectionFactory;
+
+    private AuthenticationKeyGenerator authenticationKeyGenerator = new DefaultAuthenticationKeyGenerator();
+
+    private String prefix = "oauth:";
+
+    /**
+     * client/user 索引的过期时间，每次写入时顺延，应不短于 access_token 的有效期
+     */
+    private long indexTtlSeconds = 60 * 60 * 24 * 30;
+
+    public PipelinedRedisTokenStore(RedisConnectionFactory connectionFactory) {
+        this.connectionFactory = connectionFactory;
+    }
+
+    public void setAuthenticationKeyGenerator(AuthenticationKeyGenerator authenticationKeyGenerator) {
+        this.authenticationKeyGenerator = authenticationKeyGenerator;
+    }
+
+    public void setPrefix(String prefix) {
+        this.prefix = prefix;
+    }
+
+    public void setIndexTtlSeconds(long indexTtlSeconds) {
+        this.indexTtlSeconds = indexTtlSeconds;
+    }
+
+    @Override
+    public OAuth2Authentication readAuthentication(OAuth2AccessToken token) {
+        return readAuthentication(token.getValue());
+    }
+
+    @Override
+    public OAuth2Authentication readAuthentication(String token) {
+        byte[] bytes;
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            bytes = connection.hGet(key(ACCESS, token), AUTHENTICATION);
+        }
+        return bytes == null ? null : TokenCodec.decodeAuthentication(bytes);
+    }
+
+    @Override
+    public void storeAccessToken(OAuth2AccessToken token, OAuth2Authentication authentication) {
+        String clientId = authentication.getOAuth2Request().getClientId();
+        String username = authentication.isClientOnly() ? null : authentication.getName();
+        String authKey = authenticationKeyGenerator.extractKey(authentication);
+        OAuth2RefreshToken refreshToken = token.getRefreshToken();
+
+        Map<byte[], byte[]> fields = new HashMap<>(8);
+        fields.put(TOKEN, TokenCodec.encodeAccessToken(token));
+        fields.put(AUTHENTICATION, TokenCodec.encodeAuthentication(authentication));
+        fields.put(CLIENT, bytes(clientId));
+        fields.put(AUTH_KEY, bytes(authKey));
+        if (username != null) {
+            fields.put(USER, bytes(username));
+        }
+        if (refreshToken != null) {
+            fields.put(REFRESH_TOKEN, bytes(refreshToken.getValue()));
+        }
+
+        byte[] accessKey = key(ACCESS, token.getValue());
+        byte[] value = bytes(token.getValue());
+        byte[] clientKey = key(CLIENT_TOKENS, clientId);
+        double score = token.getExpiration() == null ? NEVER : token.getExpiration().getTime();
+        long now = System.currentTimeMillis();
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            connection.openPipeline();
+            connection.hMSet(accessKey, fields);
+            connection.set(key(AUTH_TO_ACCESS, authKey), value);
+            index(connection, clientKey, score, value, now);
+            if (username != null) {
+                index(connection, key(USER_TOKENS, username), score, value, now);
+            }
+            if (refreshToken != null) {
+                connection.hSet(key(REFRESH, refreshToken.getValue()), ACCESS_TOKEN, value);
+            }
+            if (token.getExpiration() != null) {
+                long expireAt = token.getExpiration().getTime();
+                connection.pExpireAt(accessKey, expireAt);
+                connection.pExpireAt(key(AUTH_TO_ACCESS, authKey), expireAt);
+            }
+            connection.closePipeline();
+        }
+    }
+
+    /**
+     * 加入索引，顺便删掉已经过期的成员
+     */
+    private void index(RedisConnection connection, byte[] indexKey, double score, byte[] value, long now) {
+        connection.zAdd(indexKey, score, value);
+        connection.zRemRangeByScore(indexKey, 0, now);
+        connection.expire(indexKey, indexTtlSeconds);
+    }
+
+    @Override
+    public OAuth2AccessToken readAccessToken(String tokenValue) {
+        byte[] bytes;
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            bytes = connection.hGet(key(ACCESS, tokenValue), TOKEN);
+        }
+        return bytes == null ? null : TokenCodec.decodeAccessToken(bytes);
+    }
+
+    @Override
+    public void removeAccessToken(OAuth2AccessToken token) {
+        execute(REMOVE_ACCESS, ReturnType.INTEGER, bytes(prefix), bytes(token.getValue()));
+    }
+
+    @Override
+    public void storeRefreshToken(OAuth2RefreshToken refreshToken, OAuth2Authentication authentication) {
+        byte[] refreshKey = key(REFRESH, refreshToken.getValue());
+        Map<byte[], byte[]> fields = new HashMap<>(4);
+        fields.put(TOKEN, TokenCodec.encodeRefreshToken(refreshToken));
+        fields.put(AUTHENTICATION, TokenCodec.encodeAuthentication(authentication));
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            connection.openPipeline();
+            connection.hMSet(refreshKey, fields);
+            if (refreshToken instanceof ExpiringOAuth2RefreshToken) {
+                Date expiration = ((ExpiringOAuth2RefreshToken) refreshToken).getExpiration();
+                if (expiration != null) {
+                    connection.pExpireAt(refreshKey, expiration.getTime());
+                }
+            }
+            connection.closePipeline();
+        }
+    }
+
+    @Override
+    public OAuth2RefreshToken readRefreshToken(String tokenValue) {
+        byte[] bytes;
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            bytes = connection.hGet(key(REFRESH, tokenValue), TOKEN);
+        }
+        return bytes == null ? null : TokenCodec.decodeRefreshToken(bytes);
+    }
+
+    @Override
+    public OAuth2Authentication readAuthenticationForRefreshToken(OAuth2RefreshToken token) {
+        byte[] bytes;
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            bytes = connection.hGet(key(REFRESH, token.getValue()), AUTHENTICATION);
+        }
+        return bytes == null ? null : TokenCodec.decodeAuthentication(bytes);
+    }
+
+    @Override
+    public void removeRefreshToken(OAuth2RefreshToken token) {
+        execute(REMOVE_REFRESH, ReturnType.INTEGER, bytes(prefix), bytes(token.getValue()));
+    }
+
+    @Override
+    public void removeAccessTokenUsingRefreshToken(OAuth2RefreshToken refreshToken) {
+        execute(REMOVE_ACCESS_BY_REFRESH, ReturnType.INTEGER, bytes(prefix), bytes(refreshToken.getValue()));
+    }
+
+    @Override
+    public OAuth2AccessToken getAccessToken(OAuth2Authentication authentication) {
+        String authKey = authenticationKeyGenerator.extractKey(authentication);
+        List<byte[]> result = execute(GET_BY_AUTHENTICATION, ReturnType.MULTI, bytes(prefix), bytes(authKey));
+        if (result == null || result.isEmpty() || result.get(0) == null) {
+            return null;
+        }
+        OAuth2AccessToken accessToken = TokenCodec.decodeAccessToken(result.get(0));
+        byte[] stored = result.get(1);
+        if (stored == null || !authKey.equals(authenticationKeyGenerator.extractKey(TokenCodec.decodeAuthentication(stored)))) {
+            // 与 RedisTokenStore 一致：认证信息有变化时重新保存，保证下次能按认证信息查到
+            storeAccessToken(accessToken, authentication);
+        }
+        return accessToken;
+    }
+
+    @Override
+    public Collection<OAuth2AccessToken> findTokensByClientIdAndUserName(String clientId, String userName) {
+        return findTokens(USER_TOKENS + userName, CLIENT_TOKENS + clientId);
+    }
+
+    @Override
+    public Collection<OAuth2AccessToken> findTokensByClientId(String clientId) {
+        return findTokens(CLIENT_TOKENS + clientId);
+    }
+
+    /**
+     * 吊销某个用户在所有客户端下的全部令牌，一次往返
+     * @return 吊销的令牌数量
+     */
+    public long revokeByUserName(String userName) {
+        Long count = execute(REVOKE_SET, ReturnType.INTEGER, bytes(prefix), bytes(USER_TOKENS + userName));
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * 吊销某个客户端的全部令牌，一次往返
+     * @return 吊销的令牌数量
+     */
+    public long revokeByClientId(String clientId) {
+        Long count = execute(REVOKE_SET, ReturnType.INTEGER, bytes(prefix), bytes(CLIENT_TOKENS + clientId));
+        return count == null ? 0 : count;
+    }
+
+    private Collection<OAuth2AccessToken> findTokens(String... indexKeys) {
+        byte[][] args = new byte[indexKeys.length + 2][];
+        args[0] = bytes(prefix);
+        args[1] = bytes(String.valueOf(System.currentTimeMillis()));
+        for (int i = 0; i < indexKeys.length; i++) {
+            args[i + 2] = bytes(indexKeys[i]);
+        }
+        List<byte[]> result = execute(FIND_TOKENS, ReturnType.MULTI, args);
+        if (result == null || result.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<OAuth2AccessToken> tokens = new ArrayList<>(result.size());
+        for (byte[] bytes : result) {
+            tokens.add(TokenCodec.decodeAccessToken(bytes));
+        }
+        return Collections.unmodifiableList(tokens);
+    }
+
+    private <T> T execute(RedisScript script, ReturnType returnType, byte[]... args) {
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            try {
+                return connection.evalSha(script.sha1, returnType, 0, args);
+            } catch (RuntimeException e) {
+                if (!isNoScript(e)) {
+                    throw e;
+                }
+                return connection.eval(script.body, returnType, 0, args);
+            }
+        }
+    }
+
+    private static boolean isNoScript(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t.getMessage() != null && t.getMessage().contains("NOSCRIPT")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private byte[] key(String type, String value) {
+        return bytes(prefix + type + value);
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Lua 脚本及其 SHA1，优先用 EVALSHA，脚本还没加载时退回 EVAL
+     */
+    private static final class RedisScript {
+        final byte[] body;
+        final String sha1;
+
+        RedisScript(String body) {
+            this.body = bytes(body);
+            this.sha1 = sha1Hex(this.body);
+        }
+
+        private static String sha1Hex(byte[] bytes) {
+            try {
+                byte[] digest = MessageDigest.getInstance("SHA-1").digest(bytes);
+                StringBuilder hex = new StringBuilder(40);
+                for (byte b : digest) {
+                    hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+                }
+                return hex.toString();
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
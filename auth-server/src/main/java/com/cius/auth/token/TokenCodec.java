@@ -0,0 +1,309 @@
+package com.cius.auth.token;
+
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.oauth2.common.DefaultExpiringOAuth2RefreshToken;
+import org.springframework.security.oauth2.common.DefaultOAuth2AccessToken;
+import org.springframework.security.oauth2.common.DefaultOAuth2RefreshToken;
+import org.springframework.security.oauth2.common.ExpiringOAuth2RefreshToken;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.common.OAuth2RefreshToken;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.OAuth2Request;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * access_token、refresh_token 和认证信息的紧凑二进制编码，用来代替 JDK 序列化：
+ * 只写出恢复令牌所需的字段（字符串、集合、时间戳），没有类描述信息，体积通常只有 JDK 序列化的几分之一。
+ *
+ * 用户认证信息只保存用户名和权限，读出来的是 UsernamePasswordAuthenticationToken(username, null, authorities)，
+ * 不保留 principal 对象本身；刷新令牌时 DefaultTokenServices 会按用户名重新加载用户。
+ * additionalInformation 的值支持字符串、数字、布尔以及它们的集合，其他类型按 toString 保存。
+ */
+public final class TokenCodec {
+
+    private static final byte VERSION = 1;
+
+    private static final byte NULL = 0, STRING = 1, LONG = 2, DOUBLE = 3, BOOLEAN = 4, LIST = 5;
+
+    private TokenCodec() {
+    }
+
+    public static byte[] encodeAccessToken(OAuth2AccessToken token) {
+        return write(out -> {
+            writeString(out, token.getValue());
+            writeString(out, token.getTokenType());
+            writeDate(out, token.getExpiration());
+            writeStrings(out, token.getScope());
+            writeString(out, token.getRefreshToken() == null ? null : token.getRefreshToken().getValue());
+            Date refreshExpiration = token.getRefreshToken() instanceof ExpiringOAuth2RefreshToken
+                    ? ((ExpiringOAuth2RefreshToken) token.getRefreshToken()).getExpiration() : null;
+            writeDate(out, refreshExpiration);
+            Map<String, Object> info = token.getAdditionalInformation();
+            out.writeShort(info.size());
+            for (Map.Entry<String, Object> entry : info.entrySet()) {
+                out.writeUTF(entry.getKey());
+                writeValue(out, entry.getValue());
+            }
+        });
+    }
+
+    public static OAuth2AccessToken decodeAccessToken(byte[] bytes) {
+        return read(bytes, in -> {
+            DefaultOAuth2AccessToken token = new DefaultOAuth2AccessToken(readString(in));
+            token.setTokenType(readString(in));
+            token.setExpiration(readDate(in));
+            token.setScope(readStrings(in));
+            String refreshValue = readString(in);
+            Date refreshExpiration = readDate(in);
+            if (refreshValue != null) {
+                token.setRefreshToken(refreshExpiration == null ? new DefaultOAuth2RefreshToken(refreshValue)
+                        : new DefaultExpiringOAuth2RefreshToken(refreshValue, refreshExpiration));
+            }
+            int size = in.readUnsignedShort();
+            Map<String, Object> info = new LinkedHashMap<>(size * 2);
+            for (int i = 0; i < size; i++) {
+                info.put(in.readUTF(), readValue(in));
+            }
+            token.setAdditionalInformation(info);
+            return token;
+        });
+    }
+
+    public static byte[] encodeRefreshToken(OAuth2RefreshToken token) {
+        return write(out -> {
+            writeString(out, token.getValue());
+            writeDate(out, token instanceof ExpiringOAuth2RefreshToken ? ((ExpiringOAuth2RefreshToken) token).getExpiration() : null);
+        });
+    }
+
+    public static OAuth2RefreshToken decodeRefreshToken(byte[] bytes) {
+        return read(bytes, in -> {
+            String value = readString(in);
+            Date expiration = readDate(in);
+            return expiration == null ? new DefaultOAuth2RefreshToken(value) : new DefaultExpiringOAuth2RefreshToken(value, expiration);
+        });
+    }
+
+    public static byte[] encodeAuthentication(OAuth2Authentication authentication) {
+        return write(out -> {
+            OAuth2Request request = authentication.getOAuth2Request();
+            writeString(out, request.getClientId());
+            writeStringMap(out, request.getRequestParameters());
+            writeAuthorities(out, request.getAuthorities());
+            out.writeBoolean(request.isApproved());
+            writeStrings(out, request.getScope());
+            writeStrings(out, request.getResourceIds());
+            writeString(out, request.getRedirectUri());
+            writeStrings(out, request.getResponseTypes());
+            Authentication user = authentication.getUserAuthentication();
+            out.writeBoolean(user != null);
+            if (user != null) {
+                writeString(out, user.getName());
+                writeAuthorities(out, user.getAuthorities());
+            }
+        });
+    }
+
+    public static OAuth2Authentication decodeAuthentication(byte[] bytes) {
+        return read(bytes, in -> {
+            String clientId = readString(in);
+            Map<String, String> parameters = readStringMap(in);
+            List<GrantedAuthority> clientAuthorities = readAuthorities(in);
+            boolean approved = in.readBoolean();
+            Set<String> scope = readStrings(in);
+            Set<String> resourceIds = readStrings(in);
+            String redirectUri = readString(in);
+            Set<String> responseTypes = readStrings(in);
+            OAuth2Request request = new OAuth2Request(parameters, clientId, clientAuthorities, approved, scope,
+                    resourceIds, redirectUri, responseTypes, null);
+            Authentication user = null;
+            if (in.readBoolean()) {
+                String username = readString(in);
+                user = new UsernamePasswordAuthenticationToken(username, null, readAuthorities(in));
+            }
+            return new OAuth2Authentication(request, user);
+        });
+    }
+
+    private static void writeValue(DataOutputStream out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof Boolean) {
+            out.writeByte(BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        } else if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            out.writeByte(LONG);
+            out.writeLong(((Number) value).longValue());
+        } else if (value instanceof Number) {
+            out.writeByte(DOUBLE);
+            out.writeDouble(((Number) value).doubleValue());
+        } else if (value instanceof Collection) {
+            Collection<?> values = (Collection<?>) value;
+            out.writeByte(LIST);
+            out.writeShort(values.size());
+            for (Object item : values) {
+                writeValue(out, item);
+            }
+        } else {
+            out.writeByte(STRING);
+            writeString(out, value.toString());
+        }
+    }
+
+    private static Object readValue(DataInputStream in) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+            case NULL:
+                return null;
+            case BOOLEAN:
+                return in.readBoolean();
+            case LONG:
+                return in.readLong();
+            case DOUBLE:
+                return in.readDouble();
+            case LIST:
+                int size = in.readUnsignedShort();
+                List<Object> values = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    values.add(readValue(in));
+                }
+                return values;
+            default:
+                return readString(in);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            // writeUTF 限制 64KB，JWT 可能更长，这里按长度 + UTF-8 字节写出
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeDate(DataOutputStream out, Date date) throws IOException {
+        out.writeLong(date == null ? Long.MIN_VALUE : date.getTime());
+    }
+
+    private static Date readDate(DataInputStream in) throws IOException {
+        long time = in.readLong();
+        return time == Long.MIN_VALUE ? null : new Date(time);
+    }
+
+    private static void writeStrings(DataOutputStream out, Collection<String> values) throws IOException {
+        if (values == null) {
+            out.writeShort(0);
+            return;
+        }
+        out.writeShort(values.size());
+        for (String value : values) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static Set<String> readStrings(DataInputStream in) throws IOException {
+        int size = in.readUnsignedShort();
+        if (size == 0) {
+            return Collections.emptySet();
+        }
+        Set<String> values = new LinkedHashSet<>(size * 2);
+        for (int i = 0; i < size; i++) {
+            values.add(in.readUTF());
+        }
+        return values;
+    }
+
+    private static void writeStringMap(DataOutputStream out, Map<String, String> values) throws IOException {
+        out.writeShort(values.size());
+        for (Map.Entry<String, String> entry : values.entrySet()) {
+            out.writeUTF(entry.getKey());
+            writeString(out, entry.getValue());
+        }
+    }
+
+    private static Map<String, String> readStringMap(DataInputStream in) throws IOException {
+        int size = in.readUnsignedShort();
+        Map<String, String> values = new LinkedHashMap<>(size * 2);
+        for (int i = 0; i < size; i++) {
+            values.put(in.readUTF(), readString(in));
+        }
+        return values;
+    }
+
+    private static void writeAuthorities(DataOutputStream out, Collection<? extends GrantedAuthority> authorities) throws IOException {
+        out.writeShort(authorities.size());
+        for (GrantedAuthority authority : authorities) {
+            out.writeUTF(authority.getAuthority());
+        }
+    }
+
+    private static List<GrantedAuthority> readAuthorities(DataInputStream in) throws IOException {
+        int size = in.readUnsignedShort();
+        List<GrantedAuthority> authorities = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            authorities.add(new SimpleGrantedAuthority(in.readUTF()));
+        }
+        return authorities;
+    }
+
+    private static byte[] write(Writer writer) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(VERSION);
+            writer.write(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static <T> T read(byte[] bytes, Reader<T> reader) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            byte version = in.readByte();
+            if (version != VERSION) {
+                throw new IllegalStateException("Unsupported token encoding version " + version);
+            }
+            return reader.read(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private interface Writer {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private interface Reader<T> {
+        T read(DataInputStream in) throws IOException;
+    }
+}
@@ -0,0 +1,92 @@
+package com.cius.auth.user;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 缓存中的用户，创建之后不可变。
+ *
+ * 没有实现 CredentialsContainer：ProviderManager 认证成功后会调用 eraseCredentials，
+ * 如果缓存的是 org.springframework.security.core.userdetails.User，密码会被置空，
+ * 同一个用户下一次登录就会失败，所以这里不用 User。
+ */
+public final class CachedUser implements UserDetails {
+
+    private final String username;
+
+    private final String password;
+
+    private final boolean enabled;
+
+    private final List<GrantedAuthority> authorities;
+
+    public CachedUser(String username, String password, boolean enabled, List<GrantedAuthority> authorities) {
+        this.username = username;
+        this.password = password;
+        this.enabled = enabled;
+        this.authorities = Collections.unmodifiableList(authorities);
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return authorities;
+    }
+
+    @Override
+    public String getPassword() {
+        return password;
+    }
+
+    @Override
+    public String getUsername() {
+        return username;
+    }
+
+    @Override
+    public boolean isAccountNonExpired() {
+        return true;
+    }
+
+    @Override
+    public boolean isAccountNonLocked() {
+        return true;
+    }
+
+    @Override
+    public boolean isCredentialsNonExpired() {
+        return true;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean hasAuthority(String authority) {
+        for (GrantedAuthority grantedAuthority : authorities) {
+            if (grantedAuthority.getAuthority().equals(authority)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof CachedUser && username.equals(((CachedUser) o).username);
+    }
+
+    @Override
+    public int hashCode() {
+        return username.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "CachedUser[" + username + ", enabled=" + enabled + ", authorities=" + authorities + "]";
+    }
+}
@@ -0,0 +1,277 @@
+package com.cius.auth.user;
+
+import com.cius.auth.cache.ExpiringCache;
+import com.cius.auth.metrics.TokenMetrics;
+import com.cius.auth.metrics.TokenPhases;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.security.provisioning.JdbcUserDetailsManager;
+import org.springframework.security.provisioning.UserDetailsManager;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 从数据库加载用户（Spring Security 默认的 users、authorities 表），前面加一层本地缓存：
+ * password 模式每次登录、refresh_token 模式每次刷新都会按用户名查一次用户，
+ * 原来 JdbcDaoImpl 每次要查两次库（用户一次、角色一次），现在只有缓存未命中或过期时才会查库。
+ *
+ * 1.用户和角色用一条 left join 查出来，批量预加载时用 in 一次查多个用户；
+ * 2.缓存有上限（maxSize）和有效期（ttl），同一个用户并发未命中时只会查一次库；
+ * 3.缓存的是不可变的 CachedUser，相同的角色共用同一个 GrantedAuthority 实例；
+ * 4.通过本类增删改用户时会同步失效缓存，直接改库之后可以调用 evict、evictAuthority、evictAll 手动失效，
+ *   其他节点上的缓存最多在 ttl 之后失效；
+ * 5.设置了 setMissingUserCache 时，不存在的用户名在一个较短的有效期内直接拒绝，
+ *   用随机用户名撞库的请求不会每次都查库。新建的用户在其他节点上最多在这个有效期之后才能登录，所以有效期要短。
+ */
+public class CachingJdbcUserDetailsService implements UserDetailsManager, InitializingBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(CachingJdbcUserDetailsService.class);
+
+    private static final String SELECT_USERS = "select u.username, u.password, u.enabled, a.authority "
+            + "from users u left join authorities a on a.username = u.username";
+
+    private static final String BY_USERNAME = SELECT_USERS + " where u.username = ?";
+
+    private static final int PRELOAD_BATCH_SIZE = 100;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final JdbcUserDetailsManager delegate;
+
+    private final ExpiringCache<String, CachedUser> cache;
+
+    private final Map<String, GrantedAuthority> authorities = new ConcurrentHashMap<>();
+
+    private final ResultSetExtractor<Map<String, CachedUser>> extractor = this::extractUsers;
+
+    private Collection<String> preloadUsernames = Collections.emptyList();
+
+    private ExpiringCache<String, Boolean> missingUsers;
+
+    private TokenMetrics metrics;
+
+    public CachingJdbcUserDetailsService(DataSource dataSource, int maxSize, long ttlSeconds) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.delegate = new JdbcUserDetailsManager(dataSource);
+        this.cache = new ExpiringCache<>(maxSize, ttlSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 启动时预加载的用户，例如调用最频繁的服务账号
+     */
+    public void setPreloadUsernames(Collection<String> preloadUsernames) {
+        this.preloadUsernames = preloadUsernames;
+    }
+
+    /**
+     * 不存在的用户名缓存 ttl 时间，最多 maxSize 个
+     */
+    public void setMissingUserCache(int maxSize, long ttl, TimeUnit unit) {
+        this.missingUsers = new ExpiringCache<>(maxSize, ttl, unit);
+    }
+
+    /**
+     * 设置之后记录每次查询用户的耗时（phase=user_lookup）
+     */
+    public void setMetrics(TokenMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        if (preloadUsernames.isEmpty()) {
+            return;
+        }
+        try {
+            int count = preload(preloadUsernames);
+            logger.info("Preloaded {} user(s) into user details cache", count);
+        } catch (DataAccessException e) {
+            // 数据库暂时不可用时不影响启动，后续按需加载
+            logger.warn("Failed to preload users, falling back to lazy loading", e);
+        }
+    }
+
+    @Override
+    public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
+        if (metrics != null) {
+            return metrics.record(TokenPhases.USER_LOOKUP, () -> lookup(username));
+        }
+        return lookup(username);
+    }
+
+    /**
+     * 按 PRELOAD_BATCH_SIZE 分批，每批一次查询把用户加载进缓存，不存在的用户忽略
+     * @return 加载的用户数量
+     */
+    public int preload(Collection<String> usernames) {
+        List<String> batch = new ArrayList<>(PRELOAD_BATCH_SIZE);
+        int count = 0;
+        for (String username : usernames) {
+            batch.add(username);
+            if (batch.size() == PRELOAD_BATCH_SIZE) {
+                count += preloadBatch(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            count += preloadBatch(batch);
+        }
+        return count;
+    }
+
+    public void evict(String username) {
+        cache.invalidate(username);
+        if (missingUsers != null) {
+            missingUsers.invalidate(username);
+        }
+    }
+
+    /**
+     * 角色的权限范围变了（例如直接改了 authorities 表），失效所有拥有这个角色的用户
+     * @return 失效的用户数
+     */
+    public int evictAuthority(String authority) {
+        return cache.invalidateIf(user -> user.hasAuthority(authority));
+    }
+
+    public void evictAll() {
+        cache.invalidateAll();
+        if (missingUsers != null) {
+            missingUsers.invalidateAll();
+        }
+    }
+
+    public ExpiringCache<String, CachedUser> getCache() {
+        return cache;
+    }
+
+    public ExpiringCache<String, Boolean> getMissingUserCache() {
+        return missingUsers;
+    }
+
+    @Override
+    public void createUser(UserDetails user) {
+        delegate.createUser(user);
+        evict(user.getUsername());
+    }
+
+    @Override
+    public void updateUser(UserDetails user) {
+        delegate.updateUser(user);
+        evict(user.getUsername());
+    }
+
+    @Override
+    public void deleteUser(String username) {
+        delegate.deleteUser(username);
+        evict(username);
+    }
+
+    @Override
+    public void changePassword(String oldPassword, String newPassword) {
+        delegate.changePassword(oldPassword, newPassword);
+        Authentication currentUser = SecurityContextHolder.getContext().getAuthentication();
+        if (currentUser != null) {
+            evict(currentUser.getName());
+        }
+    }
+
+    @Override
+    public boolean userExists(String username) {
+        return delegate.userExists(username);
+    }
+
+    private CachedUser lookup(String username) {
+        if (missingUsers == null) {
+            return cache.get(username, this::load);
+        }
+        if (missingUsers.getIfPresent(username) != null) {
+            throw new UsernameNotFoundException("User " + username + " not found");
+        }
+        try {
+            return cache.get(username, this::load);
+        } catch (UsernameNotFoundException e) {
+            missingUsers.put(username, Boolean.TRUE);
+            throw e;
+        }
+    }
+
+    private CachedUser load(String username) {
+        // MySQL 默认的排序规则不区分大小写，查到的用户名可能和传入的不完全一样
+        Map<String, CachedUser> users = jdbcTemplate.query(BY_USERNAME, extractor, username);
+        if (users == null || users.isEmpty()) {
+            throw new UsernameNotFoundException("User " + username + " not found");
+        }
+        return users.values().iterator().next();
+    }
+
+    private int preloadBatch(List<String> usernames) {
+        String sql = SELECT_USERS + " where u.username in ("
+                + StringUtils.collectionToCommaDelimitedString(Collections.nCopies(usernames.size(), "?")) + ")";
+        Map<String, CachedUser> users = jdbcTemplate.query(sql, extractor, usernames.toArray());
+        if (users == null) {
+            return 0;
+        }
+        users.forEach((username, user) -> {
+            cache.put(username, user);
+            if (missingUsers != null) {
+                missingUsers.invalidate(username);
+            }
+        });
+        return users.size();
+    }
+
+    /**
+     * 一个用户有几个角色就有几行，按用户名合并；没有角色的用户 authority 为 null
+     */
+    private Map<String, CachedUser> extractUsers(ResultSet rs) throws SQLException {
+        Map<String, Row> rows = new LinkedHashMap<>();
+        while (rs.next()) {
+            Row row = rows.get(rs.getString(1));
+            if (row == null) {
+                row = new Row(rs.getString(2), rs.getBoolean(3));
+                rows.put(rs.getString(1), row);
+            }
+            String authority = rs.getString(4);
+            if (authority != null) {
+                row.authorities.add(authorities.computeIfAbsent(authority, SimpleGrantedAuthority::new));
+            }
+        }
+        Map<String, CachedUser> users = new LinkedHashMap<>(rows.size() * 2);
+        rows.forEach((username, row) -> users.put(username,
+                new CachedUser(username, row.password, row.enabled, row.authorities)));
+        return users;
+    }
+
+    private static final class Row {
+        final String password;
+        final boolean enabled;
+        final List<GrantedAuthority> authorities = new ArrayList<>(2);
+
+        Row(String password, boolean enabled) {
+            this.password = password;
+            this.enabled = enabled;
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.cius.auth.warmup;
+
+import com.cius.auth.client.CachingClientDetailsService;
+import com.cius.auth.crypto.CachingPasswordEncoder;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.oauth2.common.DefaultOAuth2AccessToken;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.provider.ClientDetails;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.OAuth2Request;
+import org.springframework.security.oauth2.provider.token.TokenEnhancer;
+import org.springframework.security.oauth2.provider.token.store.JwtAccessTokenConverter;
+import org.springframework.security.oauth2.provider.token.store.JwtTokenStore;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 授权服务器启动预热，在 ApplicationRunner 中同步执行：
+ * Spring Boot 在所有 ApplicationRunner 执行完之后才把 readiness 切换为 ACCEPTING_TRAFFIC，
+ * 所以预热没结束之前 /actuator/health/readiness 一直是 OUT_OF_SERVICE，负载均衡不会把流量转过来。
+ *
+ * 步骤（共用 budget 的时间预算，见 Warmup）：
+ *  1.datasource：同时借出 connections 个连接，让连接池建好物理连接；
+ *  2.client_details：客户端信息缓存为空时（没有开启预加载或预加载失败）加载全部客户端；
+ *  3.password：在 BCrypt 线程池中执行几次 BCrypt；
+ *  4.token：用一个真实的客户端和合成的用户，重复执行 客户端密钥缓存（HMAC）-> 追加 claim -> RS256 签名
+ *    -> 校验签名并解析 -> 令牌 JSON 序列化和反序列化，覆盖 /oauth/token 和 /oauth/check_token 的主要代码路径。
+ * 预热不经过 TokenServices 和 TokenStore，不会保存令牌，也不会计入 oauth.token.phase 指标。
+ */
+public class AuthServerWarmup implements ApplicationRunner {
+
+    private static final String SECRET = "warmup";
+
+    /**
+     * BCrypt(warmup)，预热时不用先算一次
+     */
+    private static final String HASH = "$2a$10$EpQrx1k0UrraedeSvXfXk.jw7Cd7jNJIQbJAeYeXwfINwTA2m6UpO";
+
+    private final DataSource dataSource;
+
+    private final CachingClientDetailsService clientDetailsService;
+
+    private final PasswordEncoder passwordEncoder;
+
+    private final JwtAccessTokenConverter jwtAccessTokenConverter;
+
+    private final TokenEnhancer claimEnricher;
+
+    private final ObjectMapper objectMapper;
+
+    private final MeterRegistry registry;
+
+    private long budgetMillis = 15000;
+
+    private int connections = 4;
+
+    private int passwordIterations = 2;
+
+    private int iterations = 500;
+
+    private ClientDetails client;
+
+    public AuthServerWarmup(DataSource dataSource, CachingClientDetailsService clientDetailsService, PasswordEncoder passwordEncoder,
+                            JwtAccessTokenConverter jwtAccessTokenConverter, TokenEnhancer claimEnricher,
+                            ObjectMapper objectMapper, MeterRegistry registry) {
+        this.dataSource = dataSource;
+        this.clientDetailsService = clientDetailsService;
+        this.passwordEncoder = passwordEncoder;
+        this.jwtAccessTokenConverter = jwtAccessTokenConverter;
+        this.claimEnricher = claimEnricher;
+        this.objectMapper = objectMapper;
+        this.registry = registry;
+    }
+
+    public void setBudgetMillis(long budgetMillis) {
+        this.budgetMillis = budgetMillis;
+    }
+
+    public void setConnections(int connections) {
+        this.connections = connections;
+    }
+
+    public void setPasswordIterations(int passwordIterations) {
+        this.passwordIterations = passwordIterations;
+    }
+
+    public void setIterations(int iterations) {
+        this.iterations = iterations;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        Warmup warmup = new Warmup(registry, budgetMillis, TimeUnit.MILLISECONDS);
+        warmup.step("datasource", this::openConnections);
+        warmup.step("client_details", () -> {
+            if (clientDetailsService.getCache().size() == 0) {
+                clientDetailsService.preloadAll();
+            }
+            List<ClientDetails> clients = clientDetailsService.listClientDetails();
+            client = clients.isEmpty() ? null : clients.get(0);
+        });
+        warmup.repeat("password", passwordIterations, () -> passwordEncoder.matches(SECRET, HASH));
+
+        CachingPasswordEncoder cachingEncoder = new CachingPasswordEncoder(passwordEncoder, 1, 60);
+        OAuth2Authentication authentication = authentication(client);
+        JwtTokenStore tokenStore = new JwtTokenStore(jwtAccessTokenConverter);
+        warmup.repeat("token", iterations, () -> {
+            cachingEncoder.matches(SECRET, HASH);
+            OAuth2AccessToken token = issue(authentication);
+            tokenStore.readAuthentication(token.getValue());
+            tokenStore.readAccessToken(token.getValue());
+            roundTrip(token);
+        });
+        warmup.finish();
+    }
+
+    private void openConnections() {
+        int count = connections;
+        if (dataSource instanceof HikariDataSource) {
+            count = Math.min(count, ((HikariDataSource) dataSource).getMaximumPoolSize());
+        }
+        List<Connection> opened = new ArrayList<>();
+        try {
+            for (int i = 0; i < count; i++) {
+                Connection connection = dataSource.getConnection();
+                opened.add(connection);
+                connection.isValid(1);
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Cannot open database connection", e);
+        } finally {
+            for (Connection connection : opened) {
+                try {
+                    connection.close();
+                } catch (SQLException ignored) {
+                    // 归还连接失败不影响预热
+                }
+            }
+        }
+    }
+
+    private OAuth2AccessToken issue(OAuth2Authentication authentication) {
+        DefaultOAuth2AccessToken token = new DefaultOAuth2AccessToken(UUID.randomUUID().toString());
+        token.setExpiration(new Date(System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1)));
+        token.setScope(authentication.getOAuth2Request().getScope());
+        OAuth2AccessToken enhanced = claimEnricher == null || client == null ? token : claimEnricher.enhance(token, authentication);
+        return jwtAccessTokenConverter.enhance(enhanced, authentication);
+    }
+
+    private void roundTrip(OAuth2AccessToken token) {
+        try {
+            String json = objectMapper.writeValueAsString(token);
+            objectMapper.readValue(json, OAuth2AccessToken.class);
+            objectMapper.readValue(objectMapper.writeValueAsString(token.getAdditionalInformation()), Map.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 没有客户端时用一个不存在的客户端，只预热签名和解析，跳过追加 claim
+     */
+    private static OAuth2Authentication authentication(ClientDetails client) {
+        String clientId = client == null ? SECRET : client.getClientId();
+        OAuth2Request request = new OAuth2Request(Collections.emptyMap(), clientId, Collections.emptyList(), true,
+                client == null ? Collections.singleton("all") : client.getScope(),
+                client == null ? Collections.emptySet() : client.getResourceIds(), null, null, null);
+        return new OAuth2Authentication(request, new UsernamePasswordAuthenticationToken(SECRET, null,
+                AuthorityUtils.createAuthorityList("ROLE_user")));
+    }
+}
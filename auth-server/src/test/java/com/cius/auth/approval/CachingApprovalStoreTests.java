@@ -0,0 +1,164 @@
+package com.cius.auth.approval;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.oauth2.provider.AuthorizationRequest;
+import org.springframework.security.oauth2.provider.approval.Approval;
+import org.springframework.security.oauth2.provider.approval.Approval.ApprovalStatus;
+import org.springframework.security.oauth2.provider.approval.ApprovalStoreUserApprovalHandler;
+import org.springframework.security.oauth2.provider.client.BaseClientDetails;
+import org.springframework.security.oauth2.provider.client.InMemoryClientDetailsService;
+import org.springframework.security.oauth2.provider.request.DefaultOAuth2RequestFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CachingApprovalStoreTests {
+
+    private static final long DAY = 24 * 60 * 60 * 1000L;
+
+    @Test
+    void returningUserIsApprovedFromMemory() {
+        CountingApprovalStore delegate = new CountingApprovalStore();
+        CachingApprovalStore store = new CachingApprovalStore(delegate, 100, 300);
+        ApprovalStoreUserApprovalHandler handler = handler(store, "javaboy", "true");
+        Authentication user = new UsernamePasswordAuthenticationToken("sang", null, AuthorityUtils.createAuthorityList("ROLE_admin"));
+
+        for (int i = 0; i < 5; i++) {
+            AuthorizationRequest request = new AuthorizationRequest("javaboy", Collections.singleton("all"));
+            assertTrue(handler.checkForPreApproval(request, user).isApproved());
+        }
+        // 第一次写入，之后每次只查内存；写入后的第一次判断需要重新加载一次
+        assertEquals(1, delegate.writes);
+        assertEquals(2, delegate.reads);
+        assertEquals(4, store.getSkippedWriteCount());
+
+        ApprovalStoreUserApprovalHandler manual = handler(store, "manual", "false");
+        store.addApprovals(Collections.singleton(new Approval("sang", "manual", "all", new Date(System.currentTimeMillis() + DAY),
+                ApprovalStatus.APPROVED)));
+        for (int i = 0; i < 3; i++) {
+            AuthorizationRequest request = new AuthorizationRequest("manual", Collections.singleton("all"));
+            assertTrue(manual.checkForPreApproval(request, user).isApproved());
+        }
+        // 写入前后各加载一次，之后三次判断都命中缓存
+        assertEquals(4, delegate.reads);
+    }
+
+    @Test
+    void deniedAndExpiredApprovalsAreKeptApart() {
+        CountingApprovalStore delegate = new CountingApprovalStore();
+        long now = System.currentTimeMillis();
+        delegate.addApprovals(Arrays.asList(
+                new Approval("sang", "javaboy", "read", new Date(now + DAY), ApprovalStatus.APPROVED),
+                new Approval("sang", "javaboy", "write", new Date(now + 2 * DAY), ApprovalStatus.DENIED),
+                new Approval("sang", "javaboy", "admin", new Date(now - DAY), ApprovalStatus.APPROVED)));
+        CachingApprovalStore store = new CachingApprovalStore(delegate, 100, 300);
+
+        Collection<Approval> approvals = store.getApprovals("sang", "javaboy");
+        assertEquals(2, approvals.size());
+        for (Approval approval : approvals) {
+            assertEquals("read".equals(approval.getScope()) ? ApprovalStatus.APPROVED : ApprovalStatus.DENIED, approval.getStatus());
+            assertEquals(now + DAY, approval.getExpiresAt().getTime());
+        }
+        store.getApprovals("sang", "javaboy");
+        assertEquals(1, delegate.reads);
+    }
+
+    @Test
+    void bulkRevokeInvalidatesCachedEntries() {
+        CountingApprovalStore delegate = new CountingApprovalStore();
+        CachingApprovalStore store = new CachingApprovalStore(delegate, 100, 300);
+        Date expiresAt = new Date(System.currentTimeMillis() + DAY);
+        for (String user : Arrays.asList("sang", "javaboy")) {
+            for (String client : Arrays.asList("a", "b")) {
+                store.addApprovals(Collections.singleton(new Approval(user, client, "all", expiresAt, ApprovalStatus.APPROVED)));
+                assertEquals(1, store.getApprovals(user, client).size());
+            }
+        }
+
+        assertEquals(2, store.revokeByUser("sang"));
+        assertTrue(store.getApprovals("sang", "a").isEmpty());
+        assertTrue(store.getApprovals("sang", "b").isEmpty());
+        assertFalse(store.getApprovals("javaboy", "a").isEmpty());
+
+        assertEquals(1, store.revokeByClient("b"));
+        assertTrue(store.getApprovals("javaboy", "b").isEmpty());
+        assertFalse(store.getApprovals("javaboy", "a").isEmpty());
+    }
+
+    private static ApprovalStoreUserApprovalHandler handler(CachingApprovalStore store, String clientId, String autoApprove) {
+        BaseClientDetails client = new BaseClientDetails(clientId, "res1", "all", "authorization_code", null);
+        client.setAutoApproveScopes(Collections.singleton(autoApprove));
+        InMemoryClientDetailsService clients = new InMemoryClientDetailsService();
+        clients.setClientDetailsStore(Collections.singletonMap(clientId, client));
+        ApprovalStoreUserApprovalHandler handler = new ApprovalStoreUserApprovalHandler();
+        handler.setApprovalStore(store);
+        handler.setClientDetailsService(clients);
+        handler.setRequestFactory(new DefaultOAuth2RequestFactory(clients));
+        return handler;
+    }
+
+    /**
+     * 代替 JdbcBulkApprovalStore，记录读写次数
+     */
+    private static class CountingApprovalStore implements BulkApprovalStore {
+
+        final List<Approval> approvals = new ArrayList<>();
+
+        int reads;
+
+        int writes;
+
+        @Override
+        public boolean addApprovals(Collection<Approval> added) {
+            writes++;
+            for (Approval approval : added) {
+                approvals.removeIf(a -> a.getUserId().equals(approval.getUserId())
+                        && a.getClientId().equals(approval.getClientId()) && a.getScope().equals(approval.getScope()));
+                approvals.add(approval);
+            }
+            return true;
+        }
+
+        @Override
+        public boolean revokeApprovals(Collection<Approval> revoked) {
+            return approvals.removeAll(revoked);
+        }
+
+        @Override
+        public Collection<Approval> getApprovals(String userId, String clientId) {
+            reads++;
+            List<Approval> result = new ArrayList<>();
+            for (Approval approval : approvals) {
+                if (approval.getUserId().equals(userId) && approval.getClientId().equals(clientId)) {
+                    result.add(approval);
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public int revokeByUser(String userId) {
+            int before = approvals.size();
+            approvals.removeIf(a -> a.getUserId().equals(userId));
+            return before - approvals.size();
+        }
+
+        @Override
+        public int revokeByClient(String clientId) {
+            int before = approvals.size();
+            approvals.removeIf(a -> a.getClientId().equals(clientId));
+            return before - approvals.size();
+        }
+    }
+}
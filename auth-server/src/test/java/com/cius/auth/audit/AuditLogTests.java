@@ -0,0 +1,205 @@
+package com.cius.auth.audit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.oauth2.common.DefaultOAuth2AccessToken;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.OAuth2Request;
+import org.springframework.security.oauth2.provider.TokenRequest;
+import org.springframework.security.oauth2.provider.token.AccessTokenConverter;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AuditLogTests {
+
+    @Test
+    void ringBufferRejectsWhenFullAndKeepsOrder() {
+        AuditRingBuffer<Integer> buffer = new AuditRingBuffer<>(3);
+        assertEquals(4, buffer.capacity());
+        for (int i = 0; i < 4; i++) {
+            assertTrue(buffer.offer(i));
+        }
+        assertFalse(buffer.offer(4));
+
+        List<Integer> drained = new ArrayList<>();
+        assertEquals(2, buffer.drain(drained::add, 2));
+        assertTrue(buffer.offer(4));
+        assertTrue(buffer.offer(5));
+        buffer.drain(drained::add, 10);
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4, 5), drained);
+        assertEquals(0, buffer.size());
+    }
+
+    @Test
+    void ringBufferLosesNothingUnderContention() throws Exception {
+        AuditRingBuffer<Integer> buffer = new AuditRingBuffer<>(1024);
+        int producers = 4;
+        int perProducer = 50000;
+        ExecutorService executor = Executors.newFixedThreadPool(producers);
+        CountDownLatch done = new CountDownLatch(producers);
+        try {
+            for (int p = 0; p < producers; p++) {
+                executor.execute(() -> {
+                    for (int i = 0; i < perProducer; i++) {
+                        while (!buffer.offer(i)) {
+                            Thread.yield();
+                        }
+                    }
+                    done.countDown();
+                });
+            }
+            long[] sum = new long[1];
+            int received = 0;
+            while (received < producers * perProducer) {
+                received += buffer.drain(value -> sum[0] += value, 256);
+            }
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+            assertEquals((long) producers * perProducer * (perProducer - 1) / 2, sum[0]);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void segmentsRotateAndCanBeScanned() throws IOException {
+        Path directory = Files.createTempDirectory("audit");
+        SegmentedFileAuditSink sink = new SegmentedFileAuditSink(directory, 1024, 3);
+        List<AuditEvent> events = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            events.add(new AuditEvent(1000L + i, AuditEvent.ISSUE, AuditEvent.SUCCESS, "javaboy",
+                    i % 2 == 0 ? "sang" : null, "password", "jti-" + i));
+        }
+        sink.write(events);
+        sink.close();
+
+        List<Path> segments = SegmentedFileAuditSink.segments(directory);
+        assertEquals(3, segments.size());
+        List<AuditEvent> read = new ArrayList<>();
+        AuditLogReader.scan(directory, event -> true, read::add);
+        assertFalse(read.isEmpty());
+        AuditEvent last = read.get(read.size() - 1);
+        assertEquals("jti-39", last.getJti());
+        assertNull(last.getUsername());
+        for (int i = 1; i < read.size(); i++) {
+            assertEquals(read.get(i - 1).getTimestamp() + 1, read.get(i).getTimestamp());
+        }
+
+        // 重新打开时从新分段开始，不覆盖已有记录
+        SegmentedFileAuditSink reopened = new SegmentedFileAuditSink(directory, 1024, 3);
+        reopened.write(Collections.singletonList(new AuditEvent(2000L, AuditEvent.REVOKE, AuditEvent.SUCCESS,
+                "javaboy", "sang", null, "jti-revoked")));
+        reopened.close();
+        List<AuditEvent> revoked = new ArrayList<>();
+        AuditLogReader.scan(directory, event -> AuditEvent.REVOKE.equals(event.getAction()), revoked::add);
+        assertEquals(1, revoked.size());
+        assertEquals("jti-revoked", revoked.get(0).getJti());
+    }
+
+    @Test
+    void writerDrainsInBatchesAndCountsDrops() throws Exception {
+        List<Integer> batches = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AuditSink slowSink = events -> {
+            batches.add(events.size());
+            blocked.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        AuditLog auditLog = new AuditLog(Collections.singletonList(slowSink), 8, 4);
+        auditLog.setIdleMillis(1);
+        auditLog.afterPropertiesSet();
+        try {
+            assertTrue(auditLog.record(event(0)));
+            assertTrue(blocked.await(5, TimeUnit.SECONDS));
+            int accepted = 0;
+            for (int i = 1; i <= 20; i++) {
+                if (auditLog.record(event(i))) {
+                    accepted++;
+                }
+            }
+            assertEquals(8, accepted);
+            assertEquals(12, auditLog.getDroppedCount());
+        } finally {
+            release.countDown();
+            auditLog.destroy();
+        }
+        assertEquals(9, auditLog.getWrittenCount(slowSink));
+        assertTrue(batches.stream().allMatch(size -> size <= 4));
+    }
+
+    @Test
+    void failingSinkCountsAsLostNotWritten() throws Exception {
+        List<AuditEvent> stored = Collections.synchronizedList(new ArrayList<>());
+        AuditSink goodSink = stored::addAll;
+        AuditSink badSink = events -> {
+            throw new IOException("disk full");
+        };
+        AuditLog auditLog = new AuditLog(Arrays.asList(goodSink, badSink), 16, 4);
+        auditLog.setIdleMillis(1);
+        auditLog.afterPropertiesSet();
+        try {
+            for (int i = 0; i < 6; i++) {
+                assertTrue(auditLog.record(event(i)));
+            }
+        } finally {
+            auditLog.destroy();
+        }
+        assertEquals(6, stored.size());
+        assertEquals(6, auditLog.getWrittenCount(goodSink));
+        assertEquals(0, auditLog.getLostCount(goodSink));
+        assertEquals(0, auditLog.getWrittenCount(badSink));
+        assertEquals(6, auditLog.getLostCount(badSink));
+    }
+
+    @Test
+    void tokenAuditorRecordsOnlyAfterTheTokenIsIssued() throws Exception {
+        List<AuditEvent> stored = Collections.synchronizedList(new ArrayList<>());
+        AuditLog auditLog = new AuditLog(Collections.singletonList(stored::addAll), 16, 4);
+        TokenAuditor auditor = new TokenAuditor(auditLog);
+        OAuth2Request request = new OAuth2Request(Collections.singletonMap("grant_type", "password"), "javaboy",
+                Collections.emptyList(), true, Collections.singleton("all"), null, null, null, null);
+        OAuth2Authentication authentication = new OAuth2Authentication(request,
+                new UsernamePasswordAuthenticationToken("sang", null, Collections.emptyList()));
+        DefaultOAuth2AccessToken token = new DefaultOAuth2AccessToken("value");
+        token.setAdditionalInformation(Collections.singletonMap(AccessTokenConverter.JTI, "jti-1"));
+
+        // 签名之后、保存之前失败时不能留下成功的记录
+        auditor.enhance(token, authentication);
+        assertEquals(0, auditLog.getQueueSize());
+
+        auditor.issued(token, authentication);
+        auditor.enhance(token, authentication);
+        auditor.refreshed(token, new TokenRequest(Collections.emptyMap(), "javaboy", Collections.singleton("all"), "refresh_token"));
+        auditLog.afterPropertiesSet();
+        auditLog.destroy();
+        assertEquals(2, stored.size());
+        assertEquals(AuditEvent.ISSUE, stored.get(0).getAction());
+        assertEquals("jti-1", stored.get(0).getJti());
+        assertEquals(AuditEvent.REFRESH, stored.get(1).getAction());
+        assertEquals("sang", stored.get(1).getUsername());
+        assertEquals("refresh_token", stored.get(1).getGrantType());
+    }
+
+    private static AuditEvent event(int i) {
+        return new AuditEvent(i, AuditEvent.ISSUE, "invalid_grant", "javaboy", "sang", "password", null);
+    }
+}
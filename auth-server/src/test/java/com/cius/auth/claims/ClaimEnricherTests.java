@@ -0,0 +1,138 @@
+package com.cius.auth.claims;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.oauth2.common.DefaultOAuth2AccessToken;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.provider.ClientDetails;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.OAuth2Request;
+import org.springframework.security.oauth2.provider.client.BaseClientDetails;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ClaimEnricherTests {
+
+    private final Map<String, ClientDetails> clients = new HashMap<>();
+
+    private final AtomicInteger userLoads = new AtomicInteger();
+
+    @Test
+    void clientTemplateIsApplied() {
+        Map<String, Object> claims = new LinkedHashMap<>();
+        claims.put("tenant", "{{user.tenant}}");
+        claims.put("cid", "{{client_id}}");
+        claims.put("entitlements", Arrays.asList("read", "write"));
+        client("javaboy", claims);
+        ClaimEnricher enricher = enricher();
+
+        OAuth2AccessToken original = accessToken();
+        OAuth2AccessToken enhanced = enricher.enhance(original, authentication("javaboy"));
+
+        Map<String, Object> info = enhanced.getAdditionalInformation();
+        assertEquals("acme", info.get("tenant"));
+        assertEquals("javaboy", info.get("cid"));
+        assertEquals(Arrays.asList("read", "write"), info.get("entitlements"));
+        assertEquals("1", info.get("jti"));
+        assertFalse(info.containsKey("exp"));
+        assertFalse(info.containsKey("author"));
+        assertEquals(Collections.singletonMap("jti", "1"), original.getAdditionalInformation());
+        assertThrows(UnsupportedOperationException.class, () -> ((List<Object>) info.get("entitlements")).add("admin"));
+    }
+
+    @Test
+    void templatesOverridingStandardOrCompactClaimsAreRejected() {
+        for (String name : new String[]{"exp", "user_name", "d", "u", "c", "a", "s", "r"}) {
+            assertThrows(IllegalArgumentException.class, () -> ClaimTemplate.parse(name + "=x"));
+        }
+
+        Map<String, Object> claims = new LinkedHashMap<>();
+        claims.put("tenant", "acme");
+        claims.put("a", "{{user.tenant}}");
+        client("javaboy", claims);
+        Map<String, Object> info = enricher().enhance(accessToken(), authentication("javaboy")).getAdditionalInformation();
+        // 整个模板被拒绝，退回默认模板
+        assertFalse(info.containsKey("a"));
+        assertFalse(info.containsKey("tenant"));
+        assertEquals("江南一点雨", info.get("author"));
+    }
+
+    @Test
+    void clientsWithoutTemplateUseDefault() {
+        client("javaboy", null);
+        OAuth2AccessToken enhanced = enricher().enhance(accessToken(), authentication("javaboy"));
+        assertEquals("江南一点雨", enhanced.getAdditionalInformation().get("author"));
+        assertEquals("zxm", enhanced.getAdditionalInformation().get("authorNames"));
+    }
+
+    @Test
+    void templateIsCompiledOncePerClientDetails() {
+        client("javaboy", Collections.singletonMap("tenant", "acme"));
+        ClaimEnricher enricher = enricher();
+        ClaimTemplate first = enricher.templateFor("javaboy");
+        assertSame(first, enricher.templateFor("javaboy"));
+
+        client("javaboy", Collections.singletonMap("tenant", "other"));
+        assertTrue(first != enricher.templateFor("javaboy"));
+        assertEquals("other", enricher.enhance(accessToken(), authentication("javaboy"))
+                .getAdditionalInformation().get("tenant"));
+    }
+
+    @Test
+    void userClaimsAreCached() {
+        client("javaboy", Collections.singletonMap("tenant", "{{user.tenant}}"));
+        ClaimEnricher enricher = enricher();
+        for (int i = 0; i < 5; i++) {
+            enricher.enhance(accessToken(), authentication("javaboy"));
+        }
+        assertEquals(1, userLoads.get());
+
+        client("javaboy", Collections.singletonMap("tenant", "acme"));
+        enricher.enhance(accessToken(), authentication("javaboy"));
+        assertEquals(1, userLoads.get());
+    }
+
+    private ClaimEnricher enricher() {
+        ClaimEnricher enricher = new ClaimEnricher(clients::get, ClaimTemplate.parse("author=江南一点雨,authorNames=zxm"), 10);
+        enricher.setUserClaimSource(username -> {
+            userLoads.incrementAndGet();
+            return Collections.singletonMap("tenant", "acme");
+        }, 10, 1, TimeUnit.MINUTES);
+        return enricher;
+    }
+
+    private void client(String clientId, Map<String, Object> claims) {
+        BaseClientDetails client = new BaseClientDetails(clientId, "res1", "all", "password", null);
+        if (claims != null) {
+            client.setAdditionalInformation(Collections.singletonMap(ClaimEnricher.CLAIMS, claims));
+        }
+        clients.put(clientId, client);
+    }
+
+    private static OAuth2AccessToken accessToken() {
+        DefaultOAuth2AccessToken token = new DefaultOAuth2AccessToken("value");
+        token.setAdditionalInformation(Collections.singletonMap("jti", "1"));
+        return token;
+    }
+
+    private static OAuth2Authentication authentication(String clientId) {
+        OAuth2Request request = new OAuth2Request(Collections.emptyMap(), clientId, Collections.emptyList(), true,
+                Collections.singleton("all"), Collections.singleton("res1"), null, null, null);
+        return new OAuth2Authentication(request, new UsernamePasswordAuthenticationToken("sang", null,
+                AuthorityUtils.createAuthorityList("ROLE_admin")));
+    }
+}
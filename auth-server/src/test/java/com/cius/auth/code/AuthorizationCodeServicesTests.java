@@ -0,0 +1,111 @@
+package com.cius.auth.code;
+
+import com.cius.auth.support.EmbeddedRedis;
+import com.cius.auth.support.TestAuthentications;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.common.exceptions.InvalidGrantException;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.code.AuthorizationCodeServices;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * 授权码只能兑换一次、过期后不能兑换，Redis 方式使用嵌入式 Redis 代替真实的 Redis。
+ */
+class AuthorizationCodeServicesTests {
+
+    private static EmbeddedRedis redis;
+
+    @BeforeAll
+    static void startRedis() throws Exception {
+        redis = EmbeddedRedis.start();
+    }
+
+    @AfterAll
+    static void stopRedis() {
+        redis.stop();
+    }
+
+    @Test
+    void memoryCodeCanBeConsumedOnce() {
+        ExpiringAuthorizationCodeServices services = new ExpiringAuthorizationCodeServices(5, TimeUnit.MINUTES);
+        consumeOnce(services);
+        services.destroy();
+    }
+
+    @Test
+    void memoryCodeExpires() throws Exception {
+        ExpiringAuthorizationCodeServices services = new ExpiringAuthorizationCodeServices(50, TimeUnit.MILLISECONDS);
+        String code = services.createAuthorizationCode(authentication());
+        Thread.sleep(100);
+        assertThrows(InvalidGrantException.class, () -> services.consumeAuthorizationCode(code));
+        services.destroy();
+    }
+
+    @Test
+    void memoryPurgeRemovesExpiredCodes() throws Exception {
+        ExpiringAuthorizationCodeServices services = new ExpiringAuthorizationCodeServices(50, TimeUnit.MILLISECONDS);
+        services.createAuthorizationCode(authentication());
+        services.createAuthorizationCode(authentication());
+        Thread.sleep(100);
+        assertEquals(2, services.purgeExpired());
+        assertEquals(0, services.size());
+        services.destroy();
+    }
+
+    @Test
+    void redisCodeCanBeConsumedOnce() {
+        redis.assumeAvailable();
+        consumeOnce(new RedisAuthorizationCodeServices(redis.getConnectionFactory(), 5, TimeUnit.MINUTES));
+    }
+
+    @Test
+    void redisConcurrentConsumptionHasSingleWinner() throws Exception {
+        redis.assumeAvailable();
+        RedisAuthorizationCodeServices services = new RedisAuthorizationCodeServices(redis.getConnectionFactory(), 5, TimeUnit.MINUTES);
+        String code = services.createAuthorizationCode(authentication());
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            Callable<Boolean> task = () -> {
+                try {
+                    services.consumeAuthorizationCode(code);
+                    return true;
+                } catch (InvalidGrantException e) {
+                    return false;
+                }
+            };
+            results.add(executor.submit(task));
+        }
+        int winners = 0;
+        for (Future<Boolean> result : results) {
+            if (result.get()) {
+                winners++;
+            }
+        }
+        executor.shutdown();
+        assertEquals(1, winners);
+    }
+
+    private static void consumeOnce(AuthorizationCodeServices services) {
+        String code = services.createAuthorizationCode(authentication());
+        OAuth2Authentication consumed = services.consumeAuthorizationCode(code);
+        assertEquals("sang", consumed.getName());
+        assertThrows(InvalidGrantException.class, () -> services.consumeAuthorizationCode(code));
+    }
+
+    private static OAuth2Authentication authentication() {
+        return TestAuthentications.authentication("sang", "javaboy");
+    }
+}
@@ -0,0 +1,163 @@
+package com.cius.auth.crypto;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BoundedPasswordEncoderTests {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private final CountDownLatch started = new CountDownLatch(1);
+
+    private final AtomicInteger calls = new AtomicInteger();
+
+    private BoundedPasswordEncoder encoder;
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        if (encoder != null) {
+            encoder.destroy();
+        }
+    }
+
+    @Test
+    void queueAndHashTimesAreRecorded() {
+        encoder = new BoundedPasswordEncoder(new SlowEncoder(20), 1, 4, 2000);
+
+        assertTrue(encoder.matches("123", "123"));
+        assertEquals("123", encoder.encode("123"));
+
+        assertEquals(2, encoder.getExecutionCount());
+        assertTrue(encoder.getTotalHashTimeNanos() >= TimeUnit.MILLISECONDS.toNanos(40));
+        assertTrue(encoder.getTotalQueueTimeNanos() >= 0);
+    }
+
+    @Test
+    void fullQueueIsRejected() throws Exception {
+        encoder = new BoundedPasswordEncoder(new BlockingEncoder(), 1, 1, 10_000);
+        occupyWorker();
+        Thread queued = background();
+        waitUntil(() -> encoder.getQueueDepth() == 1);
+
+        assertThrows(PasswordHashingOverloadedException.class, () -> encoder.matches("123", "123"));
+        assertEquals(1, encoder.getRejectionCount());
+        release.countDown();
+        queued.join(5000);
+    }
+
+    @Test
+    void timedOutTasksLeaveTheQueue() throws Exception {
+        encoder = new BoundedPasswordEncoder(new BlockingEncoder(), 1, 1, 100);
+        Thread running = occupyWorker();
+
+        assertThrows(PasswordHashingOverloadedException.class, () -> encoder.matches("123", "123"));
+        assertEquals(0, encoder.getQueueDepth());
+
+        release.countDown();
+        running.join(5000);
+        waitUntil(() -> encoder.getExecutionCount() == 1);
+        // 正在计算的任务算完了才结束，排队的任务从未执行
+        assertEquals(2, encoder.getTimeoutCount());
+        assertEquals(1, calls.get());
+    }
+
+    private Thread occupyWorker() throws InterruptedException {
+        Thread thread = background();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        return thread;
+    }
+
+    private Thread background() {
+        Thread thread = new Thread(() -> {
+            try {
+                encoder.matches("123", "123");
+            } catch (PasswordHashingOverloadedException e) {
+                // 超时的调用方不关心结果
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    private static void waitUntil(Condition condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.test()) {
+            assertTrue(System.currentTimeMillis() < deadline, "condition not met in time");
+            Thread.sleep(5);
+        }
+    }
+
+    private interface Condition {
+        boolean test();
+    }
+
+    private static class SlowEncoder implements PasswordEncoder {
+
+        private final long millis;
+
+        SlowEncoder(long millis) {
+            this.millis = millis;
+        }
+
+        @Override
+        public String encode(CharSequence rawPassword) {
+            sleep();
+            return rawPassword.toString();
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            sleep();
+            return rawPassword.toString().equals(encodedPassword);
+        }
+
+        private void sleep() {
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * 和 BCrypt 一样不响应中断，直到 release 才返回
+     */
+    private class BlockingEncoder implements PasswordEncoder {
+
+        @Override
+        public String encode(CharSequence rawPassword) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            calls.incrementAndGet();
+            started.countDown();
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    release.await();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.cius.auth.introspect;
+
+import com.cius.auth.jwt.KeyRotatingJwtAccessTokenConverter;
+import com.cius.auth.jwt.SigningKey;
+import com.cius.auth.jwt.SigningKeyManager;
+import com.cius.auth.support.TestAuthentications;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.jwt.JwtHelper;
+import org.springframework.security.oauth2.common.DefaultOAuth2AccessToken;
+import org.springframework.security.oauth2.provider.token.DefaultTokenServices;
+import org.springframework.security.oauth2.provider.token.store.InMemoryTokenStore;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class BatchTokenIntrospectorTests {
+
+    @Test
+    void jwtResultsKeepRequestOrderAcrossChunks() throws Exception {
+        SigningKeyManager manager = new SigningKeyManager(2);
+        SigningKey key = manager.rotate();
+        long exp = System.currentTimeMillis() / 1000 + 3600;
+        String valid = sign(key, "{\"jti\":\"1\",\"user_name\":\"sang\",\"client_id\":\"javaboy\",\"exp\":" + exp + "}");
+        String expired = sign(key, "{\"jti\":\"2\",\"user_name\":\"sang\",\"exp\":" + (exp - 7200) + "}");
+        String refresh = sign(key, "{\"jti\":\"3\",\"ati\":\"1\",\"user_name\":\"sang\",\"exp\":" + exp + "}");
+
+        BatchTokenIntrospector introspector = new BatchTokenIntrospector(null,
+                new KeyRotatingJwtAccessTokenConverter(manager), 4, 2);
+        try {
+            List<String> tokens = Arrays.asList(valid, expired, refresh, "garbage", "", valid, null, valid);
+            List<Map<String, Object>> results = join(introspector.introspectAll(tokens));
+
+            assertEquals(tokens.size(), results.size());
+            for (int i = 0; i < tokens.size(); i++) {
+                boolean active = valid.equals(tokens.get(i));
+                assertEquals(active, results.get(i).get("active"), "token " + i);
+            }
+            assertEquals("sang", results.get(0).get("user_name"));
+            assertEquals("javaboy", results.get(7).get("client_id"));
+            assertNull(results.get(1).get("user_name"));
+        } finally {
+            introspector.destroy();
+        }
+    }
+
+    @Test
+    void unknownSigningKeyIsInactive() throws Exception {
+        SigningKeyManager manager = new SigningKeyManager(2);
+        manager.rotate();
+        SigningKey other = new SigningKeyManager(1).rotate();
+        BatchTokenIntrospector introspector = new BatchTokenIntrospector(null,
+                new KeyRotatingJwtAccessTokenConverter(manager), 1, 1);
+        try {
+            assertEquals(false, introspector.introspect(sign(other, "{\"jti\":\"1\"}")).get("active"));
+        } finally {
+            introspector.destroy();
+        }
+    }
+
+    @Test
+    void storedTokensGoThroughTokenServices() {
+        InMemoryTokenStore tokenStore = new InMemoryTokenStore();
+        DefaultTokenServices tokenServices = new DefaultTokenServices();
+        tokenServices.setTokenStore(tokenStore);
+        DefaultOAuth2AccessToken live = new DefaultOAuth2AccessToken("live");
+        live.setExpiration(new Date(System.currentTimeMillis() + 60_000));
+        tokenStore.storeAccessToken(live, TestAuthentications.authentication("sang", "javaboy"));
+        DefaultOAuth2AccessToken stale = new DefaultOAuth2AccessToken("stale");
+        stale.setExpiration(new Date(System.currentTimeMillis() - 1000));
+        tokenStore.storeAccessToken(stale, TestAuthentications.authentication("sang", "javaboy"));
+
+        BatchTokenIntrospector introspector = new BatchTokenIntrospector(tokenServices, null, 2, 1);
+        try {
+            List<Map<String, Object>> results = join(introspector.introspectAll(Arrays.asList("live", "stale", "missing")));
+
+            assertEquals(true, results.get(0).get("active"));
+            assertEquals("sang", results.get(0).get("user_name"));
+            assertEquals("javaboy", results.get(0).get("client_id"));
+            assertEquals(false, results.get(1).get("active"));
+            assertEquals(false, results.get(2).get("active"));
+        } finally {
+            introspector.destroy();
+        }
+    }
+
+    private static List<Map<String, Object>> join(List<CompletableFuture<List<Map<String, Object>>>> chunks) {
+        List<Map<String, Object>> results = new ArrayList<>();
+        for (CompletableFuture<List<Map<String, Object>>> chunk : chunks) {
+            results.addAll(chunk.join());
+        }
+        return results;
+    }
+
+    private static String sign(SigningKey key, String content) {
+        return JwtHelper.encode(content, key.getSigner(), key.getHeaders()).getEncoded();
+    }
+}
@@ -0,0 +1,143 @@
+package com.cius.auth.jwt;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.oauth2.common.DefaultOAuth2AccessToken;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.common.exceptions.InvalidTokenException;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.OAuth2Request;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompactAccessTokenConverterTests {
+
+    private final TokenDictionary dictionary = new TokenDictionary(Arrays.asList("ROLE_admin", "ROLE_user"),
+            Collections.singletonList("all"));
+
+    @Test
+    void compactClaimsRoundTrip() {
+        CompactAccessTokenConverter converter = new CompactAccessTokenConverter(dictionary, true);
+        Map<String, ?> claims = converter.convertAccessToken(accessToken(), authentication("ROLE_admin", "ROLE_ops"));
+
+        assertEquals(dictionary.getId(), claims.get("d"));
+        assertEquals(Arrays.asList(0, "ROLE_ops"), claims.get("a"));
+        assertEquals(Collections.singletonList(0), claims.get("s"));
+        assertFalse(claims.containsKey("authorities"));
+        assertFalse(claims.containsKey("user_name"));
+
+        OAuth2Authentication authentication = converter.extractAuthentication(claims);
+        assertEquals("sang", authentication.getName());
+        assertEquals("javaboy", authentication.getOAuth2Request().getClientId());
+        assertEquals(AuthorityUtils.createAuthorityList("ROLE_admin", "ROLE_ops"), authentication.getAuthorities());
+        assertEquals(Collections.singleton("all"), authentication.getOAuth2Request().getScope());
+        assertEquals(Collections.singleton("res1"), authentication.getOAuth2Request().getResourceIds());
+
+        OAuth2AccessToken accessToken = converter.extractAccessToken("value", claims);
+        assertEquals(Collections.singleton("all"), accessToken.getScope());
+        assertEquals("江南一点雨", accessToken.getAdditionalInformation().get("author"));
+        assertFalse(accessToken.getAdditionalInformation().containsKey("d"));
+    }
+
+    @Test
+    void optionalClaimsAreSelectedPerClient() {
+        CompactAccessTokenConverter converter = new CompactAccessTokenConverter(dictionary, true);
+        Map<String, Set<String>> perClient = new HashMap<>();
+        perClient.put("javaboy", Collections.singleton("scope"));
+        converter.setClientClaims(perClient);
+
+        Map<String, ?> claims = converter.convertAccessToken(accessToken(), authentication("ROLE_admin"));
+        assertTrue(claims.containsKey("s"));
+        assertFalse(claims.containsKey("author"));
+        assertTrue(claims.containsKey("r"));
+        assertTrue(claims.containsKey("jti"));
+    }
+
+    @Test
+    void standardProfileStillReadsCompactTokens() {
+        Map<String, ?> compact = new CompactAccessTokenConverter(dictionary, true)
+                .convertAccessToken(accessToken(), authentication("ROLE_admin"));
+        CompactAccessTokenConverter standard = new CompactAccessTokenConverter(dictionary, false);
+
+        assertTrue(standard.convertAccessToken(accessToken(), authentication("ROLE_admin")).containsKey("authorities"));
+        assertEquals("sang", standard.extractAuthentication(compact).getName());
+    }
+
+    @Test
+    void unknownDictionaryOrIndexIsRejected() {
+        CompactAccessTokenConverter converter = new CompactAccessTokenConverter(dictionary, true);
+        Map<String, Object> claims = new LinkedHashMap<>(converter.convertAccessToken(accessToken(), authentication("ROLE_admin")));
+
+        claims.put("a", Collections.singletonList(7));
+        assertThrows(InvalidTokenException.class, () -> converter.extractAuthentication(claims));
+
+        claims.put("d", "other");
+        assertThrows(InvalidTokenException.class, () -> converter.extractAuthentication(claims));
+    }
+
+    @Test
+    void previousDictionariesAreKeptAcrossRestartsUntilRetentionEnds(@TempDir Path dir) throws Exception {
+        String file = dir.resolve("token-dictionaries.json").toString();
+        long now = System.currentTimeMillis();
+        TokenDictionaryHistory before = new TokenDictionaryHistory(3600);
+        before.setFile(file);
+        before.activate(dictionary, now - 10_000);
+        Map<String, ?> oldClaims = new CompactAccessTokenConverter(dictionary, true)
+                .convertAccessToken(accessToken(), authentication("ROLE_user"));
+
+        // 改了字典之后重启
+        TokenDictionary changed = new TokenDictionary(Arrays.asList("ROLE_user", "ROLE_admin", "ROLE_ops"),
+                Collections.singletonList("all"));
+        TokenDictionaryHistory after = new TokenDictionaryHistory(3600);
+        after.setFile(file);
+        after.activate(changed, now);
+        CompactAccessTokenConverter converter = new CompactAccessTokenConverter(changed, true);
+        converter.setDictionaryHistory(after);
+
+        assertEquals(AuthorityUtils.createAuthorityList("ROLE_user"), converter.extractAuthentication(oldClaims).getAuthorities());
+        assertEquals(dictionary.getId(), after.getPrevious(now).get(0).getId());
+        assertNull(after.find(dictionary.getId(), now + 3_600_000));
+
+        // 再重启一次，旧字典已经过了保留期
+        TokenDictionaryHistory expired = new TokenDictionaryHistory(3600);
+        expired.setFile(file);
+        expired.activate(changed, now + 3_600_000);
+        converter.setDictionaryHistory(expired);
+        assertTrue(expired.getPrevious(now).isEmpty());
+        assertThrows(InvalidTokenException.class, () -> converter.extractAuthentication(oldClaims));
+    }
+
+    private static DefaultOAuth2AccessToken accessToken() {
+        DefaultOAuth2AccessToken token = new DefaultOAuth2AccessToken("value");
+        token.setExpiration(new Date(System.currentTimeMillis() + 3_600_000L));
+        token.setScope(Collections.singleton("all"));
+        Map<String, Object> info = new LinkedHashMap<>();
+        info.put("jti", "abc");
+        info.put("author", "江南一点雨");
+        token.setAdditionalInformation(info);
+        return token;
+    }
+
+    private static OAuth2Authentication authentication(String... authorities) {
+        OAuth2Request request = new OAuth2Request(Collections.emptyMap(), "javaboy", Collections.emptyList(), true,
+                Collections.singleton("all"), Collections.singleton("res1"), null, null, null);
+        UsernamePasswordAuthenticationToken user = new UsernamePasswordAuthenticationToken("sang", "N/A",
+                AuthorityUtils.createAuthorityList(authorities));
+        return new OAuth2Authentication(request, user);
+    }
+}
@@ -0,0 +1,123 @@
+package com.cius.auth.jwt;
+
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.jwt.JwtHelper;
+import org.springframework.security.jwt.crypto.sign.RsaVerifier;
+import org.springframework.security.oauth2.common.exceptions.InvalidTokenException;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.KeyStore;
+import java.security.cert.Certificate;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.RSAPublicKeySpec;
+import java.util.Base64;
+import java.util.Date;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SigningKeyManagerTests {
+
+    @Test
+    void rotationKeepsOldKeysForVerification() throws Exception {
+        SigningKeyManager manager = new SigningKeyManager(2);
+        KeyRotatingJwtAccessTokenConverter converter = new KeyRotatingJwtAccessTokenConverter(manager);
+        SigningKey first = manager.rotate();
+        String token = sign(first, "{\"jti\":\"1\",\"user_name\":\"sang\"}");
+
+        SigningKey second = manager.rotate();
+        assertEquals(second, manager.getActiveKey());
+        assertEquals("sang", converter.decodeClaims(token).get("user_name"));
+
+        manager.rotate();
+        assertEquals(2, manager.getKeys().size());
+        assertFalse(manager.getKeys().containsKey(first.getKid()));
+        assertThrows(InvalidTokenException.class, () -> converter.decodeClaims(token));
+    }
+
+    @Test
+    void jwkRebuildsTheVerifyingKey() throws Exception {
+        SigningKeyManager manager = new SigningKeyManager(3);
+        SigningKey key = manager.rotate();
+        Map<String, Object> jwk = key.toJwk();
+
+        assertEquals(key.getKid(), jwk.get("kid"));
+        assertEquals("RS256", jwk.get("alg"));
+        RSAPublicKey publicKey = (RSAPublicKey) KeyFactory.getInstance("RSA").generatePublic(
+                new RSAPublicKeySpec(unsigned((String) jwk.get("n")), unsigned((String) jwk.get("e"))));
+        assertEquals(key.getPublicKey(), publicKey);
+
+        String token = sign(key, "{\"jti\":\"1\"}");
+        assertEquals(key.getKid(), JwtHelper.headers(token).get("kid"));
+        JwtHelper.decodeAndVerify(token, new RsaVerifier(publicKey));
+    }
+
+    @Test
+    void reloadPublishesNewKeysBeforeSwitching() throws Exception {
+        File file = File.createTempFile("signing", ".p12");
+        file.deleteOnExit();
+        writeKeyStore(file, "k1");
+        SigningKeyManager manager = new SigningKeyManager(3);
+        manager.load(file.toURI().toString(), "secret", "k1");
+        assertTrue(manager.isKeyStoreBacked());
+
+        writeKeyStore(file, "k1", "k2");
+        manager.reload(null);
+        assertEquals("k1", manager.getActiveKey().getKid());
+        assertNotNull(manager.getKey("k2"));
+
+        manager.reload("k2");
+        assertEquals("k2", manager.getActiveKey().getKid());
+        assertThrows(IllegalStateException.class, () -> manager.reload("k3"));
+        assertEquals("k2", manager.getActiveKey().getKid());
+    }
+
+    @Test
+    void reloadRequiresAKeyStore() throws Exception {
+        SigningKeyManager manager = new SigningKeyManager(3);
+        manager.rotate();
+        assertFalse(manager.isKeyStoreBacked());
+        assertThrows(IllegalStateException.class, () -> manager.reload(null));
+    }
+
+    private static String sign(SigningKey key, String content) {
+        return JwtHelper.encode(content, key.getSigner(), key.getHeaders()).getEncoded();
+    }
+
+    private static BigInteger unsigned(String value) {
+        return new BigInteger(1, Base64.getUrlDecoder().decode(value));
+    }
+
+    private static void writeKeyStore(File file, String... aliases) throws Exception {
+        KeyStore keyStore = KeyStore.getInstance("PKCS12");
+        keyStore.load(null, null);
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        for (String alias : aliases) {
+            KeyPair keyPair = generator.generateKeyPair();
+            X500Name name = new X500Name("CN=" + alias);
+            Date now = new Date();
+            Certificate certificate = new JcaX509CertificateConverter().getCertificate(new JcaX509v3CertificateBuilder(
+                    name, BigInteger.ONE, now, new Date(now.getTime() + 3600_000L), name, keyPair.getPublic())
+                    .build(new JcaContentSignerBuilder("SHA256withRSA").build(keyPair.getPrivate())));
+            keyStore.setKeyEntry(alias, keyPair.getPrivate(), "secret".toCharArray(), new Certificate[]{certificate});
+        }
+        try (OutputStream out = new FileOutputStream(file)) {
+            keyStore.store(out, "secret".toCharArray());
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.cius.auth.metrics;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 时间序列数量有上限：直方图只按阶段和授权类型拆分，客户端维度没有直方图且 client_id 数量有上限。
+ * 每个请求的计时开销要低于 MAX_OVERHEAD_NANOS（20 微秒），相比一次 BCrypt（几十毫秒）可以忽略；
+ * 这里取多轮中最好的一次，阈值比 benchmark 模块 TokenMetricsBenchmark 测出的精确值（几微秒）宽松得多，只防止数量级的退化。
+ */
+class TokenMetricsTests {
+
+    private static final long MAX_OVERHEAD_NANOS = 20_000;
+
+    private static final int ITERATIONS = 50_000;
+
+    private static final String[] PHASES = {TokenPhases.CLIENT_LOOKUP, TokenPhases.CLIENT_SECRET, TokenPhases.AUTHENTICATE,
+            TokenPhases.TOKEN_SERVICES, TokenPhases.TOKEN_ENHANCER, TokenPhases.JWT_SIGN};
+
+    @Test
+    void histogramsAreNotSplitByClient() {
+        PrometheusMeterRegistry registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        TokenMetrics metrics = new TokenMetrics(registry, 100);
+        for (int i = 0; i < 50; i++) {
+            request(metrics, "client-" + i);
+        }
+
+        assertEquals(PHASES.length + 1, registry.find(TokenMetrics.METRIC_NAME).timers().size());
+        assertEquals(50, registry.find(TokenMetrics.CLIENT_METRIC_NAME).timers().size());
+        assertEquals(50, registry.get(TokenMetrics.METRIC_NAME).tags("phase", TokenPhases.TOTAL, "grant_type", "password").timer().count());
+
+        List<String> buckets = Arrays.stream(registry.scrape().split("\n"))
+                .filter(line -> line.contains("_bucket{"))
+                .collect(Collectors.toList());
+        assertFalse(buckets.isEmpty());
+        assertTrue(buckets.stream().allMatch(line -> line.startsWith("oauth_token_phase_seconds_bucket{")));
+        assertTrue(buckets.stream().noneMatch(line -> line.contains("client_id")));
+    }
+
+    @Test
+    void timersAreCached() {
+        TokenMetrics metrics = new TokenMetrics(new SimpleMeterRegistry(), 100);
+        metrics.begin("password", "javaboy");
+        try {
+            assertSame(metrics.timer(TokenPhases.JWT_SIGN), metrics.timer(TokenPhases.JWT_SIGN));
+        } finally {
+            metrics.end();
+        }
+    }
+
+    @Test
+    void clientIdTagsAreBounded() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        TokenMetrics metrics = new TokenMetrics(registry, 2);
+        for (int i = 0; i < 10; i++) {
+            metrics.begin("password", "client-" + i);
+            metrics.record(TokenPhases.TOTAL, 1000);
+            metrics.end();
+        }
+        metrics.begin("made_up_grant", "client-0");
+        metrics.record(TokenPhases.TOTAL, 1000);
+        metrics.end();
+
+        assertEquals(3, registry.find(TokenMetrics.CLIENT_METRIC_NAME).tag("grant_type", "password").timers().size());
+        Timer other = registry.find(TokenMetrics.CLIENT_METRIC_NAME).tag("client_id", TokenMetrics.OTHER).timer();
+        assertEquals(8, other.count());
+        assertEquals(1, registry.find(TokenMetrics.METRIC_NAME).tag("grant_type", TokenMetrics.OTHER).timer().count());
+    }
+
+    @Test
+    void overheadPerRequestIsBounded() {
+        TokenMetrics metrics = new TokenMetrics(new PrometheusMeterRegistry(PrometheusConfig.DEFAULT), 100);
+        long[] sink = new long[1];
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < 6; round++) {
+            long plain = measure(null, sink);
+            long timed = measure(metrics, sink);
+            // 第一轮用来预热
+            if (round > 0) {
+                best = Math.min(best, timed - plain);
+            }
+        }
+        long perRequest = Math.max(0, best) / ITERATIONS;
+        assertTrue(perRequest < MAX_OVERHEAD_NANOS, "overhead per request: " + perRequest + " ns");
+    }
+
+    /**
+     * metrics 为 null 时只执行各阶段本身，用来和计时的版本比较
+     */
+    private static long measure(TokenMetrics metrics, long[] sink) {
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            if (metrics == null) {
+                for (String phase : PHASES) {
+                    sink[0] += work(phase, sink);
+                }
+                continue;
+            }
+            long requestStart = System.nanoTime();
+            metrics.begin("password", "javaboy");
+            try {
+                for (String phase : PHASES) {
+                    sink[0] += metrics.record(phase, () -> work(phase, sink));
+                }
+                metrics.record(TokenPhases.TOTAL, System.nanoTime() - requestStart);
+            } finally {
+                metrics.end();
+            }
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static int work(String phase, long[] sink) {
+        return phase.length() + (int) (sink[0] & 1);
+    }
+
+    private static void request(TokenMetrics metrics, String clientId) {
+        metrics.begin("password", clientId);
+        try {
+            for (String phase : PHASES) {
+                metrics.record(phase, () -> phase.length());
+            }
+            metrics.record(TokenPhases.TOTAL, 1000);
+        } finally {
+            metrics.end();
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package com.cius.auth.ratelimit;
+
+import com.cius.auth.filter.RateLimitFilter;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.provider.ClientDetails;
+import org.springframework.security.oauth2.provider.NoSuchClientException;
+import org.springframework.security.oauth2.provider.client.BaseClientDetails;
+
+import javax.servlet.Filter;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RateLimiterTests {
+
+    @Test
+    void burstIsAllowedThenRejected() {
+        LocalRateLimiter limiter = new LocalRateLimiter(100);
+        RateLimit limit = new RateLimit(1, 3);
+        for (int i = 2; i >= 0; i--) {
+            RateLimitDecision decision = limiter.acquire("javaboy|password", limit);
+            assertTrue(decision.isAllowed());
+            assertEquals(i, decision.getRemaining());
+        }
+        RateLimitDecision rejected = limiter.acquire("javaboy|password", limit);
+        assertFalse(rejected.isAllowed());
+        assertEquals(1, rejected.getRetryAfterSeconds());
+        assertEquals(3, rejected.getResetSeconds());
+        assertTrue(limiter.acquire("javaboy|refresh_token", limit).isAllowed());
+    }
+
+    @Test
+    void tokensAreRefilled() throws InterruptedException {
+        LocalRateLimiter limiter = new LocalRateLimiter(100);
+        RateLimit limit = new RateLimit(100, 1);
+        assertTrue(limiter.acquire("javaboy", limit).isAllowed());
+        assertFalse(limiter.acquire("javaboy", limit).isAllowed());
+        Thread.sleep(20);
+        assertTrue(limiter.acquire("javaboy", limit).isAllowed());
+    }
+
+    @Test
+    void concurrentAcquiresNeverExceedBurst() throws Exception {
+        LocalRateLimiter limiter = new LocalRateLimiter(100);
+        RateLimit limit = new RateLimit(0.001, 500);
+        AtomicInteger allowed = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Callable<Void>> tasks = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                tasks.add(() -> {
+                    for (int i = 0; i < 1000; i++) {
+                        if (limiter.acquire("javaboy", limit).isAllowed()) {
+                            allowed.incrementAndGet();
+                        }
+                    }
+                    return null;
+                });
+            }
+            for (Future<Void> future : executor.invokeAll(tasks)) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(500, allowed.get());
+    }
+
+    @Test
+    void bucketsAreBounded() {
+        LocalRateLimiter limiter = new LocalRateLimiter(10);
+        RateLimit limit = new RateLimit(1, 5);
+        for (int i = 0; i < 100; i++) {
+            limiter.acquire("client-" + i, limit);
+        }
+        assertTrue(limiter.size() <= 11, "buckets: " + limiter.size());
+    }
+
+    @Test
+    void policyPrefersClientThenGrantThenDefault() {
+        Map<String, ClientDetails> clients = new HashMap<>();
+        BaseClientDetails javaboy = new BaseClientDetails("javaboy", "res1", "all", "password", null);
+        javaboy.setAdditionalInformation(Collections.singletonMap(RateLimitPolicy.RATE_LIMIT,
+                Collections.singletonMap("password", "5:10")));
+        clients.put("javaboy", javaboy);
+        AtomicInteger lookups = new AtomicInteger();
+        RateLimitPolicy policy = new RateLimitPolicy(RateLimit.parse("100:200"), RateLimitPolicy.parseLimits("password=20:40"),
+                RateLimitPolicy.parseClientLimits("javaboy=50:100,other/password=1"), clientId -> {
+                    lookups.incrementAndGet();
+                    ClientDetails client = clients.get(clientId);
+                    if (client == null) {
+                        throw new NoSuchClientException(clientId);
+                    }
+                    return client;
+                }, 100, 1, TimeUnit.MINUTES);
+
+        assertEquals(10, policy.limitFor("javaboy", "password").getBurst());
+        assertEquals(100, policy.limitFor("javaboy", "refresh_token").getBurst());
+        assertEquals(1, policy.limitFor("other", "password").getBurst());
+        assertEquals(200, policy.limitFor("other", "refresh_token").getBurst());
+        assertEquals(40, policy.limitFor(null, "password").getBurst());
+        assertEquals(200, policy.limitFor("unknown", "refresh_token").getBurst());
+        policy.limitFor("unknown", "refresh_token");
+        assertEquals(3, lookups.get());
+
+        assertTrue(policy.isKnownClient("javaboy"));
+        assertFalse(policy.isKnownClient("other"));
+        assertFalse(policy.isKnownClient("unknown"));
+        assertFalse(policy.isKnownClient(null));
+        assertEquals(3, lookups.get());
+    }
+
+    @Test
+    void unknownClientIdsAreLimitedByRemoteAddress() throws Exception {
+        RateLimitPolicy policy = policy();
+        RateLimitFilter filter = new RateLimitFilter(RateLimitFilter.Stage.ADDRESS, new LocalRateLimiter(100), policy, null);
+
+        // 每次换一个伪造的 client_id，仍然共用来源 IP 的桶
+        assertEquals(200, tokenRequest(filter, "forged-1", "10.0.0.1"));
+        assertEquals(200, tokenRequest(filter, "forged-2", "10.0.0.1"));
+        assertEquals(429, tokenRequest(filter, "forged-3", "10.0.0.1"));
+        assertEquals(200, tokenRequest(filter, "forged-4", "10.0.0.2"));
+    }
+
+    @Test
+    void wrongSecretsCannotExhaustARealClientsLimit() throws Exception {
+        RateLimitPolicy policy = policy();
+        LocalRateLimiter limiter = new LocalRateLimiter(100);
+        RateLimitFilter byAddress = new RateLimitFilter(RateLimitFilter.Stage.ADDRESS, limiter, policy, null);
+        RateLimitFilter byClient = new RateLimitFilter(RateLimitFilter.Stage.CLIENT, limiter, policy, null);
+
+        // 攻击者知道 client_id，但密钥不对：只耗尽自己来源 IP 的桶，客户端认证失败，不扣 javaboy 的桶
+        assertEquals(401, tokenRequest("10.0.0.1", "wrong", byAddress, byClient));
+        assertEquals(401, tokenRequest("10.0.0.1", "wrong", byAddress, byClient));
+        for (int i = 0; i < 10; i++) {
+            assertEquals(429, tokenRequest("10.0.0.1", "wrong", byAddress, byClient));
+        }
+
+        // 真正的客户端从别的地址访问不受影响，认证通过之后按 client_id 限流，和来源 IP 无关
+        assertEquals(200, tokenRequest("10.0.0.2", "123", byAddress, byClient));
+        assertEquals(200, tokenRequest("10.0.0.3", "123", byAddress, byClient));
+        assertEquals(429, tokenRequest("10.0.0.4", "123", byAddress, byClient));
+    }
+
+    private static RateLimitPolicy policy() {
+        BaseClientDetails javaboy = new BaseClientDetails("javaboy", "res1", "all", "password", null);
+        return new RateLimitPolicy(RateLimit.parse("0.001:2"), Collections.emptyMap(), Collections.emptyMap(),
+                clientId -> {
+                    if (!"javaboy".equals(clientId)) {
+                        throw new NoSuchClientException(clientId);
+                    }
+                    return javaboy;
+                }, 100, 1, TimeUnit.MINUTES);
+    }
+
+    private static int tokenRequest(RateLimitFilter filter, String clientId, String remoteAddress) throws Exception {
+        MockHttpServletRequest request = tokenRequest(clientId, remoteAddress);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response.getStatus();
+    }
+
+    /**
+     * 两个阶段的 RateLimitFilter 中间是一个模拟 Spring Security 客户端认证的过滤器，javaboy 的密钥是 123
+     */
+    private static int tokenRequest(String remoteAddress, String secret, RateLimitFilter byAddress, RateLimitFilter byClient)
+            throws Exception {
+        MockHttpServletRequest request = tokenRequest("javaboy", remoteAddress);
+        request.setParameter("client_secret", secret);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        Filter clientAuthentication = (req, res, chain) -> {
+            if (!"123".equals(req.getParameter("client_secret"))) {
+                ((HttpServletResponse) res).setStatus(401);
+                return;
+            }
+            SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                    req.getParameter("client_id"), null, Collections.emptyList()));
+            try {
+                chain.doFilter(req, res);
+            } finally {
+                SecurityContextHolder.clearContext();
+            }
+        };
+        new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void doPost(HttpServletRequest req, HttpServletResponse res) {
+            }
+        }, byAddress, clientAuthentication, byClient).doFilter(request, response);
+        return response.getStatus();
+    }
+
+    private static MockHttpServletRequest tokenRequest(String clientId, String remoteAddress) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/oauth/token");
+        request.setServletPath("/oauth/token");
+        request.setRemoteAddr(remoteAddress);
+        request.setParameter("client_id", clientId);
+        request.setParameter("grant_type", "password");
+        return request;
+    }
+}
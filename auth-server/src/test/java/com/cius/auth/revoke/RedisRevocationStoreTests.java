@@ -0,0 +1,86 @@
+package com.cius.auth.revoke;
+
+import com.cius.auth.support.EmbeddedRedis;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * RevocationList 写入 RedisRevocationStore 后，新的 RevocationList（模拟重启）能恢复未过期的 jti，使用嵌入式 Redis。
+ */
+class RedisRevocationStoreTests {
+
+    private static EmbeddedRedis redis;
+
+    private RedisRevocationStore store;
+
+    @BeforeAll
+    static void startRedis() throws Exception {
+        redis = EmbeddedRedis.start();
+    }
+
+    @AfterAll
+    static void stopRedis() {
+        redis.stop();
+    }
+
+    @BeforeEach
+    void setUp() {
+        redis.assumeAvailable();
+        redis.flushAll();
+        store = new RedisRevocationStore(redis.getConnectionFactory());
+    }
+
+    @Test
+    void revocationsSurviveRestart() throws Exception {
+        long exp = System.currentTimeMillis() / 1000 + 3600;
+        RevocationList before = revocationList();
+        before.revoke("a", exp);
+        before.revoke("b", exp);
+        long versionBefore = before.getVersion();
+        before.destroy();
+
+        Thread.sleep(5);
+        RevocationList after = revocationList();
+        try {
+            assertTrue(after.isRevoked("a"));
+            assertTrue(after.isRevoked("b"));
+            assertEquals(2, after.size());
+            // 重启前同步过的资源服务器拿到整个过滤器，而不是一段空的增量
+            Map<String, Object> changes = after.changesSince(versionBefore);
+            assertEquals(true, changes.get("full"));
+            assertTrue(after.getVersion() > versionBefore);
+        } finally {
+            after.destroy();
+        }
+    }
+
+    @Test
+    void expiredEntriesAreNotRestoredAndArePurged() {
+        long now = System.currentTimeMillis() / 1000;
+        store.save("expired", now - 10);
+        store.save("live", now + 3600);
+
+        assertEquals(1, store.loadUnexpired(now).size());
+        assertTrue(store.loadUnexpired(now).containsKey("live"));
+
+        store.removeExpired(now);
+        assertEquals(1, store.loadUnexpired(now - 100).size());
+        assertFalse(store.loadUnexpired(now - 100).containsKey("expired"));
+    }
+
+    private RevocationList revocationList() {
+        RevocationList revocationList = new RevocationList(1000, 0.01, 1, TimeUnit.HOURS);
+        revocationList.setStore(store);
+        revocationList.afterPropertiesSet();
+        return revocationList;
+    }
+}
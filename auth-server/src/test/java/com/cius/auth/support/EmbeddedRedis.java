@@ -0,0 +1,66 @@
+package com.cius.auth.support;
+
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * 测试用的嵌入式 Redis，在 @BeforeAll 中 start、@AfterAll 中 stop。
+ * 当前平台没有可用的嵌入式 Redis 时 connectionFactory 为空，用到它的用例通过 assumeAvailable 跳过。
+ */
+public final class EmbeddedRedis {
+
+    private final RedisServer server;
+
+    private final LettuceConnectionFactory connectionFactory;
+
+    private EmbeddedRedis(RedisServer server, LettuceConnectionFactory connectionFactory) {
+        this.server = server;
+        this.connectionFactory = connectionFactory;
+    }
+
+    public static EmbeddedRedis start() throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        RedisServer server;
+        try {
+            server = new RedisServer(port);
+            server.start();
+        } catch (RuntimeException e) {
+            return new EmbeddedRedis(null, null);
+        }
+        LettuceConnectionFactory connectionFactory = new LettuceConnectionFactory("localhost", port);
+        connectionFactory.afterPropertiesSet();
+        return new EmbeddedRedis(server, connectionFactory);
+    }
+
+    public void assumeAvailable() {
+        assumeTrue(connectionFactory != null, "embedded redis not available");
+    }
+
+    public LettuceConnectionFactory getConnectionFactory() {
+        return connectionFactory;
+    }
+
+    public void flushAll() {
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            connection.flushAll();
+        }
+    }
+
+    public void stop() {
+        if (connectionFactory != null) {
+            connectionFactory.destroy();
+        }
+        if (server != null) {
+            server.stop();
+        }
+    }
+}
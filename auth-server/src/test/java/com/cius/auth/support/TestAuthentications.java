@@ -0,0 +1,24 @@
+package com.cius.auth.support;
+
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.OAuth2Request;
+
+import java.util.Collections;
+
+/**
+ * 测试中常用的认证信息：scope 为 all、资源为 res1、角色为 ROLE_admin
+ */
+public final class TestAuthentications {
+
+    private TestAuthentications() {
+    }
+
+    public static OAuth2Authentication authentication(String username, String clientId) {
+        OAuth2Request request = new OAuth2Request(Collections.emptyMap(), clientId, Collections.emptyList(), true,
+                Collections.singleton("all"), Collections.singleton("res1"), null, null, null);
+        return new OAuth2Authentication(request, new UsernamePasswordAuthenticationToken(username, null,
+                AuthorityUtils.createAuthorityList("ROLE_admin")));
+    }
+}
@@ -0,0 +1,131 @@
+package com.cius.auth.token;
+
+import com.cius.auth.support.EmbeddedRedis;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.security.oauth2.common.DefaultExpiringOAuth2RefreshToken;
+import org.springframework.security.oauth2.common.DefaultOAuth2AccessToken;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static com.cius.auth.support.TestAuthentications.authentication;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * PipelinedRedisTokenStore 的存取、删除、批量吊销与索引清理，使用嵌入式 Redis。
+ */
+class PipelinedRedisTokenStoreTests {
+
+    private static EmbeddedRedis redis;
+
+    private PipelinedRedisTokenStore tokenStore;
+
+    @BeforeAll
+    static void startRedis() throws Exception {
+        redis = EmbeddedRedis.start();
+    }
+
+    @AfterAll
+    static void stopRedis() {
+        redis.stop();
+    }
+
+    @BeforeEach
+    void setUp() {
+        redis.assumeAvailable();
+        redis.flushAll();
+        tokenStore = new PipelinedRedisTokenStore(redis.getConnectionFactory());
+    }
+
+    @Test
+    void storeReadAndRemove() {
+        OAuth2Authentication authentication = authentication("sang", "javaboy");
+        DefaultOAuth2AccessToken token = token(TimeUnit.HOURS.toMillis(2));
+
+        tokenStore.storeAccessToken(token, authentication);
+        tokenStore.storeRefreshToken(token.getRefreshToken(), authentication);
+
+        assertEquals(token.getValue(), tokenStore.readAccessToken(token.getValue()).getValue());
+        assertEquals("sang", tokenStore.readAuthentication(token).getName());
+        assertEquals(token.getValue(), tokenStore.getAccessToken(authentication).getValue());
+        assertEquals(1, tokenStore.findTokensByClientIdAndUserName("javaboy", "sang").size());
+        assertNotNull(tokenStore.readRefreshToken(token.getRefreshToken().getValue()));
+
+        tokenStore.removeAccessTokenUsingRefreshToken(token.getRefreshToken());
+
+        assertNull(tokenStore.readAccessToken(token.getValue()));
+        assertNull(tokenStore.getAccessToken(authentication));
+        assertEquals(0, tokenStore.findTokensByClientId("javaboy").size());
+        assertNotNull(tokenStore.readAuthenticationForRefreshToken(token.getRefreshToken()));
+    }
+
+    @Test
+    void revokeByUserNameAndClientId() {
+        tokenStore.storeAccessToken(token(TimeUnit.HOURS.toMillis(2)), authentication("sang", "javaboy"));
+        tokenStore.storeAccessToken(token(TimeUnit.HOURS.toMillis(2)), authentication("sang", "other"));
+        tokenStore.storeAccessToken(token(TimeUnit.HOURS.toMillis(2)), authentication("javaboy", "javaboy"));
+
+        assertEquals(2, tokenStore.revokeByUserName("sang"));
+        assertEquals(1, tokenStore.findTokensByClientId("javaboy").size());
+        assertEquals(1, tokenStore.revokeByClientId("javaboy"));
+        assertEquals(0, tokenStore.findTokensByClientId("javaboy").size());
+    }
+
+    @Test
+    void expiredTokensLeaveTheIndexes() throws Exception {
+        tokenStore.storeAccessToken(token(100), authentication("sang", "javaboy"));
+        Thread.sleep(200);
+        tokenStore.storeAccessToken(token(TimeUnit.HOURS.toMillis(2)), authentication("javaboy", "javaboy"));
+
+        assertEquals(1, indexSize("oauth:client_tokens:javaboy"));
+        assertEquals(1, indexSize("oauth:user_tokens:sang"));
+        assertEquals(0, tokenStore.findTokensByClientIdAndUserName("javaboy", "sang").size());
+        assertEquals(0, indexSize("oauth:user_tokens:sang"));
+    }
+
+    @Test
+    void removingRefreshTokenClearsTheAccessTokenReference() {
+        OAuth2Authentication authentication = authentication("sang", "javaboy");
+        DefaultOAuth2AccessToken token = token(TimeUnit.HOURS.toMillis(2));
+        tokenStore.storeAccessToken(token, authentication);
+        tokenStore.storeRefreshToken(token.getRefreshToken(), authentication);
+
+        tokenStore.removeRefreshToken(token.getRefreshToken());
+
+        assertNull(tokenStore.readRefreshToken(token.getRefreshToken().getValue()));
+        assertNotNull(tokenStore.readAccessToken(token.getValue()));
+        try (RedisConnection connection = redis.getConnectionFactory().getConnection()) {
+            assertNull(connection.hGet(bytes("oauth:access:" + token.getValue()), bytes("r")));
+        }
+    }
+
+    private static long indexSize(String key) {
+        try (RedisConnection connection = redis.getConnectionFactory().getConnection()) {
+            Long size = connection.zCard(bytes(key));
+            return size == null ? 0 : size;
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static DefaultOAuth2AccessToken token(long ttlMillis) {
+        DefaultOAuth2AccessToken token = new DefaultOAuth2AccessToken(UUID.randomUUID().toString());
+        token.setExpiration(new Date(System.currentTimeMillis() + ttlMillis));
+        token.setScope(Collections.singleton("all"));
+        token.setRefreshToken(new DefaultExpiringOAuth2RefreshToken(UUID.randomUUID().toString(),
+                new Date(System.currentTimeMillis() + TimeUnit.DAYS.toMillis(3))));
+        return token;
+    }
+}
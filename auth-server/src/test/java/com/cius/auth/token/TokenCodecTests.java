@@ -0,0 +1,85 @@
+package com.cius.auth.token;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.oauth2.common.DefaultExpiringOAuth2RefreshToken;
+import org.springframework.security.oauth2.common.DefaultOAuth2AccessToken;
+import org.springframework.security.oauth2.common.ExpiringOAuth2RefreshToken;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.common.OAuth2RefreshToken;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.OAuth2Request;
+import org.springframework.util.SerializationUtils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenCodecTests {
+
+    @Test
+    void accessTokenRoundTrip() {
+        DefaultOAuth2AccessToken token = new DefaultOAuth2AccessToken("access-value");
+        token.setExpiration(new Date(1_700_000_000_000L));
+        token.setScope(Collections.singleton("all"));
+        token.setRefreshToken(new DefaultExpiringOAuth2RefreshToken("refresh-value", new Date(1_700_000_360_000L)));
+        Map<String, Object> info = new LinkedHashMap<>();
+        info.put("author", "江南一点雨");
+        info.put("jti", "abc");
+        info.put("count", 3);
+        info.put("roles", Arrays.asList("a", "b"));
+        token.setAdditionalInformation(info);
+
+        OAuth2AccessToken decoded = TokenCodec.decodeAccessToken(TokenCodec.encodeAccessToken(token));
+
+        assertEquals(token.getValue(), decoded.getValue());
+        assertEquals(token.getTokenType(), decoded.getTokenType());
+        assertEquals(token.getExpiration(), decoded.getExpiration());
+        assertEquals(token.getScope(), decoded.getScope());
+        assertEquals("refresh-value", decoded.getRefreshToken().getValue());
+        assertEquals(new Date(1_700_000_360_000L), ((ExpiringOAuth2RefreshToken) decoded.getRefreshToken()).getExpiration());
+        assertEquals("江南一点雨", decoded.getAdditionalInformation().get("author"));
+        assertEquals(3L, decoded.getAdditionalInformation().get("count"));
+        assertEquals(Arrays.asList("a", "b"), decoded.getAdditionalInformation().get("roles"));
+    }
+
+    @Test
+    void refreshTokenRoundTrip() {
+        OAuth2RefreshToken decoded = TokenCodec.decodeRefreshToken(
+                TokenCodec.encodeRefreshToken(new DefaultExpiringOAuth2RefreshToken("refresh-value", new Date(42L))));
+        assertEquals("refresh-value", decoded.getValue());
+        assertEquals(new Date(42L), ((ExpiringOAuth2RefreshToken) decoded).getExpiration());
+    }
+
+    @Test
+    void authenticationRoundTripIsSmallerThanJdkSerialization() {
+        Map<String, String> parameters = new HashMap<>();
+        parameters.put("grant_type", "password");
+        parameters.put("username", "sang");
+        OAuth2Request request = new OAuth2Request(parameters, "javaboy", Collections.emptyList(), true,
+                Collections.singleton("all"), Collections.singleton("res1"), null, null, null);
+        OAuth2Authentication authentication = new OAuth2Authentication(request,
+                new UsernamePasswordAuthenticationToken("sang", null, AuthorityUtils.createAuthorityList("ROLE_admin")));
+
+        byte[] encoded = TokenCodec.encodeAuthentication(authentication);
+        OAuth2Authentication decoded = TokenCodec.decodeAuthentication(encoded);
+
+        assertEquals("sang", decoded.getName());
+        assertEquals("javaboy", decoded.getOAuth2Request().getClientId());
+        assertEquals(parameters, decoded.getOAuth2Request().getRequestParameters());
+        assertEquals(authentication.getAuthorities(), decoded.getAuthorities());
+        assertEquals(request.getScope(), decoded.getOAuth2Request().getScope());
+        assertEquals(request.getResourceIds(), decoded.getOAuth2Request().getResourceIds());
+        assertNull(decoded.getOAuth2Request().getRedirectUri());
+        assertTrue(encoded.length * 4 < SerializationUtils.serialize(authentication).length,
+                "compact encoding should be much smaller than JDK serialization");
+    }
+}
@@ -0,0 +1,170 @@
+package com.cius.auth.user;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.security.authentication.ProviderManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsByNameServiceWrapper;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.OAuth2Request;
+import org.springframework.security.oauth2.provider.TokenRequest;
+import org.springframework.security.oauth2.provider.client.BaseClientDetails;
+import org.springframework.security.oauth2.provider.client.InMemoryClientDetailsService;
+import org.springframework.security.oauth2.provider.token.DefaultTokenServices;
+import org.springframework.security.oauth2.provider.token.store.InMemoryTokenStore;
+import org.springframework.security.web.authentication.preauth.PreAuthenticatedAuthenticationProvider;
+import org.springframework.security.web.authentication.preauth.PreAuthenticatedAuthenticationToken;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CachingJdbcUserDetailsServiceTests {
+
+    private final EmbeddedDatabase database = new EmbeddedDatabaseBuilder()
+            .setType(EmbeddedDatabaseType.H2)
+            .generateUniqueName(true)
+            .addScript("org/springframework/security/core/userdetails/jdbc/users.ddl")
+            .build();
+
+    private final JdbcTemplate jdbcTemplate = new JdbcTemplate(database);
+
+    @AfterEach
+    void shutdown() {
+        database.shutdown();
+    }
+
+    @Test
+    void usersAreServedFromCacheUntilEvicted() {
+        CachingJdbcUserDetailsService users = new CachingJdbcUserDetailsService(database, 100, 300);
+        users.createUser(user("sang", "ROLE_admin", "ROLE_user"));
+        assertEquals(Arrays.asList("ROLE_admin", "ROLE_user"), authorities(users.loadUserByUsername("sang")));
+
+        // 直接改库，缓存不变
+        jdbcTemplate.update("update users set password = ? where username = ?", "{noop}456", "sang");
+        assertEquals("{noop}123", users.loadUserByUsername("sang").getPassword());
+
+        users.evict("sang");
+        assertEquals("{noop}456", users.loadUserByUsername("sang").getPassword());
+
+        // 通过 CachingJdbcUserDetailsService 修改时同步失效
+        users.updateUser(user("sang", "ROLE_user"));
+        assertEquals(Collections.singletonList("ROLE_user"), authorities(users.loadUserByUsername("sang")));
+        assertEquals(1, users.evictAuthority("ROLE_user"));
+    }
+
+    @Test
+    void preloadFillsTheCacheInBatchesAndSkipsUnknownUsers() {
+        List<String> usernames = new ArrayList<>();
+        for (int i = 0; i < 150; i++) {
+            jdbcTemplate.update("insert into users (username, password, enabled) values (?, ?, ?)", "user" + i, "{noop}123", true);
+            jdbcTemplate.update("insert into authorities (username, authority) values (?, ?)", "user" + i, "ROLE_user");
+            usernames.add("user" + i);
+        }
+        usernames.add("ghost");
+        CachingJdbcUserDetailsService users = new CachingJdbcUserDetailsService(database, 1000, 300);
+        users.setPreloadUsernames(usernames);
+        users.afterPropertiesSet();
+        assertEquals(150, users.getCache().size());
+
+        // 预加载之后不再查库
+        jdbcTemplate.update("delete from authorities");
+        jdbcTemplate.update("delete from users");
+        assertEquals(Collections.singletonList("ROLE_user"), authorities(users.loadUserByUsername("user149")));
+        assertEquals(0, users.getCache().missCount());
+        assertThrows(UsernameNotFoundException.class, () -> users.loadUserByUsername("ghost"));
+    }
+
+    @Test
+    void missingUsersAreRejectedWithoutQueryingUntilTheShortTtlEnds() throws Exception {
+        CachingJdbcUserDetailsService users = new CachingJdbcUserDetailsService(database, 100, 300);
+        users.setMissingUserCache(100, 200, TimeUnit.MILLISECONDS);
+        assertThrows(UsernameNotFoundException.class, () -> users.loadUserByUsername("ghost"));
+        assertEquals(1, users.getMissingUserCache().size());
+
+        // 别的节点建了这个用户，有效期内仍然拒绝，不查库
+        jdbcTemplate.update("insert into users (username, password, enabled) values (?, ?, ?)", "ghost", "{noop}123", true);
+        long loads = users.getCache().loadCount();
+        assertThrows(UsernameNotFoundException.class, () -> users.loadUserByUsername("ghost"));
+        assertEquals(loads, users.getCache().loadCount());
+
+        Thread.sleep(300);
+        assertEquals("ghost", users.loadUserByUsername("ghost").getUsername());
+
+        // 通过本节点新建的用户马上可以登录
+        assertThrows(UsernameNotFoundException.class, () -> users.loadUserByUsername("javaboy"));
+        users.createUser(user("javaboy", "ROLE_user"));
+        assertEquals("javaboy", users.loadUserByUsername("javaboy").getUsername());
+    }
+
+    @Test
+    void refreshRechecksTheUser() {
+        CachingJdbcUserDetailsService users = new CachingJdbcUserDetailsService(database, 100, 300);
+        users.setMissingUserCache(100, 10, TimeUnit.SECONDS);
+        users.createUser(user("sang", "ROLE_admin"));
+        DefaultTokenServices tokenServices = tokenServices(users);
+        OAuth2AccessToken token = tokenServices.createAccessToken(authentication(users.loadUserByUsername("sang")));
+        TokenRequest refresh = new TokenRequest(Collections.emptyMap(), "javaboy", Collections.singleton("all"), "refresh_token");
+
+        token = tokenServices.refreshAccessToken(token.getRefreshToken().getValue(), refresh);
+        assertNotNull(token.getValue());
+
+        users.updateUser(User.withUsername("sang").password("{noop}123").roles("admin").disabled(true).build());
+        String disabledRefresh = token.getRefreshToken().getValue();
+        assertThrows(AuthenticationException.class, () -> tokenServices.refreshAccessToken(disabledRefresh, refresh));
+
+        users.deleteUser("sang");
+        assertThrows(UsernameNotFoundException.class, () -> tokenServices.refreshAccessToken(disabledRefresh, refresh));
+    }
+
+    /**
+     * 和 AuthorizationServer.tokenServices() 一样，刷新时通过 PreAuthenticatedAuthenticationProvider 重新查询用户
+     */
+    private static DefaultTokenServices tokenServices(CachingJdbcUserDetailsService users) {
+        InMemoryClientDetailsService clients = new InMemoryClientDetailsService();
+        clients.setClientDetailsStore(Collections.singletonMap("javaboy",
+                new BaseClientDetails("javaboy", "res1", "all", "password,refresh_token", null)));
+        PreAuthenticatedAuthenticationProvider refreshProvider = new PreAuthenticatedAuthenticationProvider();
+        refreshProvider.setPreAuthenticatedUserDetailsService(
+                new UserDetailsByNameServiceWrapper<PreAuthenticatedAuthenticationToken>(users));
+        DefaultTokenServices services = new DefaultTokenServices();
+        services.setTokenStore(new InMemoryTokenStore());
+        services.setClientDetailsService(clients);
+        services.setSupportRefreshToken(true);
+        services.setReuseRefreshToken(false);
+        services.setAuthenticationManager(new ProviderManager(Collections.singletonList(refreshProvider)));
+        return services;
+    }
+
+    private static OAuth2Authentication authentication(UserDetails user) {
+        OAuth2Request request = new OAuth2Request(Collections.emptyMap(), "javaboy", Collections.emptyList(), true,
+                Collections.singleton("all"), Collections.singleton("res1"), null, null, null);
+        return new OAuth2Authentication(request, new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities()));
+    }
+
+    private static UserDetails user(String username, String... authorities) {
+        return User.withUsername(username).password("{noop}123").authorities(authorities).build();
+    }
+
+    private static List<String> authorities(UserDetails user) {
+        List<String> names = new ArrayList<>();
+        user.getAuthorities().forEach(authority -> names.add(authority.getAuthority()));
+        Collections.sort(names);
+        return names;
+    }
+}
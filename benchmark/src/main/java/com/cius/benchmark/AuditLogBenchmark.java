@@ -0,0 +1,136 @@
+package com.cius.benchmark;
+
+import com.cius.auth.audit.AuditEvent;
+import com.cius.auth.audit.AuditLog;
+import com.cius.auth.audit.SegmentedFileAuditSink;
+import com.cius.auth.audit.TokenAuditor;
+import com.cius.auth.client.CachingClientDetailsService;
+import com.cius.auth.jwt.KeyRotatingJwtAccessTokenConverter;
+import com.cius.auth.jwt.SigningKeyManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.client.JdbcClientDetailsService;
+import org.springframework.security.oauth2.provider.token.DefaultTokenServices;
+import org.springframework.security.oauth2.provider.token.TokenEnhancer;
+import org.springframework.security.oauth2.provider.token.TokenEnhancerChain;
+import org.springframework.security.oauth2.provider.token.store.JwtAccessTokenConverter;
+import org.springframework.security.oauth2.provider.token.store.JwtTokenStore;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 审计日志对签发路径的影响：
+ *  createAccessToken：off 不带审计，file 在 TokenEnhancerChain 最后加上 TokenAuditor，
+ *    并像 TimedTokenServices 一样在签发返回之后调用 TokenAuditor.issued，
+ *    两者的差距就是请求线程上多出来的开销（生成 AuditEvent + 一次 CAS 入队），文件写入在后台线程；
+ *  record：只测 AuditLog.record，多线程并发入队的速度远超后台写盘的速度，队列很快就满了，
+ *    测的是队列满时按 DROP 策略丢弃同样不会阻塞请求线程。
+ * 运行结束时打印写入和丢弃的条数，createAccessToken 的丢弃数应该是 0。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class AuditLogBenchmark {
+
+    @Param({"off", "file"})
+    public String audit;
+
+    private EmbeddedDatabase database;
+
+    private Path directory;
+
+    private AuditLog auditLog;
+
+    private DefaultTokenServices tokenServices;
+
+    private TokenAuditor auditor;
+
+    private OAuth2Authentication authentication;
+
+    private AuditEvent event;
+
+    @Setup
+    public void setup() throws Exception {
+        database = Fixtures.clientDatabase(100);
+        SigningKeyManager keyManager = new SigningKeyManager(3);
+        keyManager.rotate();
+        JwtAccessTokenConverter converter = new KeyRotatingJwtAccessTokenConverter(keyManager);
+        converter.afterPropertiesSet();
+
+        CachingClientDetailsService clientDetailsService = new CachingClientDetailsService(
+                new JdbcClientDetailsService(database), 1000, 300);
+        clientDetailsService.afterPropertiesSet();
+
+        directory = Files.createTempDirectory("audit-benchmark");
+        auditLog = new AuditLog(Collections.singletonList(
+                new SegmentedFileAuditSink(directory, 64 * 1024 * 1024, 4)), 65536, 512);
+        auditLog.afterPropertiesSet();
+
+        List<TokenEnhancer> tokenEnhancers = new ArrayList<>();
+        tokenEnhancers.add(converter);
+        if ("file".equals(audit)) {
+            auditor = new TokenAuditor(auditLog);
+            tokenEnhancers.add(auditor);
+        }
+        TokenEnhancerChain tokenEnhancerChain = new TokenEnhancerChain();
+        tokenEnhancerChain.setTokenEnhancers(tokenEnhancers);
+
+        tokenServices = new DefaultTokenServices();
+        tokenServices.setClientDetailsService(clientDetailsService);
+        tokenServices.setSupportRefreshToken(true);
+        tokenServices.setTokenStore(new JwtTokenStore(converter));
+        tokenServices.setTokenEnhancer(tokenEnhancerChain);
+        tokenServices.afterPropertiesSet();
+
+        authentication = Fixtures.authentication();
+        event = new AuditEvent(System.currentTimeMillis(), AuditEvent.ISSUE, AuditEvent.SUCCESS,
+                Fixtures.CLIENT_ID, "sang", "password", "c0a8e4b2-5b6f-4c8e-9d1a-3f2b7e6a9c10");
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException, IOException {
+        auditLog.destroy();
+        System.out.println("audit events written=" + auditLog.getWrittenCount(auditLog.getSinks().get(0)) + ", dropped=" + auditLog.getDroppedCount());
+        FileSystemUtils.deleteRecursively(directory);
+        database.shutdown();
+    }
+
+    @Benchmark
+    public OAuth2AccessToken createAccessToken() {
+        OAuth2AccessToken token = tokenServices.createAccessToken(authentication);
+        if (auditor != null) {
+            auditor.issued(token, authentication);
+        }
+        return token;
+    }
+
+    @Benchmark
+    public boolean record() {
+        return auditLog.record(event);
+    }
+}
@@ -0,0 +1,77 @@
+package com.cius.benchmark;
+
+import com.cius.auth.claims.ClaimEnricher;
+import com.cius.auth.claims.ClaimTemplate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.oauth2.common.DefaultOAuth2AccessToken;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.client.BaseClientDetails;
+import org.springframework.security.oauth2.provider.client.InMemoryClientDetailsService;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ClaimEnricher 单独的开销：客户端配置 claims 个 claim（除 3 个占位符外都是常量），
+ * 用户属性缓存命中，对比 claim 数量不同时每次签发的耗时。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ClaimEnrichmentBenchmark {
+
+    @Param({"2", "16", "64"})
+    public int claims;
+
+    private ClaimEnricher enricher;
+
+    private OAuth2AccessToken accessToken;
+
+    private OAuth2Authentication authentication;
+
+    @Setup
+    public void setup() {
+        Map<String, Object> definitions = new LinkedHashMap<>();
+        definitions.put("sub_name", "{{username}}");
+        definitions.put("cid", "{{client_id}}");
+        definitions.put("tenant", "{{user.tenant}}");
+        for (int i = definitions.size(); i < claims; i++) {
+            definitions.put("claim" + i, "value" + i);
+        }
+        BaseClientDetails client = new BaseClientDetails(Fixtures.CLIENT_ID, "res1", "all", "password", null);
+        client.setAdditionalInformation(Collections.singletonMap(ClaimEnricher.CLAIMS, definitions));
+        InMemoryClientDetailsService clientDetailsService = new InMemoryClientDetailsService();
+        clientDetailsService.setClientDetailsStore(Collections.singletonMap(Fixtures.CLIENT_ID, client));
+
+        enricher = new ClaimEnricher(clientDetailsService, ClaimTemplate.EMPTY, 1000);
+        enricher.setUserClaimSource(username -> Collections.singletonMap("tenant", "acme"), 1000, 300, TimeUnit.SECONDS);
+
+        DefaultOAuth2AccessToken token = new DefaultOAuth2AccessToken(UUID.randomUUID().toString());
+        token.setAdditionalInformation(new HashMap<>());
+        accessToken = token;
+        authentication = Fixtures.authentication();
+    }
+
+    @Benchmark
+    public OAuth2AccessToken enhance() {
+        return enricher.enhance(accessToken, authentication);
+    }
+}
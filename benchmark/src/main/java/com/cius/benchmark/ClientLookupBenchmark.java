@@ -0,0 +1,61 @@
+package com.cius.benchmark;
+
+import com.cius.auth.client.CachingClientDetailsService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.security.oauth2.provider.ClientDetails;
+import org.springframework.security.oauth2.provider.client.JdbcClientDetailsService;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按 client_id 查询客户端：直接查 JdbcClientDetailsService 与经过 CachingClientDetailsService 的对比。
+ * H2 是进程内数据库，没有网络往返，真实 MySQL 下两者的差距会更大。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ClientLookupBenchmark {
+
+    private EmbeddedDatabase database;
+
+    private JdbcClientDetailsService jdbcClientDetailsService;
+
+    private CachingClientDetailsService cachingClientDetailsService;
+
+    @Setup
+    public void setup() {
+        database = Fixtures.clientDatabase(1000);
+        jdbcClientDetailsService = new JdbcClientDetailsService(database);
+        cachingClientDetailsService = new CachingClientDetailsService(jdbcClientDetailsService, 2000, 300);
+        cachingClientDetailsService.afterPropertiesSet();
+    }
+
+    @TearDown
+    public void tearDown() {
+        database.shutdown();
+    }
+
+    @Benchmark
+    public ClientDetails jdbc() {
+        return jdbcClientDetailsService.loadClientByClientId(Fixtures.CLIENT_ID);
+    }
+
+    @Benchmark
+    public ClientDetails cached() {
+        return cachingClientDetailsService.loadClientByClientId(Fixtures.CLIENT_ID);
+    }
+}
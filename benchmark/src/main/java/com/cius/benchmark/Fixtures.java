@@ -0,0 +1,86 @@
+package com.cius.benchmark;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.OAuth2Request;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * 基准测试共用的数据：内存 H2 数据库代替 MySQL，表结构和 oauth_client_details 一致，
+ * 客户端与用户和 auth-server 的配置保持一致（javaboy/123，sang/123）。
+ */
+public final class Fixtures {
+
+    public static final String CLIENT_ID = "javaboy";
+
+    public static final String CLIENT_SECRET = "123";
+
+    private Fixtures() {
+    }
+
+    /**
+     * 创建一个新的 H2 内存库并写入 javaboy 客户端，extraClients 个额外客户端用于模拟真实的表大小
+     */
+    public static EmbeddedDatabase clientDatabase(int extraClients) {
+        EmbeddedDatabase database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .setName("oauth_demo_" + UUID.randomUUID())
+                .addScript("classpath:schema.sql")
+                .build();
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(database);
+        String secret = new BCryptPasswordEncoder().encode(CLIENT_SECRET);
+        String sql = "insert into oauth_client_details (client_id, resource_ids, client_secret, scope, authorized_grant_types, "
+                + "web_server_redirect_uri, access_token_validity, refresh_token_validity, autoapprove) values (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        jdbcTemplate.update(sql, CLIENT_ID, "res1", secret, "all", "password,refresh_token,authorization_code",
+                "http://localhost:8082/index.html", 7200, 259200, "true");
+        for (int i = 0; i < extraClients; i++) {
+            jdbcTemplate.update(sql, "client-" + i, "res1", secret, "all", "password,refresh_token",
+                    null, 7200, 259200, "true");
+        }
+        return database;
+    }
+
+    /**
+     * 写入 sang（ROLE_admin）、javaboy（ROLE_user）两个用户，extraUsers 个额外用户各有两个角色，用于模拟真实的表大小
+     */
+    public static void addUsers(EmbeddedDatabase database, int extraUsers) {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(database);
+        String password = new BCryptPasswordEncoder().encode(CLIENT_SECRET);
+        addUser(jdbcTemplate, "sang", password, "ROLE_admin");
+        addUser(jdbcTemplate, "javaboy", password, "ROLE_user");
+        for (int i = 0; i < extraUsers; i++) {
+            addUser(jdbcTemplate, "user-" + i, password, "ROLE_user", "ROLE_reader");
+        }
+    }
+
+    private static void addUser(JdbcTemplate jdbcTemplate, String username, String password, String... authorities) {
+        jdbcTemplate.update("insert into users (username, password, enabled) values (?, ?, ?)", username, password, true);
+        for (String authority : authorities) {
+            jdbcTemplate.update("insert into authorities (username, authority) values (?, ?)", username, authority);
+        }
+    }
+
+    /**
+     * password 模式下 sang 用户通过 javaboy 客户端登录后的认证信息
+     */
+    public static OAuth2Authentication authentication() {
+        Map<String, String> parameters = new HashMap<>();
+        parameters.put("grant_type", "password");
+        parameters.put("username", "sang");
+        OAuth2Request request = new OAuth2Request(parameters, CLIENT_ID, Collections.emptyList(), true,
+                Collections.singleton("all"), Collections.singleton("res1"), null, null, null);
+        UsernamePasswordAuthenticationToken user = new UsernamePasswordAuthenticationToken("sang", null,
+                AuthorityUtils.createAuthorityList("ROLE_admin"));
+        return new OAuth2Authentication(request, user);
+    }
+}
@@ -0,0 +1,97 @@
+package com.cius.benchmark;
+
+import com.cius.auth.introspect.BatchTokenIntrospector;
+import com.cius.auth.jwt.KeyRotatingJwtAccessTokenConverter;
+import com.cius.auth.jwt.SigningKeyManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.oauth2.common.DefaultOAuth2AccessToken;
+import org.springframework.security.oauth2.provider.endpoint.CheckTokenEndpoint;
+import org.springframework.security.oauth2.provider.token.DefaultTokenServices;
+import org.springframework.security.oauth2.provider.token.store.JwtTokenStore;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 校验 batchSize 个令牌：逐个调用 /oauth/check_token 背后的 CheckTokenEndpoint，
+ * 与一次调用 BatchTokenIntrospector 对比。这里只比较服务端的计算，批量接口还省掉了 batchSize - 1 次 HTTP 往返。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IntrospectionBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int batchSize;
+
+    private List<String> tokens;
+
+    private CheckTokenEndpoint checkTokenEndpoint;
+
+    private BatchTokenIntrospector introspector;
+
+    @Setup
+    public void setup() throws Exception {
+        SigningKeyManager keyManager = new SigningKeyManager(3);
+        keyManager.rotate();
+        KeyRotatingJwtAccessTokenConverter converter = new KeyRotatingJwtAccessTokenConverter(keyManager);
+        converter.afterPropertiesSet();
+        tokens = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            DefaultOAuth2AccessToken accessToken = new DefaultOAuth2AccessToken(UUID.randomUUID().toString());
+            accessToken.setExpiration(new Date(System.currentTimeMillis() + TimeUnit.HOURS.toMillis(2)));
+            accessToken.setScope(Collections.singleton("all"));
+            tokens.add(converter.enhance(accessToken, Fixtures.authentication()).getValue());
+        }
+
+        DefaultTokenServices tokenServices = new DefaultTokenServices();
+        tokenServices.setTokenStore(new JwtTokenStore(converter));
+        checkTokenEndpoint = new CheckTokenEndpoint(tokenServices);
+        introspector = new BatchTokenIntrospector(tokenServices, converter, Runtime.getRuntime().availableProcessors(), 32);
+    }
+
+    @TearDown
+    public void tearDown() {
+        introspector.destroy();
+    }
+
+    @Benchmark
+    public int checkTokenOneByOne() {
+        int active = 0;
+        for (String token : tokens) {
+            active += checkTokenEndpoint.checkToken(token).size();
+        }
+        return active;
+    }
+
+    @Benchmark
+    public int batchIntrospection() {
+        int active = 0;
+        for (CompletableFuture<List<Map<String, Object>>> chunk : introspector.introspectAll(tokens)) {
+            for (Map<String, Object> result : chunk.join()) {
+                active += result.size();
+            }
+        }
+        return active;
+    }
+}
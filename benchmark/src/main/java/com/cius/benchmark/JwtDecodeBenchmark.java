@@ -0,0 +1,84 @@
+package com.cius.benchmark;
+
+import com.cius.auth.jwt.KeyRotatingJwtAccessTokenConverter;
+import com.cius.auth.jwt.SigningKey;
+import com.cius.auth.jwt.SigningKeyManager;
+import com.cius.auth.token.CachingJwtTokenStore;
+import com.cius.auth.token.JwksJwtAccessTokenConverter;
+import com.cius.auth.token.JwksVerifierCache;
+import com.cius.auth.token.VerifiedTokenCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.oauth2.common.DefaultOAuth2AccessToken;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.token.TokenStore;
+import org.springframework.security.oauth2.provider.token.store.JwtTokenStore;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 资源服务器解析 JWT 的路径：JwtTokenStore.readAuthentication，
+ * 分别测试不带缓存的 JwtTokenStore 和 user-server 实际使用的 CachingJwtTokenStore。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtDecodeBenchmark {
+
+    private String token;
+
+    private TokenStore jwtTokenStore;
+
+    private TokenStore cachingTokenStore;
+
+    @Setup
+    public void setup() throws Exception {
+        SigningKeyManager keyManager = new SigningKeyManager(3);
+        SigningKey key = keyManager.rotate();
+        KeyRotatingJwtAccessTokenConverter signer = new KeyRotatingJwtAccessTokenConverter(keyManager);
+        signer.afterPropertiesSet();
+        DefaultOAuth2AccessToken accessToken = new DefaultOAuth2AccessToken("placeholder");
+        accessToken.setExpiration(new Date(System.currentTimeMillis() + TimeUnit.HOURS.toMillis(2)));
+        accessToken.setScope(Collections.singleton("all"));
+        token = signer.enhance(accessToken, Fixtures.authentication()).getValue();
+
+        // 资源服务器一侧：直接把 JWKS 灌进缓存，不走网络
+        JwksVerifierCache verifierCache = new JwksVerifierCache(new RestTemplate(), "http://localhost:8080/.well-known/jwks.json",
+                300, 30, TimeUnit.SECONDS);
+        List<Map<String, Object>> keys = new ArrayList<>();
+        keys.add(key.toJwk());
+        verifierCache.update(Collections.singletonMap("keys", keys));
+        JwksJwtAccessTokenConverter converter = new JwksJwtAccessTokenConverter(verifierCache);
+        converter.afterPropertiesSet();
+
+        jwtTokenStore = new JwtTokenStore(converter);
+        cachingTokenStore = new CachingJwtTokenStore(converter, new VerifiedTokenCache(10_000, 5, TimeUnit.MINUTES));
+    }
+
+    @Benchmark
+    public OAuth2Authentication jwtTokenStore() {
+        return jwtTokenStore.readAuthentication(token);
+    }
+
+    @Benchmark
+    public OAuth2Authentication cachingJwtTokenStore() {
+        return cachingTokenStore.readAuthentication(token);
+    }
+}
@@ -0,0 +1,44 @@
+package com.cius.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SecurityConfig 中 BCryptPasswordEncoder（默认 strength 10）校验一次密码的耗时，
+ * 用户密码和客户端密钥都走这条路径。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PasswordEncoderBenchmark {
+
+    private PasswordEncoder passwordEncoder;
+
+    private String encoded;
+
+    @Setup
+    public void setup() {
+        passwordEncoder = new BCryptPasswordEncoder();
+        encoded = passwordEncoder.encode("123");
+    }
+
+    @Benchmark
+    public boolean matches() {
+        return passwordEncoder.matches("123", encoded);
+    }
+}
@@ -0,0 +1,60 @@
+package com.cius.benchmark;
+
+import com.cius.auth.ratelimit.LocalRateLimiter;
+import com.cius.auth.ratelimit.RateLimit;
+import com.cius.auth.ratelimit.RateLimitDecision;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 8 个线程同时取令牌：所有线程抢同一个客户端的桶，与每个线程各自一个客户端的对比，
+ * 桶的速率足够大，测的是取令牌本身的开销而不是拒绝的路径。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class RateLimiterBenchmark {
+
+    private static final RateLimit LIMIT = new RateLimit(1_000_000_000, 1_000_000);
+
+    private LocalRateLimiter limiter;
+
+    @Setup
+    public void setup() {
+        limiter = new LocalRateLimiter(10000);
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadKey {
+
+        private static final AtomicInteger NEXT = new AtomicInteger();
+
+        String key = "client-" + NEXT.getAndIncrement() + "|password";
+    }
+
+    @Benchmark
+    public RateLimitDecision sharedBucket() {
+        return limiter.acquire(Fixtures.CLIENT_ID + "|password", LIMIT);
+    }
+
+    @Benchmark
+    public RateLimitDecision bucketPerClient(ThreadKey threadKey) {
+        return limiter.acquire(threadKey.key, LIMIT);
+    }
+}
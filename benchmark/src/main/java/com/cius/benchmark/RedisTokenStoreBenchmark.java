@@ -0,0 +1,110 @@
+package com.cius.benchmark;
+
+import com.cius.auth.token.PipelinedRedisTokenStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.security.oauth2.common.DefaultExpiringOAuth2RefreshToken;
+import org.springframework.security.oauth2.common.DefaultOAuth2AccessToken;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.token.TokenStore;
+import org.springframework.security.oauth2.provider.token.store.redis.RedisTokenStore;
+import redis.embedded.RedisServer;
+
+import java.net.ServerSocket;
+import java.util.Collections;
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RedisTokenStore 与 PipelinedRedisTokenStore 的对比，每次调用模拟一个令牌的完整生命周期：
+ * storeAccessToken + storeRefreshToken -> readAccessToken + readAuthentication -> removeAccessToken + removeRefreshToken。
+ *
+ * 默认启动一个嵌入式 Redis；指定 -Dredis.port=6379 时使用本机已有的 Redis。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RedisTokenStoreBenchmark {
+
+    private RedisServer redisServer;
+
+    private LettuceConnectionFactory connectionFactory;
+
+    private TokenStore redisTokenStore;
+
+    private TokenStore pipelinedTokenStore;
+
+    private OAuth2Authentication authentication;
+
+    @Setup
+    public void setup() throws Exception {
+        int port = Integer.getInteger("redis.port", 0);
+        if (port == 0) {
+            try (ServerSocket socket = new ServerSocket(0)) {
+                port = socket.getLocalPort();
+            }
+            redisServer = new RedisServer(port);
+            redisServer.start();
+        }
+        connectionFactory = new LettuceConnectionFactory("localhost", port);
+        connectionFactory.afterPropertiesSet();
+
+        RedisTokenStore stock = new RedisTokenStore(connectionFactory);
+        stock.setPrefix("bench-stock:");
+        redisTokenStore = stock;
+        PipelinedRedisTokenStore pipelined = new PipelinedRedisTokenStore(connectionFactory);
+        pipelined.setPrefix("bench-pipelined:");
+        pipelinedTokenStore = pipelined;
+
+        authentication = Fixtures.authentication();
+    }
+
+    @TearDown
+    public void tearDown() {
+        connectionFactory.destroy();
+        if (redisServer != null) {
+            redisServer.stop();
+        }
+    }
+
+    @Benchmark
+    public OAuth2Authentication redisTokenStore() {
+        return lifecycle(redisTokenStore);
+    }
+
+    @Benchmark
+    public OAuth2Authentication pipelinedRedisTokenStore() {
+        return lifecycle(pipelinedTokenStore);
+    }
+
+    private OAuth2Authentication lifecycle(TokenStore store) {
+        DefaultOAuth2AccessToken token = new DefaultOAuth2AccessToken(UUID.randomUUID().toString());
+        token.setExpiration(new Date(System.currentTimeMillis() + TimeUnit.HOURS.toMillis(2)));
+        token.setScope(Collections.singleton("all"));
+        DefaultExpiringOAuth2RefreshToken refreshToken = new DefaultExpiringOAuth2RefreshToken(UUID.randomUUID().toString(),
+                new Date(System.currentTimeMillis() + TimeUnit.DAYS.toMillis(3)));
+        token.setRefreshToken(refreshToken);
+
+        store.storeAccessToken(token, authentication);
+        store.storeRefreshToken(refreshToken, authentication);
+        store.readAccessToken(token.getValue());
+        OAuth2Authentication read = store.readAuthentication(token.getValue());
+        store.removeAccessToken(token);
+        store.removeRefreshToken(refreshToken);
+        return read;
+    }
+}
@@ -0,0 +1,126 @@
+package com.cius.benchmark;
+
+import com.cius.auth.claims.ClaimEnricher;
+import com.cius.auth.claims.ClaimTemplate;
+import com.cius.auth.client.CachingClientDetailsService;
+import com.cius.auth.jwt.KeyRotatingJwtAccessTokenConverter;
+import com.cius.auth.jwt.SigningKeyManager;
+import com.cius.auth.user.CachingJdbcUserDetailsService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.security.authentication.ProviderManager;
+import org.springframework.security.core.userdetails.UserDetailsByNameServiceWrapper;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.jdbc.JdbcDaoImpl;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.provider.TokenRequest;
+import org.springframework.security.oauth2.provider.client.JdbcClientDetailsService;
+import org.springframework.security.oauth2.provider.token.DefaultTokenServices;
+import org.springframework.security.oauth2.provider.token.TokenEnhancerChain;
+import org.springframework.security.oauth2.provider.token.store.JwtAccessTokenConverter;
+import org.springframework.security.oauth2.provider.token.store.JwtTokenStore;
+import org.springframework.security.web.authentication.preauth.PreAuthenticatedAuthenticationProvider;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * refresh_token 模式的吞吐量，组装方式和 AuthorizationServer.tokenServices() 一致：
+ * 校验刷新令牌 -> 按用户名重新查询用户 -> 客户端查询 -> 追加 claim -> RS256 签名。
+ *  jdbc：Spring Security 自带的 JdbcDaoImpl，每次刷新查两次库（用户一次、角色一次）；
+ *  cached：CachingJdbcUserDetailsService，一条 join 查询，命中缓存时不查库。
+ * H2 是进程内数据库代替 MySQL，没有网络往返，真实环境下两者的差距会更大。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class RefreshGrantBenchmark {
+
+    @Param({"jdbc", "cached"})
+    public String userStore;
+
+    private EmbeddedDatabase database;
+
+    private DefaultTokenServices tokenServices;
+
+    private String refreshToken;
+
+    private TokenRequest tokenRequest;
+
+    @Setup
+    public void setup() throws Exception {
+        database = Fixtures.clientDatabase(100);
+        Fixtures.addUsers(database, 10000);
+        SigningKeyManager keyManager = new SigningKeyManager(3);
+        keyManager.rotate();
+        JwtAccessTokenConverter converter = new KeyRotatingJwtAccessTokenConverter(keyManager);
+        converter.afterPropertiesSet();
+
+        CachingClientDetailsService clientDetailsService = new CachingClientDetailsService(
+                new JdbcClientDetailsService(database), 1000, 300);
+        clientDetailsService.afterPropertiesSet();
+
+        TokenEnhancerChain tokenEnhancerChain = new TokenEnhancerChain();
+        tokenEnhancerChain.setTokenEnhancers(Arrays.asList(new ClaimEnricher(clientDetailsService,
+                ClaimTemplate.parse("author=江南一点雨,authorNames=zxm"), 1000), converter));
+
+        PreAuthenticatedAuthenticationProvider refreshProvider = new PreAuthenticatedAuthenticationProvider();
+        refreshProvider.setPreAuthenticatedUserDetailsService(new UserDetailsByNameServiceWrapper<>(userDetailsService()));
+
+        tokenServices = new DefaultTokenServices();
+        tokenServices.setClientDetailsService(clientDetailsService);
+        tokenServices.setSupportRefreshToken(true);
+        tokenServices.setTokenStore(new JwtTokenStore(converter));
+        tokenServices.setTokenEnhancer(tokenEnhancerChain);
+        tokenServices.setAuthenticationManager(new ProviderManager(Collections.singletonList(refreshProvider)));
+        tokenServices.afterPropertiesSet();
+
+        // JwtTokenStore 不保存令牌，同一个刷新令牌可以反复使用
+        refreshToken = tokenServices.createAccessToken(Fixtures.authentication()).getRefreshToken().getValue();
+        Map<String, String> parameters = new HashMap<>();
+        parameters.put("grant_type", "refresh_token");
+        parameters.put("refresh_token", refreshToken);
+        tokenRequest = new TokenRequest(parameters, Fixtures.CLIENT_ID, Collections.singleton("all"), "refresh_token");
+    }
+
+    @TearDown
+    public void tearDown() {
+        database.shutdown();
+    }
+
+    @Benchmark
+    public OAuth2AccessToken refreshAccessToken() {
+        return tokenServices.refreshAccessToken(refreshToken, tokenRequest);
+    }
+
+    private UserDetailsService userDetailsService() {
+        if ("cached".equals(userStore)) {
+            CachingJdbcUserDetailsService users = new CachingJdbcUserDetailsService(database, 20000, 300);
+            users.setPreloadUsernames(Collections.singletonList("sang"));
+            users.afterPropertiesSet();
+            return users;
+        }
+        JdbcDaoImpl users = new JdbcDaoImpl();
+        users.setDataSource(database);
+        return users;
+    }
+}
@@ -0,0 +1,86 @@
+package com.cius.benchmark;
+
+import com.cius.auth.claims.ClaimEnricher;
+import com.cius.auth.claims.ClaimTemplate;
+import com.cius.auth.client.CachingClientDetailsService;
+import com.cius.auth.jwt.KeyRotatingJwtAccessTokenConverter;
+import com.cius.auth.jwt.SigningKeyManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.client.JdbcClientDetailsService;
+import org.springframework.security.oauth2.provider.token.DefaultTokenServices;
+import org.springframework.security.oauth2.provider.token.TokenEnhancerChain;
+import org.springframework.security.oauth2.provider.token.store.JwtAccessTokenConverter;
+import org.springframework.security.oauth2.provider.token.store.JwtTokenStore;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DefaultTokenServices.createAccessToken 的完整签发路径，
+ * 与 AuthorizationServer.tokenServices() 的组装方式一致：
+ * 客户端查询 -> TokenEnhancerChain(ClaimEnricher, JwtAccessTokenConverter) -> RS256 签名。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TokenIssueBenchmark {
+
+    private EmbeddedDatabase database;
+
+    private DefaultTokenServices tokenServices;
+
+    private OAuth2Authentication authentication;
+
+    @Setup
+    public void setup() throws Exception {
+        database = Fixtures.clientDatabase(100);
+        SigningKeyManager keyManager = new SigningKeyManager(3);
+        keyManager.rotate();
+        JwtAccessTokenConverter converter = new KeyRotatingJwtAccessTokenConverter(keyManager);
+        converter.afterPropertiesSet();
+
+        CachingClientDetailsService clientDetailsService = new CachingClientDetailsService(
+                new JdbcClientDetailsService(database), 1000, 300);
+        clientDetailsService.afterPropertiesSet();
+
+        TokenEnhancerChain tokenEnhancerChain = new TokenEnhancerChain();
+        ClaimEnricher claimEnricher = new ClaimEnricher(clientDetailsService,
+                ClaimTemplate.parse("author=江南一点雨,authorNames=zxm"), 1000);
+        tokenEnhancerChain.setTokenEnhancers(Arrays.asList(claimEnricher, converter));
+
+        tokenServices = new DefaultTokenServices();
+        tokenServices.setClientDetailsService(clientDetailsService);
+        tokenServices.setSupportRefreshToken(true);
+        tokenServices.setTokenStore(new JwtTokenStore(converter));
+        tokenServices.setTokenEnhancer(tokenEnhancerChain);
+        tokenServices.afterPropertiesSet();
+
+        authentication = Fixtures.authentication();
+    }
+
+    @TearDown
+    public void tearDown() {
+        database.shutdown();
+    }
+
+    @Benchmark
+    public OAuth2AccessToken createAccessToken() {
+        return tokenServices.createAccessToken(authentication);
+    }
+}
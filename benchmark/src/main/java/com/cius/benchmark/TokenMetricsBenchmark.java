@@ -0,0 +1,63 @@
+package com.cius.benchmark;
+
+import com.cius.auth.metrics.TokenMetrics;
+import com.cius.auth.metrics.TokenPhases;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 一次 /oauth/token 请求要记录的 6 个阶段加 total 的计时开销：recorded 减去 baseline 就是每个请求的额外开销，
+ * 应该在微秒级，相比一次 BCrypt（几十毫秒）可以忽略。
+ * auth-server 的 TokenMetricsTests 用一个宽松的阈值检查同样的开销，这里给出精确的数字。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TokenMetricsBenchmark {
+
+    private static final String[] PHASES = {TokenPhases.CLIENT_LOOKUP, TokenPhases.CLIENT_SECRET, TokenPhases.AUTHENTICATE,
+            TokenPhases.TOKEN_SERVICES, TokenPhases.TOKEN_ENHANCER, TokenPhases.JWT_SIGN};
+
+    private TokenMetrics metrics;
+
+    @Setup
+    public void setup() {
+        metrics = new TokenMetrics(new SimpleMeterRegistry(), 100);
+    }
+
+    @Benchmark
+    public void baseline(Blackhole blackhole) {
+        for (String phase : PHASES) {
+            blackhole.consume(phase.length());
+        }
+    }
+
+    @Benchmark
+    public void recorded(Blackhole blackhole) {
+        long start = System.nanoTime();
+        metrics.begin("password", Fixtures.CLIENT_ID);
+        try {
+            for (String phase : PHASES) {
+                blackhole.consume(metrics.record(phase, phase::length));
+            }
+            metrics.record(TokenPhases.TOTAL, System.nanoTime() - start);
+        } finally {
+            metrics.end();
+        }
+    }
+}
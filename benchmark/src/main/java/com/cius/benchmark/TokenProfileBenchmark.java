@@ -0,0 +1,88 @@
+package com.cius.benchmark;
+
+import com.cius.auth.jwt.CompactAccessTokenConverter;
+import com.cius.auth.jwt.KeyRotatingJwtAccessTokenConverter;
+import com.cius.auth.jwt.SigningKey;
+import com.cius.auth.jwt.SigningKeyManager;
+import com.cius.auth.jwt.TokenDictionary;
+import com.cius.auth.token.JwksJwtAccessTokenConverter;
+import com.cius.auth.token.JwksVerifierCache;
+import com.cius.auth.token.TokenDictionaryCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.oauth2.common.DefaultOAuth2AccessToken;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.token.TokenStore;
+import org.springframework.security.oauth2.provider.token.store.JwtTokenStore;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 标准格式与紧凑格式（auth.token.profile）的对比：
+ * setup 时输出 access_token 的长度，基准测试本身测资源服务器不带缓存时每个请求解析令牌的耗时
+ * （验签 + 解析 JSON + 还原成 OAuth2Authentication）。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TokenProfileBenchmark {
+
+    @Param({"standard", "compact"})
+    public String profile;
+
+    private String token;
+
+    private TokenStore tokenStore;
+
+    @Setup
+    public void setup() throws Exception {
+        TokenDictionary dictionary = new TokenDictionary(Arrays.asList("ROLE_admin", "ROLE_user"), Collections.singletonList("all"));
+        SigningKeyManager keyManager = new SigningKeyManager(3);
+        SigningKey key = keyManager.rotate();
+        KeyRotatingJwtAccessTokenConverter signer = new KeyRotatingJwtAccessTokenConverter(keyManager);
+        signer.setAccessTokenConverter(new CompactAccessTokenConverter(dictionary, "compact".equals(profile)));
+        signer.afterPropertiesSet();
+        DefaultOAuth2AccessToken accessToken = new DefaultOAuth2AccessToken("placeholder");
+        accessToken.setExpiration(new Date(System.currentTimeMillis() + TimeUnit.HOURS.toMillis(2)));
+        accessToken.setScope(Collections.singleton("all"));
+        token = signer.enhance(accessToken, Fixtures.authentication()).getValue();
+        System.out.printf("%n%s access_token: %d bytes%n", profile, token.length());
+
+        JwksVerifierCache verifierCache = new JwksVerifierCache(new RestTemplate(), "http://localhost:8080/.well-known/jwks.json",
+                300, 30, TimeUnit.SECONDS);
+        List<Map<String, Object>> keys = new ArrayList<>();
+        keys.add(key.toJwk());
+        verifierCache.update(Collections.singletonMap("keys", keys));
+        TokenDictionaryCache dictionaryCache = new TokenDictionaryCache(new RestTemplate(),
+                "http://localhost:8080/.well-known/token-dictionary.json", 300, 30, TimeUnit.SECONDS);
+        dictionaryCache.update(dictionary);
+        JwksJwtAccessTokenConverter converter = new JwksJwtAccessTokenConverter(verifierCache);
+        converter.setAccessTokenConverter(new com.cius.auth.token.CompactAccessTokenConverter(dictionaryCache));
+        converter.afterPropertiesSet();
+        tokenStore = new JwtTokenStore(converter);
+    }
+
+    @Benchmark
+    public OAuth2Authentication parse() {
+        return tokenStore.readAuthentication(token);
+    }
+}
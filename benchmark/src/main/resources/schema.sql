@@ -0,0 +1,26 @@
+create table oauth_client_details (
+    client_id               varchar(256) primary key,
+    resource_ids            varchar(256),
+    client_secret           varchar(256),
+    scope                   varchar(256),
+    authorized_grant_types  varchar(256),
+    web_server_redirect_uri varchar(256),
+    authorities             varchar(256),
+    access_token_validity   integer,
+    refresh_token_validity  integer,
+    additional_information  varchar(4096),
+    autoapprove             varchar(256)
+);
+
+create table users (
+    username varchar(50)  primary key,
+    password varchar(500) not null,
+    enabled  boolean      not null
+);
+
+create table authorities (
+    username  varchar(50) not null,
+    authority varchar(50) not null
+);
+
+create unique index ix_auth_username on authorities (username, authority);
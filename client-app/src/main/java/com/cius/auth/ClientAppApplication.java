@@ -1,8 +1,12 @@
 package com.cius.auth;
 
+import com.cius.auth.trace.Tracer;
+import com.cius.auth.trace.TracingClientHttpRequestInterceptor;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
+import org.springframework.http.client.ClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
 @SpringBootApplication
@@ -14,7 +18,9 @@ public class ClientAppApplication {
 
     @Bean
     //@LoadBalanced
-    RestTemplate restTemplate(){
-        return new RestTemplate();
+    RestTemplate restTemplate(ClientHttpRequestFactory clientHttpRequestFactory, ObjectProvider<Tracer> tracer){
+        RestTemplate restTemplate = new RestTemplate(clientHttpRequestFactory);
+        tracer.ifAvailable(t -> restTemplate.getInterceptors().add(new TracingClientHttpRequestInterceptor(t)));
+        return restTemplate;
     }
 }
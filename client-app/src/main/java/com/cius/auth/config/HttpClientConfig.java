@@ -0,0 +1,127 @@
+package com.cius.auth.config;
+
+import com.cius.auth.trace.Tracer;
+import com.cius.auth.trace.TracingExchangeFilterFunction;
+import io.netty.channel.ChannelOption;
+import org.apache.http.HttpHost;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.util.StringUtils;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * client-app 访问授权服务器和资源服务器共用的 HTTP 连接池：
+ *  1.按路由（host:port）限制连接数，client.http.route-limits 可以单独指定某个路由，格式 host:port=n,host:port=n；
+ *  2.连接保持 keep-alive，服务器没有返回 Keep-Alive 头时最多复用 keep-alive-seconds 秒；
+ *  3.后台线程定期关闭过期和空闲超过 idle-evict-seconds 秒的连接，空闲超过 validate-after-inactivity-ms 的连接借出前先检查，
+ *    避免拿到已经被服务器关闭的连接；
+ *  4.连接、读取和从连接池借连接都有超时，授权服务器卡住时不会把 client-app 的线程全部挂住。
+ *
+ * 异步接口用的 WebClient 基于 reactor-netty，使用同样的连接数和超时配置。
+ * 开启了调用链追踪时（见 TraceConfig），WebClient 的请求同样带上 traceparent。
+ */
+@Configuration
+public class HttpClientConfig {
+
+    @Value("${client.http.max-total:200}")
+    int maxTotal;
+
+    @Value("${client.http.max-per-route:50}")
+    int maxPerRoute;
+
+    @Value("${client.http.route-limits:}")
+    String routeLimits;
+
+    @Value("${client.http.connect-timeout-ms:1000}")
+    int connectTimeoutMs;
+
+    @Value("${client.http.read-timeout-ms:5000}")
+    int readTimeoutMs;
+
+    @Value("${client.http.lease-timeout-ms:500}")
+    int leaseTimeoutMs;
+
+    @Value("${client.http.keep-alive-seconds:30}")
+    long keepAliveSeconds;
+
+    @Value("${client.http.idle-evict-seconds:30}")
+    long idleEvictSeconds;
+
+    @Value("${client.http.validate-after-inactivity-ms:2000}")
+    int validateAfterInactivityMs;
+
+    @Bean
+    PoolingHttpClientConnectionManager httpConnectionManager() {
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(maxTotal);
+        connectionManager.setDefaultMaxPerRoute(maxPerRoute);
+        connectionManager.setValidateAfterInactivity(validateAfterInactivityMs);
+        for (String limit : StringUtils.commaDelimitedListToStringArray(routeLimits)) {
+            String[] pair = limit.trim().split("=");
+            connectionManager.setMaxPerRoute(new HttpRoute(HttpHost.create(pair[0].trim())), Integer.parseInt(pair[1].trim()));
+        }
+        return connectionManager;
+    }
+
+    @Bean(destroyMethod = "close")
+    CloseableHttpClient httpClient(PoolingHttpClientConnectionManager httpConnectionManager) {
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(connectTimeoutMs)
+                .setSocketTimeout(readTimeoutMs)
+                .setConnectionRequestTimeout(leaseTimeoutMs)
+                .build();
+        long defaultKeepAlive = TimeUnit.SECONDS.toMillis(keepAliveSeconds);
+        ConnectionKeepAliveStrategy keepAliveStrategy = (response, context) -> {
+            long keepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+            return keepAlive > 0 ? Math.min(keepAlive, defaultKeepAlive) : defaultKeepAlive;
+        };
+        return HttpClients.custom()
+                .setConnectionManager(httpConnectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .setKeepAliveStrategy(keepAliveStrategy)
+                .evictExpiredConnections()
+                .evictIdleConnections(idleEvictSeconds, TimeUnit.SECONDS)
+                .build();
+    }
+
+    @Bean
+    ClientHttpRequestFactory clientHttpRequestFactory(CloseableHttpClient httpClient) {
+        return new HttpComponentsClientHttpRequestFactory(httpClient);
+    }
+
+    @Bean(destroyMethod = "dispose")
+    ConnectionProvider reactorConnectionProvider() {
+        return ConnectionProvider.builder("client-app")
+                .maxConnections(maxTotal)
+                .pendingAcquireTimeout(Duration.ofMillis(leaseTimeoutMs))
+                .maxIdleTime(Duration.ofSeconds(idleEvictSeconds))
+                .evictInBackground(Duration.ofSeconds(idleEvictSeconds))
+                .build();
+    }
+
+    @Bean
+    WebClient webClient(WebClient.Builder builder, ConnectionProvider reactorConnectionProvider, ObjectProvider<Tracer> tracer) {
+        HttpClient httpClient = HttpClient.create(reactorConnectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutMs)
+                .responseTimeout(Duration.ofMillis(readTimeoutMs));
+        tracer.ifAvailable(t -> builder.filter(new TracingExchangeFilterFunction(t)));
+        return builder.clientConnector(new ReactorClientHttpConnector(httpClient)).build();
+    }
+}
@@ -0,0 +1,60 @@
+package com.cius.auth.config;
+
+import com.cius.auth.trace.SpanExporter;
+import com.cius.auth.trace.TraceFilter;
+import com.cius.auth.trace.Tracer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import java.nio.file.Paths;
+
+/**
+ * 调用链追踪，trace.enabled=true 时开启。client-app 是调用链的起点：
+ * 页面请求按 trace.sample-rate 采样，被采样的请求记录整个请求和发往授权服务器、资源服务器的每个请求
+ * （RestTemplate 和 WebClient，见 ClientAppApplication 和 HttpClientConfig），
+ * 并通过 traceparent 把采样决定传下去，auth-server 和 user-server 沿用这个决定。
+ * Span 批量写到 trace.dir 下的 client-app.jsonl。
+ */
+@Configuration
+@ConditionalOnProperty(name = "trace.enabled", havingValue = "true")
+public class TraceConfig {
+
+    @Value("${trace.service:client-app}")
+    String service;
+
+    @Value("${trace.sample-rate:0.01}")
+    double sampleRate;
+
+    @Value("${trace.dir:target/trace}")
+    String directory;
+
+    @Value("${trace.capacity:8192}")
+    int capacity;
+
+    @Value("${trace.batch-size:256}")
+    int batchSize;
+
+    @Value("${trace.max-file-mb:64}")
+    long maxFileMegabytes;
+
+    @Bean
+    SpanExporter spanExporter() {
+        return new SpanExporter(Paths.get(directory), service, capacity, batchSize, maxFileMegabytes * 1024 * 1024);
+    }
+
+    @Bean
+    Tracer tracer() {
+        return new Tracer(spanExporter(), sampleRate);
+    }
+
+    @Bean
+    FilterRegistrationBean<TraceFilter> traceFilter() {
+        FilterRegistrationBean<TraceFilter> registration = new FilterRegistrationBean<>(new TraceFilter(tracer()));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+}
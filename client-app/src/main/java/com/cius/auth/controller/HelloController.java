@@ -2,6 +2,7 @@ package com.cius.auth.controller;
 
 import com.cius.auth.task.TokenTask;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
@@ -13,8 +14,10 @@ import org.springframework.util.MultiValueMap;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
 
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @Controller
 public class HelloController {
@@ -25,6 +28,21 @@ public class HelloController {
     @Autowired
     TokenTask tokenTask;
 
+    @Value("${client.authorize-uri:http://localhost:8080/oauth/authorize}")
+    String authorizeUri;
+
+    @Value("${client.client-id:javaboy}")
+    String clientId;
+
+    @Value("${client.redirect-uri:http://localhost:8082/index.html}")
+    String redirectUri;
+
+    /**
+     * 异步页面的回调地址，授权服务器上客户端的 web_server_redirect_uri 要同时登记 redirect-uri 和这个地址（逗号分隔）
+     */
+    @Value("${client.async-redirect-uri:http://localhost:8082/async/index.html}")
+    String asyncRedirectUri;
+
     /**
      * 如果 code 不为 null，也就是如果是通过授权服务器重定向到这个地址来的，那么我们做如下两个操作：
      * 根据拿到的 code，去请求 http://localhost:8080/oauth/token 地址去获取
@@ -50,24 +68,48 @@ public class HelloController {
 //            ResponseEntity<String> entity = restTemplate.exchange("http://localhost:8081/admin/hello", HttpMethod.GET, httpEntity, String.class);
             model.addAttribute("msg", tokenTask.getData(code));
 //        }
+        model.addAttribute("authorizeUri", authorizeUri(redirectUri));
         return "index";
     }
 
     @PostMapping("/login")
     public String login(String username, String password,Model model) {
-        MultiValueMap<String, String> map = new LinkedMultiValueMap<>();
-        map.add("username", username);
-        map.add("password", password);
-        map.add("client_secret", "123");
-        map.add("client_id", "javaboy");
-        map.add("grant_type", "password");
-        Map<String,String> resp = restTemplate.postForObject("http://localhost:8080/oauth/token", map, Map.class);
-        String access_token = resp.get("access_token");
-        HttpHeaders headers = new HttpHeaders();
-        headers.add("Authorization", "Bearer " + access_token);
-        HttpEntity<Object> httpEntity = new HttpEntity<>(headers);
-        ResponseEntity<String> entity = restTemplate.exchange("http://localhost:8081/admin/hello", HttpMethod.GET, httpEntity, String.class);
-        model.addAttribute("msg", entity.getBody());
+        model.addAttribute("msg", tokenTask.login(username, password));
+        model.addAttribute("authorizeUri", authorizeUri(redirectUri));
         return "index";
     }
+
+    /**
+     * /index.html 的异步版本：等待授权服务器和资源服务器响应时不占用 servlet 线程，
+     * 页面需要的多个资源服务器接口并行请求
+     */
+    @GetMapping("/async/index.html")
+    public CompletableFuture<String> helloAsync(String code, Model model) {
+        model.addAttribute("authorizeUri", authorizeUri(asyncRedirectUri));
+        return tokenTask.getPageAsync(code).thenApply(page -> {
+            model.addAllAttributes(page);
+            return "index";
+        });
+    }
+
+    @PostMapping("/async/login")
+    public CompletableFuture<String> loginAsync(String username, String password, Model model) {
+        model.addAttribute("authorizeUri", authorizeUri(asyncRedirectUri));
+        return tokenTask.loginAsync(username, password).thenApply(page -> {
+            model.addAllAttributes(page);
+            return "index";
+        });
+    }
+
+    /**
+     * “第三方登录”的链接，授权完成后回到 redirectUri 对应的页面（同步或异步版本）
+     */
+    private String authorizeUri(String redirectUri) {
+        return UriComponentsBuilder.fromHttpUrl(authorizeUri)
+                .queryParam("client_id", clientId)
+                .queryParam("response_type", "code")
+                .queryParam("scope", "all")
+                .queryParam("redirect_uri", redirectUri)
+                .toUriString();
+    }
 }
@@ -0,0 +1,42 @@
+package com.cius.auth.controller;
+
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * HTTP 连接池的使用情况：leased 正在使用的连接数，pending 等待借连接的请求数，available 空闲连接数
+ */
+@RestController
+public class HttpPoolController {
+
+    @Autowired
+    PoolingHttpClientConnectionManager httpConnectionManager;
+
+    @GetMapping("/http-pool")
+    public Map<String, Object> stats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("total", toMap(httpConnectionManager.getTotalStats()));
+        Map<String, Object> routes = new LinkedHashMap<>();
+        for (HttpRoute route : httpConnectionManager.getRoutes()) {
+            routes.put(route.getTargetHost().toHostString(), toMap(httpConnectionManager.getStats(route)));
+        }
+        result.put("routes", routes);
+        return result;
+    }
+
+    private static Map<String, Integer> toMap(PoolStats stats) {
+        Map<String, Integer> map = new LinkedHashMap<>();
+        map.put("leased", stats.getLeased());
+        map.put("pending", stats.getPending());
+        map.put("available", stats.getAvailable());
+        map.put("max", stats.getMax());
+        return map;
+    }
+}
@@ -1,67 +1,141 @@
 package com.cius.auth.task;
 
+import com.cius.auth.token.ManagedToken;
+import com.cius.auth.token.TokenManager;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.ResponseEntity;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
-import org.springframework.util.LinkedMultiValueMap;
-import org.springframework.util.MultiValueMap;
 import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.context.annotation.SessionScope;
+import org.springframework.web.reactive.function.client.WebClient;
 
+import javax.annotation.PreDestroy;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
+/**
+ * 每个会话持有一个 ManagedToken，令牌的刷新统一交给 TokenManager。
+ * xxxAsync 方法要在请求线程上通过会话作用域的代理调用，回调里只访问当前对象的字段，不再经过代理，
+ * 所以可以在 WebClient 的 IO 线程上执行。
+ */
 @Component
 @SessionScope
 public class TokenTask {
 
     @Autowired
     RestTemplate restTemplate;
-    public String access_token = "";
-    public String refresh_token = "";
+
+    @Autowired
+    WebClient webClient;
+
+    @Autowired
+    TokenManager tokenManager;
+
+    @Value("${client.resource-uri:http://localhost:8081}")
+    String resourceUri;
+
+    @Value("${client.async-redirect-uri:http://localhost:8082/async/index.html}")
+    String asyncRedirectUri;
+
+    private volatile ManagedToken token;
 
     public String getData(String code) {
-        if ("".equals(access_token) && code != null) {
-            MultiValueMap<String, String> map = new LinkedMultiValueMap<>();
-            map.add("code", code);
-            map.add("client_id", "javaboy");
-            map.add("client_secret", "123");
-            map.add("redirect_uri", "http://localhost:8082/index.html");
-            map.add("grant_type", "authorization_code");
-            Map<String, String> resp = restTemplate.postForObject("http://localhost:8080/oauth/token", map, Map.class);
-            access_token = resp.get("access_token");
-            refresh_token = resp.get("refresh_token");
-            return loadDataFromResServer();
-        } else {
-            return loadDataFromResServer();
+        if (token == null && code != null) {
+            try {
+                token = tokenManager.obtainByAuthorizationCode(code);
+            } catch (RestClientException e) {
+                return "未加载";
+            }
+        }
+        return loadDataFromResServer();
+    }
+
+    public String login(String username, String password) {
+        tokenManager.release(token);
+        token = null;
+        try {
+            token = tokenManager.obtainByPassword(username, password);
+        } catch (RestClientException e) {
+            return "登录失败";
+        }
+        return loadDataFromResServer();
+    }
+
+    /**
+     * 异步获取页面数据，/admin/hello 和 /hello 两个接口并行请求
+     */
+    public CompletableFuture<Map<String, String>> getPageAsync(String code) {
+        if (token == null && code != null) {
+            return tokenManager.obtainByAuthorizationCodeAsync(code, asyncRedirectUri)
+                    .thenCompose(this::loadPageAsync)
+                    .exceptionally(e -> page("未加载", "未加载"));
+        }
+        return loadPageAsync(token);
+    }
+
+    /**
+     * 用户名密码错误或授权服务器不可用时返回“登录失败”页面，而不是让请求以 500 结束
+     */
+    public CompletableFuture<Map<String, String>> loginAsync(String username, String password) {
+        tokenManager.release(token);
+        token = null;
+        return tokenManager.obtainByPasswordAsync(username, password)
+                .thenCompose(this::loadPageAsync)
+                .exceptionally(e -> page("登录失败", null));
+    }
+
+    private CompletableFuture<Map<String, String>> loadPageAsync(ManagedToken managedToken) {
+        if (managedToken == null) {
+            return CompletableFuture.completedFuture(page("未加载", "未加载"));
         }
+        token = managedToken;
+        CompletableFuture<String> admin = loadAsync(managedToken, "/admin/hello");
+        CompletableFuture<String> hello = loadAsync(managedToken, "/hello");
+        return admin.thenCombine(hello, TokenTask::page);
+    }
+
+    private CompletableFuture<String> loadAsync(ManagedToken managedToken, String path) {
+        return tokenManager.executeAsync(managedToken, accessToken -> webClient.get()
+                .uri(resourceUri + path)
+                .headers(headers -> headers.setBearerAuth(accessToken))
+                .retrieve()
+                .bodyToMono(String.class)
+                .toFuture())
+                .exceptionally(e -> "未加载");
+    }
+
+    private static Map<String, String> page(String msg, String hello) {
+        Map<String, String> page = new LinkedHashMap<>();
+        page.put("msg", msg);
+        page.put("hello", hello);
+        return page;
     }
 
     private String loadDataFromResServer() {
+        if (token == null) {
+            return "未加载";
+        }
         try {
-            HttpHeaders headers = new HttpHeaders();
-            headers.add("Authorization", "Bearer " + access_token);
-            HttpEntity<Object> httpEntity = new HttpEntity<>(headers);
-            ResponseEntity<String> entity = restTemplate.exchange("http://localhost:8081/admin/hello", HttpMethod.GET, httpEntity, String.class);
-            return entity.getBody();
+            return tokenManager.execute(token, accessToken -> {
+                HttpHeaders headers = new HttpHeaders();
+                headers.add("Authorization", "Bearer " + accessToken);
+                HttpEntity<Object> httpEntity = new HttpEntity<>(headers);
+                ResponseEntity<String> entity = restTemplate.exchange(resourceUri + "/admin/hello", HttpMethod.GET, httpEntity, String.class);
+                return entity.getBody();
+            });
         } catch (RestClientException e) {
             return "未加载";
         }
     }
 
-    @Scheduled(cron = "0 55 0/1 * * ？")
-    public void tokenTask() {
-        MultiValueMap<String, String> map = new LinkedMultiValueMap<>();
-        map.add("client_id", "javaboy");
-        map.add("client_secret", "123");
-        map.add("refresh_token", refresh_token);
-        map.add("grant_type", "refresh_token");
-        Map<String, String> resp = restTemplate.postForObject("http://localhost:8080/oauth/token", map, Map.class);
-        access_token = resp.get("access_token");
-        refresh_token = resp.get("refresh_token");
+    @PreDestroy
+    public void destroy() {
+        tokenManager.release(token);
     }
 }
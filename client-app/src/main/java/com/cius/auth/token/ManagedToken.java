@@ -0,0 +1,63 @@
+package com.cius.auth.token;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 由 TokenManager 管理的一组令牌（access_token + refresh_token），通常对应一个会话。
+ * 令牌刷新后原地更新，持有者拿到的始终是同一个对象。
+ */
+public class ManagedToken {
+
+    private volatile String accessToken;
+
+    private volatile String refreshToken;
+
+    /**
+     * access_token 的过期时间（毫秒时间戳），按 expires_in 计算
+     */
+    private volatile long expiresAt;
+
+    private volatile boolean released;
+
+    final AtomicReference<CompletableFuture<ManagedToken>> refreshing = new AtomicReference<>();
+
+    volatile ScheduledFuture<?> scheduledRefresh;
+
+    ManagedToken(String accessToken, String refreshToken, long expiresAt) {
+        update(accessToken, refreshToken, expiresAt);
+    }
+
+    void update(String accessToken, String refreshToken, long expiresAt) {
+        this.accessToken = accessToken;
+        if (refreshToken != null) {
+            this.refreshToken = refreshToken;
+        }
+        this.expiresAt = expiresAt;
+    }
+
+    void release() {
+        this.released = true;
+    }
+
+    public String getAccessToken() {
+        return accessToken;
+    }
+
+    public String getRefreshToken() {
+        return refreshToken;
+    }
+
+    public long getExpiresAt() {
+        return expiresAt;
+    }
+
+    public boolean isReleased() {
+        return released;
+    }
+
+    public boolean isExpired() {
+        return System.currentTimeMillis() >= expiresAt;
+    }
+}
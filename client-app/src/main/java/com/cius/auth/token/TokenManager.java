@@ -0,0 +1,324 @@
+package com.cius.auth.token;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * 统一管理 client-app 从授权服务器拿到的令牌：
+ *  1.按 /oauth/token 返回的 expires_in 记录每个令牌真实的过期时间；
+ *  2.在过期前 refreshSkew 秒（再减去一个随机抖动，避免大量会话同时刷新）在后台线程中用 refresh_token 刷新，
+ *    令牌有效期比 refreshSkew 还短时至少等剩余有效期的一半（且不少于 refreshMinDelay 秒），不会刷新完马上又刷新；
+ *  3.同一个令牌同一时刻只有一次刷新请求，并发的调用方（不论同步还是异步）等待同一个结果；
+ *  4.访问资源服务器返回 401 时先刷新令牌，再重试一次。如果收到 401 时令牌已经被别的调用方刷新过，
+ *    直接用新令牌重试，不会再刷新一次。
+ *
+ * 原来的 TokenTask 是 @SessionScope，又在上面挂了一个 @Scheduled 定时任务，定时任务并不属于任何会话，
+ * 所以令牌要么从来不会被刷新，要么和请求线程互相覆盖。
+ *
+ * 同步方法走 RestTemplate，xxxAsync 方法走 WebClient，不占用调用线程。
+ */
+@Component
+public class TokenManager implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenManager.class);
+
+    private static final ParameterizedTypeReference<Map<String, Object>> TOKEN_RESPONSE = new ParameterizedTypeReference<Map<String, Object>>() {
+    };
+
+    @Autowired
+    RestTemplate restTemplate;
+
+    @Autowired
+    WebClient webClient;
+
+    @Value("${client.token-uri:http://localhost:8080/oauth/token}")
+    String tokenUri;
+
+    @Value("${client.client-id:javaboy}")
+    String clientId;
+
+    @Value("${client.client-secret:123}")
+    String clientSecret;
+
+    @Value("${client.redirect-uri:http://localhost:8082/index.html}")
+    String redirectUri;
+
+    @Value("${client.refresh-skew-seconds:60}")
+    long refreshSkewSeconds;
+
+    @Value("${client.refresh-jitter-seconds:30}")
+    long refreshJitterSeconds;
+
+    @Value("${client.refresh-min-delay-seconds:5}")
+    long refreshMinDelaySeconds;
+
+    private final ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(2, r -> {
+        Thread thread = new Thread(r, "token-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public TokenManager() {
+        scheduler.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * 授权码模式：用 code 换取令牌
+     */
+    public ManagedToken obtainByAuthorizationCode(String code) {
+        return register(requestToken(authorizationCodeGrant(code, redirectUri)));
+    }
+
+    /**
+     * redirectUri 必须和申请授权码时的 redirect_uri 一致
+     */
+    public CompletableFuture<ManagedToken> obtainByAuthorizationCodeAsync(String code, String redirectUri) {
+        return requestTokenAsync(authorizationCodeGrant(code, redirectUri)).thenApply(this::register);
+    }
+
+    /**
+     * 密码模式：用用户名、密码换取令牌
+     */
+    public ManagedToken obtainByPassword(String username, String password) {
+        return register(requestToken(passwordGrant(username, password)));
+    }
+
+    public CompletableFuture<ManagedToken> obtainByPasswordAsync(String username, String password) {
+        return requestTokenAsync(passwordGrant(username, password)).thenApply(this::register);
+    }
+
+    /**
+     * 带着 access_token 执行一次调用，资源服务器返回 401 时刷新令牌后重试一次
+     */
+    public <T> T execute(ManagedToken token, Function<String, T> call) {
+        String accessToken = token.getAccessToken();
+        if (token.isExpired()) {
+            accessToken = await(refresh(token, accessToken, this::requestTokenBlocking)).getAccessToken();
+        }
+        try {
+            return call.apply(accessToken);
+        } catch (HttpStatusCodeException e) {
+            if (e.getStatusCode() != HttpStatus.UNAUTHORIZED) {
+                throw e;
+            }
+            return call.apply(await(refresh(token, accessToken, this::requestTokenBlocking)).getAccessToken());
+        }
+    }
+
+    /**
+     * execute 的异步版本，call 返回 WebClient 调用的结果
+     */
+    public <T> CompletableFuture<T> executeAsync(ManagedToken token, Function<String, CompletableFuture<T>> call) {
+        String current = token.getAccessToken();
+        CompletableFuture<String> ready = token.isExpired()
+                ? refresh(token, current, this::requestTokenAsync).thenApply(ManagedToken::getAccessToken)
+                : CompletableFuture.completedFuture(current);
+        return ready.thenCompose(accessToken -> call.apply(accessToken)
+                .handle((result, ex) -> {
+                    if (ex == null) {
+                        return CompletableFuture.completedFuture(result);
+                    }
+                    Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                    if (cause instanceof WebClientResponseException
+                            && ((WebClientResponseException) cause).getStatusCode() == HttpStatus.UNAUTHORIZED) {
+                        return refresh(token, accessToken, this::requestTokenAsync).thenCompose(t -> call.apply(t.getAccessToken()));
+                    }
+                    return TokenManager.<T>failed(cause);
+                })
+                .thenCompose(Function.identity()));
+    }
+
+    /**
+     * 刷新令牌，并发调用只会向授权服务器发出一次请求
+     */
+    public ManagedToken refresh(ManagedToken token) {
+        return await(refresh(token, null, this::requestTokenBlocking));
+    }
+
+    public CompletableFuture<ManagedToken> refreshAsync(ManagedToken token) {
+        return refresh(token, null, this::requestTokenAsync);
+    }
+
+    /**
+     * 会话结束时释放令牌，不再后台刷新
+     */
+    public void release(ManagedToken token) {
+        if (token == null) {
+            return;
+        }
+        token.release();
+        if (token.scheduledRefresh != null) {
+            token.scheduledRefresh.cancel(false);
+        }
+    }
+
+    public int getScheduledCount() {
+        return scheduler.getQueue().size();
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * stale 是调用方手上（已经过期或者收到 401）的 access_token，不为空时只有令牌还是它才真正刷新，
+     * 否则说明别的调用方已经刷新过了，直接返回当前令牌
+     */
+    private CompletableFuture<ManagedToken> refresh(ManagedToken token, String stale,
+                                                    Function<MultiValueMap<String, String>, CompletableFuture<Map<String, Object>>> transport) {
+        CompletableFuture<ManagedToken> future = new CompletableFuture<>();
+        if (!token.refreshing.compareAndSet(null, future)) {
+            CompletableFuture<ManagedToken> inFlight = token.refreshing.get();
+            // inFlight 为 null 说明上一次刷新刚刚结束，直接用刷新后的令牌
+            return inFlight != null ? inFlight : CompletableFuture.completedFuture(token);
+        }
+        if (stale != null && !stale.equals(token.getAccessToken())) {
+            token.refreshing.set(null);
+            future.complete(token);
+            return future;
+        }
+        MultiValueMap<String, String> map = new LinkedMultiValueMap<>();
+        map.add("refresh_token", token.getRefreshToken());
+        map.add("grant_type", "refresh_token");
+        transport.apply(map).whenComplete((resp, ex) -> {
+            if (ex == null) {
+                token.update((String) resp.get("access_token"), (String) resp.get("refresh_token"), expiresAt(resp));
+                schedule(token);
+            }
+            token.refreshing.set(null);
+            if (ex == null) {
+                future.complete(token);
+            } else {
+                future.completeExceptionally(ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex);
+            }
+        });
+        return future;
+    }
+
+    private ManagedToken register(Map<String, Object> resp) {
+        ManagedToken token = new ManagedToken((String) resp.get("access_token"), (String) resp.get("refresh_token"), expiresAt(resp));
+        schedule(token);
+        return token;
+    }
+
+    private void schedule(ManagedToken token) {
+        if (token.isReleased() || token.getRefreshToken() == null) {
+            return;
+        }
+        // 因为过期或 401 提前刷新过的令牌，原来排好的后台刷新已经没有意义
+        ScheduledFuture<?> previous = token.scheduledRefresh;
+        if (previous != null) {
+            previous.cancel(false);
+        }
+        long jitter = refreshJitterSeconds > 0 ? ThreadLocalRandom.current().nextLong(TimeUnit.SECONDS.toMillis(refreshJitterSeconds)) : 0;
+        long delay = refreshDelay(token.getExpiresAt() - System.currentTimeMillis(), TimeUnit.SECONDS.toMillis(refreshSkewSeconds),
+                jitter, TimeUnit.SECONDS.toMillis(refreshMinDelaySeconds));
+        token.scheduledRefresh = scheduler.schedule(() -> {
+            if (token.isReleased()) {
+                return;
+            }
+            refreshAsync(token).whenComplete((t, e) -> {
+                if (e != null) {
+                    // 后台刷新失败时不重试，下一次请求发现令牌过期或收到 401 时再刷新
+                    logger.warn("Background token refresh failed", e);
+                }
+            });
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 距离过期还有 remaining 毫秒时，多久之后刷新：正常是提前 skew + jitter，
+     * 但至少等剩余有效期的一半、且不少于 minDelay，否则有效期比 skew 短的令牌会一刷新完就再次刷新
+     */
+    static long refreshDelay(long remaining, long skew, long jitter, long minDelay) {
+        return Math.max(remaining - skew - jitter, Math.max(remaining / 2, minDelay));
+    }
+
+    private MultiValueMap<String, String> authorizationCodeGrant(String code, String redirectUri) {
+        MultiValueMap<String, String> map = new LinkedMultiValueMap<>();
+        map.add("code", code);
+        map.add("redirect_uri", redirectUri);
+        map.add("grant_type", "authorization_code");
+        return map;
+    }
+
+    private MultiValueMap<String, String> passwordGrant(String username, String password) {
+        MultiValueMap<String, String> map = new LinkedMultiValueMap<>();
+        map.add("username", username);
+        map.add("password", password);
+        map.add("grant_type", "password");
+        return map;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> requestToken(MultiValueMap<String, String> map) {
+        map.add("client_id", clientId);
+        map.add("client_secret", clientSecret);
+        return restTemplate.postForObject(tokenUri, map, Map.class);
+    }
+
+    private CompletableFuture<Map<String, Object>> requestTokenBlocking(MultiValueMap<String, String> map) {
+        try {
+            return CompletableFuture.completedFuture(requestToken(map));
+        } catch (RuntimeException e) {
+            return failed(e);
+        }
+    }
+
+    private CompletableFuture<Map<String, Object>> requestTokenAsync(MultiValueMap<String, String> map) {
+        map.add("client_id", clientId);
+        map.add("client_secret", clientSecret);
+        return webClient.post()
+                .uri(tokenUri)
+                .body(BodyInserters.fromFormData(map))
+                .retrieve()
+                .bodyToMono(TOKEN_RESPONSE)
+                .toFuture();
+    }
+
+    private static long expiresAt(Map<String, Object> resp) {
+        Object expiresIn = resp.get("expires_in");
+        long seconds = expiresIn instanceof Number ? ((Number) expiresIn).longValue() : 0;
+        return System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(seconds);
+    }
+
+    private static <T> CompletableFuture<T> failed(Throwable e) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(e);
+        return future;
+    }
+
+    private static ManagedToken await(CompletableFuture<ManagedToken> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.cius.auth.trace;
+
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+
+/**
+ * WebClient 版的 TracingClientHttpRequestInterceptor：在订阅请求的线程上开始客户端 Span 并写入 traceparent，
+ * 随即从当前线程上摘下，响应结束（成功、出错或取消）时在 IO 线程上结束。
+ * 只有在 Servlet 线程上发起的请求能关联到当前调用链；在上一个响应的回调里（IO 线程上）发起的请求
+ * 没有调用链上下文，不带 traceparent。
+ */
+public class TracingExchangeFilterFunction implements ExchangeFilterFunction {
+
+    private final Tracer tracer;
+
+    public TracingExchangeFilterFunction(Tracer tracer) {
+        this.tracer = tracer;
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        Span span = null;
+        if (tracer.isSampled()) {
+            URI uri = request.url();
+            span = tracer.start(request.method().name() + " " + uri.getHost() + ":" + uri.getPort() + uri.getPath());
+            tracer.detach(span);
+        }
+        String traceparent = tracer.traceparent(span);
+        if (traceparent == null) {
+            return next.exchange(request);
+        }
+        Mono<ClientResponse> response = next.exchange(ClientRequest.from(request).header(Tracer.TRACEPARENT, traceparent).build());
+        if (span == null) {
+            return response;
+        }
+        Span clientSpan = span;
+        return response.doOnNext(clientResponse -> clientSpan.setStatus(clientResponse.rawStatusCode()))
+                .doOnError(e -> clientSpan.setStatus(-1))
+                .doFinally(signal -> tracer.finish(clientSpan));
+    }
+}
@@ -0,0 +1,117 @@
+package com.cius.auth.config;
+
+import com.sun.net.httpserver.HttpServer;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 本地对比 RestTemplate 默认的 SimpleClientHttpRequestFactory 和 HttpClientConfig 中的连接池：
+ * 启动一个模拟资源服务器（com.sun.net.httpserver），多个线程并发请求，输出吞吐量和延迟分位数。
+ * 直接运行 main 方法即可，参数依次为线程数、每个线程的请求数。
+ */
+public class HttpTransportLoadTest {
+
+    private static final byte[] BODY = "hello admin!".getBytes(StandardCharsets.UTF_8);
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 32;
+        int requests = args.length > 1 ? Integer.parseInt(args[1]) : 2_000;
+
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+        server.createContext("/admin/hello", exchange -> {
+            exchange.sendResponseHeaders(200, BODY.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(BODY);
+            }
+        });
+        server.setExecutor(Executors.newFixedThreadPool(threads));
+        server.start();
+        String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/admin/hello";
+
+        SimpleClientHttpRequestFactory simple = new SimpleClientHttpRequestFactory();
+        simple.setConnectTimeout(1000);
+        simple.setReadTimeout(5000);
+
+        HttpClientConfig config = new HttpClientConfig();
+        config.maxTotal = threads * 2;
+        config.maxPerRoute = threads;
+        config.routeLimits = "";
+        config.connectTimeoutMs = 1000;
+        config.readTimeoutMs = 5000;
+        config.leaseTimeoutMs = 500;
+        config.keepAliveSeconds = 30;
+        config.idleEvictSeconds = 30;
+        config.validateAfterInactivityMs = 2000;
+        PoolingHttpClientConnectionManager connectionManager = config.httpConnectionManager();
+        CloseableHttpClient httpClient = config.httpClient(connectionManager);
+
+        try {
+            run("SimpleClientHttpRequestFactory", new RestTemplate(simple), url, threads, requests);
+            run("HttpComponents (pooled)       ", new RestTemplate(config.clientHttpRequestFactory(httpClient)), url, threads, requests);
+            System.out.println("pool: " + connectionManager.getTotalStats());
+        } finally {
+            httpClient.close();
+            server.stop(0);
+            ((ExecutorService) server.getExecutor()).shutdownNow();
+        }
+    }
+
+    private static void run(String name, RestTemplate restTemplate, String url, int threads, int requests) throws Exception {
+        // 预热
+        measure(restTemplate, url, threads, requests / 4);
+        long[] latencies = new long[threads * requests];
+        long start = System.nanoTime();
+        int errors = measureInto(restTemplate, url, threads, requests, latencies);
+        long elapsed = System.nanoTime() - start;
+        Arrays.sort(latencies);
+        System.out.printf("%s : %8.0f req/s  p50 %6d us  p99 %6d us  max %6d us  errors %d%n", name,
+                latencies.length / (elapsed / 1e9),
+                latencies[latencies.length / 2] / 1000,
+                latencies[(int) (latencies.length * 0.99)] / 1000,
+                latencies[latencies.length - 1] / 1000,
+                errors);
+    }
+
+    private static void measure(RestTemplate restTemplate, String url, int threads, int requests) throws Exception {
+        measureInto(restTemplate, url, threads, requests, new long[threads * requests]);
+    }
+
+    private static int measureInto(RestTemplate restTemplate, String url, int threads, int requests, long[] latencies) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch done = new CountDownLatch(threads);
+        AtomicInteger errors = new AtomicInteger();
+        for (int t = 0; t < threads; t++) {
+            int offset = t * requests;
+            executor.execute(() -> {
+                try {
+                    for (int i = 0; i < requests; i++) {
+                        long begin = System.nanoTime();
+                        try {
+                            restTemplate.getForObject(url, String.class);
+                        } catch (RuntimeException e) {
+                            errors.incrementAndGet();
+                        }
+                        latencies[offset + i] = System.nanoTime() - begin;
+                    }
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await(10, TimeUnit.MINUTES);
+        executor.shutdown();
+        return errors.get();
+    }
+}
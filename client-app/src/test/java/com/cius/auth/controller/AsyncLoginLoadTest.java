@@ -0,0 +1,142 @@
+package com.cius.auth.controller;
+
+import com.cius.auth.ClientAppApplication;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 对比 /login 和 /async/login 的线程占用和吞吐量：
+ * 用 com.sun.net.httpserver 模拟授权服务器和资源服务器（每个请求延迟 latencyMs 毫秒），
+ * 启动 client-app 并把 Tomcat 线程数限制为 tomcatThreads，然后用 clients 个并发客户端请求两个接口。
+ * 同步接口的吞吐量上限是 tomcatThreads / 往返时间，异步接口只受连接池限制。
+ * peak threads 是整个 JVM 的峰值线程数，两轮的压测线程数相同，差值来自 client-app 本身。
+ * 直接运行 main 方法即可，参数依次为并发客户端数、每个客户端的请求数、Tomcat 线程数、后端延迟（毫秒）。
+ */
+public class AsyncLoginLoadTest {
+
+    private static final byte[] TOKEN = "{\"access_token\":\"a\",\"refresh_token\":\"r\",\"expires_in\":3600}".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] HELLO = "hello admin!".getBytes(StandardCharsets.UTF_8);
+
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int requests = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        int tomcatThreads = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+        int latencyMs = args.length > 3 ? Integer.parseInt(args[3]) : 100;
+
+        ScheduledExecutorService delays = Executors.newScheduledThreadPool(4);
+        HttpServer backend = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 4096);
+        backend.createContext("/oauth/token", exchange -> delayed(delays, latencyMs, exchange, "application/json", TOKEN));
+        backend.createContext("/", exchange -> delayed(delays, latencyMs, exchange, "text/plain", HELLO));
+        backend.setExecutor(Executors.newCachedThreadPool());
+        backend.start();
+        String backendUri = "http://127.0.0.1:" + backend.getAddress().getPort();
+
+        ConfigurableApplicationContext context = SpringApplication.run(ClientAppApplication.class,
+                "--server.port=0",
+                "--server.tomcat.threads.max=" + tomcatThreads,
+                "--server.tomcat.threads.min-spare=" + tomcatThreads,
+                "--client.token-uri=" + backendUri + "/oauth/token",
+                "--client.resource-uri=" + backendUri,
+                "--client.http.max-total=" + clients * 2,
+                "--client.http.max-per-route=" + clients * 2,
+                "--client.http.route-limits=",
+                "--client.http.lease-timeout-ms=10000");
+        try {
+            String base = "http://127.0.0.1:" + context.getEnvironment().getProperty("local.server.port");
+            run("sync  /login      ", base + "/login", clients, requests);
+            run("async /async/login", base + "/async/login", clients, requests);
+        } finally {
+            context.close();
+            backend.stop(0);
+            ((ExecutorService) backend.getExecutor()).shutdownNow();
+            delays.shutdownNow();
+        }
+    }
+
+    private static void run(String name, String url, int clients, int requests) throws Exception {
+        // 预热
+        load(url, clients, 2);
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        threads.resetPeakThreadCount();
+        long start = System.nanoTime();
+        int errors = load(url, clients, requests);
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("%s : %7.0f req/s  peak threads %4d  errors %d%n", name,
+                clients * requests / (elapsed / 1e9), threads.getPeakThreadCount(), errors);
+    }
+
+    private static int load(String url, int clients, int requests) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(clients);
+        CountDownLatch done = new CountDownLatch(clients);
+        AtomicInteger errors = new AtomicInteger();
+        for (int c = 0; c < clients; c++) {
+            executor.execute(() -> {
+                try {
+                    for (int i = 0; i < requests; i++) {
+                        if (!post(url)) {
+                            errors.incrementAndGet();
+                        }
+                    }
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await(10, TimeUnit.MINUTES);
+        executor.shutdown();
+        return errors.get();
+    }
+
+    private static boolean post(String url) {
+        try {
+            HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+            connection.setRequestMethod("POST");
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write("username=sang&password=123".getBytes(StandardCharsets.UTF_8));
+            }
+            try (InputStream in = connection.getInputStream()) {
+                byte[] buffer = new byte[4096];
+                while (in.read(buffer) >= 0) {
+                    // 读完响应，连接才能复用
+                }
+            }
+            return connection.getResponseCode() == 200;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static void delayed(ScheduledExecutorService delays, int latencyMs, HttpExchange exchange, String contentType, byte[] body) {
+        delays.schedule(() -> {
+            try {
+                exchange.getResponseHeaders().add("Content-Type", contentType);
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            } catch (IOException e) {
+                exchange.close();
+            }
+        }, latencyMs, TimeUnit.MILLISECONDS);
+    }
+}
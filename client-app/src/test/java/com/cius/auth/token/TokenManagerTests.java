@@ -0,0 +1,159 @@
+package com.cius.auth.token;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 用 com.sun.net.httpserver 模拟 /oauth/token，每次 refresh_token 请求返回一个新的 access_token（a2、a3……）。
+ */
+class TokenManagerTests {
+
+    private final AtomicInteger refreshes = new AtomicInteger();
+
+    private volatile int expiresIn = 3600;
+
+    private HttpServer server;
+
+    private TokenManager tokenManager;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/oauth/token", exchange -> {
+            String body;
+            try (InputStream in = exchange.getRequestBody()) {
+                body = new String(readAll(in), StandardCharsets.UTF_8);
+            }
+            String accessToken = body.contains("grant_type=refresh_token") ? "a" + (refreshes.incrementAndGet() + 1) : "a1";
+            byte[] response = ("{\"access_token\":\"" + accessToken + "\",\"refresh_token\":\"r\",\"expires_in\":" + expiresIn + "}")
+                    .getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, response.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(response);
+            }
+        });
+        server.start();
+
+        tokenManager = new TokenManager();
+        tokenManager.restTemplate = new RestTemplate();
+        tokenManager.webClient = WebClient.create();
+        tokenManager.tokenUri = "http://localhost:" + server.getAddress().getPort() + "/oauth/token";
+        tokenManager.clientId = "javaboy";
+        tokenManager.clientSecret = "123";
+        tokenManager.refreshSkewSeconds = 60;
+        tokenManager.refreshJitterSeconds = 0;
+        tokenManager.refreshMinDelaySeconds = 5;
+    }
+
+    @AfterEach
+    void tearDown() {
+        tokenManager.destroy();
+        server.stop(0);
+    }
+
+    @Test
+    void refreshDelayIsFloored() {
+        long skew = TimeUnit.SECONDS.toMillis(60);
+        long minDelay = TimeUnit.SECONDS.toMillis(5);
+        assertEquals(TimeUnit.MINUTES.toMillis(119), TokenManager.refreshDelay(TimeUnit.HOURS.toMillis(2), skew, 0, minDelay));
+        assertEquals(TimeUnit.SECONDS.toMillis(15), TokenManager.refreshDelay(TimeUnit.SECONDS.toMillis(30), skew, 0, minDelay));
+        assertEquals(minDelay, TokenManager.refreshDelay(TimeUnit.SECONDS.toMillis(4), skew, 0, minDelay));
+        assertEquals(minDelay, TokenManager.refreshDelay(-1000, skew, 0, minDelay));
+    }
+
+    @Test
+    void shortLivedTokenIsNotRefreshedInALoop() throws Exception {
+        expiresIn = 10;
+        ManagedToken token = tokenManager.obtainByPassword("sang", "123");
+        Thread.sleep(500);
+
+        assertEquals(0, refreshes.get());
+        assertEquals("a1", token.getAccessToken());
+        assertEquals(1, tokenManager.getScheduledCount());
+    }
+
+    @Test
+    void unauthorizedAfterAnotherRefreshDoesNotRefreshAgain() {
+        ManagedToken token = tokenManager.obtainByPassword("sang", "123");
+
+        String result = tokenManager.execute(token, accessToken -> {
+            if ("a1".equals(accessToken)) {
+                // 别的调用方在这次请求途中已经刷新了令牌
+                tokenManager.refresh(token);
+                throw HttpClientErrorException.create(HttpStatus.UNAUTHORIZED, "Unauthorized", HttpHeaders.EMPTY, null, null);
+            }
+            return accessToken;
+        });
+
+        assertEquals("a2", result);
+        assertEquals(1, refreshes.get());
+    }
+
+    @Test
+    void asyncUnauthorizedAfterAnotherRefreshDoesNotRefreshAgain() {
+        ManagedToken token = tokenManager.obtainByPassword("sang", "123");
+
+        String result = tokenManager.executeAsync(token, accessToken -> {
+            if ("a1".equals(accessToken)) {
+                return tokenManager.refreshAsync(token).thenCompose(t -> failed(
+                        WebClientResponseException.create(401, "Unauthorized", HttpHeaders.EMPTY, null, null)));
+            }
+            return CompletableFuture.completedFuture(accessToken);
+        }).join();
+
+        assertEquals("a2", result);
+        assertEquals(1, refreshes.get());
+    }
+
+    @Test
+    void unauthorizedWithCurrentTokenRefreshesOnce() {
+        ManagedToken token = tokenManager.obtainByPassword("sang", "123");
+
+        String result = tokenManager.execute(token, accessToken -> {
+            if ("a1".equals(accessToken)) {
+                throw HttpClientErrorException.create(HttpStatus.UNAUTHORIZED, "Unauthorized", HttpHeaders.EMPTY, null, null);
+            }
+            return accessToken;
+        });
+
+        assertEquals("a2", result);
+        assertEquals(1, refreshes.get());
+    }
+
+    private static <T> CompletableFuture<T> failed(Throwable e) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(e);
+        return future;
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int n;
+        while ((n = in.read(buffer)) > 0) {
+            out.write(buffer, 0, n);
+        }
+        return out.toByteArray();
+    }
+}
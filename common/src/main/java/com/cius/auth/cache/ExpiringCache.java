@@ -0,0 +1,241 @@
+package com.cius.auth.cache;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * 一个简单的有界 + TTL 本地缓存：
+ *  1.读路径只有一次 ConcurrentHashMap#get，没有锁；
+ *  2.同一个 key 未命中时只有一个线程去加载（single-flight），其他线程等待同一个 CompletableFuture，
+ *    避免冷 key 把数据库打爆；
+ *  3.超过 maxSize 时先清理过期条目，仍然超出则按遍历顺序淘汰（近似随机淘汰），一次清理到 maxSize 的 90%，
+ *    之后至少再放入 maxSize / 10 个新条目才会再遍历一次，平均到每次 put 是常数开销；
+ *  4.记录命中、未命中、加载次数与加载耗时，方便对外暴露指标。
+ * 各服务共用这一份（common 模块）。
+ *
+ * @param <K> key
+ * @param <V> value
+ */
+public class ExpiringCache<K, V> {
+
+    private final ConcurrentHashMap<K, Entry<V>> entries = new ConcurrentHashMap<>();
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> loading = new ConcurrentHashMap<>();
+
+    private final int maxSize;
+
+    /**
+     * 清理之后保留的条目数
+     */
+    private final int evictTo;
+
+    private final long ttlNanos;
+
+    private final AtomicBoolean evicting = new AtomicBoolean();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder loadFailures = new LongAdder();
+    private final LongAdder loadNanos = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public ExpiringCache(int maxSize, long ttl, TimeUnit unit) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive");
+        }
+        this.maxSize = maxSize;
+        this.evictTo = maxSize - Math.max(1, maxSize / 10);
+        this.ttlNanos = unit.toNanos(ttl);
+    }
+
+    /**
+     * 命中直接返回，未命中则通过 loader 加载；同一个 key 同一时刻只会有一次加载。
+     * loader 抛出的 RuntimeException 会原样抛给所有等待者，异常结果不缓存。
+     */
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        Entry<V> entry = entries.get(key);
+        if (entry != null && entry.expiresAt - System.nanoTime() > 0) {
+            hits.increment();
+            return entry.value;
+        }
+        misses.increment();
+        return load(key, loader);
+    }
+
+    /**
+     * 只查缓存，不触发加载。
+     */
+    public V getIfPresent(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry != null && entry.expiresAt - System.nanoTime() > 0) {
+            hits.increment();
+            return entry.value;
+        }
+        misses.increment();
+        return null;
+    }
+
+    public void put(K key, V value) {
+        put(key, value, ttlNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 以单独的有效期放入缓存，有效期不会超过缓存本身的 TTL。
+     */
+    public void put(K key, V value, long ttl, TimeUnit unit) {
+        long nanos = Math.min(unit.toNanos(ttl), ttlNanos);
+        if (nanos <= 0) {
+            return;
+        }
+        entries.put(key, new Entry<>(value, System.nanoTime() + nanos));
+        if (entries.size() > maxSize) {
+            evict();
+        }
+    }
+
+    public void invalidate(K key) {
+        loading.remove(key);
+        entries.remove(key);
+    }
+
+    public void invalidateAll() {
+        loading.clear();
+        entries.clear();
+    }
+
+    /**
+     * 失效所有值满足条件的条目，需要遍历整个缓存；正在加载的条目一并失效。
+     * @return 失效的条目数
+     */
+    public int invalidateIf(Predicate<? super V> predicate) {
+        loading.clear();
+        int removed = 0;
+        Iterator<Map.Entry<K, Entry<V>>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            if (predicate.test(it.next().getValue().value)) {
+                it.remove();
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    public long loadCount() {
+        return loads.sum();
+    }
+
+    public long loadFailureCount() {
+        return loadFailures.sum();
+    }
+
+    public long totalLoadTimeNanos() {
+        return loadNanos.sum();
+    }
+
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    private V load(K key, Function<? super K, ? extends V> loader) {
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> inFlight = loading.putIfAbsent(key, future);
+        if (inFlight != null) {
+            return await(inFlight);
+        }
+        long start = System.nanoTime();
+        try {
+            V value = loader.apply(key);
+            // 加载期间如果被 invalidate 过，就不再把旧值写回缓存
+            if (loading.remove(key, future) && value != null) {
+                put(key, value);
+            }
+            future.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            loadFailures.increment();
+            loading.remove(key, future);
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            loads.increment();
+            loadNanos.add(System.nanoTime() - start);
+        }
+    }
+
+    private V await(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 同一时刻只有一个线程在清理，其他线程直接返回，条目数可能短暂地略微超过 maxSize
+     */
+    private void evict() {
+        if (!evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            trim();
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    private void trim() {
+        long now = System.nanoTime();
+        Iterator<Map.Entry<K, Entry<V>>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            if (it.next().getValue().expiresAt - now <= 0) {
+                it.remove();
+                evictions.increment();
+            }
+        }
+        it = entries.entrySet().iterator();
+        while (entries.size() > evictTo && it.hasNext()) {
+            it.next();
+            it.remove();
+            evictions.increment();
+        }
+    }
+
+    private static final class Entry<V> {
+        final V value;
+        final long expiresAt;
+
+        Entry(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
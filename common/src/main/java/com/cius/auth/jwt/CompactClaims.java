@@ -0,0 +1,136 @@
+package com.cius.auth.jwt;
+
+import org.springframework.security.oauth2.common.exceptions.InvalidTokenException;
+import org.springframework.security.oauth2.provider.token.AccessTokenConverter;
+import org.springframework.security.oauth2.provider.token.UserAuthenticationConverter;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * 紧凑令牌格式的 claim 转换，签发（auth-server）和解析（auth-server、user-server）共用这一份（common 模块）：
+ *  1.常用 claim 换成一个字母：user_name -> u，client_id -> c，authorities -> a，scope -> s，aud -> r，
+ *    另外加上 d 表示使用的 TokenDictionary；
+ *  2.权限和 scope 写成 TokenDictionary 中的下标；
+ *  3.compact 时可以只保留选中的可选 claim（scope 和 TokenEnhancer 加的附加信息），
+ *    exp、jti、ati、grant_type、aud、用户名、客户端和权限总是保留。
+ * expand 把紧凑格式还原成标准的 claim 名称，没有 d 的令牌原样返回。
+ */
+public final class CompactClaims {
+
+    public static final String DICTIONARY = "d";
+
+    public static final String USER_NAME = "u";
+
+    public static final String CLIENT = "c";
+
+    public static final String AUTHORITY_LIST = "a";
+
+    public static final String SCOPES = "s";
+
+    public static final String AUDIENCE = "r";
+
+    public static final Set<String> SHORT_NAMES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            DICTIONARY, USER_NAME, CLIENT, AUTHORITY_LIST, SCOPES, AUDIENCE)));
+
+    private CompactClaims() {
+    }
+
+    /**
+     * 标准格式的 claims 换成紧凑格式
+     * @param selected 保留的可选 claim，null 表示全部
+     */
+    public static Map<String, Object> compact(Map<String, ?> claims, TokenDictionary dictionary, Set<String> selected) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put(DICTIONARY, dictionary.getId());
+        for (Map.Entry<String, ?> entry : claims.entrySet()) {
+            String name = entry.getKey();
+            Object value = entry.getValue();
+            switch (name) {
+                case UserAuthenticationConverter.USERNAME:
+                    result.put(USER_NAME, value);
+                    break;
+                case AccessTokenConverter.CLIENT_ID:
+                    result.put(CLIENT, value);
+                    break;
+                case AccessTokenConverter.AUTHORITIES:
+                    result.put(AUTHORITY_LIST, dictionary.encodeAuthorities((Collection<?>) value));
+                    break;
+                case AccessTokenConverter.AUD:
+                    result.put(AUDIENCE, value);
+                    break;
+                case AccessTokenConverter.SCOPE:
+                    if (selected == null || selected.contains(AccessTokenConverter.SCOPE)) {
+                        result.put(SCOPES, dictionary.encodeScopes((Collection<?>) value));
+                    }
+                    break;
+                case AccessTokenConverter.EXP:
+                case AccessTokenConverter.JTI:
+                case AccessTokenConverter.ATI:
+                case AccessTokenConverter.GRANT_TYPE:
+                    result.put(name, value);
+                    break;
+                default:
+                    if (SHORT_NAMES.contains(name)) {
+                        throw new IllegalStateException("Claim '" + name + "' conflicts with the compact token profile");
+                    }
+                    if (selected == null || selected.contains(name)) {
+                        result.put(name, value);
+                    }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 紧凑格式的 claims 还原成标准名称，标准格式原样返回
+     * @param dictionaries 按 id 找字典，找不到返回 null
+     */
+    @SuppressWarnings("unchecked")
+    public static Map<String, Object> expand(Map<String, ?> claims, Function<String, TokenDictionary> dictionaries) {
+        Object id = claims.get(DICTIONARY);
+        if (id == null) {
+            return (Map<String, Object>) claims;
+        }
+        TokenDictionary dictionary = dictionaries.apply(String.valueOf(id));
+        if (dictionary == null) {
+            throw new InvalidTokenException("Unknown token dictionary");
+        }
+        try {
+            Map<String, Object> result = new LinkedHashMap<>(claims.size() * 2);
+            for (Map.Entry<String, ?> entry : claims.entrySet()) {
+                Object value = entry.getValue();
+                switch (entry.getKey()) {
+                    case DICTIONARY:
+                        break;
+                    case USER_NAME:
+                        result.put(UserAuthenticationConverter.USERNAME, value);
+                        break;
+                    case CLIENT:
+                        result.put(AccessTokenConverter.CLIENT_ID, value);
+                        break;
+                    case AUTHORITY_LIST:
+                        result.put(AccessTokenConverter.AUTHORITIES, dictionary.decodeAuthorities((Collection<?>) value));
+                        break;
+                    case SCOPES:
+                        result.put(AccessTokenConverter.SCOPE, dictionary.decodeScopes((Collection<?>) value));
+                        break;
+                    case AUDIENCE:
+                        result.put(AccessTokenConverter.AUD, value);
+                        break;
+                    default:
+                        result.put(entry.getKey(), value);
+                }
+            }
+            return result;
+        } catch (IllegalArgumentException | ClassCastException e) {
+            throw new InvalidTokenException("Malformed compact token", e);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.cius.auth.jwt;
+
+import org.springframework.security.jwt.Jwt;
+import org.springframework.security.jwt.JwtHelper;
+import org.springframework.security.jwt.crypto.sign.SignatureVerifier;
+import org.springframework.security.oauth2.common.exceptions.InvalidTokenException;
+import org.springframework.security.oauth2.common.util.JsonParser;
+import org.springframework.security.oauth2.common.util.JsonParserFactory;
+import org.springframework.security.oauth2.provider.token.store.JwtAccessTokenConverter;
+
+import java.util.Map;
+
+/**
+ * 按 JWT 头部的 kid 选择 verifier 校验 RS256 令牌：
+ * 签名、exp 的类型（JSON 解析出来的 Integer 转成 Long）和 JwtClaimsSetVerifier 都在这里处理，
+ * 子类只提供 kid 对应的 verifier，以及 jti 是否已经吊销。
+ * auth-server（KeyRotatingJwtAccessTokenConverter，本地密钥）和 user-server（JwksJwtAccessTokenConverter，JWKS 公钥）共用。
+ */
+public abstract class KidJwtAccessTokenConverter extends JwtAccessTokenConverter {
+
+    private static final String EXP = "exp";
+
+    private static final String JTI = "jti";
+
+    protected final JsonParser objectMapper = JsonParserFactory.create();
+
+    /**
+     * @return 不认识的 kid 返回 null
+     */
+    protected abstract SignatureVerifier getVerifier(String kid);
+
+    protected abstract boolean isRevoked(String jti);
+
+    /**
+     * 验签并解析出 claims，公开出来让 CachingJwtTokenStore 只解析一次，再分别转换成令牌和认证信息
+     */
+    @Override
+    public Map<String, Object> decode(String token) {
+        Map<String, Object> claims = verify(token);
+        if (isRevoked((String) claims.get(JTI))) {
+            throw new InvalidTokenException("Token has been revoked");
+        }
+        return claims;
+    }
+
+    private Map<String, Object> verify(String token) {
+        try {
+            SignatureVerifier verifier = getVerifier(JwtHelper.headers(token).get("kid"));
+            if (verifier == null) {
+                throw new InvalidTokenException("Unknown signing key");
+            }
+            Jwt jwt = JwtHelper.decodeAndVerify(token, verifier);
+            Map<String, Object> claims = objectMapper.parseMap(jwt.getClaims());
+            if (claims.get(EXP) instanceof Integer) {
+                claims.put(EXP, ((Integer) claims.get(EXP)).longValue());
+            }
+            getJwtClaimsSetVerifier().verify(claims);
+            return claims;
+        } catch (InvalidTokenException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new InvalidTokenException("Cannot convert access token to JSON", e);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.cius.auth.jwt;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * 紧凑令牌使用的字典：权限和 scope 在令牌里写成字典中的下标，字典通过 /.well-known/token-dictionary.json 发布。
+ * id 由字典内容计算得出，令牌中带着 id，字典内容一变 id 就变，旧字典签发的令牌不会被错误地解释成别的权限。
+ * 不在字典中的值按原样写成字符串，所以字典不需要包含所有的权限。
+ *
+ * auth-server 签发、user-server 解析，共用这一份（common 模块），claim 的转换见 CompactClaims。
+ */
+public final class TokenDictionary {
+
+    private final String id;
+
+    private final List<String> authorities;
+
+    private final List<String> scopes;
+
+    private final Map<String, Integer> authorityIndex;
+
+    private final Map<String, Integer> scopeIndex;
+
+    public TokenDictionary(List<String> authorities, List<String> scopes) {
+        this.authorities = Collections.unmodifiableList(new ArrayList<>(authorities));
+        this.scopes = Collections.unmodifiableList(new ArrayList<>(scopes));
+        this.authorityIndex = index(this.authorities);
+        this.scopeIndex = index(this.scopes);
+        CRC32 crc = new CRC32();
+        crc.update(String.join(",", this.authorities).getBytes(StandardCharsets.UTF_8));
+        crc.update('|');
+        crc.update(String.join(",", this.scopes).getBytes(StandardCharsets.UTF_8));
+        this.id = Long.toHexString(crc.getValue());
+    }
+
+    @SuppressWarnings("unchecked")
+    public static TokenDictionary fromMap(Map<?, ?> map) {
+        return new TokenDictionary((List<String>) map.get("authorities"), (List<String>) map.get("scopes"));
+    }
+
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("id", id);
+        map.put("authorities", authorities);
+        map.put("scopes", scopes);
+        return map;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public List<Object> encodeAuthorities(Collection<?> values) {
+        return encode(values, authorityIndex);
+    }
+
+    public List<String> decodeAuthorities(Collection<?> values) {
+        return decode(values, authorities);
+    }
+
+    public List<Object> encodeScopes(Collection<?> values) {
+        return encode(values, scopeIndex);
+    }
+
+    public List<String> decodeScopes(Collection<?> values) {
+        return decode(values, scopes);
+    }
+
+    private static List<Object> encode(Collection<?> values, Map<String, Integer> index) {
+        List<Object> encoded = new ArrayList<>(values.size());
+        for (Object value : values) {
+            Integer i = index.get(String.valueOf(value));
+            encoded.add(i != null ? i : String.valueOf(value));
+        }
+        return encoded;
+    }
+
+    private static List<String> decode(Collection<?> values, List<String> dictionary) {
+        List<String> decoded = new ArrayList<>(values.size());
+        for (Object value : values) {
+            if (value instanceof Number) {
+                int i = ((Number) value).intValue();
+                if (i < 0 || i >= dictionary.size()) {
+                    throw new IllegalArgumentException("Dictionary index out of range: " + i);
+                }
+                decoded.add(dictionary.get(i));
+            } else {
+                decoded.add(String.valueOf(value));
+            }
+        }
+        return decoded;
+    }
+
+    private static Map<String, Integer> index(List<String> values) {
+        Map<String, Integer> index = new HashMap<>();
+        for (int i = 0; i < values.size(); i++) {
+            index.putIfAbsent(values.get(i), i);
+        }
+        return index;
+    }
+}
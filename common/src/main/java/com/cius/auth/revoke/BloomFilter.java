@@ -0,0 +1,114 @@
+package com.cius.auth.revoke;
+
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * 按 jti 判断的 Bloom 过滤器，位数组用 long[] 保存，可以整体编码成 Base64 发给资源服务器。
+ * 哈希是对字符串逐个字符做 FNV-1a（64 位）再经过 murmur3 的 fmix64 打散，
+ * 高低 32 位做双重哈希得到 numHashes 个位置，计算过程不分配对象。
+ * 授权服务器（RevocationList）生成、资源服务器（RevocationDenylist）查询用的是同一个类。
+ */
+public final class BloomFilter {
+
+    private final long[] bits;
+
+    private final int numBits;
+
+    private final int numHashes;
+
+    public BloomFilter(long[] bits, int numHashes) {
+        this.bits = bits;
+        this.numBits = bits.length * Long.SIZE;
+        this.numHashes = numHashes;
+    }
+
+    /**
+     * 按预计元素个数和误判率计算位数和哈希函数个数
+     */
+    public static BloomFilter create(int expectedInsertions, double fpp) {
+        int n = Math.max(1, expectedInsertions);
+        long m = (long) Math.ceil(-n * Math.log(fpp) / (Math.log(2) * Math.log(2)));
+        int words = (int) Math.max(1, (m + Long.SIZE - 1) / Long.SIZE);
+        int k = Math.max(1, (int) Math.round((double) words * Long.SIZE / n * Math.log(2)));
+        return new BloomFilter(new long[words], k);
+    }
+
+    public static BloomFilter fromBase64(String encoded, int numHashes) {
+        byte[] bytes = Base64.getDecoder().decode(encoded);
+        long[] bits = new long[bytes.length / 8];
+        for (int i = 0; i < bits.length; i++) {
+            long v = 0;
+            for (int j = 0; j < 8; j++) {
+                v = (v << 8) | (bytes[i * 8 + j] & 0xFF);
+            }
+            bits[i] = v;
+        }
+        return new BloomFilter(bits, numHashes);
+    }
+
+    public void add(String value) {
+        long hash = hash(value);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= numHashes; i++) {
+            int index = index(h1 + i * h2);
+            bits[index >>> 6] |= 1L << index;
+        }
+    }
+
+    public boolean mightContain(String value) {
+        long hash = hash(value);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= numHashes; i++) {
+            int index = index(h1 + i * h2);
+            if ((bits[index >>> 6] & (1L << index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public String toBase64() {
+        byte[] bytes = new byte[bits.length * 8];
+        for (int i = 0; i < bits.length; i++) {
+            long v = bits[i];
+            for (int j = 7; j >= 0; j--) {
+                bytes[i * 8 + j] = (byte) v;
+                v >>>= 8;
+            }
+        }
+        return Base64.getEncoder().encodeToString(bytes);
+    }
+
+    public BloomFilter copy() {
+        return new BloomFilter(Arrays.copyOf(bits, bits.length), numHashes);
+    }
+
+    public int getNumBits() {
+        return numBits;
+    }
+
+    public int getNumHashes() {
+        return numHashes;
+    }
+
+    private int index(int combined) {
+        return (combined & Integer.MAX_VALUE) % numBits;
+    }
+
+    static long hash(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            h ^= value.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
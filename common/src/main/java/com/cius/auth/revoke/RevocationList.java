@@ -0,0 +1,180 @@
+package com.cius.auth.revoke;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 已吊销 JWT 的 jti 列表。JwtTokenStore 不保存令牌，原来在过期之前没办法吊销一个 JWT。
+ *  1.授权服务器本地保存精确的 jti -> exp，令牌过期后自动清除；
+ *  2.同时维护一个 Bloom 过滤器发给资源服务器：资源服务器第一次同步拿到整个过滤器（快照），
+ *     之后只拿快照之后新增的 jti（增量），版本号每次吊销加一；
+ *  3.定时清除过期的 jti 时重建过滤器并生成新的快照，资源服务器发现自己的版本早于快照时重新拉取整个过滤器。
+ *
+ * 设置了 RevocationStore 时，吊销先写入存储再更新内存，启动时从存储恢复未过期的 jti 作为第一个快照，
+ * 没有设置时只保存在内存中，重启后丢失。
+ * 运行期间只有本节点吊销的令牌会进入列表，多节点部署时需要把吊销请求发给同一个节点。
+ */
+public class RevocationList implements InitializingBean, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(RevocationList.class);
+
+    private final ConcurrentHashMap<String, Long> revoked = new ConcurrentHashMap<>();
+
+    private final int expectedInsertions;
+
+    private final double fpp;
+
+    private final long purgeIntervalMillis;
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "revocation-purge");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private BloomFilter bloomFilter;
+
+    private long version;
+
+    private long snapshotVersion;
+
+    private final List<String> deltas = new ArrayList<>();
+
+    private RevocationStore store;
+
+    public RevocationList(int expectedInsertions, double fpp, long purgeInterval, TimeUnit unit) {
+        this.expectedInsertions = expectedInsertions;
+        this.fpp = fpp;
+        this.purgeIntervalMillis = unit.toMillis(purgeInterval);
+        this.bloomFilter = BloomFilter.create(expectedInsertions, fpp);
+        // 版本号从启动时间（毫秒）开始，重启后一定大于重启前发出的版本，资源服务器会重新拉取整个过滤器
+        this.version = System.currentTimeMillis();
+        this.snapshotVersion = version;
+    }
+
+    public void setStore(RevocationStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        if (store != null) {
+            restore();
+        }
+        executor.scheduleWithFixedDelay(this::purgeExpired, purgeIntervalMillis, purgeIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 吊销一个令牌
+     * @param jti 令牌的 jti
+     * @param expiresAt 令牌的过期时间（秒），过期后不再需要保存
+     */
+    public synchronized void revoke(String jti, long expiresAt) {
+        if (expiresAt * 1000L <= System.currentTimeMillis() || revoked.containsKey(jti)) {
+            return;
+        }
+        if (store != null) {
+            store.save(jti, expiresAt);
+        }
+        revoked.put(jti, expiresAt);
+        bloomFilter.add(jti);
+        deltas.add(jti);
+        version++;
+    }
+
+    public boolean isRevoked(String jti) {
+        return jti != null && revoked.containsKey(jti);
+    }
+
+    /**
+     * since 之后的变化：since 早于当前快照（或者是资源服务器第一次同步）时返回整个过滤器，否则只返回新增的 jti
+     */
+    public synchronized Map<String, Object> changesSince(long since) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("version", version);
+        if (since < snapshotVersion || since > version || since <= 0) {
+            result.put("full", true);
+            result.put("bits", bloomFilter.toBase64());
+            result.put("numHashes", bloomFilter.getNumHashes());
+            result.put("revoked", new ArrayList<>(deltas));
+        } else {
+            result.put("full", false);
+            result.put("revoked", new ArrayList<>(deltas.subList((int) (since - snapshotVersion), deltas.size())));
+        }
+        return result;
+    }
+
+    /**
+     * 清除已过期的 jti，有清除时重建过滤器并生成新的快照
+     * @return 清除的数量
+     */
+    public synchronized int purgeExpired() {
+        long now = System.currentTimeMillis() / 1000L;
+        int removed = 0;
+        Iterator<Long> it = revoked.values().iterator();
+        while (it.hasNext()) {
+            if (it.next() <= now) {
+                it.remove();
+                removed++;
+            }
+        }
+        if (store != null) {
+            try {
+                store.removeExpired(now);
+            } catch (RuntimeException e) {
+                logger.warn("Failed to purge expired jti(s) from the revocation store", e);
+            }
+        }
+        if (removed > 0 || revoked.size() > expectedInsertions) {
+            snapshot();
+        }
+        return removed;
+    }
+
+    /**
+     * 从存储中恢复未过期的 jti，作为新的快照
+     */
+    synchronized void restore() {
+        revoked.putAll(store.loadUnexpired(System.currentTimeMillis() / 1000L));
+        if (!revoked.isEmpty()) {
+            snapshot();
+            logger.info("Restored {} revoked jti(s)", revoked.size());
+        }
+    }
+
+    private void snapshot() {
+        BloomFilter rebuilt = BloomFilter.create(Math.max(expectedInsertions, revoked.size() * 2), fpp);
+        for (String jti : revoked.keySet()) {
+            rebuilt.add(jti);
+        }
+        bloomFilter = rebuilt;
+        deltas.clear();
+        snapshotVersion = ++version;
+        logger.debug("Rebuilt revocation filter with {} jti(s), version {}", revoked.size(), version);
+    }
+
+    public int size() {
+        return revoked.size();
+    }
+
+    public synchronized long getVersion() {
+        return version;
+    }
+}
@@ -0,0 +1,24 @@
+package com.cius.auth.revoke;
+
+import java.util.Map;
+
+/**
+ * 已吊销 jti 的持久化存储，RevocationList 吊销时先写入这里，启动时从这里恢复，授权服务器重启后吊销仍然有效
+ */
+public interface RevocationStore {
+
+    /**
+     * @param expiresAt 令牌的过期时间（秒），过期后可以删除
+     */
+    void save(String jti, long expiresAt);
+
+    /**
+     * @return now（秒）时还没有过期的 jti -> 过期时间
+     */
+    Map<String, Long> loadUnexpired(long now);
+
+    /**
+     * 删除 now（秒）之前已经过期的 jti
+     */
+    void removeExpired(long now);
+}
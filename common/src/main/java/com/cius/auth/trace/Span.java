@@ -0,0 +1,90 @@
+package com.cius.auth.trace;
+
+/**
+ * 一个已采样的调用段，只有被采样的请求才会创建，未采样的请求全程不分配 Span。
+ * 除了 name 都是基本类型，traceId 是两个 long（128 位），spanId、parentId 是 long，0 表示没有父级；
+ * 结束后交给 SpanExporter 的后台线程写出，写出之前不再修改。
+ * auth-server、user-server、client-app 共用这一份（common 模块）。
+ */
+public final class Span {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    final long traceIdHigh;
+
+    final long traceIdLow;
+
+    final long spanId;
+
+    final long parentId;
+
+    final String name;
+
+    final long startMicros;
+
+    final long startNanos;
+
+    long durationNanos;
+
+    int status;
+
+    /**
+     * 开始时当前线程上的 Span，结束时恢复，写出前清空
+     */
+    Span previous;
+
+    Span(long traceIdHigh, long traceIdLow, long spanId, long parentId, String name, Span previous) {
+        this.traceIdHigh = traceIdHigh;
+        this.traceIdLow = traceIdLow;
+        this.spanId = spanId;
+        this.parentId = parentId;
+        this.name = name;
+        this.previous = previous;
+        this.startNanos = System.nanoTime();
+        this.startMicros = System.currentTimeMillis() * 1000;
+    }
+
+    /**
+     * 记录状态，服务端和客户端 Span 是 HTTP 状态码，出错时可以用 -1
+     * @param status
+     */
+    public void setStatus(int status) {
+        this.status = status;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    /**
+     * @return W3C traceparent 头，传给下游服务
+     */
+    public String traceparent() {
+        char[] chars = new char[55];
+        chars[0] = '0';
+        chars[1] = '0';
+        chars[2] = '-';
+        hex(traceIdHigh, chars, 3);
+        hex(traceIdLow, chars, 19);
+        chars[35] = '-';
+        hex(spanId, chars, 36);
+        chars[52] = '-';
+        chars[53] = '0';
+        chars[54] = '1';
+        return new String(chars);
+    }
+
+    /**
+     * 把 value 写成 16 个十六进制字符，写 traceparent 和导出时共用，不经过 Long.toHexString 的中间字符串
+     */
+    static void hex(long value, char[] chars, int offset) {
+        for (int i = 15; i >= 0; i--) {
+            chars[offset + i] = HEX[(int) (value & 0xF)];
+            value >>>= 4;
+        }
+    }
+}
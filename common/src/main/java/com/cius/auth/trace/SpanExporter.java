@@ -0,0 +1,173 @@
+package com.cius.auth.trace;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 把结束的 Span 异步、批量写到本地文件，每行一个 JSON：
+ * {"trace":"...","span":"...","parent":"...","service":"auth-server","name":"client_secret","start":微秒时间戳,"duration":微秒,"status":200}
+ * parent 为空字符串表示根 Span。三个服务写到同一个目录下各自的 &lt;service&gt;.jsonl，按 trace 合并就是完整的调用链，
+ * loadtest 模块的 TraceSummary 按 Span 名字汇总各段耗时。
+ *  1.export 只做一次非阻塞的 offer，队列满了直接丢弃并计数，不影响请求；
+ *  2.后台线程（trace-exporter）每次最多取 batchSize 个，用同一个 StringBuilder 格式化，写完一批 flush 一次；
+ *  3.文件超过 maxFileBytes 时改名为 .1（覆盖上一个），重新开一个文件，磁盘占用不超过两倍 maxFileBytes。
+ * auth-server、user-server、client-app 共用这一份（common 模块）。
+ */
+public class SpanExporter implements InitializingBean, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(SpanExporter.class);
+
+    private static final long IDLE_MILLIS = 200;
+
+    private final Path file;
+
+    private final String service;
+
+    private final BlockingQueue<Span> queue;
+
+    private final int batchSize;
+
+    private final long maxFileBytes;
+
+    private final LongAdder exported = new LongAdder();
+
+    private final LongAdder dropped = new LongAdder();
+
+    private final StringBuilder line = new StringBuilder(256);
+
+    private final char[] hex = new char[16];
+
+    private final Thread writerThread = new Thread(this::run, "trace-exporter");
+
+    private volatile boolean running = true;
+
+    private Writer writer;
+
+    private long fileBytes;
+
+    public SpanExporter(Path directory, String service, int capacity, int batchSize, long maxFileBytes) {
+        this.file = directory.resolve(service + ".jsonl");
+        this.service = service;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        this.maxFileBytes = maxFileBytes;
+    }
+
+    public void export(Span span) {
+        if (!queue.offer(span)) {
+            dropped.increment();
+        }
+    }
+
+    @Override
+    public void afterPropertiesSet() throws IOException {
+        Files.createDirectories(file.getParent());
+        open();
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    @Override
+    public void destroy() throws InterruptedException, IOException {
+        running = false;
+        writerThread.interrupt();
+        writerThread.join(TimeUnit.SECONDS.toMillis(5));
+        writer.close();
+    }
+
+    public long getExportedCount() {
+        return exported.sum();
+    }
+
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    private void run() {
+        List<Span> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Span first = queue.poll(IDLE_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+            } catch (InterruptedException e) {
+                // destroy 时被中断，把队列里剩下的写完再退出
+            }
+            queue.drainTo(batch, batchSize - batch.size());
+            try {
+                write(batch);
+            } catch (IOException e) {
+                logger.warn("Failed to export {} spans to {}", batch.size(), file, e);
+            }
+            batch.clear();
+        }
+    }
+
+    private void write(List<Span> batch) throws IOException {
+        for (Span span : batch) {
+            format(span);
+            writer.append(line);
+            fileBytes += line.length();
+        }
+        writer.flush();
+        exported.add(batch.size());
+        if (fileBytes >= maxFileBytes) {
+            writer.close();
+            Files.move(file, file.resolveSibling(file.getFileName() + ".1"), StandardCopyOption.REPLACE_EXISTING);
+            open();
+        }
+    }
+
+    private void format(Span span) {
+        line.setLength(0);
+        line.append("{\"trace\":\"");
+        appendHex(span.traceIdHigh);
+        appendHex(span.traceIdLow);
+        line.append("\",\"span\":\"");
+        appendHex(span.spanId);
+        line.append("\",\"parent\":\"");
+        if (span.parentId != 0) {
+            appendHex(span.parentId);
+        }
+        line.append("\",\"service\":\"").append(service).append("\",\"name\":\"");
+        for (int i = 0; i < span.name.length(); i++) {
+            char c = span.name.charAt(i);
+            if (c == '"' || c == '\\') {
+                line.append('\\');
+            }
+            line.append(c);
+        }
+        line.append("\",\"start\":").append(span.startMicros)
+                .append(",\"duration\":").append(span.durationNanos / 1000)
+                .append(",\"status\":").append(span.status)
+                .append("}\n");
+    }
+
+    private void appendHex(long value) {
+        Span.hex(value, hex, 0);
+        line.append(hex);
+    }
+
+    private void open() throws IOException {
+        writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        fileBytes = Files.size(file);
+    }
+}
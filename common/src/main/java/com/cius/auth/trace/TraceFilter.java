@@ -0,0 +1,96 @@
+package com.cius.auth.trace;
+
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * 服务端入口：按请求头 traceparent 决定是否采样，采样时整个请求记为一个 Span（名字是 方法 + 路径），
+ * 之后在这个线程上开始的 Span（各阶段计时、发往下游的请求）都是它的子 Span。
+ * 异步请求（/async/*）在 Servlet 线程返回时还没有结束，这时只把 Span 从当前线程上摘下来，
+ * 等 AsyncListener 收到完成事件再结束。
+ * auth-server、user-server、client-app 共用这一份（common 模块）。
+ */
+public class TraceFilter extends OncePerRequestFilter {
+
+    private final Tracer tracer;
+
+    public TraceFilter(Tracer tracer) {
+        this.tracer = tracer;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        if (!tracer.enter(request.getHeader(Tracer.TRACEPARENT))) {
+            try {
+                filterChain.doFilter(request, response);
+            } finally {
+                tracer.clear();
+            }
+            return;
+        }
+        Span span = tracer.start(request.getMethod() + " " + request.getRequestURI());
+        try {
+            filterChain.doFilter(request, response);
+        } catch (IOException | ServletException | RuntimeException e) {
+            span.setStatus(-1);
+            throw e;
+        } finally {
+            if (request.isAsyncStarted()) {
+                tracer.detach(span);
+                request.getAsyncContext().addListener(new FinishOnComplete(span, response));
+            } else {
+                if (span.status == 0) {
+                    span.setStatus(response.getStatus());
+                }
+                tracer.end(span);
+            }
+            tracer.clear();
+        }
+    }
+
+    /**
+     * 超时和出错时先记下状态，之后总会收到完成事件，在那里结束 Span
+     */
+    private class FinishOnComplete implements AsyncListener {
+
+        private final Span span;
+
+        private final HttpServletResponse response;
+
+        FinishOnComplete(Span span, HttpServletResponse response) {
+            this.span = span;
+            this.response = response;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            if (span.status == 0) {
+                span.setStatus(response.getStatus());
+            }
+            tracer.finish(span);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            span.setStatus(-1);
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            span.setStatus(-1);
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // 不会再次开始异步处理
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.cius.auth.trace;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 轻量的跨服务调用链追踪，上下文按 W3C traceparent 格式在服务之间传递：
+ *  1.请求进来时 enter 决定是否采样：带了 traceparent 的沿用上游的决定，没带的按 sampleRate 随机采样；
+ *    当前线程上放的是上游的上下文（已采样）或 UNSAMPLED 标记（未采样）；
+ *  2.start/end 在当前线程上开始、结束一个子 Span，未采样时 start 返回 null，调用方什么都不用做；
+ *  3.发往下游的请求用 traceparent 取请求头：已采样时带上当前 Span，未采样时带 UNSAMPLED_TRACEPARENT，
+ *    让下游也不采样，这样一条链路要么完整记录，要么完全不记录；不在请求里的后台调用不带请求头；
+ *  4.结束的 Span 交给 SpanExporter 异步批量写出。
+ * 未采样的请求只有一次 ThreadLocal 读写和一次随机数，不分配对象。
+ * auth-server、user-server、client-app 共用这一份（common 模块）。
+ */
+public class Tracer {
+
+    public static final String TRACEPARENT = "traceparent";
+
+    /**
+     * 上游不采样时传给下游的请求头，trace-id 和 parent-id 是固定值，只有 flags=00 有意义
+     */
+    public static final String UNSAMPLED_TRACEPARENT = "00-00000000000000000000000000000001-0000000000000001-00";
+
+    private static final Span UNSAMPLED = new Span(0, 1, 1, 0, null, null);
+
+    private static final ThreadLocal<Span> CURRENT = new ThreadLocal<>();
+
+    private final SpanExporter exporter;
+
+    private final double sampleRate;
+
+    /**
+     * @param exporter
+     * @param sampleRate 没有上游决定时的采样比例，0 到 1
+     */
+    public Tracer(SpanExporter exporter, double sampleRate) {
+        this.exporter = exporter;
+        this.sampleRate = sampleRate;
+    }
+
+    /**
+     * 请求进来时调用，必须和 clear 成对调用
+     * @param traceparent 请求头，可以为 null
+     * @return 是否采样
+     */
+    public boolean enter(String traceparent) {
+        Span remote = null;
+        if (traceparent != null && traceparent.length() >= 55 && traceparent.charAt(2) == '-'
+                && traceparent.charAt(35) == '-' && traceparent.charAt(52) == '-') {
+            if ((hexDigit(traceparent.charAt(54)) & 1) == 0) {
+                CURRENT.set(UNSAMPLED);
+                return false;
+            }
+            long high = parseHex(traceparent, 3);
+            long low = parseHex(traceparent, 19);
+            long parent = parseHex(traceparent, 36);
+            if ((high != 0 || low != 0) && parent != 0) {
+                remote = new Span(high, low, parent, 0, null, null);
+            }
+        }
+        if (remote == null) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            if (random.nextDouble() >= sampleRate) {
+                CURRENT.set(UNSAMPLED);
+                return false;
+            }
+            // 新的调用链，spanId=0 表示这里开始的第一个 Span 没有父级
+            remote = new Span(random.nextLong(), random.nextLong(), 0, 0, null, null);
+        }
+        CURRENT.set(remote);
+        return true;
+    }
+
+    public void clear() {
+        CURRENT.remove();
+    }
+
+    /**
+     * @return 当前线程上是否有已采样的调用链，构造 Span 名字之前先判断，未采样时不用拼字符串
+     */
+    public boolean isSampled() {
+        Span current = CURRENT.get();
+        return current != null && current != UNSAMPLED;
+    }
+
+    /**
+     * 在当前 Span 下开始一个子 Span 并设为当前 Span
+     * @param name
+     * @return 未采样时返回 null
+     */
+    public Span start(String name) {
+        Span current = CURRENT.get();
+        if (current == null || current == UNSAMPLED) {
+            return null;
+        }
+        long spanId = ThreadLocalRandom.current().nextLong();
+        Span span = new Span(current.traceIdHigh, current.traceIdLow, spanId == 0 ? 1 : spanId, current.spanId, name, current);
+        CURRENT.set(span);
+        return span;
+    }
+
+    /**
+     * 结束 span，恢复开始时的当前 Span
+     * @param span 可以为 null
+     */
+    public void end(Span span) {
+        if (span != null) {
+            detach(span);
+            finish(span);
+        }
+    }
+
+    /**
+     * 只恢复当前线程上的 Span，不结束 span，用于在其他线程上结束的异步请求
+     * @param span
+     */
+    public void detach(Span span) {
+        CURRENT.set(span.previous);
+    }
+
+    /**
+     * 结束 span 并交给 SpanExporter，可以在任意线程上调用
+     * @param span
+     */
+    public void finish(Span span) {
+        span.durationNanos = System.nanoTime() - span.startNanos;
+        span.previous = null;
+        exporter.export(span);
+    }
+
+    /**
+     * @return 发往下游的 traceparent，没有调用链上下文时返回 null
+     */
+    public String traceparent(Span span) {
+        if (span != null) {
+            return span.traceparent();
+        }
+        return CURRENT.get() == UNSAMPLED ? UNSAMPLED_TRACEPARENT : null;
+    }
+
+    private static long parseHex(String value, int offset) {
+        long result = 0;
+        for (int i = offset; i < offset + 16; i++) {
+            int digit = hexDigit(value.charAt(i));
+            if (digit < 0) {
+                return 0;
+            }
+            result = (result << 4) | digit;
+        }
+        return result;
+    }
+
+    private static int hexDigit(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,50 @@
+package com.cius.auth.trace;
+
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.IOException;
+import java.net.URI;
+
+/**
+ * RestTemplate 发往其他服务的请求：采样时记为一个客户端 Span（名字是 方法 + host:port + 路径），
+ * 并把它作为父级写进 traceparent 请求头；未采样时带上不采样的 traceparent，不在请求里的后台调用什么都不加。
+ * 客户端 Span 的耗时减去下游服务端 Span 的耗时，就是连接池等待和网络上的时间。
+ * user-server 和 client-app 共用这一份（common 模块）。
+ */
+public class TracingClientHttpRequestInterceptor implements ClientHttpRequestInterceptor {
+
+    private final Tracer tracer;
+
+    public TracingClientHttpRequestInterceptor(Tracer tracer) {
+        this.tracer = tracer;
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+        Span span = null;
+        if (tracer.isSampled()) {
+            URI uri = request.getURI();
+            span = tracer.start(request.getMethodValue() + " " + uri.getHost() + ":" + uri.getPort() + uri.getPath());
+        }
+        String traceparent = tracer.traceparent(span);
+        if (traceparent != null) {
+            request.getHeaders().set(Tracer.TRACEPARENT, traceparent);
+        }
+        if (span == null) {
+            return execution.execute(request, body);
+        }
+        try {
+            ClientHttpResponse response = execution.execute(request, body);
+            span.setStatus(response.getRawStatusCode());
+            return response;
+        } catch (IOException | RuntimeException e) {
+            span.setStatus(-1);
+            throw e;
+        } finally {
+            tracer.end(span);
+        }
+    }
+}
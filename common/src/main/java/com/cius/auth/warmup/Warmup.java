@@ -0,0 +1,111 @@
+package com.cius.auth.warmup;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 启动预热：按顺序执行若干步骤，所有步骤共用一个时间预算，预算用完后剩下的步骤跳过，
+ * 可重复的步骤在次数达到或预算用完时停止。某一步失败只记录日志，不影响启动。
+ *
+ * 指标：
+ *  warmup.step：每一步的耗时，标签 step 和 outcome（completed、partial、skipped、failed）；
+ *  warmup.iterations：每一步实际执行的次数；
+ *  warmup.completed：所有步骤都在预算内完成为 1，否则为 0。
+ *    预热结束后没有别的地方引用 Warmup 对象，所以 Gauge 用强引用持有它，否则 GC 之后指标变成 NaN。
+ *
+ * auth-server 和 user-server 共用这一份。
+ */
+public class Warmup {
+
+    private static final Logger logger = LoggerFactory.getLogger(Warmup.class);
+
+    public static final String COMPLETED = "completed";
+
+    public static final String PARTIAL = "partial";
+
+    public static final String SKIPPED = "skipped";
+
+    public static final String FAILED = "failed";
+
+    private final MeterRegistry registry;
+
+    private final long startNanos = System.nanoTime();
+
+    private final long deadlineNanos;
+
+    private volatile boolean completed = true;
+
+    public Warmup(MeterRegistry registry, long budget, TimeUnit unit) {
+        this.registry = registry;
+        this.deadlineNanos = startNanos + unit.toNanos(budget);
+    }
+
+    /**
+     * 执行一次
+     */
+    public void step(String name, Runnable action) {
+        repeat(name, 1, action);
+    }
+
+    /**
+     * 最多执行 iterations 次，预算用完时提前停止
+     */
+    public void repeat(String name, int iterations, Runnable action) {
+        if (isExpired()) {
+            record(name, SKIPPED, 0, 0);
+            return;
+        }
+        long start = System.nanoTime();
+        int done = 0;
+        try {
+            while (done < iterations && !isExpired()) {
+                action.run();
+                done++;
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Warm-up step '{}' failed after {} iteration(s)", name, done, e);
+            record(name, FAILED, done, System.nanoTime() - start);
+            return;
+        }
+        record(name, done < iterations ? PARTIAL : COMPLETED, done, System.nanoTime() - start);
+    }
+
+    /**
+     * 所有步骤执行完之后调用，记录总耗时和是否完整完成
+     */
+    public void finish() {
+        long elapsed = System.nanoTime() - startNanos;
+        Gauge.builder("warmup.completed", this, w -> w.completed ? 1 : 0)
+                .strongReference(true)
+                .description("1 if every warm-up step finished within the budget").register(registry);
+        Timer.builder("warmup.duration").description("Total time spent warming up")
+                .register(registry).record(elapsed, TimeUnit.NANOSECONDS);
+        logger.info("Warm-up {} in {} ms", completed ? "completed" : "stopped early",
+                TimeUnit.NANOSECONDS.toMillis(elapsed));
+    }
+
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    public boolean isExpired() {
+        return System.nanoTime() - deadlineNanos >= 0;
+    }
+
+    private void record(String name, String outcome, int iterations, long nanos) {
+        if (!COMPLETED.equals(outcome)) {
+            completed = false;
+        }
+        Timer.builder("warmup.step").description("Time spent in each warm-up step")
+                .tag("step", name).tag("outcome", outcome)
+                .register(registry).record(nanos, TimeUnit.NANOSECONDS);
+        registry.counter("warmup.iterations", "step", name).increment(iterations);
+        logger.debug("Warm-up step '{}' {}: {} iteration(s) in {} ms", name, outcome, iterations,
+                TimeUnit.NANOSECONDS.toMillis(nanos));
+    }
+}
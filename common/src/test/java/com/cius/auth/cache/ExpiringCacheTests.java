@@ -0,0 +1,101 @@
+package com.cius.auth.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExpiringCacheTests {
+
+    @Test
+    void concurrentMissesLoadOnce() throws Exception {
+        ExpiringCache<String, String> cache = new ExpiringCache<>(10, 1, TimeUnit.MINUTES);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            Future<?>[] futures = new Future<?>[8];
+            for (int i = 0; i < futures.length; i++) {
+                futures[i] = executor.submit(() -> cache.get("k", key -> {
+                    loads.incrementAndGet();
+                    await(release);
+                    return "v";
+                }));
+            }
+            Thread.sleep(100);
+            release.countDown();
+            for (Future<?> future : futures) {
+                assertEquals("v", future.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.loadCount());
+    }
+
+    @Test
+    void failuresAndInvalidatedLoadsAreNotCached() {
+        ExpiringCache<String, String> cache = new ExpiringCache<>(10, 1, TimeUnit.MINUTES);
+        assertThrows(IllegalStateException.class, () -> cache.get("k", key -> {
+            throw new IllegalStateException("down");
+        }));
+        assertEquals(1, cache.loadFailureCount());
+        assertNull(cache.getIfPresent("k"));
+
+        assertEquals("stale", cache.get("k", key -> {
+            cache.invalidate(key);
+            return "stale";
+        }));
+        assertNull(cache.getIfPresent("k"));
+    }
+
+    @Test
+    void entriesExpireAtTheirOwnTtl() throws Exception {
+        ExpiringCache<String, String> cache = new ExpiringCache<>(10, 1, TimeUnit.MINUTES);
+        cache.put("short", "v", 20, TimeUnit.MILLISECONDS);
+        cache.put("long", "v");
+        Thread.sleep(50);
+        assertNull(cache.getIfPresent("short"));
+        assertEquals("v", cache.getIfPresent("long"));
+    }
+
+    @Test
+    void evictionIsBatchedBelowMaxSize() {
+        ExpiringCache<Integer, Integer> cache = new ExpiringCache<>(100, 1, TimeUnit.MINUTES);
+        for (int i = 0; i <= 100; i++) {
+            cache.put(i, i);
+        }
+        // 超出上限时清理到 90 个，接下来的 10 次 put 不会再遍历
+        assertEquals(90, cache.size());
+        assertEquals(11, cache.evictionCount());
+        for (int i = 101; i < 111; i++) {
+            cache.put(i, i);
+        }
+        assertEquals(100, cache.size());
+        assertEquals(11, cache.evictionCount());
+        for (int i = 0; i < 10_000; i++) {
+            cache.put(1000 + i, i);
+            assertTrue(cache.size() <= 100);
+        }
+        // 每次清理至少移除 10 个条目
+        assertTrue(cache.evictionCount() >= 10_000);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
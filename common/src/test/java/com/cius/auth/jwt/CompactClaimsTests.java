@@ -0,0 +1,56 @@
+package com.cius.auth.jwt;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.common.exceptions.InvalidTokenException;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * 签发和解析用的是同一份转换，compact 之后 expand 要得到原来的 claims
+ */
+class CompactClaimsTests {
+
+    private final TokenDictionary dictionary = new TokenDictionary(Arrays.asList("ROLE_admin", "ROLE_user"),
+            Collections.singletonList("all"));
+
+    @Test
+    void compactClaimsExpandToTheOriginal() {
+        Map<String, Object> claims = new LinkedHashMap<>();
+        claims.put("user_name", "sang");
+        claims.put("client_id", "javaboy");
+        claims.put("authorities", Arrays.asList("ROLE_admin", "ROLE_ops"));
+        claims.put("scope", Collections.singletonList("all"));
+        claims.put("aud", Collections.singletonList("res1"));
+        claims.put("exp", 1700000000L);
+        claims.put("jti", "c0a8e4b2");
+        claims.put("tenant", "t1");
+
+        Map<String, Object> compact = CompactClaims.compact(claims, dictionary, null);
+        assertEquals(dictionary.getId(), compact.get(CompactClaims.DICTIONARY));
+        assertEquals(Arrays.asList(0, "ROLE_ops"), compact.get(CompactClaims.AUTHORITY_LIST));
+        assertEquals(claims, CompactClaims.expand(compact, id -> dictionary.getId().equals(id) ? dictionary : null));
+    }
+
+    @Test
+    void standardClaimsAreReturnedAsIs() {
+        Map<String, Object> claims = Collections.singletonMap("user_name", "sang");
+        assertSame(claims, CompactClaims.expand(claims, id -> null));
+    }
+
+    @Test
+    void unknownOrMalformedCompactClaimsAreRejected() {
+        Map<String, Object> compact = CompactClaims.compact(Collections.singletonMap("authorities",
+                Collections.singletonList("ROLE_admin")), dictionary, null);
+        assertThrows(InvalidTokenException.class, () -> CompactClaims.expand(compact, id -> null));
+
+        compact.put(CompactClaims.AUTHORITY_LIST, Collections.singletonList(7));
+        assertThrows(InvalidTokenException.class, () -> CompactClaims.expand(compact, id -> dictionary));
+    }
+}
@@ -0,0 +1,81 @@
+package com.cius.auth.trace;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TracerTests {
+
+    private static final String UPSTREAM = "00-0af7651916cd43dd8448eb211c80319c-b7ad6b7169203331-01";
+
+    @Test
+    void childSpansContinueUpstreamTraceAndAreExported() throws Exception {
+        Path directory = Files.createTempDirectory("trace");
+        SpanExporter exporter = new SpanExporter(directory, "auth-server", 16, 4, 1024 * 1024);
+        exporter.afterPropertiesSet();
+        Tracer tracer = new Tracer(exporter, 0);
+        try {
+            assertTrue(tracer.enter(UPSTREAM));
+            Span request = tracer.start("POST /oauth/token");
+            Span phase = tracer.start("client_secret");
+            String downstream = tracer.traceparent(phase);
+            tracer.end(phase);
+            request.setStatus(200);
+            tracer.end(request);
+            tracer.clear();
+
+            assertTrue(downstream.startsWith("00-0af7651916cd43dd8448eb211c80319c-"));
+            assertTrue(downstream.endsWith("-01"));
+            assertEquals(55, downstream.length());
+        } finally {
+            exporter.destroy();
+        }
+
+        List<String> lines = Files.readAllLines(directory.resolve("auth-server.jsonl"), StandardCharsets.UTF_8);
+        assertEquals(2, lines.size());
+        assertTrue(lines.get(0).contains("\"name\":\"client_secret\""));
+        assertTrue(lines.get(1).contains("\"parent\":\"b7ad6b7169203331\""));
+        assertTrue(lines.get(1).contains("\"status\":200"));
+        String requestSpanId = lines.get(1).substring(lines.get(1).indexOf("\"span\":\"") + 8).substring(0, 16);
+        assertTrue(lines.get(0).contains("\"parent\":\"" + requestSpanId + "\""));
+        assertEquals(2, exporter.getExportedCount());
+    }
+
+    @Test
+    void unsampledRequestsPropagateTheDecisionWithoutSpans() {
+        SpanExporter exporter = new SpanExporter(Paths.get("unused"), "auth-server", 16, 4, 1024);
+        Tracer tracer = new Tracer(exporter, 1);
+        assertFalse(tracer.enter("00-0af7651916cd43dd8448eb211c80319c-b7ad6b7169203331-00"));
+        assertFalse(tracer.isSampled());
+        assertNull(tracer.start("client_lookup"));
+        assertEquals(Tracer.UNSAMPLED_TRACEPARENT, tracer.traceparent(null));
+        tracer.clear();
+
+        assertNull(tracer.traceparent(null));
+        assertTrue(tracer.enter("garbage"));
+        assertTrue(tracer.isSampled());
+        tracer.clear();
+        assertEquals(0, exporter.getExportedCount() + exporter.getDroppedCount());
+    }
+
+    @Test
+    void exporterDropsWhenQueueIsFull() {
+        SpanExporter exporter = new SpanExporter(Paths.get("unused"), "auth-server", 2, 2, 1024);
+        Tracer tracer = new Tracer(exporter, 1);
+        tracer.enter(null);
+        for (int i = 0; i < 5; i++) {
+            tracer.end(tracer.start("phase"));
+        }
+        tracer.clear();
+        assertEquals(3, exporter.getDroppedCount());
+    }
+}
@@ -0,0 +1,89 @@
+package com.cius.auth.warmup;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WarmupTests {
+
+    @Test
+    void stepsCompleteWithinBudget() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        Warmup warmup = new Warmup(registry, 1, TimeUnit.MINUTES);
+        AtomicInteger count = new AtomicInteger();
+        warmup.step("once", count::incrementAndGet);
+        warmup.repeat("many", 10, count::incrementAndGet);
+        warmup.finish();
+
+        assertEquals(11, count.get());
+        assertTrue(warmup.isCompleted());
+        assertEquals(10.0, registry.get("warmup.iterations").tag("step", "many").counter().count());
+        assertEquals(1.0, registry.get("warmup.completed").gauge().value());
+    }
+
+    @Test
+    void failedStepDoesNotStopLaterSteps() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        Warmup warmup = new Warmup(registry, 1, TimeUnit.MINUTES);
+        AtomicInteger count = new AtomicInteger();
+        warmup.step("broken", () -> {
+            throw new IllegalStateException("down");
+        });
+        warmup.step("next", count::incrementAndGet);
+        warmup.finish();
+
+        assertEquals(1, count.get());
+        assertFalse(warmup.isCompleted());
+        assertNotNull(registry.get("warmup.step").tags("step", "broken", "outcome", Warmup.FAILED).timer());
+        assertEquals(0.0, registry.get("warmup.completed").gauge().value());
+    }
+
+    @Test
+    void budgetStopsRepeatAndSkipsRemainingSteps() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        Warmup warmup = new Warmup(registry, 20, TimeUnit.MILLISECONDS);
+        AtomicInteger count = new AtomicInteger();
+        warmup.repeat("slow", Integer.MAX_VALUE, () -> {
+            count.incrementAndGet();
+            sleep(5);
+        });
+        warmup.step("late", count::incrementAndGet);
+        warmup.finish();
+
+        assertTrue(warmup.isExpired());
+        assertFalse(warmup.isCompleted());
+        assertNotNull(registry.get("warmup.step").tags("step", "slow", "outcome", Warmup.PARTIAL).timer());
+        assertNotNull(registry.get("warmup.step").tags("step", "late", "outcome", Warmup.SKIPPED).timer());
+        assertEquals(count.get(), (int) registry.get("warmup.iterations").tag("step", "slow").counter().count());
+    }
+
+    @Test
+    void completedGaugeSurvivesGarbageCollection() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        finishedWarmup(registry);
+        System.gc();
+        assertEquals(1.0, registry.get("warmup.completed").gauge().value());
+    }
+
+    private static void finishedWarmup(SimpleMeterRegistry registry) {
+        Warmup warmup = new Warmup(registry, 1, TimeUnit.MINUTES);
+        warmup.step("once", () -> {
+        });
+        warmup.finish();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
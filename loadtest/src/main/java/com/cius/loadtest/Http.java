@@ -0,0 +1,157 @@
+package com.cius.loadtest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 压测用的最小 HTTP 客户端，基于 HttpURLConnection：
+ * 不跟随重定向（authorization_code 流程要从 302 的 Location 里取 code），
+ * 每次都把响应读完，这样 JDK 的 keep-alive 连接池才能复用连接；
+ * 连接池大小由 http.maxConnections 决定，LoadTest 启动时按并发数设置。
+ */
+public final class Http {
+
+    private static final int CONNECT_TIMEOUT_MS = 2000;
+
+    private static final int READ_TIMEOUT_MS = 10000;
+
+    private Http() {
+    }
+
+    public static Response get(String url, String... headers) throws IOException {
+        HttpURLConnection connection = open(url, "GET", headers);
+        return read(connection);
+    }
+
+    public static Response postForm(String url, String form, String... headers) throws IOException {
+        HttpURLConnection connection = open(url, "POST", headers);
+        connection.setDoOutput(true);
+        connection.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(form.getBytes(StandardCharsets.UTF_8));
+        }
+        return read(connection);
+    }
+
+    public static String basic(String username, String password) {
+        return "Basic " + Base64.getEncoder().encodeToString((username + ":" + password).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static String encode(String value) {
+        try {
+            return URLEncoder.encode(value, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 从 JSON 响应里取一个字符串字段，令牌响应的结构很固定，不值得为此引入 JSON 库
+     * @param json
+     * @param field
+     * @return
+     */
+    public static String field(String json, String field) {
+        String key = "\"" + field + "\":\"";
+        int start = json.indexOf(key);
+        if (start < 0) {
+            return null;
+        }
+        start += key.length();
+        int end = json.indexOf('"', start);
+        return end < 0 ? null : json.substring(start, end);
+    }
+
+    private static HttpURLConnection open(String url, String method, String... headers) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setRequestMethod(method);
+        connection.setInstanceFollowRedirects(false);
+        connection.setConnectTimeout(CONNECT_TIMEOUT_MS);
+        connection.setReadTimeout(READ_TIMEOUT_MS);
+        for (int i = 0; i + 1 < headers.length; i += 2) {
+            connection.setRequestProperty(headers[i], headers[i + 1]);
+        }
+        return connection;
+    }
+
+    private static Response read(HttpURLConnection connection) throws IOException {
+        int status = connection.getResponseCode();
+        InputStream in = status >= 400 ? connection.getErrorStream() : connection.getInputStream();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        if (in != null) {
+            try (InputStream stream = in) {
+                byte[] buffer = new byte[4096];
+                int read;
+                while ((read = stream.read(buffer)) >= 0) {
+                    body.write(buffer, 0, read);
+                }
+            }
+        }
+        return new Response(status, new String(body.toByteArray(), StandardCharsets.UTF_8), connection.getHeaderFields());
+    }
+
+    public static class Response {
+
+        private final int status;
+
+        private final String body;
+
+        private final Map<String, List<String>> headers;
+
+        Response(int status, String body, Map<String, List<String>> headers) {
+            this.status = status;
+            this.body = body;
+            this.headers = headers;
+        }
+
+        public int getStatus() {
+            return status;
+        }
+
+        public String getBody() {
+            return body;
+        }
+
+        public String getHeader(String name) {
+            for (Map.Entry<String, List<String>> entry : headers.entrySet()) {
+                if (name.equalsIgnoreCase(entry.getKey()) && !entry.getValue().isEmpty()) {
+                    return entry.getValue().get(0);
+                }
+            }
+            return null;
+        }
+
+        /**
+         * @param name
+         * @return Set-Cookie 里名为 name 的 cookie，形如 JSESSIONID=xxx，没有时返回 null
+         */
+        public String getCookie(String name) {
+            for (Map.Entry<String, List<String>> entry : headers.entrySet()) {
+                if (!"Set-Cookie".equalsIgnoreCase(entry.getKey())) {
+                    continue;
+                }
+                for (String value : entry.getValue()) {
+                    if (value.startsWith(name + "=")) {
+                        int end = value.indexOf(';');
+                        return end < 0 ? value : value.substring(0, end);
+                    }
+                }
+            }
+            return null;
+        }
+
+        public boolean isSuccessful() {
+            return status >= 200 && status < 300;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.cius.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 按请求类型统计延迟和结果：
+ * 延迟用 HdrHistogram 记录（微秒，最大 60 秒，3 位有效数字），多个线程可以同时写；
+ * 记录的是从计划发出时间到响应读完的时间，包含在压测程序里排队的时间，避免协调遗漏；
+ * dropped 是排队请求超过 max-outstanding 时直接放弃的请求，说明被测系统已经跟不上设定的速率，
+ * 这些请求没有延迟数据，但会让这一行的结果失去意义，报告里单独列出来。
+ */
+public class LatencyReport {
+
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.SECONDS.toMicros(60);
+
+    private final Map<Operation, Stats> stats = new EnumMap<>(Operation.class);
+
+    public LatencyReport() {
+        for (Operation operation : Operation.values()) {
+            stats.put(operation, new Stats());
+        }
+    }
+
+    public void record(Operation operation, long latencyNanos, boolean success) {
+        Stats stat = stats.get(operation);
+        stat.histogram.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(latencyNanos), HIGHEST_TRACKABLE_MICROS));
+        if (success) {
+            stat.succeeded.increment();
+        } else {
+            stat.failed.increment();
+        }
+    }
+
+    public void dropped(Operation operation) {
+        stats.get(operation).dropped.increment();
+    }
+
+    /**
+     * 预热结束时清空
+     */
+    public void reset() {
+        for (Stats stat : stats.values()) {
+            stat.histogram.reset();
+            stat.succeeded.reset();
+            stat.failed.reset();
+            stat.dropped.reset();
+        }
+    }
+
+    public void print(PrintStream out, double seconds) {
+        out.printf("%-20s %9s %8s %8s %9s %9s %9s %9s %9s %9s%n", "operation", "count", "errors", "dropped",
+                "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        Histogram total = new Histogram(HIGHEST_TRACKABLE_MICROS, 3);
+        long totalErrors = 0;
+        long totalDropped = 0;
+        for (Map.Entry<Operation, Stats> entry : stats.entrySet()) {
+            Stats stat = entry.getValue();
+            Histogram histogram = stat.histogram.copy();
+            long errors = stat.failed.sum();
+            long dropped = stat.dropped.sum();
+            if (histogram.getTotalCount() == 0 && dropped == 0) {
+                continue;
+            }
+            total.add(histogram);
+            totalErrors += errors;
+            totalDropped += dropped;
+            print(out, entry.getKey().getName(), histogram, errors, dropped, seconds);
+        }
+        print(out, "total", total, totalErrors, totalDropped, seconds);
+    }
+
+    /**
+     * 每种请求写一个 .hgrm 文件（毫秒），可以用 HdrHistogram 的绘图工具比较多次压测的结果
+     * @param directory
+     * @throws IOException
+     */
+    public void writeHistograms(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        for (Map.Entry<Operation, Stats> entry : stats.entrySet()) {
+            Histogram histogram = entry.getValue().histogram.copy();
+            if (histogram.getTotalCount() == 0) {
+                continue;
+            }
+            try (PrintStream out = new PrintStream(Files.newOutputStream(
+                    directory.resolve(entry.getKey().getName() + ".hgrm")), false, "UTF-8")) {
+                histogram.outputPercentileDistribution(out, 1000.0);
+            }
+        }
+    }
+
+    private static void print(PrintStream out, String name, Histogram histogram, long errors, long dropped, double seconds) {
+        out.printf("%-20s %9d %8d %8d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n", name, histogram.getTotalCount(),
+                errors, dropped, histogram.getTotalCount() / seconds,
+                millis(histogram, 50), millis(histogram, 90), millis(histogram, 99), millis(histogram, 99.9),
+                histogram.getMaxValue() / 1000.0);
+    }
+
+    private static double millis(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    private static class Stats {
+
+        final ConcurrentHistogram histogram = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3);
+
+        final LongAdder succeeded = new LongAdder();
+
+        final LongAdder failed = new LongAdder();
+
+        final LongAdder dropped = new LongAdder();
+    }
+}
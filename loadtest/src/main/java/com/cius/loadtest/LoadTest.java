@@ -0,0 +1,78 @@
+package com.cius.loadtest;
+
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 端到端压测入口：启动 LocalStack（或者直接压已经运行的服务），
+ * 按 mix 混合 password、refresh_token、check_token、resource、authorization_code 五类请求，
+ * 以固定速率预热 warmup-seconds 秒、正式压测 duration-seconds 秒，
+ * 最后按请求类型输出吞吐量和 p50/p90/p99/p99.9/max 延迟，同时写到 output 目录下的 report.txt 和 .hgrm 文件。
+ * 调优前后用同样的参数各跑一次，对比两份报告即可；服务日志（&lt;服务名&gt;.log）也在 output 目录下。
+ * 由这里启动服务时，停止服务（调用链写完）之后再用 TraceSummary 按服务和调用段汇总耗时，写到 trace-summary.txt。
+ */
+public class LoadTest {
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+        // HttpURLConnection 每个地址默认只保留 5 个空闲连接，并发高时会不停地新建连接
+        System.setProperty("http.maxConnections", String.valueOf(options.getConcurrency()));
+
+        LocalStack stack = null;
+        List<String> users = Arrays.asList("sang", "javaboy");
+        List<String> admins = Collections.singletonList("sang");
+        if (options.isStart()) {
+            stack = LocalStack.start(options);
+            LocalStack running = stack;
+            Runtime.getRuntime().addShutdownHook(new Thread(running::stop, "loadtest-shutdown"));
+            users = stack.getUsers();
+            admins = stack.getAdmins();
+        }
+
+        OpenLoadGenerator generator = null;
+        try {
+            Scenario scenario = new Scenario(options.getAuthUrl(), options.getUserUrl(), options.getClientUrl(),
+                    LocalStack.CLIENT_ID, LocalStack.CLIENT_SECRET, users, admins);
+            scenario.prepare(options.getSessions());
+
+            LatencyReport report = new LatencyReport();
+            generator = new OpenLoadGenerator(scenario, report, options.getMix(), options.getRate(),
+                    options.getConcurrency(), options.getMaxOutstanding());
+            System.out.println(options);
+            if (options.getWarmupSeconds() > 0) {
+                System.out.println("warming up for " + options.getWarmupSeconds() + "s ...");
+                generator.run(options.getWarmupSeconds());
+                report.reset();
+            }
+            System.out.println("measuring for " + options.getDurationSeconds() + "s ...");
+            double seconds = generator.run(options.getDurationSeconds());
+
+            report.print(System.out, seconds);
+            Files.createDirectories(options.getOutput());
+            try (PrintStream out = new PrintStream(Files.newOutputStream(options.getOutput().resolve("report.txt")), false, "UTF-8")) {
+                out.println(options);
+                report.print(out, seconds);
+            }
+            report.writeHistograms(options.getOutput());
+
+            if (stack != null) {
+                stack.stop();
+                TraceSummary.print(stack.getTraceDirectory(), System.out);
+                try (PrintStream out = new PrintStream(Files.newOutputStream(options.getOutput().resolve("trace-summary.txt")), false, "UTF-8")) {
+                    TraceSummary.print(stack.getTraceDirectory(), out);
+                }
+            }
+            System.out.println("report written to " + options.getOutput().toAbsolutePath());
+        } finally {
+            if (generator != null) {
+                generator.shutdown();
+            }
+            if (stack != null) {
+                stack.stop();
+            }
+        }
+    }
+}
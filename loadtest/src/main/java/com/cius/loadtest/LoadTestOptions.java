@@ -0,0 +1,203 @@
+package com.cius.loadtest;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 压测参数，命令行写成 key=value（前面的 -- 可以省略），没给的用默认值：
+ *  rate                  每秒发起的请求数（开放模型，和响应快慢无关），默认 200
+ *  duration-seconds      正式压测时长，默认 60
+ *  warmup-seconds        预热时长，预热期间的结果不计入报告，默认 15
+ *  mix                   各类请求的权重，默认 password=30,refresh_token=15,check_token=20,resource=25,authorization_code=10
+ *  concurrency           发请求的线程数，默认 256
+ *  max-outstanding       排队加执行中的请求上限，超出的请求记为 dropped，默认 rate * 10
+ *  users                 额外初始化的用户数（user-0 ... user-N），默认 1000
+ *  sessions              预先登录好的浏览器会话数，authorization_code 流程用，默认 50
+ *  start                 是否由压测程序启动 H2、Redis 和三个服务，默认 true；
+ *                        false 时直接压 auth-url、user-url、client-url，数据需要自己准备好
+ *  auth-port、user-port、client-port、redis-port、h2-port  启动服务时使用的端口
+ *  auth-jar、user-jar、client-jar  三个服务的可执行 jar，默认 ../xxx/target 下 mvn package 的产物
+ *  h2-jar                H2 驱动的 jar，默认用压测程序自己 classpath 上的那个
+ *  jvm-options           启动服务时的 JVM 参数，空格分隔，默认 -Xms512m -Xmx512m
+ *  auth-args、user-args、client-args  追加给各个服务的启动参数，空格分隔，可以覆盖默认配置
+ *  trace-sample-rate     三个服务的调用链采样比例，默认 0.01，Span 写到 output/trace，结束时由 TraceSummary 汇总
+ *  output                报告、延迟分布（.hgrm）和服务日志的目录，默认 target/loadtest
+ */
+public class LoadTestOptions {
+
+    private static final String DEFAULT_MIX = "password=30,refresh_token=15,check_token=20,resource=25,authorization_code=10";
+
+    private final Map<String, String> values = new HashMap<>();
+
+    public static LoadTestOptions parse(String... args) {
+        LoadTestOptions options = new LoadTestOptions();
+        for (String arg : args) {
+            String option = arg.startsWith("--") ? arg.substring(2) : arg;
+            int index = option.indexOf('=');
+            if (index <= 0) {
+                throw new IllegalArgumentException("参数格式应为 key=value：" + arg);
+            }
+            options.values.put(option.substring(0, index).trim(), option.substring(index + 1).trim());
+        }
+        return options;
+    }
+
+    public int getRate() {
+        return getInt("rate", 200);
+    }
+
+    public int getDurationSeconds() {
+        return getInt("duration-seconds", 60);
+    }
+
+    public int getWarmupSeconds() {
+        return getInt("warmup-seconds", 15);
+    }
+
+    /**
+     * 解析 mix，权重为 0 的类型不会出现
+     * @return
+     */
+    public Map<Operation, Integer> getMix() {
+        Map<Operation, Integer> mix = new EnumMap<>(Operation.class);
+        for (String entry : get("mix", DEFAULT_MIX).split(",")) {
+            if (entry.trim().isEmpty()) {
+                continue;
+            }
+            String[] parts = entry.split("=");
+            int weight = Integer.parseInt(parts[1].trim());
+            if (weight > 0) {
+                mix.put(Operation.of(parts[0].trim()), weight);
+            }
+        }
+        if (mix.isEmpty()) {
+            throw new IllegalArgumentException("mix 至少要有一种请求");
+        }
+        return mix;
+    }
+
+    public int getConcurrency() {
+        return getInt("concurrency", 256);
+    }
+
+    public int getMaxOutstanding() {
+        return getInt("max-outstanding", getRate() * 10);
+    }
+
+    public int getUsers() {
+        return getInt("users", 1000);
+    }
+
+    public int getSessions() {
+        return getInt("sessions", 50);
+    }
+
+    public boolean isStart() {
+        return Boolean.parseBoolean(get("start", "true"));
+    }
+
+    public int getAuthPort() {
+        return getInt("auth-port", 18080);
+    }
+
+    public int getUserPort() {
+        return getInt("user-port", 18081);
+    }
+
+    public int getClientPort() {
+        return getInt("client-port", 18082);
+    }
+
+    public int getRedisPort() {
+        return getInt("redis-port", 16379);
+    }
+
+    public int getH2Port() {
+        return getInt("h2-port", 19092);
+    }
+
+    public String getAuthUrl() {
+        return get("auth-url", "http://localhost:" + getAuthPort());
+    }
+
+    public String getUserUrl() {
+        return get("user-url", "http://localhost:" + getUserPort());
+    }
+
+    public String getClientUrl() {
+        return get("client-url", "http://localhost:" + getClientPort());
+    }
+
+    public Path getAuthJar() {
+        return Paths.get(get("auth-jar", "../auth-server/target/auth-server-0.0.1-SNAPSHOT-exec.jar"));
+    }
+
+    public Path getUserJar() {
+        return Paths.get(get("user-jar", "../user-server/target/user-server-0.0.1-SNAPSHOT-exec.jar"));
+    }
+
+    public Path getClientJar() {
+        return Paths.get(get("client-jar", "../client-app/target/client-app-0.0.1-SNAPSHOT.jar"));
+    }
+
+    /**
+     * @return 没有指定时返回 null，由 LocalStack 去找 org.h2.Driver 所在的 jar
+     */
+    public Path getH2Jar() {
+        String value = values.get("h2-jar");
+        return value == null ? null : Paths.get(value);
+    }
+
+    public List<String> getJvmOptions() {
+        return split(get("jvm-options", "-Xms512m -Xmx512m"));
+    }
+
+    public List<String> getAuthArgs() {
+        return split(get("auth-args", ""));
+    }
+
+    public List<String> getUserArgs() {
+        return split(get("user-args", ""));
+    }
+
+    public List<String> getClientArgs() {
+        return split(get("client-args", ""));
+    }
+
+    public String getTraceSampleRate() {
+        return get("trace-sample-rate", "0.01");
+    }
+
+    public Path getOutput() {
+        return Paths.get(get("output", "target/loadtest"));
+    }
+
+    private String get(String key, String defaultValue) {
+        return values.getOrDefault(key, defaultValue);
+    }
+
+    private int getInt(String key, int defaultValue) {
+        String value = values.get(key);
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+
+    private static List<String> split(String value) {
+        if (value.trim().isEmpty()) {
+            return Collections.emptyList();
+        }
+        return new ArrayList<>(Arrays.asList(value.trim().split("\\s+")));
+    }
+
+    @Override
+    public String toString() {
+        return "rate=" + getRate() + "/s, duration=" + getDurationSeconds() + "s, warmup=" + getWarmupSeconds()
+                + "s, concurrency=" + getConcurrency() + ", max-outstanding=" + getMaxOutstanding() + ", mix=" + getMix();
+    }
+}
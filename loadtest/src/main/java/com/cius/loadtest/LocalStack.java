@@ -0,0 +1,271 @@
+package com.cius.loadtest;
+
+import org.h2.tools.Server;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Scanner;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 在本机启动完整的被测环境，不依赖外部的 MySQL 和 Redis：
+ *  1.H2 以 TCP 服务器方式运行在压测进程里（MySQL 兼容模式的内存库），建表并写入 javaboy 客户端和用户，
+ *    auth-server 通过 jdbc:h2:tcp 连接；
+ *  2.嵌入式 Redis，给 auth.code-store.type=redis、auth.rate-limit.mode=redis 这类配置用；
+ *  3.依次启动 auth-server、user-server、client-app，端口和相互之间的地址都由这里指定，
+ *    auth-server 和 user-server 等到 /actuator/health/readiness 返回 200（预热完成）才算就绪；
+ *    三个服务的调用链都写到 output/trace 下，启动前清掉上一次的结果。
+ * auth-server 关掉了限流，否则测出来的是限流阈值而不是服务本身的能力，需要时用 auth-args 打开。
+ * 用户：sang（ROLE_admin）、javaboy（ROLE_user）和 users 个 user-N（ROLE_user），其中每 10 个有一个是 ROLE_admin，
+ * 密码都是 123。
+ */
+public class LocalStack {
+
+    public static final String CLIENT_ID = "javaboy";
+
+    public static final String CLIENT_SECRET = "123";
+
+    private static final String PASSWORD = "123";
+
+    private static final int READY_TIMEOUT_SECONDS = 120;
+
+    private final LoadTestOptions options;
+
+    private final List<String> users = new ArrayList<>();
+
+    private final List<String> admins = new ArrayList<>();
+
+    private final List<ServiceProcess> processes = new ArrayList<>();
+
+    private final AtomicBoolean stopped = new AtomicBoolean();
+
+    private Server h2;
+
+    private Connection keepAlive;
+
+    private RedisServer redis;
+
+    private LocalStack(LoadTestOptions options) {
+        this.options = options;
+    }
+
+    public static LocalStack start(LoadTestOptions options) throws Exception {
+        LocalStack stack = new LocalStack(options);
+        try {
+            stack.startInfrastructure();
+            stack.startServices();
+        } catch (Exception e) {
+            stack.stop();
+            throw e;
+        }
+        return stack;
+    }
+
+    public Path getTraceDirectory() {
+        return options.getOutput().resolve("trace");
+    }
+
+    public List<String> getUsers() {
+        return Collections.unmodifiableList(users);
+    }
+
+    public List<String> getAdmins() {
+        return Collections.unmodifiableList(admins);
+    }
+
+    /**
+     * 按启动的相反顺序关闭，可以重复调用（正常结束和 Ctrl+C 的关闭钩子都会调用）
+     */
+    public void stop() {
+        if (!stopped.compareAndSet(false, true)) {
+            return;
+        }
+        for (int i = processes.size() - 1; i >= 0; i--) {
+            try {
+                processes.get(i).stop();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (redis != null) {
+            redis.stop();
+        }
+        if (keepAlive != null) {
+            try {
+                keepAlive.close();
+            } catch (SQLException e) {
+                // 马上就要关掉 H2 了
+            }
+        }
+        if (h2 != null) {
+            h2.stop();
+        }
+    }
+
+    private void startInfrastructure() throws SQLException, IOException {
+        h2 = Server.createTcpServer("-tcpPort", String.valueOf(options.getH2Port()), "-ifNotExists").start();
+        // 压测进程一直持有一个连接，加上 DB_CLOSE_DELAY=-1，内存库在整个压测期间都不会被清掉
+        keepAlive = DriverManager.getConnection(jdbcUrl(), "sa", "");
+        createSchema(keepAlive);
+        insertClients(keepAlive);
+        insertUsers(keepAlive);
+
+        redis = RedisServer.builder().port(options.getRedisPort()).setting("maxmemory 128M").build();
+        redis.start();
+    }
+
+    private void startServices() throws IOException, InterruptedException, URISyntaxException {
+        Path output = options.getOutput();
+        String authUrl = options.getAuthUrl();
+        String redisPort = "--spring.redis.port=" + options.getRedisPort();
+        Path traceDirectory = getTraceDirectory();
+        if (Files.isDirectory(traceDirectory)) {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(traceDirectory, "*.jsonl*")) {
+                for (Path file : files) {
+                    Files.delete(file);
+                }
+            }
+        }
+        List<String> traceArgs = Arrays.asList("--trace.dir=" + traceDirectory.toAbsolutePath(),
+                "--trace.sample-rate=" + options.getTraceSampleRate());
+
+        List<String> authArgs = new ArrayList<>(Arrays.asList(
+                "--server.port=" + options.getAuthPort(),
+                "--spring.datasource.url=" + jdbcUrl(),
+                "--spring.datasource.driver-class-name=org.h2.Driver",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.redis.host=localhost", redisPort, "--spring.redis.password=",
+                "--auth.rate-limit.enabled=false",
+                "--spring.profiles.active=dev",
+                "--auth.approvals.store=jdbc",
+                "--auth.audit.enabled=true",
+                "--auth.audit.dir=" + output.resolve("audit").toAbsolutePath()));
+        authArgs.addAll(traceArgs);
+        authArgs.addAll(options.getAuthArgs());
+        start("auth-server", options.getAuthJar(), h2Jar(), authArgs, authUrl + "/actuator/health/readiness");
+
+        List<String> userArgs = new ArrayList<>(Arrays.asList(
+                "--server.port=" + options.getUserPort(),
+                "--spring.redis.host=localhost", redisPort, "--spring.redis.password=",
+                "--resource.jwks.url=" + authUrl + "/.well-known/jwks.json",
+                "--resource.token-dictionary.url=" + authUrl + "/.well-known/token-dictionary.json",
+                "--resource.remote.check-token-url=" + authUrl + "/oauth/check_token",
+                "--resource.remote.batch-url=" + authUrl + "/oauth/introspect/batch",
+                "--resource.revocation.base-url=" + authUrl));
+        userArgs.addAll(traceArgs);
+        userArgs.addAll(options.getUserArgs());
+        start("user-server", options.getUserJar(), null, userArgs, options.getUserUrl() + "/actuator/health/readiness");
+
+        List<String> clientArgs = new ArrayList<>(Arrays.asList(
+                "--server.port=" + options.getClientPort(),
+                "--client.token-uri=" + authUrl + "/oauth/token",
+                "--client.redirect-uri=" + options.getClientUrl() + "/index.html",
+                "--client.async-redirect-uri=" + options.getClientUrl() + "/async/index.html",
+                "--client.authorize-uri=" + authUrl + "/oauth/authorize",
+                "--client.resource-uri=" + options.getUserUrl(),
+                "--client.http.route-limits="));
+        clientArgs.addAll(traceArgs);
+        clientArgs.addAll(options.getClientArgs());
+        start("client-app", options.getClientJar(), null, clientArgs, options.getClientUrl() + "/index.html");
+    }
+
+    private void start(String name, Path jar, Path loaderPath, List<String> args, String readyUrl)
+            throws IOException, InterruptedException {
+        System.out.println("starting " + name + " ...");
+        ServiceProcess process = ServiceProcess.start(name, jar, loaderPath, options.getJvmOptions(), args, options.getOutput());
+        processes.add(process);
+        process.awaitReady(readyUrl, READY_TIMEOUT_SECONDS);
+    }
+
+    private String jdbcUrl() {
+        return "jdbc:h2:tcp://localhost:" + options.getH2Port() + "/mem:oauth_demo;MODE=MySQL;DB_CLOSE_DELAY=-1";
+    }
+
+    private Path h2Jar() throws URISyntaxException {
+        Path h2Jar = options.getH2Jar();
+        if (h2Jar != null) {
+            return h2Jar;
+        }
+        return Paths.get(org.h2.Driver.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+    }
+
+    private static void createSchema(Connection connection) throws SQLException, IOException {
+        String script;
+        try (InputStream in = LocalStack.class.getResourceAsStream("/schema.sql");
+             Scanner scanner = new Scanner(in, StandardCharsets.UTF_8.name()).useDelimiter("\\A")) {
+            script = scanner.next();
+        }
+        try (Statement statement = connection.createStatement()) {
+            for (String sql : script.split(";")) {
+                if (!sql.trim().isEmpty()) {
+                    statement.execute(sql);
+                }
+            }
+        }
+    }
+
+    private void insertClients(Connection connection) throws SQLException {
+        String sql = "insert into oauth_client_details (client_id, resource_ids, client_secret, scope, authorized_grant_types, "
+                + "web_server_redirect_uri, access_token_validity, refresh_token_validity, autoapprove) values (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setString(1, CLIENT_ID);
+            statement.setString(2, "res1");
+            statement.setString(3, new BCryptPasswordEncoder().encode(CLIENT_SECRET));
+            statement.setString(4, "all");
+            statement.setString(5, "password,refresh_token,authorization_code");
+            statement.setString(6, options.getClientUrl() + "/index.html," + options.getClientUrl() + "/async/index.html");
+            statement.setInt(7, 7200);
+            statement.setInt(8, 259200);
+            statement.setString(9, "true");
+            statement.executeUpdate();
+        }
+    }
+
+    private void insertUsers(Connection connection) throws SQLException {
+        // 所有用户共用一个哈希，BCrypt 编码很慢，没必要每个用户算一次
+        String password = new BCryptPasswordEncoder().encode(PASSWORD);
+        try (PreparedStatement user = connection.prepareStatement("insert into users (username, password, enabled) values (?, ?, ?)");
+             PreparedStatement authority = connection.prepareStatement("insert into authorities (username, authority) values (?, ?)")) {
+            addUser(user, authority, "sang", password, true);
+            addUser(user, authority, "javaboy", password, false);
+            for (int i = 0; i < options.getUsers(); i++) {
+                addUser(user, authority, "user-" + i, password, i % 10 == 0);
+            }
+            user.executeBatch();
+            authority.executeBatch();
+        }
+    }
+
+    private void addUser(PreparedStatement user, PreparedStatement authority, String username, String password,
+                         boolean admin) throws SQLException {
+        user.setString(1, username);
+        user.setString(2, password);
+        user.setBoolean(3, true);
+        user.addBatch();
+        authority.setString(1, username);
+        authority.setString(2, admin ? "ROLE_admin" : "ROLE_user");
+        authority.addBatch();
+        users.add(username);
+        if (admin) {
+            admins.add(username);
+        }
+    }
+}
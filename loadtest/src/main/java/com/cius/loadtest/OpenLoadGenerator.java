@@ -0,0 +1,119 @@
+package com.cius.loadtest;
+
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 开放模型的负载生成器：按固定速率安排请求，第 n 个请求的计划发出时间是 start + n / rate，
+ * 不管前面的请求有没有返回。每个请求的延迟从计划时间算起，
+ * 所以被测系统变慢、请求在线程池里排队时，排队时间也计入延迟，不会像“发完一个再发下一个”的闭环压测那样
+ * 因为发得慢了而把慢的那段时间藏起来（协调遗漏）。
+ * 排队加执行中的请求超过 maxOutstanding 时不再排队，直接记为 dropped，防止压测程序自己耗尽内存。
+ * 请求类型按 mix 的权重随机选择。
+ */
+public class OpenLoadGenerator {
+
+    private final Scenario scenario;
+
+    private final LatencyReport report;
+
+    private final int rate;
+
+    private final int maxOutstanding;
+
+    private final Operation[] operations;
+
+    private final int[] cumulativeWeights;
+
+    private final ExecutorService executor;
+
+    private final AtomicInteger outstanding = new AtomicInteger();
+
+    public OpenLoadGenerator(Scenario scenario, LatencyReport report, Map<Operation, Integer> mix,
+                             int rate, int concurrency, int maxOutstanding) {
+        this.scenario = scenario;
+        this.report = report;
+        this.rate = rate;
+        this.maxOutstanding = maxOutstanding;
+        this.operations = mix.keySet().toArray(new Operation[0]);
+        this.cumulativeWeights = new int[operations.length];
+        int sum = 0;
+        for (int i = 0; i < operations.length; i++) {
+            sum += mix.get(operations[i]);
+            cumulativeWeights[i] = sum;
+        }
+        AtomicInteger count = new AtomicInteger();
+        ThreadFactory threadFactory = r -> {
+            Thread thread = new Thread(r, "load-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        this.executor = Executors.newFixedThreadPool(concurrency, threadFactory);
+    }
+
+    /**
+     * 按设定速率发 seconds 秒请求，然后等待已发出的请求完成（最多 30 秒）
+     * @param seconds
+     * @return 发请求的实际用时（秒），用来计算吞吐量
+     * @throws InterruptedException
+     */
+    public double run(int seconds) throws InterruptedException {
+        long interval = TimeUnit.SECONDS.toNanos(1) / rate;
+        long duration = TimeUnit.SECONDS.toNanos(seconds);
+        long start = System.nanoTime();
+        for (long n = 0; ; n++) {
+            long intended = start + n * interval;
+            if (intended - start >= duration) {
+                break;
+            }
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            Operation operation = next();
+            if (outstanding.incrementAndGet() > maxOutstanding) {
+                outstanding.decrementAndGet();
+                report.dropped(operation);
+                continue;
+            }
+            executor.execute(() -> execute(operation, intended));
+        }
+        long end = System.nanoTime();
+        long deadline = end + TimeUnit.SECONDS.toNanos(30);
+        while (outstanding.get() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        return (end - start) / 1e9;
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void execute(Operation operation, long intended) {
+        boolean success;
+        try {
+            success = scenario.execute(operation);
+        } catch (Exception e) {
+            success = false;
+        }
+        report.record(operation, System.nanoTime() - intended, success);
+        outstanding.decrementAndGet();
+    }
+
+    private Operation next() {
+        int value = ThreadLocalRandom.current().nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (value < cumulativeWeights[i]) {
+                return operations[i];
+            }
+        }
+        return operations[operations.length - 1];
+    }
+}
@@ -0,0 +1,37 @@
+package com.cius.loadtest;
+
+/**
+ * 压测的请求类型，名字同时用作 mix 参数、报告的行名和 .hgrm 文件名：
+ *  password            POST /oauth/token，密码模式签发令牌
+ *  refresh_token       POST /oauth/token，用之前签发的 refresh_token 刷新
+ *  check_token         POST /oauth/check_token，校验之前签发的 access_token
+ *  resource            GET user-server 的 /hello 或 /admin/hello，带 Bearer 令牌
+ *  authorization_code  已登录的会话 GET /oauth/authorize 拿 code，再由 client-app 的 /index.html 换令牌、访问资源
+ */
+public enum Operation {
+
+    PASSWORD("password"),
+    REFRESH_TOKEN("refresh_token"),
+    CHECK_TOKEN("check_token"),
+    RESOURCE("resource"),
+    AUTHORIZATION_CODE("authorization_code");
+
+    private final String name;
+
+    Operation(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public static Operation of(String name) {
+        for (Operation operation : values()) {
+            if (operation.name.equals(name)) {
+                return operation;
+            }
+        }
+        throw new IllegalArgumentException("未知的请求类型：" + name);
+    }
+}
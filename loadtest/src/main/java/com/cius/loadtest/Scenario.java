@@ -0,0 +1,179 @@
+package com.cius.loadtest;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 各类请求的具体做法，每次调用 execute 发一个完整的业务请求：
+ *  password 签发的令牌放进一个固定大小的环形池，refresh_token、check_token、resource 从池里随机取，
+ *  池满了就覆盖最旧的，所以取到的总是最近签发的、没有过期的令牌；
+ *  authorization_code 用 prepare 时预先登录好的会话，每次都以新的 client-app 会话访问 /index.html，
+ *  这样 client-app 每次都会真正用 code 换一次令牌。
+ * execute 返回 false 表示业务上失败（状态码不对、响应里没有令牌、client-app 显示“未加载”），
+ * 抛出 IOException 表示连接失败或超时，两者都计为错误。
+ */
+public class Scenario {
+
+    private static final int TOKEN_POOL_SIZE = 4096;
+
+    private static final String PASSWORD = "123";
+
+    private final String authUrl;
+
+    private final String userUrl;
+
+    private final String clientUrl;
+
+    private final String clientId;
+
+    private final String clientSecret;
+
+    private final List<String> users;
+
+    private final List<String> admins;
+
+    private final Set<String> adminSet;
+
+    private final AtomicReferenceArray<IssuedToken> tokens = new AtomicReferenceArray<>(TOKEN_POOL_SIZE);
+
+    private final AtomicLong issued = new AtomicLong();
+
+    private String[] sessions = new String[0];
+
+    public Scenario(String authUrl, String userUrl, String clientUrl, String clientId, String clientSecret,
+                    List<String> users, List<String> admins) {
+        this.authUrl = authUrl;
+        this.userUrl = userUrl;
+        this.clientUrl = clientUrl;
+        this.clientId = clientId;
+        this.clientSecret = clientSecret;
+        this.users = users;
+        this.admins = admins;
+        this.adminSet = new HashSet<>(admins);
+    }
+
+    /**
+     * 压测开始前签发一批令牌填满令牌池，并登录 sessions 个管理员会话
+     * @param sessionCount
+     * @throws IOException
+     */
+    public void prepare(int sessionCount) throws IOException {
+        for (int i = 0; i < Math.min(TOKEN_POOL_SIZE, users.size() * 2); i++) {
+            if (!password(users.get(i % users.size()))) {
+                throw new IllegalStateException("签发令牌失败，检查客户端和用户数据");
+            }
+        }
+        String[] logged = new String[sessionCount];
+        for (int i = 0; i < sessionCount; i++) {
+            Http.Response response = Http.postForm(authUrl + "/login",
+                    "username=" + Http.encode(admins.get(i % admins.size())) + "&password=" + PASSWORD);
+            String cookie = response.getCookie("JSESSIONID");
+            if (cookie == null || response.getStatus() != 302 || response.getHeader("Location").contains("error")) {
+                throw new IllegalStateException("登录授权服务器失败：" + response.getStatus() + " " + response.getHeader("Location"));
+            }
+            logged[i] = cookie;
+        }
+        sessions = logged;
+    }
+
+    public boolean execute(Operation operation) throws IOException {
+        switch (operation) {
+            case PASSWORD:
+                return password(users.get(ThreadLocalRandom.current().nextInt(users.size())));
+            case REFRESH_TOKEN:
+                return refreshToken();
+            case CHECK_TOKEN:
+                return checkToken();
+            case RESOURCE:
+                return resource();
+            case AUTHORIZATION_CODE:
+                return authorizationCode();
+            default:
+                throw new IllegalArgumentException(operation.getName());
+        }
+    }
+
+    private boolean password(String username) throws IOException {
+        Http.Response response = Http.postForm(authUrl + "/oauth/token",
+                "grant_type=password&username=" + Http.encode(username) + "&password=" + PASSWORD
+                        + "&client_id=" + clientId + "&client_secret=" + clientSecret);
+        return store(response, adminSet.contains(username));
+    }
+
+    private boolean refreshToken() throws IOException {
+        IssuedToken token = randomToken();
+        Http.Response response = Http.postForm(authUrl + "/oauth/token",
+                "grant_type=refresh_token&refresh_token=" + Http.encode(token.refreshToken)
+                        + "&client_id=" + clientId + "&client_secret=" + clientSecret);
+        return store(response, token.admin);
+    }
+
+    private boolean checkToken() throws IOException {
+        Http.Response response = Http.postForm(authUrl + "/oauth/check_token",
+                "token=" + Http.encode(randomToken().accessToken));
+        return response.isSuccessful() && response.getBody().contains("\"active\":true");
+    }
+
+    private boolean resource() throws IOException {
+        IssuedToken token = randomToken();
+        Http.Response response = Http.get(userUrl + (token.admin ? "/admin/hello" : "/hello"),
+                "Authorization", "Bearer " + token.accessToken);
+        return response.isSuccessful();
+    }
+
+    private boolean authorizationCode() throws IOException {
+        String session = sessions[ThreadLocalRandom.current().nextInt(sessions.length)];
+        Http.Response authorize = Http.get(authUrl + "/oauth/authorize?response_type=code&client_id=" + clientId
+                + "&scope=all&redirect_uri=" + Http.encode(clientUrl + "/index.html"), "Cookie", session);
+        String location = authorize.getHeader("Location");
+        int index = location == null ? -1 : location.indexOf("code=");
+        if (authorize.getStatus() != 302 || index < 0) {
+            return false;
+        }
+        int end = location.indexOf('&', index);
+        String code = location.substring(index + "code=".length(), end < 0 ? location.length() : end);
+        Http.Response page = Http.get(clientUrl + "/index.html?code=" + code);
+        return page.isSuccessful() && !page.getBody().contains("未加载");
+    }
+
+    private boolean store(Http.Response response, boolean admin) {
+        if (!response.isSuccessful()) {
+            return false;
+        }
+        String accessToken = Http.field(response.getBody(), "access_token");
+        String refreshToken = Http.field(response.getBody(), "refresh_token");
+        if (accessToken == null || refreshToken == null) {
+            return false;
+        }
+        int slot = (int) (issued.getAndIncrement() % TOKEN_POOL_SIZE);
+        tokens.set(slot, new IssuedToken(accessToken, refreshToken, admin));
+        return true;
+    }
+
+    private IssuedToken randomToken() {
+        int filled = (int) Math.min(issued.get(), TOKEN_POOL_SIZE);
+        IssuedToken token = tokens.get(ThreadLocalRandom.current().nextInt(filled));
+        // 计数先于写入，刚占到的槽位可能还是空的，退回到 prepare 时写好的第一个
+        return token != null ? token : tokens.get(0);
+    }
+
+    private static class IssuedToken {
+
+        final String accessToken;
+
+        final String refreshToken;
+
+        final boolean admin;
+
+        IssuedToken(String accessToken, String refreshToken, boolean admin) {
+            this.accessToken = accessToken;
+            this.refreshToken = refreshToken;
+            this.admin = admin;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.cius.loadtest;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 用独立的 JVM 启动一个服务：三个服务的包名都是 com.cius.auth，还有同名的配置类，放不进同一个 JVM。
+ * 服务的可执行 jar 由 spring-boot-maven-plugin 打包，需要额外的 jar（比如 auth-server 的 H2 驱动）时
+ * 用 PropertiesLauncher 的 loader.path 加进去，不用改服务本身的依赖。
+ * 输出重定向到 output 目录下的 &lt;name&gt;.log，启动失败时看这个文件。
+ */
+public class ServiceProcess {
+
+    private final String name;
+
+    private final Process process;
+
+    private final Path log;
+
+    private ServiceProcess(String name, Process process, Path log) {
+        this.name = name;
+        this.process = process;
+        this.log = log;
+    }
+
+    /**
+     * @param name       服务名，用作日志文件名
+     * @param jar        可执行 jar
+     * @param loaderPath 额外加到 classpath 的 jar，没有时为 null
+     * @param jvmOptions
+     * @param args       Spring Boot 的启动参数，形如 --server.port=18080
+     * @param output
+     * @return
+     * @throws IOException
+     */
+    public static ServiceProcess start(String name, Path jar, Path loaderPath, List<String> jvmOptions,
+                                       List<String> args, Path output) throws IOException {
+        if (!Files.isRegularFile(jar)) {
+            throw new IllegalStateException(jar.toAbsolutePath() + " 不存在，先在 " + name + " 下执行 mvn package");
+        }
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmOptions);
+        if (loaderPath == null) {
+            command.add("-jar");
+            command.add(jar.toAbsolutePath().toString());
+        } else {
+            command.add("-Dloader.path=" + loaderPath.toAbsolutePath());
+            command.add("-cp");
+            command.add(jar.toAbsolutePath().toString());
+            command.add("org.springframework.boot.loader.PropertiesLauncher");
+        }
+        command.addAll(args);
+        Files.createDirectories(output);
+        Path log = output.resolve(name + ".log");
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(log.toFile())
+                .start();
+        return new ServiceProcess(name, process, log);
+    }
+
+    /**
+     * 轮询 url 直到返回 200，进程提前退出或超时都抛出异常
+     * @param url
+     * @param timeoutSeconds
+     * @throws InterruptedException
+     */
+    public void awaitReady(String url, int timeoutSeconds) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutSeconds);
+        while (System.nanoTime() < deadline) {
+            if (!process.isAlive()) {
+                throw new IllegalStateException(name + " 启动失败，退出码 " + process.exitValue() + "，日志见 " + log.toAbsolutePath());
+            }
+            try {
+                if (Http.get(url).getStatus() == 200) {
+                    return;
+                }
+            } catch (IOException e) {
+                // 还没开始监听
+            }
+            Thread.sleep(500);
+        }
+        throw new IllegalStateException(name + " 在 " + timeoutSeconds + " 秒内没有就绪，日志见 " + log.toAbsolutePath());
+    }
+
+    public void stop() throws InterruptedException {
+        process.destroy();
+        if (!process.waitFor(15, TimeUnit.SECONDS)) {
+            process.destroyForcibly().waitFor(5, TimeUnit.SECONDS);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+}
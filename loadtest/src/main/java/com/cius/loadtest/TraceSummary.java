@@ -0,0 +1,106 @@
+package com.cius.loadtest;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 汇总三个服务写出的调用链（trace.dir 下的 *.jsonl，格式见各服务的 SpanExporter），按“服务 名字”统计每一段的耗时：
+ *  1.服务端 Span（如 auth-server POST /oauth/token）、各阶段 Span（如 auth-server client_secret、user-server token_decode）
+ *    和客户端 Span（如 client-app POST localhost:18080/oauth/token）各占一行；
+ *  2.客户端 Span 和下游服务端 Span 能对上时（下游的 parent 是这个客户端 Span），
+ *    两者的差值记为 “network 客户端 Span 名字”，也就是连接池等待加网络往返的时间。
+ * LoadTest 结束时自动调用；也可以单独运行：java -cp target/classes:... com.cius.loadtest.TraceSummary target/loadtest/trace
+ */
+public class TraceSummary {
+
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.SECONDS.toMicros(60);
+
+    public static void main(String[] args) throws IOException {
+        print(Paths.get(args.length > 0 ? args[0] : "target/loadtest/trace"), System.out);
+    }
+
+    public static void print(Path directory, PrintStream out) throws IOException {
+        List<SpanRecord> spans = read(directory);
+        if (spans.isEmpty()) {
+            out.println("no spans in " + directory.toAbsolutePath());
+            return;
+        }
+        Map<String, SpanRecord> byId = new HashMap<>();
+        for (SpanRecord span : spans) {
+            byId.put(span.span, span);
+        }
+        Map<String, Histogram> histograms = new TreeMap<>();
+        for (SpanRecord span : spans) {
+            record(histograms, span.service + " " + span.name, span.duration);
+            SpanRecord parent = byId.get(span.parent);
+            if (parent != null && !parent.service.equals(span.service)) {
+                record(histograms, "network " + parent.name, Math.max(0, parent.duration - span.duration));
+            }
+        }
+        out.printf("%-60s %8s %9s %9s %9s %9s%n", "span", "count", "mean ms", "p50 ms", "p99 ms", "max ms");
+        for (Map.Entry<String, Histogram> entry : histograms.entrySet()) {
+            Histogram histogram = entry.getValue();
+            out.printf("%-60s %8d %9.2f %9.2f %9.2f %9.2f%n", entry.getKey(), histogram.getTotalCount(),
+                    histogram.getMean() / 1000.0, histogram.getValueAtPercentile(50) / 1000.0,
+                    histogram.getValueAtPercentile(99) / 1000.0, histogram.getMaxValue() / 1000.0);
+        }
+    }
+
+    private static void record(Map<String, Histogram> histograms, String key, long micros) {
+        histograms.computeIfAbsent(key, k -> new Histogram(HIGHEST_TRACKABLE_MICROS, 3))
+                .recordValue(Math.min(micros, HIGHEST_TRACKABLE_MICROS));
+    }
+
+    private static List<SpanRecord> read(Path directory) throws IOException {
+        List<SpanRecord> spans = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return spans;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.jsonl*")) {
+            for (Path file : files) {
+                for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                    if (!line.isEmpty()) {
+                        spans.add(new SpanRecord(line));
+                    }
+                }
+            }
+        }
+        return spans;
+    }
+
+    private static class SpanRecord {
+
+        final String span;
+
+        final String parent;
+
+        final String service;
+
+        final String name;
+
+        final long duration;
+
+        SpanRecord(String line) {
+            this.span = Http.field(line, "span");
+            this.parent = Http.field(line, "parent");
+            this.service = Http.field(line, "service");
+            this.name = Http.field(line, "name");
+            int start = line.indexOf("\"duration\":") + "\"duration\":".length();
+            int end = line.indexOf(',', start);
+            this.duration = Long.parseLong(line.substring(start, end));
+        }
+    }
+}
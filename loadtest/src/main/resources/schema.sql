@@ -0,0 +1,49 @@
+create table oauth_client_details (
+    client_id               varchar(256) primary key,
+    resource_ids            varchar(256),
+    client_secret           varchar(256),
+    scope                   varchar(256),
+    authorized_grant_types  varchar(256),
+    web_server_redirect_uri varchar(256),
+    authorities             varchar(256),
+    access_token_validity   integer,
+    refresh_token_validity  integer,
+    additional_information  varchar(4096),
+    autoapprove             varchar(256)
+);
+
+create table users (
+    username varchar(50)  primary key,
+    password varchar(500) not null,
+    enabled  boolean      not null
+);
+
+create table authorities (
+    username  varchar(50) not null,
+    authority varchar(50) not null
+);
+
+create unique index ix_auth_username on authorities (username, authority);
+
+create table oauth_audit_log (
+    event_time timestamp    not null,
+    action     varchar(16)  not null,
+    outcome    varchar(64)  not null,
+    client_id  varchar(256),
+    username   varchar(256),
+    grant_type varchar(64),
+    jti        varchar(64)
+);
+
+create table oauth_approvals (
+    userId         varchar(256),
+    clientId       varchar(256),
+    scope          varchar(256),
+    status         varchar(10),
+    expiresAt      timestamp,
+    lastModifiedAt timestamp
+);
+
+create index ix_approvals_user on oauth_approvals (userId, clientId);
+
+create index ix_approvals_client on oauth_approvals (clientId);
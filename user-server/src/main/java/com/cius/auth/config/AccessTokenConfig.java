@@ -1,15 +1,187 @@
 package com.cius.auth.config;
 
+import com.cius.auth.token.CachingJwtTokenStore;
+import com.cius.auth.token.CachingRemoteTokenServices;
+import com.cius.auth.token.CompactAccessTokenConverter;
+import com.cius.auth.token.HttpRevocationSource;
+import com.cius.auth.token.IntrospectionBatcher;
+import com.cius.auth.token.JwksJwtAccessTokenConverter;
+import com.cius.auth.token.JwksVerifierCache;
+import com.cius.auth.token.RevocationDenylist;
+import com.cius.auth.token.TokenDictionaryCache;
+import com.cius.auth.token.VerifiedTokenCache;
+import com.cius.auth.trace.Tracer;
+import com.cius.auth.trace.TracingClientHttpRequestInterceptor;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.security.oauth2.provider.token.DefaultTokenServices;
+import org.springframework.security.oauth2.provider.token.ResourceServerTokenServices;
 import org.springframework.security.oauth2.provider.token.TokenStore;
-import org.springframework.security.oauth2.provider.token.store.JwtAccessTokenConverter;
 import org.springframework.security.oauth2.provider.token.store.JwtTokenStore;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.concurrent.TimeUnit;
 
 @Configuration
 public class AccessTokenConfig {
 
-    private String SIGNING_KEY = "javaboy";
+    @Autowired
+    ObjectProvider<Tracer> tracer;
+
+    @Value("${resource.jwks.url:http://localhost:8080/.well-known/jwks.json}")
+    String jwksUrl;
+
+    @Value("${resource.jwks.refresh-seconds:300}")
+    long jwksRefreshSeconds;
+
+    @Value("${resource.jwks.min-refresh-seconds:30}")
+    long jwksMinRefreshSeconds;
+
+    @Value("${resource.token-dictionary.url:http://localhost:8080/.well-known/token-dictionary.json}")
+    String tokenDictionaryUrl;
+
+    @Value("${resource.token-dictionary.refresh-seconds:300}")
+    long tokenDictionaryRefreshSeconds;
+
+    @Value("${resource.token-dictionary.min-refresh-seconds:30}")
+    long tokenDictionaryMinRefreshSeconds;
+
+    @Value("${resource.token-cache.enabled:true}")
+    boolean tokenCacheEnabled;
+
+    @Value("${resource.token-cache.max-size:10000}")
+    int tokenCacheMaxSize;
+
+    @Value("${resource.token-cache.max-ttl-seconds:300}")
+    long tokenCacheMaxTtlSeconds;
+
+    @Value("${resource.token-mode:jwt}")
+    String tokenMode;
+
+    @Value("${resource.remote.check-token-url:http://localhost:8080/oauth/check_token}")
+    String checkTokenUrl;
+
+    @Value("${resource.remote.batch-url:http://localhost:8080/oauth/introspect/batch}")
+    String batchUrl;
+
+    @Value("${resource.remote.client-id:javaboy}")
+    String clientId;
+
+    @Value("${resource.remote.client-secret:123}")
+    String clientSecret;
+
+    @Value("${resource.remote.negative-ttl-seconds:30}")
+    long negativeTtlSeconds;
+
+    @Value("${resource.remote.negative-max-size:10000}")
+    int negativeMaxSize;
+
+    @Value("${resource.remote.batch.enabled:false}")
+    boolean batchEnabled;
+
+    @Value("${resource.remote.batch.max-size:100}")
+    int batchMaxSize;
+
+    @Value("${resource.remote.batch.window-ms:2}")
+    long batchWindowMs;
+
+    @Value("${resource.remote.batch.senders:4}")
+    int batchSenders;
+
+    @Value("${resource.remote.batch.queue-capacity:1000}")
+    int batchQueueCapacity;
+
+    @Value("${resource.remote.http.max-connections:50}")
+    int httpMaxConnections;
+
+    @Value("${resource.remote.http.connect-timeout-ms:500}")
+    int httpConnectTimeoutMs;
+
+    @Value("${resource.remote.http.read-timeout-ms:2000}")
+    int httpReadTimeoutMs;
+
+    @Value("${resource.revocation.enabled:true}")
+    boolean revocationEnabled;
+
+    @Value("${resource.revocation.base-url:http://localhost:8080}")
+    String revocationBaseUrl;
+
+    @Value("${resource.revocation.refresh-seconds:5}")
+    long revocationRefreshSeconds;
+
+    @Value("${resource.revocation.exact-cache-size:10000}")
+    int revocationExactCacheSize;
+
+    /**
+     * 资源服务器校验令牌的方式，由 resource.token-mode 决定：
+     *  jwt：本地用 JWKS 公钥校验 JWT（默认），见 tokenStore；
+     *  remote：不透明令牌，交给授权服务器的 /oauth/check_token 校验，结果在本地缓存，
+     *          resource.remote.batch.enabled=true 时未命中的令牌攒批调用 /oauth/introspect/batch。
+     * @return
+     */
+    @Bean
+    ResourceServerTokenServices tokenServices() {
+        if ("remote".equalsIgnoreCase(tokenMode)) {
+            return remoteTokenServices();
+        }
+        DefaultTokenServices services = new DefaultTokenServices();
+        services.setTokenStore(tokenStore());
+        services.setSupportRefreshToken(true);
+        return services;
+    }
+
+    /**
+     * 访问授权服务器用的 HttpClient，底层是 keep-alive 的连接池，而不是每次新建 TCP 连接。
+     * 作为 Bean 由容器在关闭时调用 close，释放池中的连接
+     * @return
+     */
+    @Bean
+    CloseableHttpClient authServerHttpClient() {
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(httpMaxConnections);
+        connectionManager.setDefaultMaxPerRoute(httpMaxConnections);
+        return HttpClients.custom().setConnectionManager(connectionManager).build();
+    }
+
+    /**
+     * remote 模式的令牌校验和吊销列表同步共用同一个 RestTemplate（同一个连接池）；
+     * 开启了调用链追踪时，请求里的调用（remote 模式的 /oauth/check_token）带上 traceparent
+     * @return
+     */
+    @Bean
+    RestTemplate authServerRestTemplate() {
+        HttpComponentsClientHttpRequestFactory requestFactory = new HttpComponentsClientHttpRequestFactory(authServerHttpClient());
+        requestFactory.setConnectTimeout(httpConnectTimeoutMs);
+        requestFactory.setReadTimeout(httpReadTimeoutMs);
+        requestFactory.setConnectionRequestTimeout(httpConnectTimeoutMs);
+        RestTemplate restTemplate = new RestTemplate(requestFactory);
+        Tracer tracer = this.tracer.getIfAvailable();
+        if (tracer != null) {
+            restTemplate.getInterceptors().add(new TracingClientHttpRequestInterceptor(tracer));
+        }
+        return restTemplate;
+    }
+
+    private CachingRemoteTokenServices remoteTokenServices() {
+        RestTemplate restTemplate = authServerRestTemplate();
+        CachingRemoteTokenServices services = new CachingRemoteTokenServices(restTemplate, checkTokenUrl, clientId, clientSecret,
+                new VerifiedTokenCache(tokenCacheMaxSize, tokenCacheMaxTtlSeconds, TimeUnit.SECONDS),
+                negativeMaxSize, negativeTtlSeconds, TimeUnit.SECONDS);
+        if (batchEnabled) {
+            services.setBatcher(new IntrospectionBatcher(restTemplate, batchUrl,
+                    CachingRemoteTokenServices.basicAuthorization(clientId, clientSecret),
+                    batchMaxSize, batchWindowMs, TimeUnit.MILLISECONDS, batchSenders, batchQueueCapacity));
+        }
+        return services;
+    }
 
     @Bean
     TokenStore tokenStore() {
@@ -26,20 +198,67 @@ public class AccessTokenConfig {
          * 客户端将 access_token 发来之后，我们还要校验看对不对。
          * 但是如果使用了 JWT，access_token 实际上就不用存储了（无状态登录，服务端不需要保存信息），
          * 因为用户的所有信息都在 jwt 里边，所以这里配置的 JwtTokenStore 本质上并不是做存储。
+         *
+         * CachingJwtTokenStore 会把验签、解析后的结果按 token 摘要缓存起来，
+         * 同一个 token 在过期之前再来请求时不用重复验签和解析。
          */
+        if (tokenCacheEnabled) {
+            CachingJwtTokenStore store = new CachingJwtTokenStore(jwtAccessTokenConverter(),
+                    new VerifiedTokenCache(tokenCacheMaxSize, tokenCacheMaxTtlSeconds, TimeUnit.SECONDS));
+            if (revocationEnabled) {
+                store.setDenylist(revocationDenylist());
+            }
+            return store;
+        }
         return new JwtTokenStore(jwtAccessTokenConverter());
     }
 
+    /**
+     * 授权服务器公钥（JWKS）的本地缓存，后台定时刷新，每个 kid 的 verifier 预先创建好
+     * @return
+     */
+    @Bean
+    JwksVerifierCache jwksVerifierCache() {
+        return new JwksVerifierCache(new RestTemplate(), jwksUrl, jwksRefreshSeconds, jwksMinRefreshSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 紧凑令牌字典的本地缓存，后台定时刷新
+     * @return
+     */
+    @Bean
+    TokenDictionaryCache tokenDictionaryCache() {
+        return new TokenDictionaryCache(new RestTemplate(), tokenDictionaryUrl, tokenDictionaryRefreshSeconds,
+                tokenDictionaryMinRefreshSeconds, TimeUnit.SECONDS);
+    }
+
     /**
      * 提供了一个 JwtAccessTokenConverter，
      * 这个 JwtAccessTokenConverter 可以实现将用户信息和 JWT
      * 进行转换（将用户信息转为 jwt 字符串，或者从 jwt 字符串提取出用户信息）。
+     * 授权服务器用 RS256 私钥签名，这里按 JWT 头部的 kid 找到对应公钥在本地校验。
+     * 标准格式和紧凑格式（auth.token.profile=compact）的令牌都能解析。
      * @return
      */
     @Bean
-    JwtAccessTokenConverter jwtAccessTokenConverter() {
-        JwtAccessTokenConverter converter = new JwtAccessTokenConverter();
-        converter.setSigningKey(SIGNING_KEY);
+    JwksJwtAccessTokenConverter jwtAccessTokenConverter() {
+        JwksJwtAccessTokenConverter converter = new JwksJwtAccessTokenConverter(jwksVerifierCache());
+        converter.setAccessTokenConverter(new CompactAccessTokenConverter(tokenDictionaryCache()));
+        if (revocationEnabled) {
+            converter.setDenylist(revocationDenylist());
+        }
         return converter;
     }
+
+    /**
+     * 授权服务器吊销列表的本地副本（Bloom 过滤器 + 增量），后台定时同步，
+     * 过滤器命中的 jti 才会向授权服务器精确查询
+     * @return
+     */
+    @Bean
+    @ConditionalOnProperty(name = "resource.revocation.enabled", matchIfMissing = true)
+    RevocationDenylist revocationDenylist() {
+        return new RevocationDenylist(new HttpRevocationSource(authServerRestTemplate(), revocationBaseUrl),
+                revocationRefreshSeconds, TimeUnit.SECONDS, revocationExactCacheSize);
+    }
 }
@@ -1,14 +1,28 @@
 package com.cius.auth.config;
 
+import com.cius.auth.security.AuthorityAccessDecisionManager;
+import com.cius.auth.security.PathAccessRules;
+import com.cius.auth.trace.Tracer;
+import com.cius.auth.trace.TracingResourceServerTokenServices;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.security.config.annotation.ObjectPostProcessor;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.oauth2.config.annotation.web.configuration.EnableResourceServer;
 import org.springframework.security.oauth2.config.annotation.web.configuration.ResourceServerConfigurerAdapter;
 import org.springframework.security.oauth2.config.annotation.web.configurers.ResourceServerSecurityConfigurer;
 import org.springframework.security.oauth2.provider.token.RemoteTokenServices;
-import org.springframework.security.oauth2.provider.token.TokenStore;
+import org.springframework.security.oauth2.provider.token.ResourceServerTokenServices;
+import org.springframework.security.web.access.intercept.FilterSecurityInterceptor;
+import org.springframework.security.web.context.NullSecurityContextRepository;
+import org.springframework.security.web.savedrequest.NullRequestCache;
+import org.springframework.util.StringUtils;
+import org.springframework.web.cors.CorsConfiguration;
+
+import java.util.Arrays;
 
 /**
  * tokenServices 我们配置了一个 RemoteTokenServices 的实例，这是因为资源服务器和授权服务器是分开的，
@@ -17,14 +31,38 @@ import org.springframework.security.oauth2.provider.token.TokenStore;
  * RemoteTokenServices 中我们配置了 access_token 的校验地址、client_id、client_secret 这三个信息，
  * 当用户来资源服务器请求资源时，会携带上一个 access_token，通过这里的配置，就能够校验出 token 是否正确等。
  *
+ * 现在令牌的校验方式由 resource.token-mode 选择（见 AccessTokenConfig.tokenServices），
+ * remote 模式使用带缓存的 CachingRemoteTokenServices 代替下面注释掉的 RemoteTokenServices。
+ *
  * 最后配置一下资源的拦截规则，这就是 Spring Security 中的基本写法，我就不再赘述。
+ *
+ * resource.security.mode=stateless 时使用无状态的精简过滤器链（见 configureStateless），
+ * 每个请求都带着 JWT，不需要 Session、SavedRequest 这些基于会话的功能。
  */
 @Configuration
 @EnableResourceServer
 public class ResourceServerConfig extends ResourceServerConfigurerAdapter {
 
     @Autowired
-    TokenStore tokenStore;
+    ResourceServerTokenServices tokenServices;
+
+    @Autowired
+    ObjectProvider<Tracer> tracer;
+
+    @Value("${resource.security.mode:standard}")
+    String securityMode;
+
+    @Value("${resource.cors.allowed-origins:}")
+    String corsAllowedOrigins;
+
+    @Value("${resource.cors.allowed-methods:GET,HEAD,POST}")
+    String corsAllowedMethods;
+
+    @Value("${resource.cors.allowed-headers:Authorization,Content-Type}")
+    String corsAllowedHeaders;
+
+    @Value("${resource.cors.max-age-seconds:1800}")
+    long corsMaxAgeSeconds;
 
 //    @Bean
 //    RemoteTokenServices tokenServices() {
@@ -36,15 +74,68 @@ public class ResourceServerConfig extends ResourceServerConfigurerAdapter {
 //    }
     @Override
     public void configure(ResourceServerSecurityConfigurer resources) throws Exception {
-        resources.resourceId("res1").tokenStore(tokenStore);
+        Tracer tracer = this.tracer.getIfAvailable();
+        resources.resourceId("res1").tokenServices(tracer == null ? tokenServices
+                : new TracingResourceServerTokenServices(tokenServices, tracer));
     }
 
     @Override
     public void configure(HttpSecurity http) throws Exception {
+        if ("stateless".equalsIgnoreCase(securityMode)) {
+            configureStateless(http);
+            return;
+        }
         http.authorizeRequests()
+                .antMatchers("/actuator/health/**").permitAll()
                 .antMatchers("/admin/**").hasRole("admin")
                 .anyRequest().authenticated()
                 .and()
                 .cors();
     }
-}
\ No newline at end of file
+
+    /**
+     * 无状态模式：
+     *  1.去掉 SessionManagementFilter，SecurityContext 和 SavedRequest 都不保存，整个过程不会创建 HttpSession；
+     *  2.访问规则预先编译成 PathAccessRules，由 AuthorityAccessDecisionManager 直接比较权限名，
+     *    权限名集合在令牌解析时算好（见 VerifiedOAuth2Authentication）；
+     *  3.CORS 配置启动时创建好，CorsFilter 在认证之前就直接应答预检请求，不用每次查找 Controller 上的 @CrossOrigin，
+     *    resource.cors.allowed-origins 默认为空，即不允许任何跨域来源；
+     *  4.去掉用不到的 logout 和 servlet API 包装。
+     */
+    private void configureStateless(HttpSecurity http) throws Exception {
+        PathAccessRules rules = PathAccessRules.builder()
+                .rule("/actuator/health/**", PathAccessRules.PERMIT_ALL)
+                .rule("/admin/**", "ROLE_admin")
+                .anyRequest(PathAccessRules.AUTHENTICATED)
+                .build();
+        CorsConfiguration cors = corsConfiguration();
+        http.sessionManagement().disable()
+                .securityContext().securityContextRepository(new NullSecurityContextRepository())
+                .and()
+                .requestCache().requestCache(new NullRequestCache())
+                .and()
+                .servletApi().disable()
+                .logout().disable()
+                .cors().configurationSource(request -> cors)
+                .and()
+                .authorizeRequests()
+                .anyRequest().authenticated()
+                .withObjectPostProcessor(new ObjectPostProcessor<FilterSecurityInterceptor>() {
+                    @Override
+                    public <O extends FilterSecurityInterceptor> O postProcess(O interceptor) {
+                        interceptor.setSecurityMetadataSource(rules);
+                        interceptor.setAccessDecisionManager(new AuthorityAccessDecisionManager());
+                        return interceptor;
+                    }
+                });
+    }
+
+    private CorsConfiguration corsConfiguration() {
+        CorsConfiguration cors = new CorsConfiguration();
+        cors.setAllowedOrigins(Arrays.asList(StringUtils.commaDelimitedListToStringArray(corsAllowedOrigins)));
+        cors.setAllowedMethods(Arrays.asList(StringUtils.commaDelimitedListToStringArray(corsAllowedMethods)));
+        cors.setAllowedHeaders(Arrays.asList(StringUtils.commaDelimitedListToStringArray(corsAllowedHeaders)));
+        cors.setMaxAge(corsMaxAgeSeconds);
+        return cors;
+    }
+}
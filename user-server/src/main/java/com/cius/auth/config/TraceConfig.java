@@ -0,0 +1,84 @@
+package com.cius.auth.config;
+
+import com.cius.auth.trace.SpanExporter;
+import com.cius.auth.trace.TraceFilter;
+import com.cius.auth.trace.Tracer;
+import com.cius.auth.trace.TracingHandlerInterceptor;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.nio.file.Paths;
+
+/**
+ * 调用链追踪，trace.enabled=true 时开启：
+ * 请求按 trace.sample-rate 采样（带了 traceparent 的沿用上游的决定），
+ * 被采样的请求记录整个请求、token_decode（见 TracingResourceServerTokenServices）、handler
+ * 和发往授权服务器的请求，批量写到 trace.dir 下的 user-server.jsonl。
+ */
+@Configuration
+@ConditionalOnProperty(name = "trace.enabled", havingValue = "true")
+public class TraceConfig implements WebMvcConfigurer {
+
+    @Value("${trace.service:user-server}")
+    String service;
+
+    @Value("${trace.sample-rate:0.01}")
+    double sampleRate;
+
+    @Value("${trace.dir:target/trace}")
+    String directory;
+
+    @Value("${trace.capacity:8192}")
+    int capacity;
+
+    @Value("${trace.batch-size:256}")
+    int batchSize;
+
+    @Value("${trace.max-file-mb:64}")
+    long maxFileMegabytes;
+
+    @Bean
+    SpanExporter spanExporter() {
+        return new SpanExporter(Paths.get(directory), service, capacity, batchSize, maxFileMegabytes * 1024 * 1024);
+    }
+
+    @Bean
+    Tracer tracer() {
+        return new Tracer(spanExporter(), sampleRate);
+    }
+
+    /**
+     * 排在所有过滤器之前，整个过滤器链（包括 Spring Security）都算在请求的 Span 里
+     * @return
+     */
+    @Bean
+    FilterRegistrationBean<TraceFilter> traceFilter() {
+        FilterRegistrationBean<TraceFilter> registration = new FilterRegistrationBean<>(new TraceFilter(tracer()));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new TracingHandlerInterceptor(tracer()));
+    }
+
+    @Bean
+    MeterBinder traceMetrics() {
+        SpanExporter exporter = spanExporter();
+        return registry -> {
+            FunctionCounter.builder("trace.spans", exporter, SpanExporter::getExportedCount)
+                    .tag("result", "exported").register(registry);
+            FunctionCounter.builder("trace.spans", exporter, SpanExporter::getDroppedCount)
+                    .tag("result", "dropped").register(registry);
+        };
+    }
+}
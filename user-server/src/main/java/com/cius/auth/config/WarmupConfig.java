@@ -0,0 +1,49 @@
+package com.cius.auth.config;
+
+import com.cius.auth.token.JwksVerifierCache;
+import com.cius.auth.token.RevocationDenylist;
+import com.cius.auth.warmup.ResourceServerWarmup;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.oauth2.provider.token.store.JwtAccessTokenConverter;
+
+/**
+ * 启动预热，resource.warmup.enabled=false 时关闭。预热结束之前 readiness 探针返回 OUT_OF_SERVICE，
+ * 预热的时间预算是 resource.warmup.budget-ms，超出后剩下的步骤跳过，照常启动。
+ */
+@Configuration
+@ConditionalOnProperty(name = "resource.warmup.enabled", havingValue = "true", matchIfMissing = true)
+public class WarmupConfig {
+
+    @Autowired
+    JwksVerifierCache jwksVerifierCache;
+
+    @Autowired
+    ObjectProvider<RevocationDenylist> revocationDenylist;
+
+    @Autowired
+    JwtAccessTokenConverter jwtAccessTokenConverter;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Value("${resource.warmup.budget-ms:10000}")
+    long budgetMillis;
+
+    @Value("${resource.warmup.iterations:500}")
+    int iterations;
+
+    @Bean
+    ResourceServerWarmup resourceServerWarmup() {
+        ResourceServerWarmup warmup = new ResourceServerWarmup(jwksVerifierCache, revocationDenylist.getIfAvailable(),
+                jwtAccessTokenConverter.getAccessTokenConverter(), meterRegistry);
+        warmup.setBudgetMillis(budgetMillis);
+        warmup.setIterations(iterations);
+        return warmup;
+    }
+}
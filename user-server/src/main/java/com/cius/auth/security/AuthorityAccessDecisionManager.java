@@ -0,0 +1,59 @@
+package com.cius.auth.security;
+
+import com.cius.auth.token.VerifiedOAuth2Authentication;
+import org.springframework.security.access.AccessDecisionManager;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.access.ConfigAttribute;
+import org.springframework.security.authentication.AuthenticationTrustResolver;
+import org.springframework.security.authentication.AuthenticationTrustResolverImpl;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.web.FilterInvocation;
+
+import java.util.Collection;
+
+/**
+ * 配合 PathAccessRules 使用，每个请求只有一条规则，直接比较权限名，不经过投票器和 SpEL。
+ * VerifiedOAuth2Authentication 的权限名集合在令牌解析时就算好了，其余的 Authentication 逐个比较权限。
+ */
+public class AuthorityAccessDecisionManager implements AccessDecisionManager {
+
+    private final AuthenticationTrustResolver trustResolver = new AuthenticationTrustResolverImpl();
+
+    @Override
+    public void decide(Authentication authentication, Object object, Collection<ConfigAttribute> configAttributes) {
+        String required = configAttributes.iterator().next().getAttribute();
+        if (PathAccessRules.PERMIT_ALL.equals(required)) {
+            return;
+        }
+        if (authentication == null || !authentication.isAuthenticated() || trustResolver.isAnonymous(authentication)) {
+            throw new AccessDeniedException("Access is denied");
+        }
+        if (PathAccessRules.AUTHENTICATED.equals(required) || hasAuthority(authentication, required)) {
+            return;
+        }
+        throw new AccessDeniedException("Access is denied");
+    }
+
+    @Override
+    public boolean supports(ConfigAttribute attribute) {
+        return attribute.getAttribute() != null;
+    }
+
+    @Override
+    public boolean supports(Class<?> clazz) {
+        return FilterInvocation.class.isAssignableFrom(clazz);
+    }
+
+    private static boolean hasAuthority(Authentication authentication, String authority) {
+        if (authentication instanceof VerifiedOAuth2Authentication) {
+            return ((VerifiedOAuth2Authentication) authentication).getAuthorityNames().contains(authority);
+        }
+        for (GrantedAuthority granted : authentication.getAuthorities()) {
+            if (authority.equals(granted.getAuthority())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,145 @@
+package com.cius.auth.security;
+
+import org.springframework.security.access.ConfigAttribute;
+import org.springframework.security.access.SecurityConfig;
+import org.springframework.security.web.FilterInvocation;
+import org.springframework.security.web.access.intercept.FilterInvocationSecurityMetadataSource;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 预先编译好的访问规则，代替 antMatchers + SpEL 表达式：
+ * 启动时把规则拆成精确路径的 HashMap 和按长度降序排列的前缀数组，
+ * 每个请求只做一次 HashMap 查找和几次 startsWith，每条规则的 ConfigAttribute 也是启动时创建好的。
+ *
+ * 只支持两种写法：精确路径 "/hello" 和前缀 "/admin/**"（与 Ant 一样同时匹配 "/admin" 本身），
+ * 多条规则都能匹配时精确路径优先，其次是最长的前缀。
+ */
+public class PathAccessRules implements FilterInvocationSecurityMetadataSource {
+
+    /**
+     * 只要求已认证（非匿名），不要求特定权限
+     */
+    public static final String AUTHENTICATED = "authenticated";
+
+    /**
+     * 不要求认证
+     */
+    public static final String PERMIT_ALL = "permitAll";
+
+    private final Map<String, Collection<ConfigAttribute>> exact;
+
+    private final String[] prefixes;
+
+    private final String[] prefixDirs;
+
+    private final List<Collection<ConfigAttribute>> prefixAttributes;
+
+    private final Collection<ConfigAttribute> anyRequest;
+
+    private PathAccessRules(Builder builder) {
+        this.exact = new HashMap<>(builder.exact);
+        List<Map.Entry<String, Collection<ConfigAttribute>>> sorted = new ArrayList<>(builder.prefixes.entrySet());
+        sorted.sort((a, b) -> b.getKey().length() - a.getKey().length());
+        this.prefixes = new String[sorted.size()];
+        this.prefixDirs = new String[sorted.size()];
+        this.prefixAttributes = new ArrayList<>(sorted.size());
+        for (int i = 0; i < sorted.size(); i++) {
+            prefixes[i] = sorted.get(i).getKey();
+            prefixDirs[i] = prefixes[i] + "/";
+            prefixAttributes.add(sorted.get(i).getValue());
+        }
+        this.anyRequest = builder.anyRequest;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * 按路径取出需要的权限（AUTHENTICATED、PERMIT_ALL 或者权限名）
+     */
+    public String requiredAuthority(String path) {
+        return match(path).iterator().next().getAttribute();
+    }
+
+    @Override
+    public Collection<ConfigAttribute> getAttributes(Object object) {
+        HttpServletRequest request = ((FilterInvocation) object).getHttpRequest();
+        String path = request.getServletPath();
+        String pathInfo = request.getPathInfo();
+        return match(pathInfo == null ? path : path + pathInfo);
+    }
+
+    @Override
+    public Collection<ConfigAttribute> getAllConfigAttributes() {
+        Set<ConfigAttribute> all = new LinkedHashSet<>();
+        exact.values().forEach(all::addAll);
+        prefixAttributes.forEach(all::addAll);
+        all.addAll(anyRequest);
+        return all;
+    }
+
+    @Override
+    public boolean supports(Class<?> clazz) {
+        return FilterInvocation.class.isAssignableFrom(clazz);
+    }
+
+    private Collection<ConfigAttribute> match(String path) {
+        Collection<ConfigAttribute> attributes = exact.get(path);
+        if (attributes != null) {
+            return attributes;
+        }
+        for (int i = 0; i < prefixes.length; i++) {
+            if (path.startsWith(prefixDirs[i]) || path.equals(prefixes[i])) {
+                return prefixAttributes.get(i);
+            }
+        }
+        return anyRequest;
+    }
+
+    public static class Builder {
+
+        private final Map<String, Collection<ConfigAttribute>> exact = new HashMap<>();
+
+        private final Map<String, Collection<ConfigAttribute>> prefixes = new HashMap<>();
+
+        private Collection<ConfigAttribute> anyRequest = attributes(AUTHENTICATED);
+
+        /**
+         * @param pattern "/path" 或者 "/path/**"
+         * @param authority AUTHENTICATED、PERMIT_ALL 或者权限名（例如 ROLE_admin）
+         */
+        public Builder rule(String pattern, String authority) {
+            if (pattern.endsWith("/**")) {
+                prefixes.put(pattern.substring(0, pattern.length() - 3), attributes(authority));
+            } else if (pattern.contains("*")) {
+                throw new IllegalArgumentException("Only exact paths and '/**' suffixes are supported: " + pattern);
+            } else {
+                exact.put(pattern, attributes(authority));
+            }
+            return this;
+        }
+
+        public Builder anyRequest(String authority) {
+            this.anyRequest = attributes(authority);
+            return this;
+        }
+
+        public PathAccessRules build() {
+            return new PathAccessRules(this);
+        }
+
+        private static Collection<ConfigAttribute> attributes(String authority) {
+            return Collections.singletonList(new SecurityConfig(authority));
+        }
+    }
+}
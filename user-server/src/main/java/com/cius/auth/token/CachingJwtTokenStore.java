@@ -0,0 +1,87 @@
+package com.cius.auth.token;
+
+import com.cius.auth.jwt.KidJwtAccessTokenConverter;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.common.exceptions.InvalidTokenException;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.token.store.JwtTokenStore;
+
+import java.util.Map;
+
+/**
+ * 带缓存的 JwtTokenStore：
+ * 资源服务器每次请求都会先 readAccessToken 再 readAuthentication，原来的 JwtTokenStore 两次都要
+ * Base64 解码、验签、解析 JSON。这里把解析结果按 token 摘要缓存起来，同一个 token 再来时直接返回；
+ * 未命中时也只调用一次 converter.decode，令牌和认证信息都从这一份 claims 转换出来。
+ *
+ * OAuth2AuthenticationManager 会往返回的 OAuth2Authentication 上 setDetails，
+ * 所以每次返回的是一个新的 OAuth2Authentication，共享的只是不可变的 OAuth2Request 和用户认证信息。
+ *
+ * 未命中时由 converter 检查吊销列表；命中缓存时不经过 converter，所以这里再按 jti 查一次 RevocationDenylist。
+ */
+public class CachingJwtTokenStore extends JwtTokenStore {
+
+    private static final String JTI = "jti";
+
+    private final KidJwtAccessTokenConverter converter;
+
+    private final VerifiedTokenCache cache;
+
+    private RevocationDenylist denylist;
+
+    public CachingJwtTokenStore(KidJwtAccessTokenConverter converter, VerifiedTokenCache cache) {
+        super(converter);
+        this.converter = converter;
+        this.cache = cache;
+    }
+
+    public void setDenylist(RevocationDenylist denylist) {
+        this.denylist = denylist;
+    }
+
+    @Override
+    public OAuth2AccessToken readAccessToken(String tokenValue) {
+        return verify(tokenValue).getAccessToken();
+    }
+
+    @Override
+    public OAuth2Authentication readAuthentication(OAuth2AccessToken token) {
+        return readAuthentication(token.getValue());
+    }
+
+    @Override
+    public OAuth2Authentication readAuthentication(String token) {
+        VerifiedTokenCache.VerifiedToken verified = verify(token);
+        OAuth2Authentication cached = verified.getAuthentication();
+        return new VerifiedOAuth2Authentication(cached.getOAuth2Request(), cached.getUserAuthentication(),
+                verified.getAuthorityNames());
+    }
+
+    @Override
+    public void removeAccessToken(OAuth2AccessToken token) {
+        cache.invalidate(token.getValue());
+        super.removeAccessToken(token);
+    }
+
+    public VerifiedTokenCache getCache() {
+        return cache;
+    }
+
+    private VerifiedTokenCache.VerifiedToken verify(String tokenValue) {
+        VerifiedTokenCache.VerifiedToken verified = cache.get(tokenValue);
+        if (verified != null) {
+            if (denylist != null && denylist.isRevoked((String) verified.getAccessToken().getAdditionalInformation().get(JTI))) {
+                cache.invalidate(tokenValue);
+                throw new InvalidTokenException("Token has been revoked");
+            }
+            return verified;
+        }
+        Map<String, Object> claims = converter.decode(tokenValue);
+        OAuth2AccessToken accessToken = converter.extractAccessToken(tokenValue, claims);
+        if (converter.isRefreshToken(accessToken)) {
+            throw new InvalidTokenException("Encoded token is a refresh token");
+        }
+        OAuth2Authentication authentication = converter.extractAuthentication(claims);
+        return cache.put(tokenValue, accessToken, authentication);
+    }
+}
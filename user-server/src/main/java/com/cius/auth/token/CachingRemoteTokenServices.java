@@ -0,0 +1,195 @@
+package com.cius.auth.token;
+
+import com.cius.auth.cache.ExpiringCache;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.common.exceptions.InvalidTokenException;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.token.AccessTokenConverter;
+import org.springframework.security.oauth2.provider.token.DefaultAccessTokenConverter;
+import org.springframework.security.oauth2.provider.token.ResourceServerTokenServices;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 用于不透明令牌的 RemoteTokenServices：令牌交给授权服务器的 /oauth/check_token 校验，但不是每个请求都去问一次。
+ *  1.有效的令牌放进 VerifiedTokenCache，过期时间不晚于令牌本身的 exp；
+ *  2.无效的令牌在 negativeTtl 内直接拒绝，避免同一个坏令牌反复打到授权服务器，数量有上限；
+ *  3.同一个令牌并发未命中时只发一次请求，其余请求等待同一个结果；
+ *  4.设置了 IntrospectionBatcher 时，未命中的令牌攒批调用 /oauth/introspect/batch。
+ *
+ * 授权服务器不可用等网络错误不会被当作无效令牌缓存。
+ */
+public class CachingRemoteTokenServices implements ResourceServerTokenServices, DisposableBean {
+
+    private static final String EXP = "exp";
+
+    private static final Map<String, Object> INACTIVE = Collections.singletonMap("active", false);
+
+    private final RestTemplate restTemplate;
+
+    private final String checkTokenUrl;
+
+    private final String authorization;
+
+    private final VerifiedTokenCache cache;
+
+    private final ExpiringCache<VerifiedTokenCache.TokenDigest, Boolean> rejected;
+
+    private final ConcurrentHashMap<VerifiedTokenCache.TokenDigest, CompletableFuture<VerifiedTokenCache.VerifiedToken>> inFlight = new ConcurrentHashMap<>();
+
+    private final AccessTokenConverter tokenConverter = new DefaultAccessTokenConverter();
+
+    private IntrospectionBatcher batcher;
+
+    public CachingRemoteTokenServices(RestTemplate restTemplate, String checkTokenUrl, String clientId, String clientSecret,
+                                      VerifiedTokenCache cache, int negativeMaxSize, long negativeTtl, TimeUnit unit) {
+        this.restTemplate = restTemplate;
+        this.checkTokenUrl = checkTokenUrl;
+        this.authorization = basicAuthorization(clientId, clientSecret);
+        this.cache = cache;
+        this.rejected = new ExpiringCache<>(negativeMaxSize, negativeTtl, unit);
+    }
+
+    public void setBatcher(IntrospectionBatcher batcher) {
+        this.batcher = batcher;
+    }
+
+    @Override
+    public OAuth2Authentication loadAuthentication(String accessToken) throws AuthenticationException, InvalidTokenException {
+        VerifiedTokenCache.VerifiedToken verified = verify(accessToken);
+        OAuth2Authentication cached = verified.getAuthentication();
+        // OAuth2AuthenticationManager 会 setDetails，每次返回新的对象
+        return new VerifiedOAuth2Authentication(cached.getOAuth2Request(), cached.getUserAuthentication(),
+                verified.getAuthorityNames());
+    }
+
+    @Override
+    public OAuth2AccessToken readAccessToken(String accessToken) {
+        try {
+            return verify(accessToken).getAccessToken();
+        } catch (InvalidTokenException e) {
+            return null;
+        }
+    }
+
+    public VerifiedTokenCache getCache() {
+        return cache;
+    }
+
+    public int getRejectedCount() {
+        return rejected.size();
+    }
+
+    @Override
+    public void destroy() {
+        if (batcher != null) {
+            batcher.destroy();
+        }
+    }
+
+    public static String basicAuthorization(String clientId, String clientSecret) {
+        String credentials = clientId + ":" + clientSecret;
+        return "Basic " + Base64.getEncoder().encodeToString(credentials.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private VerifiedTokenCache.VerifiedToken verify(String tokenValue) {
+        VerifiedTokenCache.TokenDigest key = VerifiedTokenCache.TokenDigest.of(tokenValue);
+        VerifiedTokenCache.VerifiedToken verified = cache.get(key);
+        if (verified != null) {
+            return verified;
+        }
+        if (rejected.getIfPresent(key) != null) {
+            throw new InvalidTokenException("Token was not recognised");
+        }
+        CompletableFuture<VerifiedTokenCache.VerifiedToken> future = new CompletableFuture<>();
+        CompletableFuture<VerifiedTokenCache.VerifiedToken> existing = inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            return await(existing);
+        }
+        try {
+            verified = toVerified(key, tokenValue, introspect(tokenValue));
+            future.complete(verified);
+            return verified;
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    private Map<String, Object> introspect(String tokenValue) {
+        if (batcher != null) {
+            try {
+                return batcher.submit(tokenValue).join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+            }
+        }
+        MultiValueMap<String, String> form = new LinkedMultiValueMap<>();
+        form.add("token", tokenValue);
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_FORM_URLENCODED);
+        headers.set(HttpHeaders.AUTHORIZATION, authorization);
+        try {
+            @SuppressWarnings("unchecked")
+            Map<String, Object> map = restTemplate.exchange(checkTokenUrl, HttpMethod.POST, new HttpEntity<>(form, headers), Map.class).getBody();
+            return map == null ? INACTIVE : map;
+        } catch (HttpClientErrorException e) {
+            // check_token 对无效令牌返回 400
+            if (e.getStatusCode() == HttpStatus.BAD_REQUEST) {
+                return INACTIVE;
+            }
+            throw e;
+        }
+    }
+
+    private VerifiedTokenCache.VerifiedToken toVerified(VerifiedTokenCache.TokenDigest key, String tokenValue, Map<String, Object> map) {
+        if (map.containsKey("error") || !Boolean.TRUE.equals(map.get("active"))) {
+            reject(key);
+            throw new InvalidTokenException("Token was not recognised");
+        }
+        Map<String, Object> claims = new HashMap<>(map);
+        if (claims.get(EXP) instanceof Integer) {
+            claims.put(EXP, ((Integer) claims.get(EXP)).longValue());
+        }
+        OAuth2AccessToken accessToken = tokenConverter.extractAccessToken(tokenValue, claims);
+        if (accessToken.isExpired()) {
+            reject(key);
+            throw new InvalidTokenException("Token has expired");
+        }
+        OAuth2Authentication authentication = tokenConverter.extractAuthentication(claims);
+        return cache.put(key, accessToken, authentication);
+    }
+
+    private void reject(VerifiedTokenCache.TokenDigest key) {
+        rejected.put(key, Boolean.TRUE);
+    }
+
+    private static VerifiedTokenCache.VerifiedToken await(CompletableFuture<VerifiedTokenCache.VerifiedToken> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.cius.auth.token;
+
+import com.cius.auth.jwt.CompactClaims;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.token.DefaultAccessTokenConverter;
+
+import java.util.Map;
+
+/**
+ * 解析授权服务器签发的紧凑令牌（auth-server 的 CompactAccessTokenConverter）：
+ * 按 d 从 TokenDictionaryCache 找到字典，用 common 模块的 CompactClaims 还原成标准格式再交给 DefaultAccessTokenConverter，
+ * 没有 d 的标准令牌原样解析。
+ */
+public class CompactAccessTokenConverter extends DefaultAccessTokenConverter {
+
+    private final TokenDictionaryCache dictionaryCache;
+
+    public CompactAccessTokenConverter(TokenDictionaryCache dictionaryCache) {
+        this.dictionaryCache = dictionaryCache;
+    }
+
+    @Override
+    public OAuth2AccessToken extractAccessToken(String value, Map<String, ?> map) {
+        return super.extractAccessToken(value, expand(map));
+    }
+
+    @Override
+    public OAuth2Authentication extractAuthentication(Map<String, ?> map) {
+        return super.extractAuthentication(expand(map));
+    }
+
+    Map<String, Object> expand(Map<String, ?> claims) {
+        return CompactClaims.expand(claims, dictionaryCache::getDictionary);
+    }
+}
@@ -0,0 +1,31 @@
+package com.cius.auth.token;
+
+import org.springframework.web.client.RestTemplate;
+
+import java.util.Map;
+
+/**
+ * 通过授权服务器的 /oauth/revocations 和 /oauth/revocations/check 同步吊销列表
+ */
+public class HttpRevocationSource implements RevocationSource {
+
+    private final RestTemplate restTemplate;
+
+    private final String baseUrl;
+
+    public HttpRevocationSource(RestTemplate restTemplate, String baseUrl) {
+        this.restTemplate = restTemplate;
+        this.baseUrl = baseUrl;
+    }
+
+    @Override
+    public RevocationUpdate fetch(long sinceVersion) {
+        return restTemplate.getForObject(baseUrl + "/oauth/revocations?since={since}", RevocationUpdate.class, sinceVersion);
+    }
+
+    @Override
+    public boolean isRevoked(String jti) {
+        Map<?, ?> result = restTemplate.getForObject(baseUrl + "/oauth/revocations/check?jti={jti}", Map.class, jti);
+        return result != null && Boolean.TRUE.equals(result.get("revoked"));
+    }
+}
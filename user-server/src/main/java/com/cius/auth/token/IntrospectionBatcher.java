@@ -0,0 +1,195 @@
+package com.cius.auth.token;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 把一小段时间窗口（window）内未命中缓存的令牌攒成一批，调用一次授权服务器的 /oauth/introspect/batch：
+ * 收集线程拿到第一个令牌后最多再等 window，或者攒够 maxBatchSize 个就立即发出，
+ * 发送在单独的线程池中进行，收集线程不等待响应。
+ *
+ * 授权服务器变慢时请求不会无限堆积：等待收集的令牌最多 queueCapacity 个，超出的直接以 RejectedExecutionException 失败；
+ * 发送线程池每个线程最多再排一批，都在忙时由收集线程自己发送，这段时间不再收集，排队的令牌很快就会达到上限。
+ */
+public class IntrospectionBatcher implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(IntrospectionBatcher.class);
+
+    private static final ParameterizedTypeReference<List<Map<String, Object>>> RESULTS = new ParameterizedTypeReference<List<Map<String, Object>>>() {
+    };
+
+    private final RestTemplate restTemplate;
+
+    private final String batchUrl;
+
+    private final String authorization;
+
+    private final int maxBatchSize;
+
+    private final long windowNanos;
+
+    private final BlockingQueue<Pending> queue;
+
+    private final ThreadPoolExecutor senders;
+
+    private final Thread collector;
+
+    private final AtomicLong rejected = new AtomicLong();
+
+    private volatile boolean running = true;
+
+    public IntrospectionBatcher(RestTemplate restTemplate, String batchUrl, String authorization,
+                                int maxBatchSize, long window, TimeUnit unit, int senderThreads, int queueCapacity) {
+        this.restTemplate = restTemplate;
+        this.batchUrl = batchUrl;
+        this.authorization = authorization;
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.windowNanos = unit.toNanos(window);
+        this.queue = new LinkedBlockingQueue<>(Math.max(1, queueCapacity));
+        int threads = Math.max(1, senderThreads);
+        this.senders = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(threads), r -> {
+            Thread thread = new Thread(r, "introspect-batch-sender");
+            thread.setDaemon(true);
+            return thread;
+        }, (task, executor) -> {
+            if (executor.isShutdown()) {
+                throw new RejectedExecutionException("Batcher is shut down");
+            }
+            task.run();
+        });
+        this.collector = new Thread(this::collect, "introspect-batch-collector");
+        this.collector.setDaemon(true);
+        this.collector.start();
+    }
+
+    public CompletableFuture<Map<String, Object>> submit(String token) {
+        Pending pending = new Pending(token);
+        if (!running) {
+            pending.result.completeExceptionally(new IllegalStateException("Batcher is shut down"));
+            return pending.result;
+        }
+        if (!queue.offer(pending)) {
+            rejected.incrementAndGet();
+            pending.result.completeExceptionally(new RejectedExecutionException("Introspection queue is full"));
+        }
+        return pending.result;
+    }
+
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    @Override
+    public void destroy() {
+        running = false;
+        collector.interrupt();
+        for (Runnable task : senders.shutdownNow()) {
+            fail(((SendTask) task).batch, new IllegalStateException("Batcher is shut down"));
+        }
+        Pending pending;
+        while ((pending = queue.poll()) != null) {
+            pending.result.completeExceptionally(new IllegalStateException("Batcher is shut down"));
+        }
+    }
+
+    private void collect() {
+        while (running) {
+            List<Pending> batch = new ArrayList<>(maxBatchSize);
+            try {
+                batch.add(queue.take());
+                long deadline = System.nanoTime() + windowNanos;
+                while (batch.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    Pending next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                try {
+                    senders.execute(new SendTask(batch));
+                } catch (RejectedExecutionException e) {
+                    fail(batch, e);
+                }
+            } catch (InterruptedException e) {
+                fail(batch, new IllegalStateException("Batcher is shut down"));
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void send(List<Pending> batch) {
+        List<String> tokens = new ArrayList<>(batch.size());
+        for (Pending pending : batch) {
+            tokens.add(pending.token);
+        }
+        try {
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(MediaType.APPLICATION_JSON);
+            headers.set(HttpHeaders.AUTHORIZATION, authorization);
+            List<Map<String, Object>> results = restTemplate.exchange(batchUrl, HttpMethod.POST,
+                    new HttpEntity<>(tokens, headers), RESULTS).getBody();
+            if (results == null || results.size() != batch.size()) {
+                throw new IllegalStateException("Expected " + batch.size() + " introspection results but got "
+                        + (results == null ? 0 : results.size()));
+            }
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).result.complete(results.get(i));
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Batch introspection of {} token(s) failed", batch.size(), e);
+            fail(batch, e);
+        }
+    }
+
+    private static void fail(List<Pending> batch, Throwable cause) {
+        for (Pending pending : batch) {
+            pending.result.completeExceptionally(cause);
+        }
+    }
+
+    private final class SendTask implements Runnable {
+
+        final List<Pending> batch;
+
+        SendTask(List<Pending> batch) {
+            this.batch = batch;
+        }
+
+        @Override
+        public void run() {
+            send(batch);
+        }
+    }
+
+    private static final class Pending {
+
+        final String token;
+
+        final CompletableFuture<Map<String, Object>> result = new CompletableFuture<>();
+
+        Pending(String token) {
+            this.token = token;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.cius.auth.token;
+
+import com.cius.auth.jwt.KidJwtAccessTokenConverter;
+import org.springframework.security.jwt.crypto.sign.SignatureVerifier;
+
+/**
+ * 按 JWT 头部的 kid 从 JwksVerifierCache 中取出公钥 verifier 来校验 token（校验过程见 KidJwtAccessTokenConverter），
+ * 资源服务器只负责校验，不签发 token。
+ * 设置了 RevocationDenylist 时，已吊销的 jti 校验不通过。
+ */
+public class JwksJwtAccessTokenConverter extends KidJwtAccessTokenConverter {
+
+    private final JwksVerifierCache verifierCache;
+
+    private RevocationDenylist denylist;
+
+    public JwksJwtAccessTokenConverter(JwksVerifierCache verifierCache) {
+        this.verifierCache = verifierCache;
+    }
+
+    public void setDenylist(RevocationDenylist denylist) {
+        this.denylist = denylist;
+    }
+
+    @Override
+    protected SignatureVerifier getVerifier(String kid) {
+        return verifierCache.getVerifier(kid);
+    }
+
+    @Override
+    protected boolean isRevoked(String jti) {
+        return denylist != null && denylist.isRevoked(jti);
+    }
+}
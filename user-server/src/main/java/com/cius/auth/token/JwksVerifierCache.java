@@ -0,0 +1,167 @@
+package com.cius.auth.token;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.security.jwt.crypto.sign.RsaVerifier;
+import org.springframework.security.jwt.crypto.sign.SignatureVerifier;
+import org.springframework.web.client.RestTemplate;
+
+import java.math.BigInteger;
+import java.security.KeyFactory;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.RSAPublicKeySpec;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 授权服务器 JWKS 公钥的本地缓存：
+ *  1.启动时拉取一次，之后在后台线程定时刷新，请求线程从不访问授权服务器；
+ *  2.每个 kid 对应的 RsaVerifier 在刷新时就创建好，校验时直接复用；
+ *  3.遇到未知 kid 时触发一次后台刷新，并且两次刷新之间至少间隔 minRefreshInterval，
+ *    避免伪造的 kid 把授权服务器打爆。当前这个 token 会被拒绝，所以轮换密钥时要先发布再启用。
+ */
+public class JwksVerifierCache implements InitializingBean, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(JwksVerifierCache.class);
+
+    private final RestTemplate restTemplate;
+
+    private final String jwksUrl;
+
+    private final long refreshIntervalMillis;
+
+    private final long minRefreshIntervalMillis;
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "jwks-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+
+    /**
+     * 已经提交、还没有执行完的按需刷新，同一时间最多一个
+     */
+    private final AtomicBoolean pending = new AtomicBoolean();
+
+    private volatile Map<String, SignatureVerifier> verifiers = Collections.emptyMap();
+
+    private volatile long lastRefreshAttempt;
+
+    public JwksVerifierCache(RestTemplate restTemplate, String jwksUrl, long refreshInterval, long minRefreshInterval, TimeUnit unit) {
+        this.restTemplate = restTemplate;
+        this.jwksUrl = jwksUrl;
+        this.refreshIntervalMillis = unit.toMillis(refreshInterval);
+        this.minRefreshIntervalMillis = unit.toMillis(minRefreshInterval);
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        refresh();
+        executor.scheduleWithFixedDelay(this::refresh, refreshIntervalMillis, refreshIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 按 kid 取 verifier，未知 kid 返回 null 并触发一次（限频的）后台刷新
+     */
+    public SignatureVerifier getVerifier(String kid) {
+        SignatureVerifier verifier = kid == null ? null : verifiers.get(kid);
+        if (verifier == null) {
+            requestRefresh();
+        }
+        return verifier;
+    }
+
+    public Map<String, SignatureVerifier> getVerifiers() {
+        return verifiers;
+    }
+
+    /**
+     * 先用 CAS 占住 pending 再提交，并发的请求只有一个能提交后台刷新；
+     * 执行时再检查一次间隔，排队期间定时刷新已经跑过的话就不再拉取
+     */
+    void requestRefresh() {
+        if (System.currentTimeMillis() - lastRefreshAttempt < minRefreshIntervalMillis || !pending.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            executor.execute(this::refreshIfDue);
+        } catch (RejectedExecutionException e) {
+            // 已经关闭
+            pending.set(false);
+        }
+    }
+
+    private void refreshIfDue() {
+        try {
+            if (System.currentTimeMillis() - lastRefreshAttempt >= minRefreshIntervalMillis) {
+                refresh();
+            }
+        } finally {
+            pending.set(false);
+        }
+    }
+
+    public void refresh() {
+        if (!refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        lastRefreshAttempt = System.currentTimeMillis();
+        try {
+            int count = update(restTemplate.getForObject(jwksUrl, Map.class));
+            logger.debug("Loaded {} verification key(s) from {}", count, jwksUrl);
+        } catch (Exception e) {
+            // 拉取失败时继续使用上一次的公钥
+            logger.warn("Failed to refresh JWKS from {}", jwksUrl, e);
+        } finally {
+            refreshing.set(false);
+        }
+    }
+
+    /**
+     * 用一份 JWKS 替换当前的公钥集合，JWKS 为空时保留原来的公钥
+     * @return 解析出的公钥数量
+     */
+    public int update(Map<?, ?> jwks) throws Exception {
+        Map<String, SignatureVerifier> loaded = parse(jwks);
+        if (!loaded.isEmpty()) {
+            verifiers = loaded;
+        }
+        return loaded.size();
+    }
+
+    static Map<String, SignatureVerifier> parse(Map<?, ?> jwks) throws Exception {
+        Map<String, SignatureVerifier> loaded = new HashMap<>();
+        if (jwks == null || !(jwks.get("keys") instanceof List)) {
+            return loaded;
+        }
+        KeyFactory keyFactory = KeyFactory.getInstance("RSA");
+        for (Object item : (List<?>) jwks.get("keys")) {
+            Map<?, ?> jwk = (Map<?, ?>) item;
+            if (!"RSA".equals(jwk.get("kty")) || jwk.get("kid") == null) {
+                continue;
+            }
+            BigInteger n = new BigInteger(1, Base64.getUrlDecoder().decode((String) jwk.get("n")));
+            BigInteger e = new BigInteger(1, Base64.getUrlDecoder().decode((String) jwk.get("e")));
+            RSAPublicKey publicKey = (RSAPublicKey) keyFactory.generatePublic(new RSAPublicKeySpec(n, e));
+            loaded.put((String) jwk.get("kid"), new RsaVerifier(publicKey));
+        }
+        return Collections.unmodifiableMap(loaded);
+    }
+}
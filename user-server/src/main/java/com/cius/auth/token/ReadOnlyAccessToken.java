@@ -0,0 +1,95 @@
+package com.cius.auth.token;
+
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.common.OAuth2RefreshToken;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 放进 VerifiedTokenCache 的 access_token：创建时拷贝一份，scope 和附加信息都是只读集合，过期时间每次返回新的 Date，
+ * 同一个对象被多个请求共享也不会被其中一个改掉。
+ */
+final class ReadOnlyAccessToken implements OAuth2AccessToken {
+
+    private final String value;
+
+    private final String tokenType;
+
+    private final long expiration;
+
+    private final OAuth2RefreshToken refreshToken;
+
+    private final Set<String> scope;
+
+    private final Map<String, Object> additionalInformation;
+
+    ReadOnlyAccessToken(OAuth2AccessToken accessToken) {
+        this.value = accessToken.getValue();
+        this.tokenType = accessToken.getTokenType();
+        this.expiration = accessToken.getExpiration() == null ? 0 : accessToken.getExpiration().getTime();
+        this.refreshToken = accessToken.getRefreshToken();
+        this.scope = accessToken.getScope() == null ? Collections.emptySet()
+                : Collections.unmodifiableSet(new LinkedHashSet<>(accessToken.getScope()));
+        this.additionalInformation = Collections.unmodifiableMap(new LinkedHashMap<>(accessToken.getAdditionalInformation()));
+    }
+
+    @Override
+    public Map<String, Object> getAdditionalInformation() {
+        return additionalInformation;
+    }
+
+    @Override
+    public Set<String> getScope() {
+        return scope;
+    }
+
+    @Override
+    public OAuth2RefreshToken getRefreshToken() {
+        return refreshToken;
+    }
+
+    @Override
+    public String getTokenType() {
+        return tokenType;
+    }
+
+    @Override
+    public boolean isExpired() {
+        return expiration != 0 && expiration < System.currentTimeMillis();
+    }
+
+    @Override
+    public Date getExpiration() {
+        return expiration == 0 ? null : new Date(expiration);
+    }
+
+    @Override
+    public int getExpiresIn() {
+        return expiration == 0 ? 0 : (int) ((expiration - System.currentTimeMillis()) / 1000L);
+    }
+
+    @Override
+    public String getValue() {
+        return value;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof OAuth2AccessToken && value.equals(((OAuth2AccessToken) obj).getValue());
+    }
+
+    @Override
+    public int hashCode() {
+        return value.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return value;
+    }
+}
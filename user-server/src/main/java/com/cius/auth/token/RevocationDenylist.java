@@ -0,0 +1,137 @@
+package com.cius.auth.token;
+
+import com.cius.auth.revoke.BloomFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 授权服务器吊销列表在资源服务器上的本地副本：
+ *  1.后台线程定时从 RevocationSource 同步，第一次拿整个 Bloom 过滤器，之后只拿增量；
+ *  2.每个请求解析出 jti 之后先查 Bloom 过滤器，绝大多数令牌在这一步就确定没有被吊销，O(1) 且不分配对象；
+ *  3.过滤器命中时，增量里出现过的 jti 直接判定为已吊销，其余的向授权服务器精确查询并缓存结果，
+ *    所以过滤器的误判不会导致拒绝正常的令牌；
+ *  4.精确查询失败（授权服务器不可用）时放行，这种情况下只有快照中的令牌可能漏判。
+ */
+public class RevocationDenylist implements InitializingBean, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(RevocationDenylist.class);
+
+    private final RevocationSource source;
+
+    private final long refreshIntervalMillis;
+
+    private final int exactCacheSize;
+
+    private final ConcurrentHashMap<String, Boolean> exactResults = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "revocation-sync");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile State state = new State(null, 0, ConcurrentHashMap.newKeySet());
+
+    public RevocationDenylist(RevocationSource source, long refreshInterval, TimeUnit unit, int exactCacheSize) {
+        this.source = source;
+        this.refreshIntervalMillis = unit.toMillis(refreshInterval);
+        this.exactCacheSize = exactCacheSize;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        executor.scheduleWithFixedDelay(() -> {
+            try {
+                refresh();
+            } catch (RuntimeException e) {
+                // 同步失败时继续使用上一次的副本
+                logger.warn("Failed to sync revocation list", e);
+            }
+        }, 0, refreshIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    public boolean isRevoked(String jti) {
+        State current = state;
+        if (jti == null || current.filter == null || !current.filter.mightContain(jti)) {
+            return false;
+        }
+        if (current.known.contains(jti)) {
+            return true;
+        }
+        Boolean cached = exactResults.get(jti);
+        if (cached != null) {
+            return cached;
+        }
+        try {
+            boolean revoked = source.isRevoked(jti);
+            if (exactResults.size() >= exactCacheSize) {
+                exactResults.clear();
+            }
+            exactResults.put(jti, revoked);
+            return revoked;
+        } catch (RuntimeException e) {
+            logger.warn("Exact revocation check for a filter hit failed, accepting the token", e);
+            return false;
+        }
+    }
+
+    /**
+     * 同步一次，只在同步线程（或测试）中调用
+     */
+    public synchronized void refresh() {
+        State current = state;
+        RevocationUpdate update = source.fetch(current.version);
+        if (update == null) {
+            return;
+        }
+        if (update.isFull()) {
+            Set<String> known = ConcurrentHashMap.newKeySet();
+            known.addAll(update.getRevoked());
+            exactResults.clear();
+            state = new State(BloomFilter.fromBase64(update.getBits(), update.getNumHashes()), update.getVersion(), known);
+            return;
+        }
+        if (current.filter == null) {
+            return;
+        }
+        for (String jti : update.getRevoked()) {
+            current.filter.add(jti);
+            current.known.add(jti);
+            exactResults.remove(jti);
+        }
+        // 重新发布 state，读线程通过 volatile 看到上面对过滤器的修改
+        state = new State(current.filter, update.getVersion(), current.known);
+    }
+
+    public long getVersion() {
+        return state.version;
+    }
+
+    private static final class State {
+
+        final BloomFilter filter;
+
+        final long version;
+
+        final Set<String> known;
+
+        State(BloomFilter filter, long version, Set<String> known) {
+            this.filter = filter;
+            this.version = version;
+            this.known = known;
+        }
+    }
+}
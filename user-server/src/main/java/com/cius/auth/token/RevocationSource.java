@@ -0,0 +1,17 @@
+package com.cius.auth.token;
+
+/**
+ * 吊销列表的同步通道，默认实现是 HttpRevocationSource，测试中可以换成本地实现
+ */
+public interface RevocationSource {
+
+    /**
+     * 取 sinceVersion 之后的变化，sinceVersion 为 0 时返回整个过滤器
+     */
+    RevocationUpdate fetch(long sinceVersion);
+
+    /**
+     * 精确查询一个 jti 是否已吊销
+     */
+    boolean isRevoked(String jti);
+}
@@ -0,0 +1,62 @@
+package com.cius.auth.token;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 授权服务器 /oauth/revocations 的返回值：
+ * full=true 时 bits 是整个 Bloom 过滤器（Base64），revoked 是快照之后新增的 jti；
+ * full=false 时只有 revoked，是 since 之后新增的 jti。
+ */
+public class RevocationUpdate {
+
+    private long version;
+
+    private boolean full;
+
+    private String bits;
+
+    private int numHashes;
+
+    private List<String> revoked = new ArrayList<>();
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    public boolean isFull() {
+        return full;
+    }
+
+    public void setFull(boolean full) {
+        this.full = full;
+    }
+
+    public String getBits() {
+        return bits;
+    }
+
+    public void setBits(String bits) {
+        this.bits = bits;
+    }
+
+    public int getNumHashes() {
+        return numHashes;
+    }
+
+    public void setNumHashes(int numHashes) {
+        this.numHashes = numHashes;
+    }
+
+    public List<String> getRevoked() {
+        return revoked;
+    }
+
+    public void setRevoked(List<String> revoked) {
+        this.revoked = revoked;
+    }
+}
@@ -0,0 +1,160 @@
+package com.cius.auth.token;
+
+import com.cius.auth.jwt.TokenDictionary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 授权服务器紧凑令牌字典的本地缓存，和 JwksVerifierCache 一样：
+ * 启动时拉取一次，之后后台定时刷新；遇到未知的字典 id 时触发一次限频的后台刷新，当前令牌被拒绝。
+ * 字典改变之后旧字典签发的令牌还会在一段时间内有效，授权服务器在 previous 中发布还在保留期内的旧字典，
+ * 每次刷新都换成当前字典加上这些旧字典，重启之后也能解析旧令牌；
+ * 通过 update 单独加入的字典只保留最近 MAX_DICTIONARIES 个。
+ */
+public class TokenDictionaryCache implements InitializingBean, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenDictionaryCache.class);
+
+    private static final int MAX_DICTIONARIES = 4;
+
+    private final RestTemplate restTemplate;
+
+    private final String dictionaryUrl;
+
+    private final long refreshIntervalMillis;
+
+    private final long minRefreshIntervalMillis;
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "token-dictionary-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+
+    /**
+     * 已经提交、还没有执行完的按需刷新，同一时间最多一个
+     */
+    private final AtomicBoolean pending = new AtomicBoolean();
+
+    private volatile Map<String, TokenDictionary> dictionaries = Collections.emptyMap();
+
+    private volatile long lastRefreshAttempt;
+
+    public TokenDictionaryCache(RestTemplate restTemplate, String dictionaryUrl, long refreshInterval, long minRefreshInterval, TimeUnit unit) {
+        this.restTemplate = restTemplate;
+        this.dictionaryUrl = dictionaryUrl;
+        this.refreshIntervalMillis = unit.toMillis(refreshInterval);
+        this.minRefreshIntervalMillis = unit.toMillis(minRefreshInterval);
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        refresh();
+        executor.scheduleWithFixedDelay(this::refresh, refreshIntervalMillis, refreshIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 按 id 取字典，未知 id 返回 null 并触发一次（限频的）后台刷新
+     */
+    public TokenDictionary getDictionary(String id) {
+        TokenDictionary dictionary = dictionaries.get(id);
+        if (dictionary == null) {
+            requestRefresh();
+        }
+        return dictionary;
+    }
+
+    /**
+     * 先用 CAS 占住 pending 再提交，并发的请求只有一个能提交后台刷新；
+     * 执行时再检查一次间隔，排队期间定时刷新已经跑过的话就不再拉取
+     */
+    void requestRefresh() {
+        if (System.currentTimeMillis() - lastRefreshAttempt < minRefreshIntervalMillis || !pending.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            executor.execute(this::refreshIfDue);
+        } catch (RejectedExecutionException e) {
+            // 已经关闭
+            pending.set(false);
+        }
+    }
+
+    private void refreshIfDue() {
+        try {
+            if (System.currentTimeMillis() - lastRefreshAttempt >= minRefreshIntervalMillis) {
+                refresh();
+            }
+        } finally {
+            pending.set(false);
+        }
+    }
+
+    public void refresh() {
+        if (!refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        lastRefreshAttempt = System.currentTimeMillis();
+        try {
+            Map<?, ?> document = restTemplate.getForObject(dictionaryUrl, Map.class);
+            Map<String, TokenDictionary> published = new LinkedHashMap<>();
+            Object previous = document.get("previous");
+            if (previous instanceof Collection) {
+                for (Object dictionary : (Collection<?>) previous) {
+                    TokenDictionary retired = TokenDictionary.fromMap((Map<?, ?>) dictionary);
+                    published.put(retired.getId(), retired);
+                }
+            }
+            TokenDictionary current = TokenDictionary.fromMap(document);
+            published.put(current.getId(), current);
+            replace(published);
+        } catch (Exception e) {
+            // 拉取失败时继续使用已有的字典
+            logger.warn("Failed to refresh token dictionary from {}", dictionaryUrl, e);
+        } finally {
+            refreshing.set(false);
+        }
+    }
+
+    /**
+     * 加入一个字典，超过 MAX_DICTIONARIES 个时去掉最早加入的
+     */
+    public synchronized void update(TokenDictionary dictionary) {
+        if (dictionaries.containsKey(dictionary.getId())) {
+            return;
+        }
+        Map<String, TokenDictionary> updated = new LinkedHashMap<>(dictionaries);
+        updated.put(dictionary.getId(), dictionary);
+        Iterator<String> it = updated.keySet().iterator();
+        while (updated.size() > MAX_DICTIONARIES) {
+            it.next();
+            it.remove();
+        }
+        dictionaries = Collections.unmodifiableMap(updated);
+    }
+
+    private synchronized void replace(Map<String, TokenDictionary> published) {
+        dictionaries = Collections.unmodifiableMap(published);
+    }
+}
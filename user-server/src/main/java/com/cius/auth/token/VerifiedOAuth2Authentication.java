@@ -0,0 +1,25 @@
+package com.cius.auth.token;
+
+import org.springframework.security.core.Authentication;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.OAuth2Request;
+
+import java.util.Set;
+
+/**
+ * CachingJwtTokenStore 返回的认证信息，带着 VerifiedTokenCache 中算好的权限名集合，
+ * 同一个令牌的每个请求共用这个集合，访问控制时不用再遍历 GrantedAuthority。
+ */
+public class VerifiedOAuth2Authentication extends OAuth2Authentication {
+
+    private final Set<String> authorityNames;
+
+    public VerifiedOAuth2Authentication(OAuth2Request storedRequest, Authentication userAuthentication, Set<String> authorityNames) {
+        super(storedRequest, userAuthentication);
+        this.authorityNames = authorityNames;
+    }
+
+    public Set<String> getAuthorityNames() {
+        return authorityNames;
+    }
+}
@@ -0,0 +1,170 @@
+package com.cius.auth.token;
+
+import com.cius.auth.cache.ExpiringCache;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 已验签 JWT 的缓存：
+ * key 是整个 token 字符串的 SHA-256 摘要（不保存 token 原文，也不能只用签名段做 key，
+ * 否则篡改 payload 但保留签名的 token 会命中缓存），value 是解析好的 access_token 和认证信息。
+ *
+ * 1.条目的过期时间取 token 自身 exp 与 maxTtl 中较早的一个，绝不会晚于 token 过期；
+ * 2.条目数量有上限，存储和淘汰使用 common 模块的 ExpiringCache；
+ * 3.读路径无锁，可以被多个请求线程并发读取；缓存的 access_token 是只读的（见 ReadOnlyAccessToken），
+ *   调用方拿到之后改不了其它请求看到的内容。
+ */
+public class VerifiedTokenCache {
+
+    private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    private final ExpiringCache<TokenDigest, VerifiedToken> entries;
+
+    private final long maxTtlMillis;
+
+    public VerifiedTokenCache(int maxSize, long maxTtl, TimeUnit unit) {
+        this.entries = new ExpiringCache<>(maxSize, maxTtl, unit);
+        this.maxTtlMillis = unit.toMillis(maxTtl);
+    }
+
+    public VerifiedToken get(String tokenValue) {
+        return get(TokenDigest.of(tokenValue));
+    }
+
+    VerifiedToken get(TokenDigest key) {
+        return entries.getIfPresent(key);
+    }
+
+    public VerifiedToken put(String tokenValue, OAuth2AccessToken accessToken, OAuth2Authentication authentication) {
+        return put(TokenDigest.of(tokenValue), accessToken, authentication);
+    }
+
+    VerifiedToken put(TokenDigest key, OAuth2AccessToken accessToken, OAuth2Authentication authentication) {
+        long now = System.currentTimeMillis();
+        long expiresAt = now + maxTtlMillis;
+        Date expiration = accessToken.getExpiration();
+        if (expiration != null) {
+            expiresAt = Math.min(expiresAt, expiration.getTime());
+        }
+        VerifiedToken token = new VerifiedToken(new ReadOnlyAccessToken(accessToken), authentication, expiresAt);
+        entries.put(key, token, expiresAt - now, TimeUnit.MILLISECONDS);
+        return token;
+    }
+
+    public void invalidate(String tokenValue) {
+        entries.invalidate(TokenDigest.of(tokenValue));
+    }
+
+    public void invalidateAll() {
+        entries.invalidateAll();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long hitCount() {
+        return entries.hitCount();
+    }
+
+    public long missCount() {
+        return entries.missCount();
+    }
+
+    public long evictionCount() {
+        return entries.evictionCount();
+    }
+
+    /**
+     * 缓存中的一条记录，access_token 与认证信息都只读使用，权限名集合在创建时算好
+     */
+    public static final class VerifiedToken {
+        private final OAuth2AccessToken accessToken;
+        private final OAuth2Authentication authentication;
+        private final Set<String> authorityNames;
+        private final long expiresAt;
+
+        VerifiedToken(OAuth2AccessToken accessToken, OAuth2Authentication authentication, long expiresAt) {
+            this.accessToken = accessToken;
+            this.authentication = authentication;
+            this.authorityNames = Collections.unmodifiableSet(AuthorityUtils.authorityListToSet(authentication.getAuthorities()));
+            this.expiresAt = expiresAt;
+        }
+
+        public OAuth2AccessToken getAccessToken() {
+            return accessToken;
+        }
+
+        public OAuth2Authentication getAuthentication() {
+            return authentication;
+        }
+
+        public Set<String> getAuthorityNames() {
+            return authorityNames;
+        }
+
+        public long getExpiresAt() {
+            return expiresAt;
+        }
+    }
+
+    /**
+     * SHA-256 摘要，按 4 个 long 保存，equals/hashCode 不需要再拷贝数组
+     */
+    static final class TokenDigest {
+        private final long l0, l1, l2, l3;
+
+        private TokenDigest(byte[] d) {
+            l0 = toLong(d, 0);
+            l1 = toLong(d, 8);
+            l2 = toLong(d, 16);
+            l3 = toLong(d, 24);
+        }
+
+        static TokenDigest of(String tokenValue) {
+            MessageDigest md = SHA256.get();
+            md.reset();
+            return new TokenDigest(md.digest(tokenValue.getBytes(StandardCharsets.US_ASCII)));
+        }
+
+        private static long toLong(byte[] d, int off) {
+            long v = 0;
+            for (int i = 0; i < 8; i++) {
+                v = (v << 8) | (d[off + i] & 0xFF);
+            }
+            return v;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof TokenDigest)) {
+                return false;
+            }
+            TokenDigest other = (TokenDigest) o;
+            return l0 == other.l0 && l1 == other.l1 && l2 == other.l2 && l3 == other.l3;
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) (l0 ^ (l0 >>> 32));
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.cius.auth.trace;
+
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * 把 Controller 的处理时间记为 handler Span，和 token_decode 一起把请求的耗时拆成
+ * 过滤器链、令牌校验、业务处理三段。
+ */
+public class TracingHandlerInterceptor implements HandlerInterceptor {
+
+    public static final String HANDLER = "handler";
+
+    private static final String SPAN_ATTRIBUTE = TracingHandlerInterceptor.class.getName() + ".span";
+
+    private final Tracer tracer;
+
+    public TracingHandlerInterceptor(Tracer tracer) {
+        this.tracer = tracer;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        Span span = tracer.start(HANDLER);
+        if (span != null) {
+            request.setAttribute(SPAN_ATTRIBUTE, span);
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        Span span = (Span) request.getAttribute(SPAN_ATTRIBUTE);
+        if (span != null) {
+            request.removeAttribute(SPAN_ATTRIBUTE);
+            span.setStatus(ex == null ? response.getStatus() : -1);
+            tracer.end(span);
+        }
+    }
+}
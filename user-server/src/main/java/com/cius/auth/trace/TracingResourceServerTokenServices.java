@@ -0,0 +1,46 @@
+package com.cius.auth.trace;
+
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.common.exceptions.InvalidTokenException;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.token.ResourceServerTokenServices;
+
+/**
+ * 把 OAuth2AuthenticationProcessingFilter 校验令牌的耗时记为 token_decode Span：
+ * jwt 模式是缓存查询或验签加解析，remote 模式是缓存查询或调用 /oauth/check_token（下游调用是它的子 Span）。
+ * 整个请求的 Span 减去 token_decode 和 handler，就是过滤器链本身的开销。
+ */
+public class TracingResourceServerTokenServices implements ResourceServerTokenServices {
+
+    public static final String TOKEN_DECODE = "token_decode";
+
+    private final ResourceServerTokenServices delegate;
+
+    private final Tracer tracer;
+
+    public TracingResourceServerTokenServices(ResourceServerTokenServices delegate, Tracer tracer) {
+        this.delegate = delegate;
+        this.tracer = tracer;
+    }
+
+    @Override
+    public OAuth2Authentication loadAuthentication(String accessToken) throws AuthenticationException, InvalidTokenException {
+        Span span = tracer.start(TOKEN_DECODE);
+        try {
+            return delegate.loadAuthentication(accessToken);
+        } catch (RuntimeException e) {
+            if (span != null) {
+                span.setStatus(401);
+            }
+            throw e;
+        } finally {
+            tracer.end(span);
+        }
+    }
+
+    @Override
+    public OAuth2AccessToken readAccessToken(String accessToken) {
+        return delegate.readAccessToken(accessToken);
+    }
+}
@@ -0,0 +1,138 @@
+package com.cius.auth.warmup;
+
+import com.cius.auth.token.JwksVerifierCache;
+import com.cius.auth.token.RevocationDenylist;
+import com.cius.auth.token.VerifiedTokenCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.security.jwt.Jwt;
+import org.springframework.security.jwt.JwtHelper;
+import org.springframework.security.jwt.crypto.sign.RsaSigner;
+import org.springframework.security.jwt.crypto.sign.RsaVerifier;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.common.util.JsonParser;
+import org.springframework.security.oauth2.common.util.JsonParserFactory;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.token.AccessTokenConverter;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 资源服务器启动预热，和授权服务器一样在 ApplicationRunner 中同步执行，
+ * 预热结束之前 /actuator/health/readiness 返回 OUT_OF_SERVICE。
+ *
+ * 步骤（共用 budget 的时间预算，见 Warmup）：
+ *  1.jwks：启动时没拉到授权服务器公钥（例如授权服务器比资源服务器晚启动）时再拉一次；
+ *  2.revocation：同步一次吊销列表，就绪之前本地就有最新的副本；
+ *  3.jwt_key、jwt：用一个临时生成的 RSA 密钥签发合成的 JWT，重复执行 RS256 验签 -> 解析 claims
+ *    -> 还原 OAuth2Authentication -> 按令牌摘要写入、读取缓存，和真实请求走同样的代码路径。
+ * 合成令牌不会进入真实的令牌缓存。
+ */
+public class ResourceServerWarmup implements ApplicationRunner {
+
+    private static final String EXP = "exp";
+
+    private final JwksVerifierCache jwksVerifierCache;
+
+    private final RevocationDenylist revocationDenylist;
+
+    private final AccessTokenConverter accessTokenConverter;
+
+    private final MeterRegistry registry;
+
+    private final JsonParser jsonParser = JsonParserFactory.create();
+
+    private long budgetMillis = 10000;
+
+    private int iterations = 500;
+
+    private RsaVerifier verifier;
+
+    private String token;
+
+    public ResourceServerWarmup(JwksVerifierCache jwksVerifierCache, RevocationDenylist revocationDenylist,
+                                AccessTokenConverter accessTokenConverter, MeterRegistry registry) {
+        this.jwksVerifierCache = jwksVerifierCache;
+        this.revocationDenylist = revocationDenylist;
+        this.accessTokenConverter = accessTokenConverter;
+        this.registry = registry;
+    }
+
+    public void setBudgetMillis(long budgetMillis) {
+        this.budgetMillis = budgetMillis;
+    }
+
+    public void setIterations(int iterations) {
+        this.iterations = iterations;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        Warmup warmup = new Warmup(registry, budgetMillis, TimeUnit.MILLISECONDS);
+        warmup.step("jwks", () -> {
+            if (jwksVerifierCache.getVerifiers().isEmpty()) {
+                jwksVerifierCache.refresh();
+            }
+            if (jwksVerifierCache.getVerifiers().isEmpty()) {
+                throw new IllegalStateException("No verification keys available");
+            }
+        });
+        if (revocationDenylist != null) {
+            warmup.step("revocation", revocationDenylist::refresh);
+        }
+
+        warmup.step("jwt_key", () -> {
+            KeyPair keyPair = generateKeyPair();
+            verifier = new RsaVerifier((RSAPublicKey) keyPair.getPublic());
+            token = JwtHelper.encode(jsonParser.formatMap(claims()), new RsaSigner((RSAPrivateKey) keyPair.getPrivate()))
+                    .getEncoded();
+        });
+        VerifiedTokenCache cache = new VerifiedTokenCache(16, 1, TimeUnit.MINUTES);
+        warmup.repeat("jwt", token == null ? 0 : iterations, () -> {
+            Jwt jwt = JwtHelper.decodeAndVerify(token, verifier);
+            Map<String, Object> claims = jsonParser.parseMap(jwt.getClaims());
+            if (claims.get(EXP) instanceof Integer) {
+                claims.put(EXP, ((Integer) claims.get(EXP)).longValue());
+            }
+            OAuth2AccessToken accessToken = accessTokenConverter.extractAccessToken(token, claims);
+            OAuth2Authentication authentication = accessTokenConverter.extractAuthentication(claims);
+            cache.invalidateAll();
+            cache.put(token, accessToken, authentication);
+            cache.get(token).getAuthorityNames();
+        });
+        warmup.finish();
+    }
+
+    private static Map<String, Object> claims() {
+        Map<String, Object> claims = new LinkedHashMap<>();
+        claims.put("aud", Collections.singletonList("res1"));
+        claims.put("user_name", "warmup");
+        claims.put("scope", Collections.singletonList("all"));
+        claims.put(EXP, TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis()) + TimeUnit.HOURS.toSeconds(1));
+        claims.put("authorities", Arrays.asList("ROLE_admin", "ROLE_user"));
+        claims.put("jti", UUID.randomUUID().toString());
+        claims.put("client_id", "warmup");
+        return claims;
+    }
+
+    private static KeyPair generateKeyPair() {
+        try {
+            KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+            generator.initialize(2048);
+            return generator.generateKeyPair();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
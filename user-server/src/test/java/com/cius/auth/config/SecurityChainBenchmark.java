@@ -0,0 +1,168 @@
+package com.cius.auth.config;
+
+import com.cius.auth.UserServerApplication;
+import com.cius.auth.token.JwksVerifierCache;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.jwt.JwtHelper;
+import org.springframework.security.jwt.crypto.sign.RsaSigner;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 对比 resource.security.mode=standard 和 stateless 两种过滤器链的吞吐量：
+ * 每种模式各在随机端口启动一次 user-server，用一把临时 RSA 密钥签发 JWT 并注入 JwksVerifierCache，
+ * 多个线程通过 keep-alive 连接并发请求 /hello、/admin/hello 和一个 CORS 预检请求，
+ * 输出每秒请求数以及响应中下发 JSESSIONID（即创建了 HttpSession）的次数。
+ * 直接运行 main 方法即可，参数依次为线程数、每个场景的秒数。
+ */
+public class SecurityChainBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        // 默认情况下 HttpURLConnection 会丢掉 Origin 和 Access-Control-Request-Method 请求头
+        System.setProperty("sun.net.http.allowRestrictedHeaders", "true");
+
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        KeyPair keyPair = generator.generateKeyPair();
+
+        for (String mode : new String[]{"standard", "stateless"}) {
+            // 用命令行参数覆盖 application.properties 中的配置
+            try (ConfigurableApplicationContext context = new SpringApplicationBuilder(UserServerApplication.class)
+                    .run("--server.port=0", "--resource.security.mode=" + mode,
+                            "--resource.revocation.enabled=false", "--resource.jwks.url=http://127.0.0.1:1/jwks",
+                            "--logging.level.root=WARN")) {
+                context.getBean(JwksVerifierCache.class).update(jwks(keyPair));
+                String baseUrl = "http://127.0.0.1:" + context.getEnvironment().getProperty("local.server.port");
+                String authorization = "Bearer " + token(keyPair);
+
+                System.out.println("mode=" + mode);
+                run("GET /hello", new Request("GET", baseUrl + "/hello", HttpHeaders.AUTHORIZATION, authorization), threads, seconds);
+                run("GET /admin/hello", new Request("GET", baseUrl + "/admin/hello", HttpHeaders.AUTHORIZATION, authorization), threads, seconds);
+                run("OPTIONS /hello (preflight)", new Request("OPTIONS", baseUrl + "/hello",
+                        HttpHeaders.ORIGIN, "http://localhost:8082",
+                        HttpHeaders.ACCESS_CONTROL_REQUEST_METHOD, "GET"), threads, seconds);
+            }
+        }
+    }
+
+    private static void run(String name, Request request, int threads, int seconds) throws Exception {
+        // 预热
+        for (int i = 0; i < 5_000; i++) {
+            request.send();
+        }
+        AtomicInteger sessions = new AtomicInteger();
+        AtomicInteger failures = new AtomicInteger();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<Integer>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                int count = 0;
+                while (System.nanoTime() < deadline) {
+                    HttpURLConnection connection = request.send();
+                    if (connection.getResponseCode() != 200) {
+                        failures.incrementAndGet();
+                    }
+                    String cookie = connection.getHeaderField(HttpHeaders.SET_COOKIE);
+                    if (cookie != null && cookie.startsWith("JSESSIONID")) {
+                        sessions.incrementAndGet();
+                    }
+                    count++;
+                }
+                return count;
+            }));
+        }
+        long total = 0;
+        for (Future<Integer> future : futures) {
+            total += future.get();
+        }
+        executor.shutdown();
+        System.out.printf("  %-28s %10.0f req/s  sessions=%d  non-200=%d%n",
+                name, (double) total / seconds, sessions.get(), failures.get());
+    }
+
+    private static Map<String, Object> jwks(KeyPair keyPair) {
+        RSAPublicKey publicKey = (RSAPublicKey) keyPair.getPublic();
+        Map<String, Object> jwk = new HashMap<>();
+        jwk.put("kty", "RSA");
+        jwk.put("kid", "bench");
+        jwk.put("n", Base64.getUrlEncoder().withoutPadding().encodeToString(unsigned(publicKey.getModulus().toByteArray())));
+        jwk.put("e", Base64.getUrlEncoder().withoutPadding().encodeToString(unsigned(publicKey.getPublicExponent().toByteArray())));
+        return Collections.singletonMap("keys", Collections.singletonList(jwk));
+    }
+
+    private static byte[] unsigned(byte[] bytes) {
+        if (bytes.length > 1 && bytes[0] == 0) {
+            byte[] trimmed = new byte[bytes.length - 1];
+            System.arraycopy(bytes, 1, trimmed, 0, trimmed.length);
+            return trimmed;
+        }
+        return bytes;
+    }
+
+    private static String token(KeyPair keyPair) {
+        long exp = System.currentTimeMillis() / 1000 + 3600;
+        String claims = "{\"user_name\":\"sang\",\"authorities\":[\"ROLE_admin\"],\"client_id\":\"javaboy\","
+                + "\"scope\":[\"all\"],\"aud\":[\"res1\"],\"exp\":" + exp + ",\"jti\":\"" + UUID.randomUUID() + "\"}";
+        return JwtHelper.encode(claims, new RsaSigner((RSAPrivateKey) keyPair.getPrivate()),
+                Collections.singletonMap("kid", "bench")).getEncoded();
+    }
+
+    /**
+     * 一个请求模板，send 时读完响应体，让 HttpURLConnection 复用 keep-alive 连接
+     */
+    private static class Request {
+
+        private final String method;
+
+        private final URL url;
+
+        private final String[] headers;
+
+        Request(String method, String url, String... headers) throws IOException {
+            this.method = method;
+            this.url = new URL(url);
+            this.headers = headers;
+        }
+
+        HttpURLConnection send() throws IOException {
+            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+            connection.setRequestMethod(method);
+            for (int i = 0; i < headers.length; i += 2) {
+                connection.setRequestProperty(headers[i], headers[i + 1]);
+            }
+            int status = connection.getResponseCode();
+            try (InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+                if (in != null) {
+                    while (in.read() != -1) {
+                        // 丢弃
+                    }
+                }
+            }
+            return connection;
+        }
+    }
+}
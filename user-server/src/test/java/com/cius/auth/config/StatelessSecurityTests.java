@@ -0,0 +1,130 @@
+package com.cius.auth.config;
+
+import com.cius.auth.token.JwksVerifierCache;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.jwt.JwtHelper;
+import org.springframework.security.jwt.crypto.sign.RsaSigner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.options;
+
+/**
+ * resource.security.mode=stateless 时，不管请求成功、未认证、无权限还是 CORS 预检，都不能创建 HttpSession
+ */
+@SpringBootTest(properties = {
+        "resource.security.mode=stateless",
+        "resource.cors.allowed-origins=http://localhost:8082",
+        "resource.jwks.url=http://127.0.0.1:1/jwks",
+        "resource.revocation.enabled=false",
+        "resource.warmup.enabled=false",
+        "trace.enabled=false"})
+@AutoConfigureMockMvc
+class StatelessSecurityTests {
+
+    static {
+        // 新版 JDK 上 JAXB 的字节码优化拿不到 defineClass，关掉后走反射
+        System.setProperty("com.sun.xml.bind.v2.bytecode.ClassTailor.noOptimize", "true");
+    }
+
+    private static KeyPair keyPair;
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    JwksVerifierCache verifierCache;
+
+    @BeforeAll
+    static void generateKey() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        keyPair = generator.generateKeyPair();
+    }
+
+    @BeforeEach
+    void publishKey() throws Exception {
+        verifierCache.update(jwks());
+    }
+
+    @Test
+    void authorizedRequestCreatesNoSession() throws Exception {
+        assertStatusWithoutSession(200, get("/hello").header(HttpHeaders.AUTHORIZATION, "Bearer " + token("ROLE_admin")));
+        assertStatusWithoutSession(200, get("/admin/hello").header(HttpHeaders.AUTHORIZATION, "Bearer " + token("ROLE_admin")));
+    }
+
+    @Test
+    void rejectedRequestsCreateNoSession() throws Exception {
+        assertStatusWithoutSession(401, get("/hello"));
+        assertStatusWithoutSession(401, get("/hello").header(HttpHeaders.AUTHORIZATION, "Bearer not-a-jwt"));
+        assertStatusWithoutSession(403, get("/admin/hello").header(HttpHeaders.AUTHORIZATION, "Bearer " + token("ROLE_user")));
+    }
+
+    @Test
+    void preflightOnlyAllowsConfiguredOriginsAndCreatesNoSession() throws Exception {
+        MvcResult allowed = assertStatusWithoutSession(200, options("/hello")
+                .header(HttpHeaders.ORIGIN, "http://localhost:8082")
+                .header(HttpHeaders.ACCESS_CONTROL_REQUEST_METHOD, "GET"));
+        assertEquals("http://localhost:8082", allowed.getResponse().getHeader(HttpHeaders.ACCESS_CONTROL_ALLOW_ORIGIN));
+
+        MvcResult denied = assertStatusWithoutSession(403, options("/hello")
+                .header(HttpHeaders.ORIGIN, "http://evil.example")
+                .header(HttpHeaders.ACCESS_CONTROL_REQUEST_METHOD, "GET"));
+        assertNull(denied.getResponse().getHeader(HttpHeaders.ACCESS_CONTROL_ALLOW_ORIGIN));
+    }
+
+    private MvcResult assertStatusWithoutSession(int status, RequestBuilder request) throws Exception {
+        MvcResult result = mockMvc.perform(request).andReturn();
+        assertEquals(status, result.getResponse().getStatus());
+        assertNull(result.getRequest().getSession(false));
+        assertNull(result.getResponse().getCookie("JSESSIONID"));
+        return result;
+    }
+
+    private static Map<String, Object> jwks() {
+        RSAPublicKey publicKey = (RSAPublicKey) keyPair.getPublic();
+        Map<String, Object> jwk = new HashMap<>();
+        jwk.put("kty", "RSA");
+        jwk.put("kid", "test");
+        jwk.put("n", Base64.getUrlEncoder().withoutPadding().encodeToString(unsigned(publicKey.getModulus().toByteArray())));
+        jwk.put("e", Base64.getUrlEncoder().withoutPadding().encodeToString(unsigned(publicKey.getPublicExponent().toByteArray())));
+        return Collections.singletonMap("keys", Collections.singletonList(jwk));
+    }
+
+    private static byte[] unsigned(byte[] bytes) {
+        if (bytes.length > 1 && bytes[0] == 0) {
+            byte[] trimmed = new byte[bytes.length - 1];
+            System.arraycopy(bytes, 1, trimmed, 0, trimmed.length);
+            return trimmed;
+        }
+        return bytes;
+    }
+
+    private static String token(String authority) {
+        long exp = System.currentTimeMillis() / 1000 + 3600;
+        String claims = "{\"user_name\":\"sang\",\"authorities\":[\"" + authority + "\"],\"client_id\":\"javaboy\","
+                + "\"scope\":[\"all\"],\"aud\":[\"res1\"],\"exp\":" + exp + ",\"jti\":\"" + UUID.randomUUID() + "\"}";
+        return JwtHelper.encode(claims, new RsaSigner((RSAPrivateKey) keyPair.getPrivate()),
+                Collections.singletonMap("kid", "test")).getEncoded();
+    }
+}
@@ -0,0 +1,68 @@
+package com.cius.auth.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.access.ConfigAttribute;
+import org.springframework.security.access.SecurityConfig;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+
+import java.util.Collection;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * PathAccessRules 的匹配结果要和原来的 antMatchers("/admin/**") 一致
+ */
+class PathAccessRulesTests {
+
+    private final PathAccessRules rules = PathAccessRules.builder()
+            .rule("/admin/**", "ROLE_admin")
+            .rule("/admin/public", PathAccessRules.PERMIT_ALL)
+            .rule("/admin/reports/**", "ROLE_reports")
+            .anyRequest(PathAccessRules.AUTHENTICATED)
+            .build();
+
+    @Test
+    void prefixMatchesLikeAntPattern() {
+        for (String path : new String[]{"/admin", "/admin/", "/admin/hello", "/admin/a/b"}) {
+            assertEquals("ROLE_admin", rules.requiredAuthority(path), path);
+        }
+        for (String path : new String[]{"/adminx", "/administrator/hello", "/hello", "/", "/x/admin/hello"}) {
+            assertEquals(PathAccessRules.AUTHENTICATED, rules.requiredAuthority(path), path);
+        }
+    }
+
+    @Test
+    void exactPathWinsOverPrefixAndLongestPrefixWins() {
+        assertEquals(PathAccessRules.PERMIT_ALL, rules.requiredAuthority("/admin/public"));
+        assertEquals("ROLE_admin", rules.requiredAuthority("/admin/public/x"));
+        assertEquals("ROLE_reports", rules.requiredAuthority("/admin/reports/2024"));
+        assertEquals("ROLE_reports", rules.requiredAuthority("/admin/reports"));
+    }
+
+    @Test
+    void decisionManagerChecksAuthority() {
+        AuthorityAccessDecisionManager manager = new AuthorityAccessDecisionManager();
+        UsernamePasswordAuthenticationToken user = new UsernamePasswordAuthenticationToken("sang", "N/A",
+                AuthorityUtils.createAuthorityList("ROLE_user"));
+        UsernamePasswordAuthenticationToken admin = new UsernamePasswordAuthenticationToken("sang", "N/A",
+                AuthorityUtils.createAuthorityList("ROLE_admin"));
+        AnonymousAuthenticationToken anonymous = new AnonymousAuthenticationToken("key", "anonymousUser",
+                AuthorityUtils.createAuthorityList("ROLE_ANONYMOUS"));
+
+        assertDoesNotThrow(() -> manager.decide(user, null, attributes("/hello")));
+        assertThrows(AccessDeniedException.class, () -> manager.decide(anonymous, null, attributes("/hello")));
+        assertThrows(AccessDeniedException.class, () -> manager.decide(user, null, attributes("/admin/hello")));
+        assertDoesNotThrow(() -> manager.decide(admin, null, attributes("/admin/hello")));
+        assertDoesNotThrow(() -> manager.decide(anonymous, null, attributes("/admin/public")));
+    }
+
+    private Collection<ConfigAttribute> attributes(String path) {
+        return Collections.singletonList(new SecurityConfig(rules.requiredAuthority(path)));
+    }
+}
@@ -0,0 +1,220 @@
+package com.cius.auth.token;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.common.exceptions.InvalidTokenException;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 用 com.sun.net.httpserver 模拟授权服务器的 /oauth/check_token 和 /oauth/introspect/batch，
+ * 令牌 good-* 有效，其余无效，统计授权服务器实际收到的请求数。
+ */
+class CachingRemoteTokenServicesTests {
+
+    private static final Pattern TOKEN = Pattern.compile("\"([^\"]*)\"");
+
+    private HttpServer server;
+
+    private final AtomicInteger checkTokenCalls = new AtomicInteger();
+
+    private final AtomicInteger batchCalls = new AtomicInteger();
+
+    private volatile long delayMillis;
+
+    private String baseUrl;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 128);
+        server.createContext("/oauth/check_token", exchange -> {
+            checkTokenCalls.incrementAndGet();
+            String token = read(exchange).replaceFirst("^token=", "");
+            sleep();
+            if (token.startsWith("good")) {
+                respond(exchange, 200, active(token));
+            } else {
+                respond(exchange, 400, "{\"error\":\"invalid_token\",\"error_description\":\"Token was not recognised\"}");
+            }
+        });
+        server.createContext("/oauth/introspect/batch", exchange -> {
+            batchCalls.incrementAndGet();
+            Matcher matcher = TOKEN.matcher(read(exchange));
+            List<String> results = new ArrayList<>();
+            while (matcher.find()) {
+                String token = matcher.group(1);
+                results.add(token.startsWith("good") ? active(token) : "{\"active\":false}");
+            }
+            sleep();
+            respond(exchange, 200, "[" + String.join(",", results) + "]");
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+        ((ExecutorService) server.getExecutor()).shutdownNow();
+    }
+
+    @Test
+    void validTokenIsCached() {
+        CachingRemoteTokenServices services = services();
+        OAuth2Authentication first = services.loadAuthentication("good-1");
+        OAuth2Authentication second = services.loadAuthentication("good-1");
+        assertEquals("sang", first.getName());
+        assertEquals("javaboy", second.getOAuth2Request().getClientId());
+        assertTrue(first != second);
+        assertEquals(1, checkTokenCalls.get());
+    }
+
+    @Test
+    void invalidTokenIsCachedNegatively() {
+        CachingRemoteTokenServices services = services();
+        assertThrows(InvalidTokenException.class, () -> services.loadAuthentication("bad-1"));
+        assertThrows(InvalidTokenException.class, () -> services.loadAuthentication("bad-1"));
+        assertEquals(1, checkTokenCalls.get());
+        assertEquals(1, services.getRejectedCount());
+    }
+
+    @Test
+    void concurrentLookupsAreCoalesced() throws Exception {
+        delayMillis = 200;
+        CachingRemoteTokenServices services = services();
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        try {
+            List<Callable<String>> tasks = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                tasks.add(() -> services.loadAuthentication("good-2").getName());
+            }
+            for (Future<String> future : executor.invokeAll(tasks)) {
+                assertEquals("sang", future.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, checkTokenCalls.get());
+    }
+
+    @Test
+    void missesAreBatched() throws Exception {
+        delayMillis = 20;
+        CachingRemoteTokenServices services = services();
+        services.setBatcher(new IntrospectionBatcher(new RestTemplate(), baseUrl + "/oauth/introspect/batch",
+                CachingRemoteTokenServices.basicAuthorization("javaboy", "123"), 100, 50, TimeUnit.MILLISECONDS, 2, 1000));
+        ExecutorService executor = Executors.newFixedThreadPool(20);
+        try {
+            List<Callable<Boolean>> tasks = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                String token = (i % 2 == 0 ? "good-" : "bad-") + i;
+                tasks.add(() -> services.readAccessToken(token) != null);
+            }
+            List<Future<Boolean>> futures = executor.invokeAll(tasks);
+            for (int i = 0; i < futures.size(); i++) {
+                assertEquals(i % 2 == 0, futures.get(i).get());
+            }
+        } finally {
+            executor.shutdownNow();
+            services.destroy();
+        }
+        assertEquals(0, checkTokenCalls.get());
+        assertTrue(batchCalls.get() < 20, "batch calls: " + batchCalls.get());
+    }
+
+    @Test
+    void fullQueueRejectsInsteadOfGrowing() throws Exception {
+        delayMillis = 200;
+        IntrospectionBatcher batcher = new IntrospectionBatcher(new RestTemplate(), baseUrl + "/oauth/introspect/batch",
+                CachingRemoteTokenServices.basicAuthorization("javaboy", "123"), 1, 0, TimeUnit.MILLISECONDS, 1, 2);
+        try {
+            List<CompletableFuture<Map<String, Object>>> results = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                results.add(batcher.submit("good-" + i));
+            }
+            // 发送中 1 批、线程池排队 1 批、收集线程自己发送 1 批、队列 2 个，其余都被拒绝
+            long accepted = results.stream().filter(result -> !result.isCompletedExceptionally()).count();
+            assertTrue(accepted <= 5, "accepted: " + accepted);
+            assertEquals(20 - accepted, batcher.getRejectedCount());
+            for (CompletableFuture<Map<String, Object>> result : results) {
+                if (result.isCompletedExceptionally()) {
+                    CompletionException e = assertThrows(CompletionException.class, result::join);
+                    assertTrue(e.getCause() instanceof RejectedExecutionException);
+                } else {
+                    assertEquals(true, result.get(5, TimeUnit.SECONDS).get("active"));
+                }
+            }
+        } finally {
+            batcher.destroy();
+        }
+    }
+
+    private CachingRemoteTokenServices services() {
+        return new CachingRemoteTokenServices(new RestTemplate(), baseUrl + "/oauth/check_token", "javaboy", "123",
+                new VerifiedTokenCache(100, 5, TimeUnit.MINUTES), 100, 30, TimeUnit.SECONDS);
+    }
+
+    private static String active(String token) {
+        long exp = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis()) + 3600;
+        return "{\"active\":true,\"exp\":" + exp + ",\"user_name\":\"sang\",\"authorities\":[\"ROLE_admin\"],"
+                + "\"client_id\":\"javaboy\",\"scope\":[\"all\"],\"aud\":[\"res1\"],\"jti\":\"" + token + "\"}";
+    }
+
+    private void sleep() {
+        try {
+            Thread.sleep(delayMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static String read(HttpExchange exchange) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] buffer = new byte[1024];
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                out.write(buffer, 0, n);
+            }
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
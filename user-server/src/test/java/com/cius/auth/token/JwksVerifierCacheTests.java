@@ -0,0 +1,86 @@
+package com.cius.auth.token;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 大量带伪造 kid 的令牌同时到达时，只提交一次后台刷新，间隔之内也不会再拉取 JWKS
+ */
+class JwksVerifierCacheTests {
+
+    private final BlockingRestTemplate restTemplate = new BlockingRestTemplate();
+
+    private final JwksVerifierCache cache = new JwksVerifierCache(restTemplate, "http://auth/jwks", 1, 1, TimeUnit.HOURS);
+
+    @AfterEach
+    void shutdown() {
+        restTemplate.release.countDown();
+        cache.destroy();
+    }
+
+    @Test
+    void unknownKidBurstTriggersOneFetch() throws Exception {
+        ExecutorService threads = Executors.newFixedThreadPool(8);
+        try {
+            for (int i = 0; i < 1000; i++) {
+                threads.execute(() -> assertNull(cache.getVerifier("forged")));
+            }
+            assertTrue(restTemplate.started.await(5, TimeUnit.SECONDS));
+            // 拉取还没有返回时继续到达的令牌不会再排队
+            for (int i = 0; i < 1000; i++) {
+                threads.execute(() -> assertNull(cache.getVerifier("forged")));
+            }
+        } finally {
+            threads.shutdown();
+            assertTrue(threads.awaitTermination(5, TimeUnit.SECONDS));
+        }
+        restTemplate.release.countDown();
+        for (int i = 0; i < 1000; i++) {
+            assertNull(cache.getVerifier("forged"));
+        }
+        Thread.sleep(200);
+        assertEquals(1, restTemplate.calls.get());
+    }
+
+    /**
+     * 第一次拉取阻塞到 release，返回空的 JWKS
+     */
+    static class BlockingRestTemplate extends RestTemplate {
+
+        final AtomicInteger calls = new AtomicInteger();
+
+        final CountDownLatch started = new CountDownLatch(1);
+
+        final CountDownLatch release = new CountDownLatch(1);
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T getForObject(String url, Class<T> responseType, Object... uriVariables) {
+            calls.incrementAndGet();
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return (T) response();
+        }
+
+        Map<String, Object> response() {
+            return Collections.singletonMap("keys", Collections.emptyList());
+        }
+    }
+}
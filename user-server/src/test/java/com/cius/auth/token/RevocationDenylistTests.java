@@ -0,0 +1,139 @@
+package com.cius.auth.token;
+
+import com.cius.auth.revoke.BloomFilter;
+import com.cius.auth.revoke.RevocationList;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 用授权服务器的 RevocationList 代替 HTTP 接口，版本、快照和增量都走真实的 changesSince，
+ * 结果像 HttpRevocationSource 一样经过 JSON 转换。
+ * 过滤器只有 128 位、1 个哈希函数，故意制造大量误判，确认误判的 jti 经过精确查询后放行，已吊销的 jti 都被拒绝。
+ */
+class RevocationDenylistTests {
+
+    private final LocalSource source = new LocalSource();
+
+    private final RevocationDenylist denylist = new RevocationDenylist(source, 1, TimeUnit.HOURS, 10000);
+
+    @BeforeEach
+    void snapshot() {
+        for (int i = 0; i < 32; i++) {
+            source.revoke("revoked-" + i);
+        }
+        // 超过 expectedInsertions，清理时会重建过滤器，生成新的快照
+        source.list.purgeExpired();
+        denylist.refresh();
+    }
+
+    @Test
+    void snapshotRevokedTokensAreRejected() {
+        for (int i = 0; i < 32; i++) {
+            assertTrue(denylist.isRevoked("revoked-" + i));
+        }
+    }
+
+    @Test
+    void falsePositivesAreAcceptedAndCached() {
+        for (int i = 0; i < 1000; i++) {
+            assertFalse(denylist.isRevoked("live-" + i));
+        }
+        int exactChecks = source.exactChecks.get();
+        assertTrue(exactChecks > 0, "64 位的过滤器应该有误判");
+        assertTrue(exactChecks < 1000, "过滤器未命中的 jti 不应该精确查询");
+        for (int i = 0; i < 1000; i++) {
+            assertFalse(denylist.isRevoked("live-" + i));
+        }
+        assertEquals(exactChecks, source.exactChecks.get());
+    }
+
+    @Test
+    void deltasAreAppliedWithoutRefetchingFilter() {
+        String falsePositive = falsePositive();
+        assertFalse(denylist.isRevoked(falsePositive));
+
+        source.revoke("late");
+        source.revoke(falsePositive);
+        denylist.refresh();
+
+        int exactChecks = source.exactChecks.get();
+        assertTrue(denylist.isRevoked("late"));
+        assertTrue(denylist.isRevoked(falsePositive));
+        assertEquals(exactChecks, source.exactChecks.get());
+        assertEquals(1, source.fullFetches.get());
+        assertEquals(source.list.getVersion(), denylist.getVersion());
+    }
+
+    @Test
+    void newSnapshotReplacesFilter() {
+        source.revoke("late");
+        source.list.purgeExpired();
+        denylist.refresh();
+
+        assertEquals(2, source.fullFetches.get());
+        assertTrue(denylist.isRevoked("late"));
+        assertTrue(denylist.isRevoked("revoked-0"));
+    }
+
+    @Test
+    void exactCheckFailureAcceptsToken() {
+        source.failing = true;
+        assertFalse(denylist.isRevoked("revoked-0"));
+        source.failing = false;
+        assertTrue(denylist.isRevoked("revoked-0"));
+    }
+
+    private String falsePositive() {
+        Map<String, Object> full = source.list.changesSince(0);
+        BloomFilter filter = BloomFilter.fromBase64((String) full.get("bits"), (Integer) full.get("numHashes"));
+        for (int i = 0; ; i++) {
+            if (filter.mightContain("live-" + i)) {
+                return "live-" + i;
+            }
+        }
+    }
+
+    static class LocalSource implements RevocationSource {
+
+        final RevocationList list = new RevocationList(8, 0.5, 1, TimeUnit.HOURS);
+
+        final ObjectMapper objectMapper = new ObjectMapper();
+
+        final AtomicInteger exactChecks = new AtomicInteger();
+
+        final AtomicInteger fullFetches = new AtomicInteger();
+
+        volatile boolean failing;
+
+        void revoke(String jti) {
+            list.revoke(jti, System.currentTimeMillis() / 1000 + 3600);
+        }
+
+        @Override
+        public RevocationUpdate fetch(long sinceVersion) {
+            RevocationUpdate update = objectMapper.convertValue(list.changesSince(sinceVersion), RevocationUpdate.class);
+            if (update.isFull()) {
+                fullFetches.incrementAndGet();
+            }
+            return update;
+        }
+
+        @Override
+        public boolean isRevoked(String jti) {
+            exactChecks.incrementAndGet();
+            if (failing) {
+                throw new IllegalStateException("auth server unavailable");
+            }
+            return list.isRevoked(jti);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.cius.auth.token;
+
+import com.cius.auth.jwt.TokenDictionary;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 和 JwksVerifierCacheTests 一样：大量带未知字典 id 的令牌同时到达时，只拉取一次字典
+ */
+class TokenDictionaryCacheTests {
+
+    private static final TokenDictionary DICTIONARY = new TokenDictionary(Arrays.asList("ROLE_admin", "ROLE_user"),
+            Collections.singletonList("all"));
+
+    private final JwksVerifierCacheTests.BlockingRestTemplate restTemplate = new JwksVerifierCacheTests.BlockingRestTemplate() {
+        @Override
+        Map<String, Object> response() {
+            return DICTIONARY.toMap();
+        }
+    };
+
+    private final TokenDictionaryCache cache = new TokenDictionaryCache(restTemplate, "http://auth/token-dictionary.json",
+            1, 1, TimeUnit.HOURS);
+
+    @AfterEach
+    void shutdown() {
+        restTemplate.release.countDown();
+        cache.destroy();
+    }
+
+    @Test
+    void unknownDictionaryBurstTriggersOneFetch() throws Exception {
+        ExecutorService threads = Executors.newFixedThreadPool(8);
+        try {
+            for (int i = 0; i < 1000; i++) {
+                threads.execute(() -> assertNull(cache.getDictionary("forged")));
+            }
+            assertTrue(restTemplate.started.await(5, TimeUnit.SECONDS));
+            for (int i = 0; i < 1000; i++) {
+                threads.execute(() -> assertNull(cache.getDictionary("forged")));
+            }
+        } finally {
+            threads.shutdown();
+            assertTrue(threads.awaitTermination(5, TimeUnit.SECONDS));
+        }
+        restTemplate.release.countDown();
+        for (int i = 0; i < 1000; i++) {
+            assertNull(cache.getDictionary("forged"));
+        }
+        Thread.sleep(200);
+        assertEquals(1, restTemplate.calls.get());
+        assertNotNull(cache.getDictionary(DICTIONARY.getId()));
+    }
+}
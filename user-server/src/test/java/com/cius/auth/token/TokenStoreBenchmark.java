@@ -0,0 +1,87 @@
+package com.cius.auth.token;
+
+import com.cius.auth.jwt.KidJwtAccessTokenConverter;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.jwt.crypto.sign.MacSigner;
+import org.springframework.security.jwt.crypto.sign.SignatureVerifier;
+import org.springframework.security.oauth2.common.DefaultOAuth2AccessToken;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.OAuth2Request;
+import org.springframework.security.oauth2.provider.token.TokenStore;
+import org.springframework.security.oauth2.provider.token.store.JwtAccessTokenConverter;
+import org.springframework.security.oauth2.provider.token.store.JwtTokenStore;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 资源服务器每个请求解析 token 的耗时对比：JwtTokenStore 与 CachingJwtTokenStore。
+ * 直接运行 main 方法即可，每轮都模拟一次请求（readAccessToken + readAuthentication）。
+ */
+public class TokenStoreBenchmark {
+
+    private static final int WARMUP = 50_000;
+    private static final int ITERATIONS = 200_000;
+
+    public static void main(String[] args) throws Exception {
+        MacSigner verifier = new MacSigner("javaboy");
+        KidJwtAccessTokenConverter converter = new KidJwtAccessTokenConverter() {
+            @Override
+            protected SignatureVerifier getVerifier(String kid) {
+                return verifier;
+            }
+
+            @Override
+            protected boolean isRevoked(String jti) {
+                return false;
+            }
+        };
+        converter.setSigningKey("javaboy");
+        converter.afterPropertiesSet();
+        String token = createToken(converter);
+
+        TokenStore plain = new JwtTokenStore(converter);
+        TokenStore cached = new CachingJwtTokenStore(converter, new VerifiedTokenCache(10_000, 5, TimeUnit.MINUTES));
+
+        System.out.printf("JwtTokenStore        : %8.0f ns/request%n", measure(plain, token));
+        System.out.printf("CachingJwtTokenStore : %8.0f ns/request%n", measure(cached, token));
+    }
+
+    private static double measure(TokenStore store, String token) {
+        long sink = 0;
+        for (int i = 0; i < WARMUP; i++) {
+            sink += request(store, token);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            sink += request(store, token);
+        }
+        long elapsed = System.nanoTime() - start;
+        if (sink == 42) {
+            System.out.println();
+        }
+        return (double) elapsed / ITERATIONS;
+    }
+
+    private static int request(TokenStore store, String token) {
+        OAuth2AccessToken accessToken = store.readAccessToken(token);
+        OAuth2Authentication authentication = store.readAuthentication(accessToken);
+        return authentication.getAuthorities().size();
+    }
+
+    private static String createToken(JwtAccessTokenConverter converter) {
+        OAuth2Request request = new OAuth2Request(Collections.emptyMap(), "javaboy",
+                AuthorityUtils.createAuthorityList("ROLE_admin"), true, Collections.singleton("all"),
+                Collections.singleton("res1"), null, null, null);
+        UsernamePasswordAuthenticationToken user = new UsernamePasswordAuthenticationToken("sang", "N/A",
+                AuthorityUtils.createAuthorityList("ROLE_admin"));
+        OAuth2Authentication authentication = new OAuth2Authentication(request, user);
+        DefaultOAuth2AccessToken accessToken = new DefaultOAuth2AccessToken("placeholder");
+        accessToken.setExpiration(new Date(System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1)));
+        accessToken.setScope(Collections.singleton("all"));
+        return converter.enhance(accessToken, authentication).getValue();
+    }
+}
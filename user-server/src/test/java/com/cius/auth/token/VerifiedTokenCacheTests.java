@@ -0,0 +1,114 @@
+package com.cius.auth.token;
+
+import com.cius.auth.jwt.KidJwtAccessTokenConverter;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.jwt.crypto.sign.MacSigner;
+import org.springframework.security.jwt.crypto.sign.SignatureVerifier;
+import org.springframework.security.oauth2.common.DefaultOAuth2AccessToken;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.OAuth2Request;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VerifiedTokenCacheTests {
+
+    @Test
+    void entriesNeverOutliveTheTokenExpiry() throws Exception {
+        VerifiedTokenCache cache = new VerifiedTokenCache(10, 5, TimeUnit.MINUTES);
+        cache.put("short", accessToken("short", 50), authentication());
+        cache.put("long", accessToken("long", 60_000), authentication());
+        cache.put("expired", accessToken("expired", -1000), authentication());
+
+        assertNotNull(cache.get("short"));
+        assertNull(cache.get("expired"));
+        Thread.sleep(100);
+        assertNull(cache.get("short"));
+        assertNotNull(cache.get("long"));
+        assertNull(cache.get("long.tampered"));
+    }
+
+    @Test
+    void cachedAccessTokenIsReadOnly() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(10, 5, TimeUnit.MINUTES);
+        DefaultOAuth2AccessToken original = accessToken("t", 60_000);
+        cache.put("t", original, authentication());
+        original.getAdditionalInformation().put("jti", "changed");
+        original.setScope(Collections.singleton("changed"));
+
+        OAuth2AccessToken cached = cache.get("t").getAccessToken();
+        assertEquals("j-1", cached.getAdditionalInformation().get("jti"));
+        assertEquals(Collections.singleton("all"), cached.getScope());
+        assertThrows(UnsupportedOperationException.class, () -> cached.getAdditionalInformation().put("jti", "x"));
+        assertThrows(UnsupportedOperationException.class, () -> cached.getScope().add("x"));
+        cached.getExpiration().setTime(0);
+        assertTrue(cached.getExpiration().getTime() > System.currentTimeMillis());
+        assertEquals(original, cached);
+    }
+
+    @Test
+    void cacheMissDecodesTheTokenOnce() {
+        AtomicInteger decodes = new AtomicInteger();
+        MacSigner verifier = new MacSigner("javaboy");
+        KidJwtAccessTokenConverter converter = new KidJwtAccessTokenConverter() {
+            @Override
+            public Map<String, Object> decode(String token) {
+                decodes.incrementAndGet();
+                return super.decode(token);
+            }
+
+            @Override
+            protected SignatureVerifier getVerifier(String kid) {
+                return verifier;
+            }
+
+            @Override
+            protected boolean isRevoked(String jti) {
+                return false;
+            }
+        };
+        converter.setSigningKey("javaboy");
+        OAuth2Request request = new OAuth2Request(Collections.emptyMap(), "javaboy", AuthorityUtils.createAuthorityList("ROLE_user"),
+                true, Collections.singleton("all"), null, null, null, null);
+        String token = converter.enhance(accessToken("placeholder", 60_000), new OAuth2Authentication(request,
+                new UsernamePasswordAuthenticationToken("sang", "N/A", AuthorityUtils.createAuthorityList("ROLE_user")))).getValue();
+        CachingJwtTokenStore store = new CachingJwtTokenStore(converter, new VerifiedTokenCache(10, 5, TimeUnit.MINUTES));
+
+        OAuth2AccessToken accessToken = store.readAccessToken(token);
+        OAuth2Authentication authentication = store.readAuthentication(accessToken);
+        assertEquals(1, decodes.get());
+        assertEquals("sang", authentication.getName());
+        assertEquals("javaboy", authentication.getOAuth2Request().getClientId());
+        assertEquals(Collections.singleton("all"), accessToken.getScope());
+
+        store.readAuthentication(store.readAccessToken(token));
+        assertEquals(1, decodes.get());
+    }
+
+    private static DefaultOAuth2AccessToken accessToken(String value, long validMillis) {
+        DefaultOAuth2AccessToken token = new DefaultOAuth2AccessToken(value);
+        token.setExpiration(new Date(System.currentTimeMillis() + validMillis));
+        token.setScope(Collections.singleton("all"));
+        token.setAdditionalInformation(new HashMap<>(Collections.singletonMap("jti", "j-1")));
+        return token;
+    }
+
+    private static OAuth2Authentication authentication() {
+        OAuth2Request request = new OAuth2Request(Collections.emptyMap(), "javaboy", AuthorityUtils.createAuthorityList("ROLE_user"),
+                true, Collections.singleton("all"), null, null, null, null);
+        return new OAuth2Authentication(request, null);
+    }
+}